@@ -0,0 +1,33 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the matrix benchmarks with the GC profiler, so every result reports
+ * operations per second together with the allocation rate (gc.alloc.rate.norm is bytes per operation).
+ * Results are also written to benchmark-results.json for comparing runs.
+ * Any standard JMH command-line option may be passed, for example
+ * a benchmark name pattern or "-p size=16,256" to limit the sizes.
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLine);
+		if (commandLine.getIncludes().isEmpty())
+			builder.include(BenchmarkRunner.class.getPackageName() + ".*");
+		Options options = builder
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("benchmark-results.json")
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,135 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.software.hopkins.matrix.HSMatrix;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each read-only HSMatrix operation. None of them changes the shared operands.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "--add-modules", "jdk.incubator.vector,jdk.incubator.foreign"})
+public class HSMatrixBenchmark {
+
+	@Benchmark
+	public HSMatrix plus(MatrixState state) {
+		return state.a.plus(state.b);
+	}
+
+	@Benchmark
+	public HSMatrix minus(MatrixState state) {
+		return state.a.minus(state.b);
+	}
+
+	@Benchmark
+	public HSMatrix negative(MatrixState state) {
+		return state.a.negative();
+	}
+
+	@Benchmark
+	public HSMatrix timesScalar(MatrixState state) {
+		return state.a.times(2.0f);
+	}
+
+	@Benchmark
+	public HSMatrix timesMatrix(MatrixState state) {
+		return state.a.times(state.multiplicand);
+	}
+
+	@Benchmark
+	public HSMatrix transpose(MatrixState state) {
+		return state.a.transpose();
+	}
+
+	@Benchmark
+	public HSMatrix cloneMatrix(MatrixState state) {
+		return state.a.clone();
+	}
+
+	@Benchmark
+	public boolean equalsMatrix(MatrixState state) {
+		return state.a.equals(state.b);
+	}
+
+	@Benchmark
+	public void sumEveryRow(MatrixState state, Blackhole blackhole) {
+		for (int r = 0; r < state.rows; r++) {
+			blackhole.consume(state.a.sumRow(r));
+		}
+	}
+
+	@Benchmark
+	public void sumEveryColumn(MatrixState state, Blackhole blackhole) {
+		for (int c = 0; c < state.columns; c++) {
+			blackhole.consume(state.a.sumColumn(c));
+		}
+	}
+
+	@Benchmark
+	public double[] rowSums(MatrixState state) {
+		return state.a.rowSums();
+	}
+
+	@Benchmark
+	public double[] columnSums(MatrixState state) {
+		return state.a.columnSums();
+	}
+
+	@Benchmark
+	public float[][] rowMinMax(MatrixState state) {
+		return state.a.rowMinMax();
+	}
+
+	@Benchmark
+	public double frobeniusNorm(MatrixState state) {
+		return state.a.frobeniusNorm();
+	}
+
+	@Benchmark
+	public float scanGetEntry(MatrixState state) {
+		float total = 0.0f;
+		for (int r = 0; r < state.rows; r++) {
+			for (int c = 0; c < state.columns; c++) {
+				total += state.a.getEntry(r, c);
+			}
+		}
+		return total;
+	}
+
+	@Benchmark
+	public float scanGetFloat(MatrixState state) {
+		float total = 0.0f;
+		for (int r = 0; r < state.rows; r++) {
+			for (int c = 0; c < state.columns; c++) {
+				total += state.a.getFloat(r, c);
+			}
+		}
+		return total;
+	}
+
+	@Benchmark
+	public void copyEveryRow(MatrixState state, Blackhole blackhole) {
+		for (int r = 0; r < state.rows; r++) {
+			state.a.copyRowInto(r, state.rowBuffer, 0);
+		}
+		blackhole.consume(state.rowBuffer);
+	}
+
+	@Benchmark
+	public void getEveryColumn(MatrixState state, Blackhole blackhole) {
+		for (int c = 0; c < state.columns; c++) {
+			blackhole.consume(state.a.getColumn(c));
+		}
+	}
+}
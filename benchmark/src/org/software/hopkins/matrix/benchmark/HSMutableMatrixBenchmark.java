@@ -0,0 +1,139 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.software.hopkins.matrix.HSMutableMatrix;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each HSMutableMatrix operation.
+ * Operations that keep the matrix's order work on one target for the whole trial.
+ * multiplyBy and invert change the order, so they get a fresh target before every call,
+ * as does hadamardInPlace, whose repeated products would soon overflow.
+ * gemmInto updates an m x m target with the product of a and the multiplicand.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "--add-modules", "jdk.incubator.vector,jdk.incubator.foreign"})
+public class HSMutableMatrixBenchmark {
+
+	@State(Scope.Thread)
+	public static class Target {
+		HSMutableMatrix matrix;
+
+		@Setup(Level.Trial)
+		public void setUp(MatrixState state) {
+			matrix = state.implementation.createFilled(state.rows, state.columns, 1);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ProductTarget {
+		HSMutableMatrix matrix;
+
+		@Setup(Level.Trial)
+		public void setUp(MatrixState state) {
+			matrix = state.implementation.createFilled(state.rows, state.rows, 1);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FreshTarget {
+		HSMutableMatrix matrix;
+
+		@Setup(Level.Invocation)
+		public void setUp(MatrixState state) {
+			matrix = state.implementation.createFilled(state.rows, state.columns, 1);
+		}
+	}
+
+	@Benchmark
+	public HSMutableMatrix add(MatrixState state, Target target) {
+		target.matrix.add(state.b);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix subtract(MatrixState state, Target target) {
+		target.matrix.subtract(state.b);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix scaleBy(Target target) {
+		target.matrix.scaleBy(1.0f);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix axpy(MatrixState state, Target target) {
+		target.matrix.axpy(0.5f, state.b);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix hadamardInPlace(MatrixState state, FreshTarget target) {
+		target.matrix.hadamardInPlace(state.b);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix gemmInto(MatrixState state, ProductTarget target) {
+		target.matrix.gemmInto(1.0f, state.a, state.multiplicand, 0.5f);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix fill(Target target) {
+		target.matrix.fill(1.0f);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix setValuesIncrementedFrom(Target target) {
+		target.matrix.setValuesIncrementedFrom(0.0f);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix setEveryRow(MatrixState state, Target target) {
+		for (int r = 0; r < state.rows; r++) {
+			target.matrix.setRow(r, state.rowBuffer);
+		}
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix setEveryEntry(MatrixState state, Target target) {
+		for (int r = 0; r < state.rows; r++) {
+			for (int c = 0; c < state.columns; c++) {
+				target.matrix.setFloat(r, c, r + c);
+			}
+		}
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix multiplyBy(MatrixState state, FreshTarget target) {
+		target.matrix.multiplyBy(state.multiplicand);
+		return target.matrix;
+	}
+
+	@Benchmark
+	public HSMutableMatrix invert(FreshTarget target) {
+		target.matrix.invert();
+		return target.matrix;
+	}
+}
@@ -0,0 +1,72 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.software.hopkins.matrix.DenseMatrix;
+import org.software.hopkins.matrix.HSMatrix;
+import org.software.hopkins.matrix.IntMatrix;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the integer matrix against the dense float matrix on the same square operands,
+ * whose entries are small integers, for the operations where their storage differs most.
+ * The updates of the HSMutableMatrix benchmarks use fractional scalars, which an integer matrix rejects,
+ * so the integer matrix is measured here rather than as one of the MatrixImplementations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "--add-modules", "jdk.incubator.vector,jdk.incubator.foreign"})
+public class IntMatrixBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Operands {
+		@Param({"64", "256", "1024"})
+		public int size;
+
+		@Param({"INT", "DENSE"})
+		public String kind;
+
+		HSMatrix a, b;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			HSMatrix denseA = MatrixImplementation.DENSE.createFilled(size, size, 1);
+			HSMatrix denseB = MatrixImplementation.DENSE.createFilled(size, size, 2);
+			a = kind.equals("INT") ? new IntMatrix(denseA) : new DenseMatrix(denseA);
+			b = kind.equals("INT") ? new IntMatrix(denseB) : new DenseMatrix(denseB);
+		}
+	}
+
+	@Benchmark
+	public HSMatrix plus(Operands operands) {
+		return operands.a.plus(operands.b);
+	}
+
+	@Benchmark
+	public HSMatrix timesMatrix(Operands operands) {
+		return operands.a.times(operands.b);
+	}
+
+	@Benchmark
+	public double[] rowSums(Operands operands) {
+		return operands.a.rowSums();
+	}
+
+	@Benchmark
+	public double[] columnSums(Operands operands) {
+		return operands.a.columnSums();
+	}
+}
@@ -0,0 +1,88 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.software.hopkins.matrix.HSMatrix;
+import org.software.hopkins.matrix.MatrixBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures many small products and sums as a {@link MatrixBatch} against the same matrices
+ * as separate objects of each implementation. Every benchmark handles {@link #COUNT} matrices,
+ * and the scores are per matrix.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g", "--add-modules", "jdk.incubator.vector,jdk.incubator.foreign"})
+public class MatrixBatchBenchmark {
+	static final int COUNT = 10_000;
+
+	@State(Scope.Benchmark)
+	public static class Operands {
+		@Param({"3", "4", "8", "16"})
+		public int size;
+
+		@Param({"MATRIX", "DENSE"})
+		public MatrixImplementation implementation;
+
+		List<HSMatrix> a, b;
+		MatrixBatch batchA, batchB;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			a = new ArrayList<>(COUNT);
+			b = new ArrayList<>(COUNT);
+			for (int i = 0; i < COUNT; i++) {
+				a.add(implementation.createFilled(size, size, i));
+				b.add(implementation.createFilled(size, size, i + 7));
+			}
+			batchA = new MatrixBatch(a);
+			batchB = new MatrixBatch(b);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public MatrixBatch batchTimes(Operands operands) {
+		return operands.batchA.times(operands.batchB);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void eachTimes(Operands operands, Blackhole blackhole) {
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(operands.a.get(i).times(operands.b.get(i)));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public MatrixBatch batchPlus(Operands operands) {
+		return operands.batchA.plus(operands.batchB);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void eachPlus(Operands operands, Blackhole blackhole) {
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(operands.a.get(i).plus(operands.b.get(i)));
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.software.hopkins.matrix.DenseMutableMatrix;
+import org.software.hopkins.matrix.HSMutableMatrix;
+import org.software.hopkins.matrix.MutableMatrix;
+import org.software.hopkins.matrix.OffHeapMatrix;
+
+/**
+ * The matrix implementations measured.
+ * Every one is created mutable so the same instances serve the HSMatrix and HSMutableMatrix benchmarks.
+ */
+public enum MatrixImplementation {
+	MATRIX {
+		@Override
+		HSMutableMatrix create(int rows, int columns) {
+			return new MutableMatrix(rows, columns);
+		}
+	},
+	DENSE {
+		@Override
+		HSMutableMatrix create(int rows, int columns) {
+			return new DenseMutableMatrix(rows, columns);
+		}
+	},
+	OFF_HEAP {
+		@Override
+		HSMutableMatrix create(int rows, int columns) {
+			return new OffHeapMatrix(rows, columns);
+		}
+	};
+
+	abstract HSMutableMatrix create(int rows, int columns);
+
+	/**
+	 * Create a matrix filled with small, varied values so no operation hits a special case.
+	 */
+	HSMutableMatrix createFilled(int rows, int columns, int seed) {
+		HSMutableMatrix matrix = create(rows, columns);
+		float[] row = new float[columns];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				row[c] = ((r * 31 + c * 17 + seed) % 19) - 9;
+			}
+			matrix.setRow(r, row);
+		}
+		return matrix;
+	}
+}
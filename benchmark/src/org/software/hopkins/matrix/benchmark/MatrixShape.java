@@ -0,0 +1,44 @@
+package org.software.hopkins.matrix.benchmark;
+
+/**
+ * The shapes of matrix measured, each derived from a benchmark size n.
+ */
+public enum MatrixShape {
+	SQUARE {
+		@Override
+		int rows(int size) {
+			return size;
+		}
+
+		@Override
+		int columns(int size) {
+			return size;
+		}
+	},
+	TALL {
+		@Override
+		int rows(int size) {
+			return size;
+		}
+
+		@Override
+		int columns(int size) {
+			return Math.max(1, size / 4);
+		}
+	},
+	WIDE {
+		@Override
+		int rows(int size) {
+			return Math.max(1, size / 4);
+		}
+
+		@Override
+		int columns(int size) {
+			return size;
+		}
+	};
+
+	abstract int rows(int size);
+
+	abstract int columns(int size);
+}
@@ -0,0 +1,41 @@
+package org.software.hopkins.matrix.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.software.hopkins.matrix.HSMatrix;
+import org.software.hopkins.matrix.HSMutableMatrix;
+
+/**
+ * The operands shared by the benchmarks, built once per trial for every
+ * combination of size, shape and implementation.
+ * Two m x n operands a and b, and an n x m operand for products with a.
+ */
+@State(Scope.Benchmark)
+public class MatrixState {
+	@Param({"16", "64", "256", "1024", "4096"})
+	public int size;
+
+	@Param({"SQUARE", "TALL", "WIDE"})
+	public MatrixShape shape;
+
+	@Param({"MATRIX", "DENSE", "OFF_HEAP"})
+	public MatrixImplementation implementation;
+
+	public int rows, columns;
+	public HSMutableMatrix a, b;
+	public HSMatrix multiplicand;
+	public float[] rowBuffer;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		rows = shape.rows(size);
+		columns = shape.columns(size);
+		a = implementation.createFilled(rows, columns, 1);
+		b = implementation.createFilled(rows, columns, 2);
+		multiplicand = implementation.createFilled(columns, rows, 3);
+		rowBuffer = new float[columns];
+	}
+}
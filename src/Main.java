@@ -1,19 +1,23 @@
 import org.software.hopkins.matrix.HSMatrix;
 import org.software.hopkins.matrix.HSMutableMatrix;
 import org.software.hopkins.matrix.Matrix;
+import org.software.hopkins.matrix.MatrixChain;
 import org.software.hopkins.matrix.MatrixCommand;
+import org.software.hopkins.matrix.MatrixFile;
 import org.software.hopkins.matrix.MatrixOperation;
+import org.software.hopkins.matrix.MatrixRegistry;
 import org.software.hopkins.matrix.MutableMatrix;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
 public class Main {
-	private static final HashMap<String, HSMatrix> matrixHashMap = new HashMap<>();
+	private static final MatrixRegistry matrixRegistry = new MatrixRegistry();
 
 	/**
 	 * Main method for a Matrix command-line calculator using HSMatrix.
@@ -24,9 +28,13 @@ public class Main {
 	 * 	Calc - perform math operations on named matrices. May store result in a new or old named matrix.
 	 * 		Add - add multiple matrices together.
 	 * 		Subtract - subtract multiple matrices in given order of appearance.
+	 * 		Multiply - multiply multiple matrices in given order of appearance, grouping the products
+	 * 			in whichever way takes the fewest operations.
 	 * 		Scale - multiply a named matrix by a given scalar value (number).
 	 * 		Sum - get the sum of a column or row of a named matrix.
 	 * 		Transpose - swap the rows and columns of a named matrix (inverting it).
+	 * 	Load - name a matrix read from a matrix file (mapped into memory, not copied).
+	 * 	Save - write a named matrix to a matrix file.
 	 * 	Demo - prints out a pre-programmed set of calculations, demonstrating the programs capabilities.
 	 * 	Exit - quits the program.
 	 * @param args - none used.
@@ -34,7 +42,7 @@ public class Main {
 	public static void main(String[] args) {
 		boolean done = false;
 		while(!done) {
-			System.out.println("Enter matrix command (make, edit, print, calc, demo, exit): ");
+			System.out.println("Enter matrix command (make, edit, print, calc, load, save, demo, exit): ");
 			Scanner scanner = new Scanner(System.in);
 			String input = scanner.nextLine().trim();
 			MatrixCommand cmd = MatrixCommand.valueOf(input.toUpperCase());
@@ -43,6 +51,8 @@ public class Main {
 				case EDIT -> editUserMatrix();
 				case PRINT -> printUserMatrices();
 				case CALC -> matrixCalculations();
+				case LOAD -> loadUserMatrix();
+				case SAVE -> saveUserMatrix();
 				case DEMO -> demo();
 				case EXIT -> done = true;
 				default -> System.out.println("Incorrect command. Try again.");
@@ -87,7 +97,7 @@ public class Main {
 	private static void doCalculation(MatrixOperation opCode, String[] operands,
 									  String resultMatrixName, Scanner scanner) {
 		switch (opCode) {
-			case ADD, SUBTRACT -> multiOperandOperation(opCode, operands, resultMatrixName);
+			case ADD, SUBTRACT, MULTIPLY -> multiOperandOperation(opCode, operands, resultMatrixName);
 			case SCALE -> {
 				Float scalar = getUserScalar(scanner);
 				singleOperandOperation(opCode, operands[0], resultMatrixName, scalar);
@@ -95,7 +105,7 @@ public class Main {
 			case TRANSPOSE -> singleOperandOperation(opCode, operands[0], resultMatrixName);
 			case SUM -> {
 				char rc = getUserRowOrColumnChoice(scanner);
-				HSMatrix matrix = matrixHashMap.get(operands[0]);
+				HSMatrix matrix = matrixRegistry.get(operands[0]);
 				Integer rcNum;
 				if (rc == 'r')
 					rcNum = getUserRowOrColumnNumber(scanner, matrix.columnSize());
@@ -125,7 +135,7 @@ public class Main {
 			for (String operand : operands) {
 				if (operand.isEmpty())
 					System.out.println("No operand entered. Canceling calculation.");
-				else if (!matrixHashMap.containsKey(operand)) {
+				else if (!matrixRegistry.contains(operand)) {
 					System.out.println("Operand " + operand + " unavailable. Use Make command.");
 					operands = null;
 					break;
@@ -144,7 +154,7 @@ public class Main {
 	private static MatrixOperation getUserMatrixOpcode(Scanner scanner) {
 		MatrixOperation opCode = MatrixOperation.INVALID;
 		do {
-			System.out.println("Enter matrix operation (add, subtract, transpose, scale, sum, cancel):");
+			System.out.println("Enter matrix operation (add, subtract, multiply, transpose, scale, sum, cancel):");
 			String input = scanner.nextLine().trim();
 			try {
 				opCode = MatrixOperation.valueOf(input.toUpperCase());
@@ -219,16 +229,20 @@ public class Main {
 
 	private static void multiOperandOperation(MatrixOperation opCode, String[] operands,
 											  String resultMatrixName) {
+		if (opCode == MatrixOperation.MULTIPLY) {
+			chainMultiplication(operands, resultMatrixName);
+			return;
+		}
 		HSMatrix resultMatrix = null;
 		for (String operand : operands) {
-			if (matrixHashMap.containsKey(operand)) {
+			if (matrixRegistry.contains(operand)) {
 				if (resultMatrix == null) {
-					resultMatrix = matrixHashMap.get(operand);
+					resultMatrix = matrixRegistry.get(operand);
 				} else {
 					if (opCode == MatrixOperation.ADD)
-						resultMatrix = resultMatrix.plus(matrixHashMap.get(operand));
+						resultMatrix = resultMatrix.plus(matrixRegistry.get(operand));
 					else if (opCode == MatrixOperation.SUBTRACT)
-						resultMatrix = resultMatrix.minus(matrixHashMap.get(operand));
+						resultMatrix = resultMatrix.minus(matrixRegistry.get(operand));
 					else
 						System.out.println("Operation not implemented:  " + opCode);
 				}
@@ -237,8 +251,36 @@ public class Main {
 			}
 		}
 		System.out.println(resultMatrix);
-		if (!resultMatrixName.isEmpty()) {
-			matrixHashMap.put(resultMatrixName, resultMatrix);
+		if (!resultMatrixName.isEmpty() && resultMatrix != null) {
+			matrixRegistry.put(resultMatrixName, resultMatrix);
+		}
+	}
+
+	/**
+	 * Multiplies the named matrices, in the order planned by a {@link MatrixChain}, and prints the product.
+	 */
+	private static void chainMultiplication(String[] operands, String resultMatrixName) {
+		List<HSMatrix> matrices = new ArrayList<>(operands.length);
+		for (String operand : operands) {
+			if (!matrixRegistry.contains(operand)) {
+				System.out.println("Operand " + operand + " does not exist.");
+				return;
+			}
+			matrices.add(matrixRegistry.get(operand));
+		}
+		MatrixChain chain;
+		try {
+			chain = MatrixChain.of(matrices);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			return;
+		}
+		if (matrices.size() > 2)
+			System.out.println("Multiplying as " + chain + " in " + chain.getCost() + " multiply-adds.");
+		HSMatrix resultMatrix = chain.multiply();
+		System.out.println(resultMatrix);
+		if (!resultMatrixName.isEmpty() && resultMatrix != null) {
+			matrixRegistry.put(resultMatrixName, resultMatrix);
 		}
 	}
 
@@ -246,8 +288,8 @@ public class Main {
 											  String resultMatrixName, Float scalar,
 											   char rc, Integer rcNum) {
 		HSMatrix resultMatrix = null;
-		if (matrixHashMap.containsKey(operand)) {
-			resultMatrix = matrixHashMap.get(operand);
+		if (matrixRegistry.contains(operand)) {
+			resultMatrix = matrixRegistry.get(operand);
 			if (opCode == MatrixOperation.SCALE)
 				resultMatrix = resultMatrix.times(scalar);
 			else if (opCode == MatrixOperation.TRANSPOSE)
@@ -268,8 +310,8 @@ public class Main {
 		}
 
 		System.out.println(resultMatrix);
-		if (!resultMatrixName.isEmpty()) {
-			matrixHashMap.put(resultMatrixName, resultMatrix);
+		if (!resultMatrixName.isEmpty() && resultMatrix != null) {
+			matrixRegistry.put(resultMatrixName, resultMatrix);
 		}
 	}
 
@@ -291,9 +333,9 @@ public class Main {
 
 	private static void editUserMatrix() {
 		String matrixName = getUserMatrixName();
-		if (matrixHashMap.containsKey(matrixName)) {
+		if (matrixRegistry.contains(matrixName)) {
 			HSMatrix newUserMatrix = getUserMatrix();
-			matrixHashMap.put(matrixName, newUserMatrix);
+			matrixRegistry.replace(matrixName, newUserMatrix);
 		} else {
 			System.out.println("Matrix " + matrixName + " not found. Try Make.");
 		}
@@ -304,12 +346,12 @@ public class Main {
 		Scanner scanner = new Scanner(System.in);
 		String userInput = scanner.nextLine().trim().toUpperCase();
 		if (userInput.isEmpty()) {
-			for (Map.Entry entry : matrixHashMap.entrySet()) {
+			for (Map.Entry<String, HSMatrix> entry : matrixRegistry.snapshot().entrySet()) {
 				System.out.println("Matrix " + entry.getKey() + ": ");
 				System.out.println(entry.getValue());
 			}
 		} else {
-			HSMatrix matrix = matrixHashMap.get(userInput);
+			HSMatrix matrix = matrixRegistry.get(userInput);
 			System.out.println("Matrix " + userInput + ": ");
 			System.out.println(matrix);
 		}
@@ -360,12 +402,48 @@ public class Main {
 	private static HSMatrix constructUserMatrix() {
 		String matrixName = getUserMatrixName();
 		HSMatrix matrixMade = getUserMatrix();
-		matrixHashMap.put(matrixName, matrixMade);
+		matrixRegistry.put(matrixName, matrixMade);
 		System.out.println("Matrix " + matrixName + ":");
 		System.out.println(matrixMade);
 		return matrixMade;
 	}
 
+	private static String getUserFilePath() {
+		Scanner scanner = new Scanner(System.in);
+		String filePath;
+		do {
+			System.out.println("Enter matrix file path: ");
+			filePath = scanner.nextLine().trim();
+		} while(filePath.isEmpty());
+		return filePath;
+	}
+
+	private static void loadUserMatrix() {
+		String matrixName = getUserMatrixName();
+		String filePath = getUserFilePath();
+		try {
+			HSMatrix matrixLoaded = MatrixFile.map(Path.of(filePath));
+			matrixRegistry.put(matrixName, matrixLoaded);
+			System.out.println("Matrix " + matrixName + ": " + matrixLoaded.rowSize() + " x " + matrixLoaded.columnSize());
+		} catch (IOException e) {
+			System.out.println("Can't load matrix: " + e.getMessage());
+		}
+	}
+
+	private static void saveUserMatrix() {
+		String matrixName = getUserMatrixName();
+		if (!matrixRegistry.contains(matrixName)) {
+			System.out.println("Matrix " + matrixName + " not found. Try Make.");
+			return;
+		}
+		String filePath = getUserFilePath();
+		try {
+			MatrixFile.write(Path.of(filePath), matrixRegistry.get(matrixName));
+		} catch (IOException e) {
+			System.out.println("Can't save matrix: " + e.getMessage());
+		}
+	}
+
 	private static void demo() {
 		final int ROWS = 2;
 		final int COLS = 3;
@@ -0,0 +1,67 @@
+package org.software.hopkins.matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * The lifetime of the buffers of one {@link FloatBufferMatrix}: allocates and maps them, and releases them
+ * all at once on {@link #close()}.
+ * <p>
+ * When the jdk.incubator.foreign module is in the boot layer (start the JVM with
+ * --add-modules jdk.incubator.foreign), the buffers are views of memory segments of one shared
+ * {@link SegmentScope}. Closing the scope frees the memory and unmaps the files there and then, and is safe
+ * however many threads are using the buffers: every access to a buffer checks the scope, and one that
+ * was under way when it closed, or starts after, throws IllegalStateException instead of touching freed memory.
+ * Without the module the buffers are plain direct and mapped buffers, and closing only drops them,
+ * leaving their memory to be freed once the garbage collector finds them unreachable.
+ */
+abstract class BufferScope {
+	/** Whether buffers are memory segments, freed when their scope is closed. */
+	static final boolean RELEASED_ON_CLOSE = ModuleLayer.boot().findModule("jdk.incubator.foreign").isPresent();
+
+	/**
+	 * Open a scope for a new matrix's buffers.
+	 */
+	static BufferScope open() {
+		return RELEASED_ON_CLOSE ? new SegmentScope() : new CollectedScope();
+	}
+
+	/**
+	 * Allocate a zeroed native buffer in the platform's byte order.
+	 */
+	abstract ByteBuffer allocate(int bytes);
+
+	/**
+	 * Map a read-only region of a file.
+	 * @param channel - the file, open for reading.
+	 * @param path - the file's path.
+	 */
+	abstract ByteBuffer map(FileChannel channel, Path path, long offset, long bytes) throws IOException;
+
+	/**
+	 * Release every buffer of the scope. Closing a closed scope has no effect.
+	 */
+	abstract void close();
+
+	/**
+	 * Buffers whose memory the garbage collector frees, for when the foreign memory module is not available.
+	 */
+	private static final class CollectedScope extends BufferScope {
+		@Override
+		ByteBuffer allocate(int bytes) {
+			return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+
+		@Override
+		ByteBuffer map(FileChannel channel, Path path, long offset, long bytes) throws IOException {
+			return channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+		}
+
+		@Override
+		void close() {
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package org.software.hopkins.matrix;
+
+/**
+ * A sparse matrix in compressed sparse column form:
+ * the non-zero entries of column j are at positions columnPointers[j] to columnPointers[j + 1] - 1,
+ * with their row indices in ascending order.
+ * Columns are cheap to read and sum;
+ * the transpose of a CSC matrix is a {@link CSRMatrix} over the same arrays.
+ */
+public class CSCMatrix extends SparseMatrix {
+
+	/**
+	 * Create an m x n matrix of zeros.
+	 */
+	public CSCMatrix(int mRows, int nCols) {
+		super(mRows, nCols, new int[nCols + 1], new int[16], new float[16]);
+	}
+
+	/**
+	 * Create a matrix with the non-zero entries of the given matrix.
+	 * @param matrix - any matrix.
+	 */
+	public CSCMatrix(HSMatrix matrix) {
+		super(0, 0, null, null, null);
+		load(matrix);
+	}
+
+	/**
+	 * Create a matrix from compressed sparse column arrays, which are copied.
+	 * @param mRows - number of rows.
+	 * @param nCols - number of columns.
+	 * @param columnPointers - nCols + 1 non-decreasing positions starting at 0; the last is the number of entries.
+	 * @param rowIndices - the row of each entry, ascending within each column.
+	 * @param values - the value of each entry.
+	 */
+	public CSCMatrix(int mRows, int nCols, int[] columnPointers, int[] rowIndices, float[] values) {
+		this(mRows, nCols, columnPointers, rowIndices, values, true);
+	}
+
+	/**
+	 * Create a matrix from compressed sparse column arrays.
+	 * Without copying, the arrays are adopted as they are and must already be well formed.
+	 */
+	CSCMatrix(int mRows, int nCols, int[] columnPointers, int[] rowIndices, float[] values, boolean copy) {
+		super(mRows, nCols,
+				copy ? columnPointers.clone() : columnPointers,
+				copy ? rowIndices.clone() : rowIndices,
+				copy ? values.clone() : values);
+		if (copy)
+			checkCompressed(nCols, mRows, pointers, indices, this.values);
+	}
+
+	@Override
+	boolean isRowMajor() {
+		return false;
+	}
+
+	@Override
+	SparseMatrix create(int mRows, int nCols, int[] pointers, int[] indices, float[] values) {
+		return new CSCMatrix(mRows, nCols, pointers, indices, values, false);
+	}
+
+	@Override
+	SparseMatrix createTransposedLayout(int mRows, int nCols, int[] pointers, int[] indices, float[] values) {
+		return new CSRMatrix(mRows, nCols, pointers, indices, values, false);
+	}
+}
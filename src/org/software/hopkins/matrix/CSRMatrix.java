@@ -0,0 +1,67 @@
+package org.software.hopkins.matrix;
+
+/**
+ * A sparse matrix in compressed sparse row form:
+ * the non-zero entries of row i are at positions rowPointers[i] to rowPointers[i + 1] - 1,
+ * with their column indices in ascending order.
+ * Rows are cheap to read and the form to use for products;
+ * the transpose of a CSR matrix is a {@link CSCMatrix} over the same arrays.
+ */
+public class CSRMatrix extends SparseMatrix {
+
+	/**
+	 * Create an m x n matrix of zeros.
+	 */
+	public CSRMatrix(int mRows, int nCols) {
+		super(mRows, nCols, new int[mRows + 1], new int[16], new float[16]);
+	}
+
+	/**
+	 * Create a matrix with the non-zero entries of the given matrix.
+	 * @param matrix - any matrix.
+	 */
+	public CSRMatrix(HSMatrix matrix) {
+		super(0, 0, null, null, null);
+		load(matrix);
+	}
+
+	/**
+	 * Create a matrix from compressed sparse row arrays, which are copied.
+	 * @param mRows - number of rows.
+	 * @param nCols - number of columns.
+	 * @param rowPointers - mRows + 1 non-decreasing positions starting at 0; the last is the number of entries.
+	 * @param columnIndices - the column of each entry, ascending within each row.
+	 * @param values - the value of each entry.
+	 */
+	public CSRMatrix(int mRows, int nCols, int[] rowPointers, int[] columnIndices, float[] values) {
+		this(mRows, nCols, rowPointers, columnIndices, values, true);
+	}
+
+	/**
+	 * Create a matrix from compressed sparse row arrays.
+	 * Without copying, the arrays are adopted as they are and must already be well formed.
+	 */
+	CSRMatrix(int mRows, int nCols, int[] rowPointers, int[] columnIndices, float[] values, boolean copy) {
+		super(mRows, nCols,
+				copy ? rowPointers.clone() : rowPointers,
+				copy ? columnIndices.clone() : columnIndices,
+				copy ? values.clone() : values);
+		if (copy)
+			checkCompressed(mRows, nCols, pointers, indices, this.values);
+	}
+
+	@Override
+	boolean isRowMajor() {
+		return true;
+	}
+
+	@Override
+	SparseMatrix create(int mRows, int nCols, int[] pointers, int[] indices, float[] values) {
+		return new CSRMatrix(mRows, nCols, pointers, indices, values, false);
+	}
+
+	@Override
+	SparseMatrix createTransposedLayout(int mRows, int nCols, int[] pointers, int[] indices, float[] values) {
+		return new CSCMatrix(mRows, nCols, pointers, indices, values, false);
+	}
+}
@@ -0,0 +1,109 @@
+package org.software.hopkins.matrix;
+
+/**
+ * The 64-bit content hash behind {@link HSMatrix#contentHash()}.
+ * <p>
+ * The hash of a matrix is a mix of its order and the sum, wrapping on overflow, of a hash of each of its
+ * non-zero entries and that entry's position. As a sum, it can be kept up to date as entries change,
+ * in O(1) an entry, by subtracting the hash of each old entry and adding that of the new one. As zero
+ * entries add nothing, a sparse matrix is hashed in O(nnz). Zero and negative zero hash alike, so that a
+ * matrix hashes the same as any matrix equal to it by the comparison of any implementation's equals.
+ */
+final class ContentHash {
+	private ContentHash() {
+	}
+
+	/**
+	 * Get the hash of the entry of the given value at the given position.
+	 */
+	static long entry(int row, int col, float value) {
+		if (value == 0.0f)
+			return 0L;
+		return mix(mix(((long) row << 32) | (col & 0xFFFFFFFFL)) + Float.floatToIntBits(value));
+	}
+
+	/**
+	 * Get the hash of a matrix of the given order from the sum of the hashes of its entries.
+	 */
+	static long finish(long entrySum, int rows, int cols) {
+		return mix(entrySum ^ mix(((long) rows << 32) | (cols & 0xFFFFFFFFL)));
+	}
+
+	/**
+	 * Get the sum of the hashes of the rows x cols entries of a row-major array.
+	 */
+	static long sumOf(float[] data, int offset, int rowStride, int rows, int cols) {
+		long sum = 0L;
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				sum += entry(r, c, data[base + c]);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the sum of the hashes of the rows x cols entries of a row-major array of ints, each hashed as its float value.
+	 */
+	static long sumOf(int[] data, int offset, int rowStride, int rows, int cols) {
+		long sum = 0L;
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				sum += entry(r, c, data[base + c]);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the sum of the hashes of the entries of any matrix, read a row at a time.
+	 */
+	static long sumOf(HSMatrix matrix) {
+		int rows = matrix.rowSize();
+		int cols = matrix.columnSize();
+		float[] row = new float[cols];
+		long sum = 0L;
+		for (int r = 0; r < rows; r++) {
+			matrix.copyRowInto(r, row, 0);
+			for (int c = 0; c < cols; c++) {
+				sum += entry(r, c, row[c]);
+			}
+		}
+		return sum;
+	}
+
+	static long of(HSMatrix matrix) {
+		return finish(sumOf(matrix), matrix.rowSize(), matrix.columnSize());
+	}
+
+	/**
+	 * Whether the given matrices are known to differ from hashes they already hold, without reading an entry.
+	 */
+	static boolean knownToDiffer(HSMatrix a, HSMatrix b) {
+		return isKnown(a) && isKnown(b) && a.contentHash() != b.contentHash();
+	}
+
+	/**
+	 * Whether the given matrix holds its hash: a list, dense or integer matrix, mutable or not, once it has been hashed.
+	 */
+	private static boolean isKnown(HSMatrix matrix) {
+		if (matrix instanceof Matrix)
+			return ((Matrix) matrix).hashed;
+		if (matrix instanceof DenseMatrix)
+			return ((DenseMatrix) matrix).hashed;
+		if (matrix instanceof IntMatrix)
+			return ((IntMatrix) matrix).hashed;
+		return false;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3: a bijection that spreads every input bit over the whole output.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+}
@@ -0,0 +1,567 @@
+package org.software.hopkins.matrix;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A matrix stored in a single contiguous row-major array of primitive floats.
+ * Entry (r, c) lives at data[offset + r * rowStride + c], so a compact matrix
+ * has an offset of 0 and a row stride equal to its number of columns.
+ * Compared to {@link Matrix}, which boxes every entry, this takes 4 bytes
+ * per entry and keeps rows adjacent in memory.
+ */
+public class DenseMatrix implements HSMatrix {
+	protected float[] data;
+	protected int rows, cols;
+	protected int offset, rowStride;
+	/** The layout last made by {@link #layout()}, kept so that the kernels can reuse it. */
+	private StridedLayout layout;
+	/**
+	 * The sum of the hashes of the entries, when {@link #hashed}; see {@link ContentHash}.
+	 * Kept by DenseMatrix itself and by DenseMutableMatrix, which updates it as entries change.
+	 */
+	long entryHashes;
+	/** Whether {@link #entryHashes} is up to date. */
+	volatile boolean hashed;
+
+	/**
+	 * Constructor
+	 * Create a new matrix of m rows and n columns filled with zeros.
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 *
+	 * Takes O(nm) time in O(nm) space.
+	 */
+	public DenseMatrix(int mRows, int nCols) {
+		this(mRows, nCols, new float[mRows * nCols], 0, nCols);
+	}
+
+	public DenseMatrix(int mRows, int nCols, float fill) {
+		this(mRows, nCols);
+		Arrays.fill(data, fill);
+	}
+
+	public DenseMatrix(int mRows, int nCols, float val, boolean increment) {
+		this(mRows, nCols, val);
+		if (increment) {
+			for (int i = 0; i < data.length; i++) {
+				data[i] = val++;
+			}
+		}
+	}
+
+	/**
+	 * Create a matrix from a row-major array of entries.
+	 * The array is copied, so later changes to it do not affect this matrix.
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 * @param rowMajorData the entries, row after row; must hold exactly m * n values.
+	 */
+	public DenseMatrix(int mRows, int nCols, float[] rowMajorData) {
+		this(mRows, nCols, checkedCopy(mRows, nCols, rowMajorData), 0, nCols);
+	}
+
+	public DenseMatrix(float[][] twoDimensionalArray) {
+		this(twoDimensionalArray.length, twoDimensionalArray[0].length);
+		for (int r = 0; r < rows; r++) {
+			if (twoDimensionalArray[r].length != cols)
+				throw new IllegalArgumentException("Row " + r + " does not have " + cols + " entries.");
+			System.arraycopy(twoDimensionalArray[r], 0, data, r * cols, cols);
+		}
+	}
+
+	/**
+	 * Create a compact dense copy of any matrix.
+	 * @param matrix the matrix to copy
+	 */
+	public DenseMatrix(HSMatrix matrix) {
+		this(matrix.rowSize(), matrix.columnSize());
+		for (int r = 0; r < rows; r++) {
+			matrix.copyRowInto(r, data, r * cols);
+		}
+	}
+
+	/**
+	 * Wraps the given storage without copying it.
+	 * Used internally to share storage between matrices and to adopt kernel results.
+	 */
+	DenseMatrix(int mRows, int nCols, float[] data, int offset, int rowStride) {
+		if (mRows < 0 || nCols < 0)
+			throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+		this.rows = mRows;
+		this.cols = nCols;
+		this.data = data;
+		this.offset = offset;
+		this.rowStride = rowStride;
+	}
+
+	private static float[] checkedCopy(int mRows, int nCols, float[] rowMajorData) {
+		if (rowMajorData.length != mRows * nCols)
+			throw new IllegalArgumentException("Expected " + (mRows * nCols) + " entries but got " + rowMajorData.length + ".");
+		return rowMajorData.clone();
+	}
+
+	/**
+	 * Index into the backing array of the entry at the given row and column.
+	 */
+	final int index(int row, int column) {
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(column, cols);
+		return offset + row * rowStride + column;
+	}
+
+	/**
+	 * Whether the entries occupy data[offset .. offset + rows * cols) with no gaps.
+	 */
+	final boolean isCompact() {
+		return rowStride == cols || rows <= 1;
+	}
+
+	/**
+	 * Get the number of rows in the matrix.
+	 *
+	 * @return the number of rows
+	 */
+	@Override
+	public int rowSize() {
+		return rows;
+	}
+
+	/**
+	 * Get the number of columns in the matrix
+	 *
+	 * @return the number of columns
+	 */
+	@Override
+	public int columnSize() {
+		return cols;
+	}
+
+	/**
+	 * Does the given matrix have the same number of
+	 * rows and columns as this matrix?
+	 *
+	 * @param matrix the given matrix
+	 * @return whether the given matrix has the same order
+	 * as this matrix.
+	 */
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return rows == matrix.rowSize() && cols == matrix.columnSize();
+	}
+
+	/**
+	 * Get the row of the matrix with the given index.
+	 * The row is a read-only view over this matrix's storage, so it reflects later changes.
+	 * Each entry is boxed as it is read.
+	 * @param index of the desired row
+	 * @return the desired row which is unmodifiable to preserve encapsulation.
+	 */
+	@Override
+	public List<Float> getRow(int index) {
+		Objects.checkIndex(index, rows);
+		return new RowList(offset + index * rowStride);
+	}
+
+	/**
+	 * Get a copy of the row of the matrix with the given index.
+	 *
+	 * @param index of the desired row.
+	 * @return a mutable copy of the desired row.
+	 */
+	@Override
+	public List<Float> getRowCopy(int index) {
+		return new ArrayList<>(getRow(index));
+	}
+
+	/**
+	 * Get the list of values of the column of this matrix with the given index.
+	 *
+	 * @param colIndex - index of the column with the values to get.
+	 * @return the list of values for this column.
+	 */
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		List<Float> column = new ArrayList<>(rows);
+		for (int r = 0; r < rows; r++) {
+			column.add(data[index(r, colIndex)]);
+		}
+		return column;
+	}
+
+	/**
+	 * Get the entry value at the given row and column.
+	 *
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @return the value of the entry
+	 */
+	@Override
+	public Float getEntry(int row, int column) {
+		return data[index(row, column)];
+	}
+
+	/**
+	 * Get the entry value at the given row and column without boxing it.
+	 *
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @return the value of the entry
+	 */
+	@Override
+	public float getFloat(int row, int column) {
+		return data[index(row, column)];
+	}
+
+	/**
+	 * Copy the values of the row with the given index into an array.
+	 *
+	 * @param index      of the row to copy
+	 * @param dest       the array to copy into
+	 * @param destOffset the position in dest for the row's first value
+	 */
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		Objects.checkIndex(index, rows);
+		System.arraycopy(data, offset + index * rowStride, dest, destOffset, cols);
+	}
+
+	/**
+	 * Copy the values of the column with the given index into an array.
+	 *
+	 * @param colIndex   index of the column to copy
+	 * @param dest       the array to copy into
+	 * @param destOffset the position in dest for the column's first value
+	 */
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		Objects.checkIndex(colIndex, cols);
+		for (int r = 0; r < rows; r++) {
+			dest[destOffset + r] = data[offset + r * rowStride + colIndex];
+		}
+	}
+
+	/**
+	 * Indicates whether the given matrix is equal to this matrix.
+	 * Two matrices are equal if they are of the same order and
+	 * if each entry in one equals the corresponding entry in
+	 * the other, using the same comparison as {@link Float#equals(Object)}.
+	 * An integer matrix is compared as {@link IntMatrix#equals(HSMatrix)} does.
+	 *
+	 * @param matrix the given matrix
+	 * @return whether the given matrix is equal to this matrix
+	 */
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		if (!isSameOrder(matrix) || ContentHash.knownToDiffer(this, matrix))
+			return false;
+		IntMatrix integers = IntMatrix.integersOf(matrix);
+		if (integers != null)
+			return integers.equals(this);
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				if (Float.floatToIntBits(data[base + c]) != Float.floatToIntBits(matrix.getFloat(r, c)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(contentHash());
+	}
+
+	@Override
+	public long contentHash() {
+		if (!hashed) {
+			long sum = ContentHash.sumOf(data, offset, rowStride, rows, cols);
+			if (getClass() != DenseMatrix.class && getClass() != DenseMutableMatrix.class)
+				return ContentHash.finish(sum, rows, cols);
+			entryHashes = sum;
+			hashed = true;
+		}
+		return ContentHash.finish(entryHashes, rows, cols);
+	}
+
+	/**
+	 * Forget the content hash, so that it is computed again when next needed,
+	 * as the mutable subclass does when it changes more than an entry or a row at a time.
+	 */
+	void contentChanged() {
+		hashed = false;
+	}
+
+	/**
+	 * Converts the matrix to a string representation.
+	 *
+	 * @return the string representing the matrix.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int r = 0; r < rows; ++r) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; ++c) {
+				sb.append(data[base + c]);
+				sb.append('\t');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Copy the entries into a new compact row-major array.
+	 * @return a new array of rows * cols entries.
+	 */
+	float[] toArray() {
+		float[] copy = new float[rows * cols];
+		if (isCompact()) {
+			System.arraycopy(data, offset, copy, 0, copy.length);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				System.arraycopy(data, offset + r * rowStride, copy, r * cols, cols);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Make an independent copy of this matrix.
+	 * @return a compact deep copy of this matrix.
+	 */
+	@Override
+	public HSMatrix clone() {
+		return new DenseMatrix(rows, cols, toArray(), 0, cols);
+	}
+
+	/*
+	  SummableMatrix Interface Implementation
+	 */
+
+	/**
+	 * If this matrix and the given matrix are of the same order (same number of rows and columns),
+	 * returns a new matrix of the matrices two added together.
+	 *
+	 * @param matrix a given matrix to add to this matrix
+	 * @return the sum of this matrix and the given one as a new DenseMatrix of the same order or
+	 * throws an IllegalArgumentException if they are not of the same order.
+	 * Runs in O(nm) time with O(nm) space
+	 */
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		return combine(matrix, false);
+	}
+
+	/**
+	 * Returns this matrix plus or minus the given matrix, in one pass through
+	 * the element-wise kernels. Other kinds of matrix are read a row at a time.
+	 */
+	private DenseMatrix combine(HSMatrix matrix, boolean subtract) {
+		float[] result = new float[rows * cols];
+		if (matrix instanceof DenseMatrix && isCompact() && ((DenseMatrix) matrix).isCompact()) {
+			DenseMatrix given = (DenseMatrix) matrix;
+			combineRange(subtract, data, offset, given.data, given.offset, result, 0, result.length);
+		} else {
+			float[] rowBuffer = new float[cols];
+			for (int r = 0; r < rows; r++) {
+				float[] givenRow = rowBuffer;
+				int givenBase = 0;
+				if (matrix instanceof DenseMatrix) {
+					DenseMatrix given = (DenseMatrix) matrix;
+					givenRow = given.data;
+					givenBase = given.offset + r * given.rowStride;
+				} else {
+					matrix.copyRowInto(r, rowBuffer, 0);
+				}
+				combineRange(subtract, data, offset + r * rowStride, givenRow, givenBase, result, r * cols, cols);
+			}
+		}
+		return new DenseMatrix(rows, cols, result, 0, cols);
+	}
+
+	private static void combineRange(boolean subtract, float[] a, int aOffset, float[] b, int bOffset,
+									 float[] out, int outOffset, int length) {
+		if (subtract)
+			ElementwiseKernels.subtract(a, aOffset, b, bOffset, out, outOffset, length);
+		else
+			ElementwiseKernels.add(a, aOffset, b, bOffset, out, outOffset, length);
+	}
+
+	/**
+	 * Get the sum of a given row of this matrix.
+	 *
+	 * @param rowIndex the given row's index
+	 * @return the sum of the given row
+	 */
+	@Override
+	public Float sumRow(int rowIndex) {
+		Objects.checkIndex(rowIndex, rows);
+		float sum = 0.0f;
+		int base = offset + rowIndex * rowStride;
+		for (int c = 0; c < cols; c++) {
+			sum += data[base + c];
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the sum of the given column of this matrix.
+	 *
+	 * @param colIndex the given column's index
+	 * @return the sum of the given column
+	 */
+	@Override
+	public Float sumColumn(int colIndex) {
+		Objects.checkIndex(colIndex, cols);
+		float sum = 0.0f;
+		for (int r = 0; r < rows; r++) {
+			sum += data[offset + r * rowStride + colIndex];
+		}
+		return sum;
+	}
+
+	/*
+	  Scalable Matrix Interface Implementation
+	 */
+
+	/**
+	 * Multiply a copy of this matrix by the given scalar.
+	 * @param scalar - the number to multiply each element of the matrix by.
+	 * @return a copy of this HSMatrix with each element multiplied by the given scalar.
+	 */
+	@Override
+	public HSMatrix times(Float scalar) {
+		float[] result = new float[rows * cols];
+		if (isCompact()) {
+			ElementwiseKernels.scale(data, offset, scalar, result, 0, result.length);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				ElementwiseKernels.scale(data, offset + r * rowStride, scalar, result, r * cols, cols);
+			}
+		}
+		return new DenseMatrix(rows, cols, result, 0, cols);
+	}
+
+	@Override
+	public HSMatrix negative() {
+		return this.times(-1.0f);
+	}
+
+	/*
+	  Subtractable Matrix Interface Implementation
+	 */
+
+	/**
+	 * Returns a copy of this matrix minus the given matrix.
+	 * Unlike adding the negative, this makes no intermediate copy.
+	 * @param matrix - a matrix of the same order as this one
+	 * @return a copy of this matrix minus the given matrix.
+	 */
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		return combine(matrix, true);
+	}
+
+	/*
+	  Transposable Matrix Interface Implementation
+	 */
+
+	/**
+	 * Returns the transpose of this matrix.
+	 * A DenseMatrix never changes, so its transpose is a {@link TransposedView} over the same storage
+	 * rather than a copy; subclasses that can change get a copy instead.
+	 *
+	 * @return a transposed view or copy of this HSMatrix.
+	 */
+	@Override
+	public HSMatrix transpose() {
+		if (getClass() == DenseMatrix.class)
+			return MatrixView.transposed(this);
+		return new DenseMatrix(cols, rows, transposedArray(), 0, rows);
+	}
+
+	/**
+	 * Copy the transpose of this matrix into a new compact row-major array
+	 * with the cache-oblivious {@link TransposeKernels}.
+	 */
+	float[] transposedArray() {
+		float[] result = new float[rows * cols];
+		TransposeKernels.transpose(data, offset, rowStride, rows, cols, result, 0, rows);
+		return result;
+	}
+
+	/**
+	 * Get the strided array layout of this matrix's storage.
+	 * The layout is kept and made again only when the storage has changed,
+	 * so the in-place updates can ask for it without allocating.
+	 */
+	StridedLayout layout() {
+		StridedLayout current = layout;
+		if (current == null || !current.describes(data, offset, rows, cols, rowStride)) {
+			current = new StridedLayout(data, offset, rows, cols, rowStride, 1);
+			layout = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Multiplies this mxn matrix A by the given nxp matrix B (A columns == B rows) and
+	 * produces a mxp product matrix C. Does not change this matrix.
+	 *
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 * @return - the resulting product matrix.
+	 */
+	@Override
+	public HSMatrix times(HSMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		return new DenseMatrix(rows, matrixB.columnSize(), product(matrixB), 0, matrixB.columnSize());
+	}
+
+	/**
+	 * Computes this matrix times the given one into a new compact row-major array
+	 * using the default {@link TiledMultiplier}.
+	 */
+	float[] product(HSMatrix matrixB) {
+		return TiledMultiplier.getDefault().multiply(this, matrixB);
+	}
+
+	/**
+	 * A read-only list view of one row of the backing array.
+	 */
+	private final class RowList extends AbstractList<Float> implements RandomAccess {
+		private final int base;
+
+		RowList(int base) {
+			this.base = base;
+		}
+
+		@Override
+		public Float get(int index) {
+			Objects.checkIndex(index, cols);
+			return data[base + index];
+		}
+
+		@Override
+		public int size() {
+			return cols;
+		}
+	}
+}
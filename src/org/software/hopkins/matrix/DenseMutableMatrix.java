@@ -0,0 +1,418 @@
+package org.software.hopkins.matrix;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A mutable matrix stored in a single contiguous row-major array of primitive floats.
+ * <p>
+ * Once its content hash has been computed it is kept up to date as single entries, rows and columns are set,
+ * as {@link MutableMatrix} keeps its own, and computed again after any other update.
+ */
+public class DenseMutableMatrix extends DenseMatrix implements HSMutableMatrix {
+	/**
+	 * Constructor
+	 * Create a new matrix of m rows and n columns filled with zeros.
+	 *
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 *              <p>
+	 *              Takes O(nm) time in O(nm) space.
+	 */
+	public DenseMutableMatrix(int mRows, int nCols) {
+		super(mRows, nCols);
+	}
+
+	public DenseMutableMatrix(int mRows, int nCols, float[] rowMajorData) {
+		super(mRows, nCols, rowMajorData);
+	}
+
+	public DenseMutableMatrix(float[][] twoDimensionalArray) {
+		super(twoDimensionalArray);
+	}
+
+	public DenseMutableMatrix(HSMatrix matrix) {
+		super(matrix);
+	}
+
+	DenseMutableMatrix(int mRows, int nCols, float[] data, int offset, int rowStride) {
+		super(mRows, nCols, data, offset, rowStride);
+	}
+
+	/**
+	 * Make an independent, still mutable, copy of this matrix.
+	 * @return a compact deep copy of this matrix.
+	 */
+	@Override
+	public HSMatrix clone() {
+		return new DenseMutableMatrix(rows, cols, toArray(), 0, cols);
+	}
+
+	/**
+	 * Set the entry's value at the given row and column.
+	 *
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 */
+	@Override
+	public void setEntry(int row, int column, Float value) {
+		setFloat(row, column, value);
+	}
+
+	/**
+	 * Set the entry's value at the given row and column without boxing it.
+	 *
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @param value  the new value of the entry
+	 */
+	@Override
+	public void setFloat(int row, int column, float value) {
+		int index = index(row, column);
+		entryChanged(row, column, data[index], value);
+		data[index] = value;
+	}
+
+	/**
+	 * Sets every value of the matrix to the given value.
+	 *
+	 * @param value the value given with which to fill the matrix
+	 */
+	@Override
+	public void fill(Float value) {
+		float v = value;
+		contentChanged();
+		if (isCompact()) {
+			Arrays.fill(data, offset, offset + rows * cols, v);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				int base = offset + r * rowStride;
+				Arrays.fill(data, base, base + cols, v);
+			}
+		}
+	}
+
+	/**
+	 * Sets the values of the matrix to incremental values from the given start number.
+	 *
+	 * @param start with this value at matrix[0][0] and increment subsequent values
+	 *              going from left to right and top to bottom.
+	 *              Runs in O(nm) time and O(1) space.
+	 */
+	@Override
+	public void setValuesIncrementedFrom(Float start) {
+		float val = start;
+		contentChanged();
+		for (int r = 0; r < rows; ++r) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; ++c) {
+				data[base + c] = val++;
+			}
+		}
+	}
+
+	/**
+	 * Sets the row in the matrix with the given index to a given new row.
+	 * The new row must have as many entries as this matrix has columns.
+	 *
+	 * @param index  of the row to set
+	 * @param newRow to use to set the row in the matrix with the given index
+	 */
+	@Override
+	public void setRow(int index, List<Float> newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.size() != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		int base = offset + index * rowStride;
+		for (int c = 0; c < cols; c++) {
+			float value = newRow.get(c);
+			entryChanged(index, c, data[base + c], value);
+			data[base + c] = value;
+		}
+	}
+
+	/**
+	 * Sets the row in the matrix with the given index to the values of the given array.
+	 *
+	 * @param index  of the row to set
+	 * @param newRow the new values; must have as many values as the matrix has columns.
+	 */
+	@Override
+	public void setRow(int index, float[] newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.length != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		int base = offset + index * rowStride;
+		if (hashed) {
+			for (int c = 0; c < cols; c++) {
+				entryChanged(index, c, data[base + c], newRow[c]);
+			}
+		}
+		System.arraycopy(newRow, 0, data, base, cols);
+	}
+
+	/**
+	 * Set the values in the column with the given index for this matrix.
+	 * If the length of the values list is less than the matrix column,
+	 * the method sets as many of the values as it can up to the number of values.
+	 * If the length of the values list is greater than the matrix column.,
+	 * the method only sets the values that it can up to the number of rows.
+	 *
+	 * @param colIndex - the index of the column of this matrix to set.
+	 * @param values to assign this column.
+	 */
+	@Override
+	public void setColumn(int colIndex, List<Float> values) {
+		int indexLimit = Math.min(values.size(), rows);
+		for (int r = 0; r < indexLimit; ++r) {
+			setFloat(r, colIndex, values.get(r));
+		}
+	}
+
+	/**
+	 * Adds the given matrix to this matrix if this matrix and the given matrix
+	 * are of the same order (same number of rows and columns).
+	 * Throws an IllegalArgumentException if the given matrix is not of the same order as this matrix.
+	 *
+	 * @param matrix a given matrix to add to this matrix
+	 *               Runs in O(nm) time and O(1) space.
+	 */
+	@Override
+	public void add(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(matrix, 1.0f);
+	}
+
+	@Override
+	public void subtract(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot subtract the given matrix. It is not the same order as this matrix.");
+		accumulate(matrix, -1.0f);
+	}
+
+	/**
+	 * this += factor * matrix, in place, through the element-wise kernels.
+	 */
+	private void accumulate(HSMatrix matrix, float factor) {
+		accumulate(factor, matrix, 0, 0);
+	}
+
+	/**
+	 * Add factor * matrix to the block of this matrix whose top-left entry is at (rowStart, colStart), in place.
+	 * Dense matrices and views of them are read straight from their arrays, and other kinds of matrix
+	 * an entry at a time, so nothing is allocated unless the matrix is a view over this one.
+	 */
+	private void accumulate(float factor, HSMatrix matrix, int rowStart, int colStart) {
+		contentChanged();
+		int mRows = matrix.rowSize();
+		int nCols = matrix.columnSize();
+		int start = offset + rowStart * rowStride + colStart;
+		StridedLayout given = MatrixView.layoutOf(matrix);
+		if (overlaps(given, start)) {
+			matrix = new DenseMatrix(matrix);
+			given = MatrixView.layoutOf(matrix);
+		}
+		if (given != null && given.colStride == 1) {
+			if (mRows == rows && nCols == cols && isCompact() && (given.rowStride == nCols || mRows <= 1)) {
+				accumulateRange(factor, given.data, given.offset, start, mRows * nCols);
+			} else {
+				for (int r = 0; r < mRows; r++) {
+					accumulateRange(factor, given.data, given.offset + r * given.rowStride, start + r * rowStride, nCols);
+				}
+			}
+		} else {
+			for (int r = 0; r < mRows; r++) {
+				int base = start + r * rowStride;
+				for (int c = 0; c < nCols; c++) {
+					data[base + c] += factor * matrix.getFloat(r, c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether an operand laid out as given shares this matrix's array other than entry for entry with the block
+	 * starting at start, so that updating the block in place could change entries of the operand not yet read,
+	 * as a shifted submatrix or a transpose of this matrix would. Such an operand is copied first.
+	 */
+	private boolean overlaps(StridedLayout given, int start) {
+		return given != null && given.data == data
+				&& !(given.offset == start && given.rowStride == rowStride && given.colStride == 1);
+	}
+
+	private void accumulateRange(float factor, float[] x, int xOffset, int start, int length) {
+		if (factor == 1.0f)
+			ElementwiseKernels.addInPlace(x, xOffset, data, start, length);
+		else if (factor == -1.0f)
+			ElementwiseKernels.subtractInPlace(x, xOffset, data, start, length);
+		else
+			ElementwiseKernels.addScaled(factor, x, xOffset, data, start, length);
+	}
+
+	/**
+	 * this += alpha * x, in place and without allocating.
+	 * @param alpha - the scalar multiplying x.
+	 * @param x - a matrix of the same order as this matrix.
+	 */
+	@Override
+	public void axpy(float alpha, HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(alpha, x, 0, 0);
+	}
+
+	@Override
+	public void addScaled(float alpha, HSMatrix x, int rowStart, int colStart) {
+		Objects.checkFromIndexSize(rowStart, x.rowSize(), rows);
+		Objects.checkFromIndexSize(colStart, x.columnSize(), cols);
+		accumulate(alpha, x, rowStart, colStart);
+	}
+
+	@Override
+	public void hadamardInPlace(HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot multiply by the given matrix entry by entry. It is not the same order as this matrix.");
+		contentChanged();
+		StridedLayout given = MatrixView.layoutOf(x);
+		if (overlaps(given, offset)) {
+			x = new DenseMatrix(x);
+			given = MatrixView.layoutOf(x);
+		}
+		if (given != null && given.colStride == 1) {
+			if (isCompact() && (given.rowStride == cols || rows <= 1)) {
+				ElementwiseKernels.multiplyInPlace(given.data, given.offset, data, offset, rows * cols);
+			} else {
+				for (int r = 0; r < rows; r++) {
+					ElementwiseKernels.multiplyInPlace(given.data, given.offset + r * given.rowStride,
+							data, offset + r * rowStride, cols);
+				}
+			}
+		} else {
+			for (int r = 0; r < rows; r++) {
+				int base = offset + r * rowStride;
+				for (int c = 0; c < cols; c++) {
+					data[base + c] *= x.getFloat(r, c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * this = alpha * a * b + beta * this, in place, with the default {@link TiledMultiplier}.
+	 * The product is added straight into this matrix's array. Operands over dense storage,
+	 * including views such as a transpose, are packed straight from their arrays, so nothing is allocated
+	 * unless this matrix is an operand itself, when the product is computed apart first.
+	 * Other kinds of operand are copied to dense storage, and sparse operands use the sparse product.
+	 * When beta is zero this matrix's old entries are not read.
+	 */
+	@Override
+	public void gemmInto(float alpha, HSMatrix a, HSMatrix b, float beta) {
+		if (a.columnSize() != b.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		if (a.rowSize() != rows || b.columnSize() != cols)
+			throw new IllegalArgumentException("The product is not the same order as this matrix.");
+		contentChanged();
+		if (a instanceof SparseMatrix || b instanceof SparseMatrix) {
+			HSMutableMatrix.super.gemmInto(alpha, a, b, beta);
+			return;
+		}
+		StridedLayout aLayout = TiledMultiplier.stridedLayout(a);
+		StridedLayout bLayout = TiledMultiplier.stridedLayout(b);
+		if (aLayout.data == data || bLayout.data == data) {
+			float[] product = new float[rows * cols];
+			TiledMultiplier.getDefault().multiplyAdd(alpha, aLayout, bLayout, product, 0, cols);
+			scaleOrClear(beta);
+			accumulate(1.0f, new DenseMatrix(rows, cols, product, 0, cols), 0, 0);
+		} else {
+			scaleOrClear(beta);
+			TiledMultiplier.getDefault().multiplyAdd(alpha, aLayout, bLayout, data, offset, rowStride);
+		}
+	}
+
+	private void scaleOrClear(float beta) {
+		if (beta == 0.0f) {
+			for (int r = 0; r < rows; r++) {
+				int base = offset + r * rowStride;
+				Arrays.fill(data, base, base + cols, 0.0f);
+			}
+		} else if (beta != 1.0f) {
+			scaleBy(beta);
+		}
+	}
+
+	@Override
+	public void scaleBy(float scalar) {
+		contentChanged();
+		if (isCompact()) {
+			ElementwiseKernels.scale(data, offset, scalar, data, offset, rows * cols);
+		} else {
+			for (int r = 0; r < rows; ++r) {
+				int base = offset + r * rowStride;
+				ElementwiseKernels.scale(data, base, scalar, data, base, cols);
+			}
+		}
+	}
+
+	/**
+	 * Multiplies this mxn matrix A by the given nxp matrix B (A columns == B rows) and
+	 * changing this matrix to a mxp product matrix C.
+	 * This matrix then owns fresh compact storage.
+	 *
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 */
+	@Override
+	public void multiplyBy(HSMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		float[] result = product(matrixB);
+		contentChanged();
+		cols = matrixB.columnSize();
+		replaceStorage(result);
+	}
+
+	/**
+	 * Inverts or transposes this matrix so that its columns and rows are interchanged.
+	 * A square matrix, or a compact one, is transposed in place in its own array, and a square one
+	 * without allocating; only a non-square slice of a larger array is copied.
+	 */
+	@Override
+	public void invert() {
+		contentChanged();
+		if (rows == cols) {
+			TransposeKernels.transposeSquare(data, offset, rowStride, rows);
+			return;
+		}
+		int oldRows = rows;
+		if (isCompact()) {
+			TransposeKernels.transposeInPlace(data, offset, rows, cols);
+			rows = cols;
+			cols = oldRows;
+			rowStride = cols;
+		} else {
+			float[] transposed = transposedArray();
+			rows = cols;
+			cols = oldRows;
+			replaceStorage(transposed);
+		}
+	}
+
+	/**
+	 * Keep the content hash up to date as the entry at (row, column) changes from oldValue to newValue.
+	 */
+	private void entryChanged(int row, int column, float oldValue, float newValue) {
+		if (hashed)
+			entryHashes += ContentHash.entry(row, column, newValue) - ContentHash.entry(row, column, oldValue);
+	}
+
+	/**
+	 * Adopt a compact row-major array as this matrix's storage.
+	 */
+	private void replaceStorage(float[] compactData) {
+		data = compactData;
+		offset = 0;
+		rowStride = cols;
+	}
+}
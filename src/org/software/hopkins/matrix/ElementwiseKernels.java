@@ -0,0 +1,114 @@
+package org.software.hopkins.matrix;
+
+/**
+ * Element-wise loops over ranges of primitive float arrays, shared by the array-backed matrices and, a row
+ * at a time, by the boxed ones.
+ * <p>
+ * When the JVM was started with --add-modules jdk.incubator.vector, the kernels hand their ranges to
+ * {@link VectorKernels}, which use the Vector API; the system property hsmatrix.vector=false turns that off.
+ * Otherwise they run as plain counted loops with no calls or branches in their bodies, the shape HotSpot's C2
+ * compiler unrolls and turns into SIMD instructions itself (superword vectorization). The two give the same
+ * results bit for bit. Keep the scalar loops that way: a method call, a boxed value or a data-dependent branch
+ * in a loop body stops the compiler from vectorizing it.
+ */
+final class ElementwiseKernels {
+	/** Whether the kernels run on the Vector API. Checked once, so the JIT folds the choice away. */
+	static final boolean VECTORIZED = vectorApiAvailable();
+
+	private ElementwiseKernels() {
+	}
+
+	private static boolean vectorApiAvailable() {
+		if (!Boolean.parseBoolean(System.getProperty("hsmatrix.vector", "true")))
+			return false;
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+			return false;
+		return VectorKernels.LANES > 1;
+	}
+
+	/**
+	 * out[i] = a[i] + b[i] for length entries.
+	 */
+	static void add(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+		if (VECTORIZED) {
+			VectorKernels.add(a, aOffset, b, bOffset, out, outOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+		}
+	}
+
+	/**
+	 * out[i] = a[i] - b[i] for length entries.
+	 */
+	static void subtract(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+		if (VECTORIZED) {
+			VectorKernels.subtract(a, aOffset, b, bOffset, out, outOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+		}
+	}
+
+	/**
+	 * out[i] = scalar * a[i] for length entries.
+	 */
+	static void scale(float[] a, int aOffset, float scalar, float[] out, int outOffset, int length) {
+		if (VECTORIZED) {
+			VectorKernels.scale(a, aOffset, scalar, out, outOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = scalar * a[aOffset + i];
+		}
+	}
+
+	/**
+	 * out[i] = a[i] * b[i] for length entries.
+	 */
+	static void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+		if (VECTORIZED) {
+			VectorKernels.multiply(a, aOffset, b, bOffset, out, outOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+		}
+	}
+
+	/**
+	 * out[i] += alpha * x[i] for length entries.
+	 */
+	static void addScaled(float alpha, float[] x, int xOffset, float[] out, int outOffset, int length) {
+		if (VECTORIZED) {
+			VectorKernels.addScaled(alpha, x, xOffset, out, outOffset, length);
+			return;
+		}
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	/**
+	 * out[i] += x[i] for length entries.
+	 */
+	static void addInPlace(float[] x, int xOffset, float[] out, int outOffset, int length) {
+		add(out, outOffset, x, xOffset, out, outOffset, length);
+	}
+
+	/**
+	 * out[i] -= x[i] for length entries.
+	 */
+	static void subtractInPlace(float[] x, int xOffset, float[] out, int outOffset, int length) {
+		subtract(out, outOffset, x, xOffset, out, outOffset, length);
+	}
+
+	/**
+	 * out[i] *= x[i] for length entries.
+	 */
+	static void multiplyInPlace(float[] x, int xOffset, float[] out, int outOffset, int length) {
+		multiply(out, outOffset, x, xOffset, out, outOffset, length);
+	}
+}
@@ -0,0 +1,382 @@
+package org.software.hopkins.matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A dense row-major matrix whose entries are outside the Java heap, in chunks of float buffers:
+ * direct memory for an {@link OffHeapMatrix}, or a memory-mapped file for a {@link MappedMatrix}.
+ * The garbage collector never scans or moves the entries, and the number of entries (a long)
+ * may exceed 2^31. Each chunk holds a whole number of rows; a row never straddles two chunks.
+ * <p>
+ * The memory is released by {@link #close()}, which is best done with try-with-resources.
+ * Every operation that returns a new matrix returns a new OffHeapMatrix, owned by the caller,
+ * which should close it too (memory that is not closed is freed when the matrix is garbage collected).
+ * A closed matrix throws IllegalStateException on any further use.
+ * <p>
+ * The buffers belong to a {@link BufferScope}. With the jdk.incubator.foreign module
+ * (--add-modules jdk.incubator.foreign) they are memory segments of a shared scope, and closing the matrix
+ * frees the memory, or unmaps the file, at once. That is safe even while other threads are using the matrix:
+ * their operations throw IllegalStateException rather than touch memory that has been freed.
+ * Without the module, closing only drops the buffers, and their memory is freed when they are garbage collected.
+ * <p>
+ * Element-wise operations and products run a row or a block of rows at a time through the same
+ * kernels as the heap matrices ({@link ElementwiseKernels} and {@link TiledMultiplier}),
+ * so only a bounded working set is ever copied to the heap.
+ */
+public abstract class FloatBufferMatrix implements HSMatrix, AutoCloseable {
+	/** Floats per chunk: 2^28 floats is 1 GiB, within the 2 GiB limit of one buffer. */
+	static final int DEFAULT_CHUNK_FLOATS = 1 << 28;
+	/** Products copy blocks of A and B of about this many floats (64 MiB) to the heap. */
+	static final int PRODUCT_BLOCK_FLOATS = 1 << 24;
+	/** Side of the square tiles a transpose is copied in. */
+	static final int TRANSPOSE_TILE = 64;
+
+	protected int rows, cols;
+	final int chunkFloats;
+	int rowsPerChunk;
+	BufferScope scope;
+	ByteBuffer[] buffers;
+	FloatBuffer[] chunks;
+
+	FloatBufferMatrix(int mRows, int nCols, int chunkFloats) {
+		if (mRows < 0 || nCols < 0)
+			throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+		if (chunkFloats < 1)
+			throw new IllegalArgumentException("The chunk size must be positive.");
+		if ((long) nCols * Float.BYTES > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("A row of " + nCols + " floats does not fit in one buffer.");
+		this.rows = mRows;
+		this.cols = nCols;
+		this.chunkFloats = chunkFloats;
+		this.rowsPerChunk = rowsPerChunk(mRows, nCols, chunkFloats);
+	}
+
+	/**
+	 * The number of rows in each chunk (the last may hold fewer).
+	 */
+	static int rowsPerChunk(int mRows, int nCols, int chunkFloats) {
+		return Math.max(1, Math.min(mRows, chunkFloats / Math.max(1, nCols)));
+	}
+
+	/**
+	 * Get the chunk holding the given row.
+	 */
+	final FloatBuffer chunk(int row) {
+		FloatBuffer[] current = chunks;
+		if (current == null)
+			throw new IllegalStateException("The matrix has been closed.");
+		return current[row / rowsPerChunk];
+	}
+
+	/**
+	 * Get the index of the given row's first entry within its chunk.
+	 */
+	final int base(int row) {
+		return (row % rowsPerChunk) * cols;
+	}
+
+	/**
+	 * Get the number of entries, which may exceed Integer.MAX_VALUE.
+	 * @return rows times columns.
+	 */
+	public long elementCount() {
+		return (long) rows * cols;
+	}
+
+	/**
+	 * Indicates whether the matrix has been closed.
+	 * @return true once close has been called.
+	 */
+	public boolean isClosed() {
+		return chunks == null;
+	}
+
+	/**
+	 * Release the memory. Any further use of the matrix throws IllegalStateException.
+	 * Closing a closed matrix has no effect.
+	 */
+	@Override
+	public synchronized void close() {
+		if (scope == null)
+			return;
+		chunks = null;
+		buffers = null;
+		scope.close();
+		scope = null;
+	}
+
+	@Override
+	public int rowSize() {
+		return rows;
+	}
+
+	@Override
+	public int columnSize() {
+		return cols;
+	}
+
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return rows == matrix.rowSize() && cols == matrix.columnSize();
+	}
+
+	/**
+	 * Get the row of the matrix with the given index.
+	 * @param index of the desired row
+	 * @return an unmodifiable heap copy of the desired row.
+	 */
+	@Override
+	public List<Float> getRow(int index) {
+		return Collections.unmodifiableList(getRowCopy(index));
+	}
+
+	@Override
+	public List<Float> getRowCopy(int index) {
+		float[] row = new float[cols];
+		copyRowInto(index, row, 0);
+		List<Float> theRow = new ArrayList<>(cols);
+		for (float value : row) {
+			theRow.add(value);
+		}
+		return theRow;
+	}
+
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		float[] column = new float[rows];
+		copyColumnInto(colIndex, column, 0);
+		List<Float> theColumn = new ArrayList<>(rows);
+		for (float value : column) {
+			theColumn.add(value);
+		}
+		return theColumn;
+	}
+
+	@Override
+	public Float getEntry(int row, int column) {
+		return getFloat(row, column);
+	}
+
+	@Override
+	public float getFloat(int row, int column) {
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(column, cols);
+		return chunk(row).get(base(row) + column);
+	}
+
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		Objects.checkIndex(index, rows);
+		chunk(index).get(base(index), dest, destOffset, cols);
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		Objects.checkIndex(colIndex, cols);
+		for (int r = 0; r < rows; r++) {
+			dest[destOffset + r] = chunk(r).get(base(r) + colIndex);
+		}
+	}
+
+	/**
+	 * Indicates whether the given matrix is equal to this matrix, comparing a row at a time.
+	 * An integer matrix is compared as {@link IntMatrix#equals(HSMatrix)} does.
+	 */
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			return false;
+		IntMatrix integers = IntMatrix.integersOf(matrix);
+		if (integers != null)
+			return integers.equals(this);
+		float[] thisRow = new float[cols];
+		float[] givenRow = new float[cols];
+		for (int r = 0; r < rows; r++) {
+			copyRowInto(r, thisRow, 0);
+			matrix.copyRowInto(r, givenRow, 0);
+			if (!Arrays.equals(thisRow, givenRow))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(contentHash());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		float[] row = new float[cols];
+		for (int r = 0; r < rows; ++r) {
+			copyRowInto(r, row, 0);
+			for (int c = 0; c < cols; ++c) {
+				sb.append(row[c]);
+				sb.append('\t');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Make an independent off-heap copy of this matrix, owned by the caller.
+	 * The rows are copied buffer to buffer, without passing through the heap.
+	 * @return a deep copy of this matrix.
+	 */
+	@Override
+	public HSMatrix clone() {
+		OffHeapMatrix copy = new OffHeapMatrix(rows, cols, chunkFloats);
+		for (int r = 0; r < rows; r++) {
+			copy.chunk(r).put(copy.base(r), chunk(r), base(r), cols);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a transposed off-heap copy of this matrix, copied in square tiles
+	 * so that both the reads and the writes stay within a few pages at a time.
+	 * @return a transposed copy of this matrix.
+	 */
+	@Override
+	public HSMatrix transpose() {
+		OffHeapMatrix transposed = new OffHeapMatrix(cols, rows, chunkFloats);
+		for (int rowStart = 0; rowStart < rows; rowStart += TRANSPOSE_TILE) {
+			int rowEnd = Math.min(rows, rowStart + TRANSPOSE_TILE);
+			for (int colStart = 0; colStart < cols; colStart += TRANSPOSE_TILE) {
+				int colEnd = Math.min(cols, colStart + TRANSPOSE_TILE);
+				for (int r = rowStart; r < rowEnd; r++) {
+					FloatBuffer source = chunk(r);
+					int sourceBase = base(r);
+					for (int c = colStart; c < colEnd; c++) {
+						transposed.chunk(c).put(transposed.base(c) + r, source.get(sourceBase + c));
+					}
+				}
+			}
+		}
+		return transposed;
+	}
+
+	/*
+	  SummableMatrix Interface Implementation
+	 */
+
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		OffHeapMatrix sum = (OffHeapMatrix) clone();
+		sum.add(matrix);
+		return sum;
+	}
+
+	@Override
+	public Float sumRow(int rowIndex) {
+		float[] row = new float[cols];
+		copyRowInto(rowIndex, row, 0);
+		float sum = 0.0f;
+		for (float value : row) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	@Override
+	public Float sumColumn(int colIndex) {
+		Objects.checkIndex(colIndex, cols);
+		float sum = 0.0f;
+		for (int r = 0; r < rows; r++) {
+			sum += chunk(r).get(base(r) + colIndex);
+		}
+		return sum;
+	}
+
+	/*
+	  Scalable Matrix Interface Implementation
+	 */
+
+	@Override
+	public HSMatrix times(Float scalar) {
+		OffHeapMatrix scaled = (OffHeapMatrix) clone();
+		scaled.scaleBy(scalar);
+		return scaled;
+	}
+
+	@Override
+	public HSMatrix negative() {
+		return this.times(-1.0f);
+	}
+
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		OffHeapMatrix difference = (OffHeapMatrix) clone();
+		difference.subtract(matrix);
+		return difference;
+	}
+
+	/**
+	 * Multiplies this mxn matrix by the given nxp matrix into a new off-heap matrix.
+	 * The product is computed in blocks: a panel of B's columns and a block of A's rows,
+	 * each of about {@link #PRODUCT_BLOCK_FLOATS} floats, are copied to the heap
+	 * and multiplied by the default {@link TiledMultiplier}.
+	 *
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 * @return - the resulting product matrix, owned by the caller.
+	 */
+	@Override
+	public HSMatrix times(HSMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		OffHeapMatrix product = new OffHeapMatrix(rows, matrixB.columnSize(), chunkFloats);
+		multiplyInto(matrixB, product, TiledMultiplier.getDefault());
+		return product;
+	}
+
+	private void multiplyInto(HSMatrix matrixB, OffHeapMatrix product, TiledMultiplier multiplier) {
+		int n = cols;
+		int p = matrixB.columnSize();
+		if (rows == 0 || p == 0)
+			return;
+		int panelColumns = Math.max(1, Math.min(p, PRODUCT_BLOCK_FLOATS / Math.max(1, n)));
+		int blockRows = Math.max(1, Math.min(rows, PRODUCT_BLOCK_FLOATS / Math.max(1, Math.max(n, panelColumns))));
+		float[] bRow = new float[p];
+		float[] bPanel = new float[n * panelColumns];
+		float[] aBlock = new float[blockRows * n];
+		float[] cBlock = new float[blockRows * panelColumns];
+		for (int colStart = 0; colStart < p; colStart += panelColumns) {
+			int width = Math.min(panelColumns, p - colStart);
+			for (int k = 0; k < n; k++) {
+				matrixB.copyRowInto(k, bRow, 0);
+				System.arraycopy(bRow, colStart, bPanel, k * width, width);
+			}
+			DenseMatrix b = new DenseMatrix(n, width, bPanel, 0, width);
+			for (int rowStart = 0; rowStart < rows; rowStart += blockRows) {
+				int height = Math.min(blockRows, rows - rowStart);
+				for (int r = 0; r < height; r++) {
+					copyRowInto(rowStart + r, aBlock, r * n);
+				}
+				Arrays.fill(cBlock, 0, height * width, 0.0f);
+				multiplier.multiplyAdd(new DenseMatrix(height, n, aBlock, 0, n), b, cBlock, 0, width);
+				for (int r = 0; r < height; r++) {
+					int row = rowStart + r;
+					product.chunk(row).put(product.base(row) + colStart, cBlock, r * width, width);
+				}
+			}
+		}
+	}
+}
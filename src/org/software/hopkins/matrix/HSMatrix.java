@@ -61,6 +61,79 @@ public interface HSMatrix extends Cloneable, SummableMatrix,
 	 */
 	Float getEntry(int row, int column);
 
+	/**
+	 * Get the entry value at the given row and column without boxing it.
+	 * @param row the entry's row index
+	 * @param column the entry's column index
+	 * @return the value of the entry
+	 */
+	float getFloat(int row, int column);
+
+	/**
+	 * Copy the values of the row with the given index into an array.
+	 * @param index of the row to copy
+	 * @param dest the array to copy into; must have room for columnSize() values from destOffset.
+	 * @param destOffset the position in dest for the row's first value
+	 */
+	void copyRowInto(int index, float[] dest, int destOffset);
+
+	/**
+	 * Copy the values of the column with the given index into an array.
+	 * @param colIndex index of the column to copy
+	 * @param dest the array to copy into; must have room for rowSize() values from destOffset.
+	 * @param destOffset the position in dest for the column's first value
+	 */
+	void copyColumnInto(int colIndex, float[] dest, int destOffset);
+
+	/*
+	  Bulk reductions.
+	  Each is computed in one pass over the matrix, in parallel for large matrices,
+	  rather than one pass per row or column.
+	 */
+
+	/**
+	 * Get the sum of every row of this matrix.
+	 * @return an array of rowSize() sums, accumulated in double precision.
+	 */
+	default double[] rowSums() {
+		return MatrixReductions.rowSums(this, MatrixReductions.inParallel(this));
+	}
+
+	/**
+	 * Get the sum of every column of this matrix, reading it a row at a time.
+	 * @return an array of columnSize() sums, accumulated in double precision.
+	 */
+	default double[] columnSums() {
+		return MatrixReductions.columnSums(this, MatrixReductions.inParallel(this));
+	}
+
+	/**
+	 * Get the smallest and largest entry of every row of this matrix.
+	 * A row with a NaN entry has NaN for both; a matrix with no columns has
+	 * positive infinity for each minimum and negative infinity for each maximum.
+	 * @return two arrays of rowSize() values: [0][r] is the minimum of row r and [1][r] its maximum.
+	 */
+	default float[][] rowMinMax() {
+		return MatrixReductions.rowMinMax(this, MatrixReductions.inParallel(this));
+	}
+
+	/**
+	 * Get the Frobenius norm of this matrix: the square root of the sum of the squares of its entries.
+	 * @return the norm, computed in double precision.
+	 */
+	default double frobeniusNorm() {
+		return MatrixReductions.frobeniusNorm(this, MatrixReductions.inParallel(this));
+	}
+
+	/**
+	 * Get the trace of this matrix: the sum of the entries on its main diagonal.
+	 * @return the trace, accumulated in double precision.
+	 * @throws IllegalArgumentException if the matrix is not square.
+	 */
+	default double trace() {
+		return MatrixReductions.trace(this);
+	}
+
 	/**
 	 * Indicates whether the given matrix is equal to this matrix.
 	 * Two matrices are equal if they are of the same order and
@@ -71,6 +144,18 @@ public interface HSMatrix extends Cloneable, SummableMatrix,
 	 */
 	boolean equals (HSMatrix matrix);
 
+	/**
+	 * Get a 64-bit hash of this matrix's order and entries.
+	 * Equal matrices have equal hashes, whatever their implementations,
+	 * so matrices with different hashes are certainly not equal.
+	 * The implementations that never change, and {@link MutableMatrix}, which keeps its hash up to date
+	 * as its entries change, compute it only once; others read every entry each time.
+	 * @return the hash.
+	 */
+	default long contentHash() {
+		return ContentHash.of(this);
+	}
+
 	/**
 	 * Make an independent copy of this matrix.
 	 * @return a deep copy of this matrix.
@@ -1,6 +1,7 @@
 package org.software.hopkins.matrix;
 
 import java.util.List;
+import java.util.Objects;
 
 public interface HSMutableMatrix extends HSMatrix {
 	/**
@@ -10,6 +11,14 @@ public interface HSMutableMatrix extends HSMatrix {
 	 */
 	void setEntry(int row, int column, Float value);
 
+	/**
+	 * Set the entry's value at the given row and column without boxing it.
+	 * @param row the entry's row index
+	 * @param column the entry's column index
+	 * @param value the new value of the entry
+	 */
+	void setFloat(int row, int column, float value);
+
 	/**
 	 * Sets every value of the matrix to the given value.
 	 * @param value the value given with which to fill the matrix
@@ -30,6 +39,13 @@ public interface HSMutableMatrix extends HSMatrix {
 	 */
 	void setRow(int index, List<Float> newRow);
 
+	/**
+	 * Sets the row in the matrix with the given index to the values of the given array.
+	 * @param index of the row to set
+	 * @param newRow the new values; must have as many values as the matrix has columns.
+	 */
+	void setRow(int index, float[] newRow);
+
 	/**
 	 * Set the values in the column with the given index for this matrix.
 	 * If the length of the values list is less than the matrix column,
@@ -63,6 +79,83 @@ public interface HSMutableMatrix extends HSMatrix {
 	 */
 	void scaleBy(float scalar);
 
+	/*
+	  In-place updates.
+	  These change this matrix without making a new one. The matrices over primitive storage
+	  (DenseMutableMatrix, OffHeapMatrix and the sparse matrices) override them to run in their
+	  own storage without allocating, so an iterative method can call them millions of times
+	  without garbage. The versions here work on any matrix, entry by entry.
+	 */
+
+	/**
+	 * this += alpha * x, in place.
+	 * @param alpha - the scalar multiplying x.
+	 * @param x - a matrix of the same order as this matrix.
+	 */
+	default void axpy(float alpha, HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		addScaled(alpha, x, 0, 0);
+	}
+
+	/**
+	 * Add alpha * x, in place, to the block of this matrix with x's order whose top-left entry is at (rowStart, colStart).
+	 * To add only part of a matrix, pass a {@link MatrixView} of that part.
+	 * @param alpha - the scalar multiplying x.
+	 * @param x - a matrix no larger than this matrix.
+	 * @param rowStart - the row of this matrix that x's first row is added to.
+	 * @param colStart - the column of this matrix that x's first column is added to.
+	 * @throws IndexOutOfBoundsException if the block does not fit in this matrix.
+	 */
+	default void addScaled(float alpha, HSMatrix x, int rowStart, int colStart) {
+		Objects.checkFromIndexSize(rowStart, x.rowSize(), rowSize());
+		Objects.checkFromIndexSize(colStart, x.columnSize(), columnSize());
+		x = MatrixView.detachedFrom(x, this);
+		for (int r = 0; r < x.rowSize(); r++) {
+			for (int c = 0; c < x.columnSize(); c++) {
+				setFloat(rowStart + r, colStart + c, getFloat(rowStart + r, colStart + c) + alpha * x.getFloat(r, c));
+			}
+		}
+	}
+
+	/**
+	 * Multiply each entry of this matrix by the entry of the given matrix in the same position, in place.
+	 * @param x - a matrix of the same order as this matrix.
+	 */
+	default void hadamardInPlace(HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot multiply by the given matrix entry by entry. It is not the same order as this matrix.");
+		x = MatrixView.detachedFrom(x, this);
+		for (int r = 0; r < rowSize(); r++) {
+			for (int c = 0; c < columnSize(); c++) {
+				setFloat(r, c, getFloat(r, c) * x.getFloat(r, c));
+			}
+		}
+	}
+
+	/**
+	 * this = alpha * a * b + beta * this, in place.
+	 * When beta is zero this matrix's old entries are not read, so they may be anything, even NaN.
+	 * The version here computes a * b as a new matrix first.
+	 * @param alpha - the scalar multiplying the product.
+	 * @param a - an m x n matrix, where this matrix is m x p.
+	 * @param b - an n x p matrix.
+	 * @param beta - the scalar multiplying this matrix.
+	 */
+	default void gemmInto(float alpha, HSMatrix a, HSMatrix b, float beta) {
+		if (a.columnSize() != b.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		if (a.rowSize() != rowSize() || b.columnSize() != columnSize())
+			throw new IllegalArgumentException("The product is not the same order as this matrix.");
+		HSMatrix product = a.times(b);
+		for (int r = 0; r < rowSize(); r++) {
+			for (int c = 0; c < columnSize(); c++) {
+				float value = alpha * product.getFloat(r, c);
+				setFloat(r, c, beta == 0.0f ? value : value + beta * getFloat(r, c));
+			}
+		}
+	}
+
 	/**
 	 * Multiplies this mxn matrix A by the given nxp matrix B (A rows == B columns) and
 	 * changing this matrix to a mxp product matrix C.
@@ -0,0 +1,281 @@
+package org.software.hopkins.matrix;
+
+import org.software.hopkins.matrix.MatrixMetrics.Operation;
+import org.software.hopkins.matrix.MatrixMetrics.Sample;
+
+import java.util.List;
+
+/**
+ * A matrix that records its operations in {@link MatrixMetrics} and has another matrix do them.
+ * Accessors such as getFloat and copyRowInto are passed straight through; the operations that compute over
+ * the matrix are timed, and their results wrapped so that calculations on them are recorded as well.
+ * Operands that are instrumented are unwrapped first, so the matrix underneath still sees its own kind of
+ * operand and takes its fast paths.
+ */
+class InstrumentedMatrix implements HSMatrix {
+	final HSMatrix delegate;
+
+	InstrumentedMatrix(HSMatrix delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Wrap a matrix, as an instrumented mutable matrix if it is mutable, unless it is instrumented already.
+	 */
+	static HSMatrix wrap(HSMatrix matrix) {
+		if (matrix instanceof InstrumentedMatrix)
+			return matrix;
+		if (matrix instanceof HSMutableMatrix)
+			return new InstrumentedMutableMatrix((HSMutableMatrix) matrix);
+		return new InstrumentedMatrix(matrix);
+	}
+
+	/**
+	 * Get the matrix an instrumented matrix wraps, or the given matrix if it isn't instrumented.
+	 */
+	static HSMatrix unwrap(HSMatrix matrix) {
+		return matrix instanceof InstrumentedMatrix ? ((InstrumentedMatrix) matrix).delegate : matrix;
+	}
+
+	/**
+	 * Get the number of entries, from which the costs of most operations are estimated.
+	 */
+	long entries() {
+		return (long) delegate.rowSize() * delegate.columnSize();
+	}
+
+	@Override
+	public int rowSize() {
+		return delegate.rowSize();
+	}
+
+	@Override
+	public int columnSize() {
+		return delegate.columnSize();
+	}
+
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return delegate.isSameOrder(unwrap(matrix));
+	}
+
+	@Override
+	public List<Float> getRow(int index) {
+		return delegate.getRow(index);
+	}
+
+	@Override
+	public List<Float> getRowCopy(int index) {
+		return delegate.getRowCopy(index);
+	}
+
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		return delegate.getColumn(colIndex);
+	}
+
+	@Override
+	public Float getEntry(int row, int column) {
+		return delegate.getEntry(row, column);
+	}
+
+	@Override
+	public float getFloat(int row, int column) {
+		return delegate.getFloat(row, column);
+	}
+
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		delegate.copyRowInto(index, dest, destOffset);
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		delegate.copyColumnInto(colIndex, dest, destOffset);
+	}
+
+	@Override
+	public double[] rowSums() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.rowSums();
+		} finally {
+			MatrixMetrics.end(sample, Operation.REDUCE, entries(), Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public double[] columnSums() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.columnSums();
+		} finally {
+			MatrixMetrics.end(sample, Operation.REDUCE, entries(), Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public float[][] rowMinMax() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.rowMinMax();
+		} finally {
+			MatrixMetrics.end(sample, Operation.REDUCE, 2 * entries(), Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public double frobeniusNorm() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.frobeniusNorm();
+		} finally {
+			MatrixMetrics.end(sample, Operation.REDUCE, 2 * entries(), Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public double trace() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.trace();
+		} finally {
+			MatrixMetrics.end(sample, Operation.REDUCE, rowSize(), (long) Float.BYTES * rowSize());
+		}
+	}
+
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.equals(unwrap(matrix));
+		} finally {
+			MatrixMetrics.end(sample, Operation.COMPARE, 0, 2L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public long contentHash() {
+		return delegate.contentHash();
+	}
+
+	@Override
+	public HSMatrix clone() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.clone());
+		} finally {
+			MatrixMetrics.end(sample, Operation.COPY, 0, 2L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public HSMatrix transpose() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.transpose());
+		} finally {
+			MatrixMetrics.end(sample, Operation.TRANSPOSE, 0, 2L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.plus(unwrap(matrix)));
+		} finally {
+			MatrixMetrics.end(sample, Operation.ADD, entries(), 3L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public Float sumRow(int rowIndex) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.sumRow(rowIndex);
+		} finally {
+			MatrixMetrics.end(sample, Operation.SUM_ROW, columnSize(), (long) Float.BYTES * columnSize());
+		}
+	}
+
+	@Override
+	public Float sumColumn(int colIndex) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return delegate.sumColumn(colIndex);
+		} finally {
+			MatrixMetrics.end(sample, Operation.SUM_COLUMN, rowSize(), (long) Float.BYTES * rowSize());
+		}
+	}
+
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.minus(unwrap(matrix)));
+		} finally {
+			MatrixMetrics.end(sample, Operation.SUBTRACT, entries(), 3L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public HSMatrix negative() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.negative());
+		} finally {
+			MatrixMetrics.end(sample, Operation.NEGATE, entries(), 2L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public HSMatrix times(HSMatrix matrix) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.times(unwrap(matrix)));
+		} finally {
+			MatrixMetrics.end(sample, Operation.MULTIPLY, productFlops(delegate, matrix), productBytes(delegate, matrix));
+		}
+	}
+
+	@Override
+	public HSMatrix times(Float scalar) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			return wrap(delegate.times(scalar));
+		} finally {
+			MatrixMetrics.end(sample, Operation.SCALE, entries(), 2L * Float.BYTES * entries());
+		}
+	}
+
+	/**
+	 * Estimate the floating-point operations of the product of a and b: a multiply and an add for each term.
+	 */
+	static long productFlops(HSMatrix a, HSMatrix b) {
+		return 2L * a.rowSize() * a.columnSize() * b.columnSize();
+	}
+
+	/**
+	 * Estimate the bytes of entries a product reads and writes: each operand and the product once.
+	 */
+	static long productBytes(HSMatrix a, HSMatrix b) {
+		return (long) Float.BYTES * ((long) a.rowSize() * a.columnSize() + (long) b.rowSize() * b.columnSize()
+				+ (long) a.rowSize() * b.columnSize());
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+}
@@ -0,0 +1,158 @@
+package org.software.hopkins.matrix;
+
+import org.software.hopkins.matrix.MatrixMetrics.Operation;
+import org.software.hopkins.matrix.MatrixMetrics.Sample;
+
+import java.util.List;
+
+/**
+ * A mutable matrix that records its operations, including its in-place updates, in {@link MatrixMetrics}.
+ * Setting single entries, rows and columns is passed straight through.
+ */
+final class InstrumentedMutableMatrix extends InstrumentedMatrix implements HSMutableMatrix {
+	private final HSMutableMatrix mutable;
+
+	InstrumentedMutableMatrix(HSMutableMatrix delegate) {
+		super(delegate);
+		this.mutable = delegate;
+	}
+
+	@Override
+	public void setEntry(int row, int column, Float value) {
+		mutable.setEntry(row, column, value);
+	}
+
+	@Override
+	public void setFloat(int row, int column, float value) {
+		mutable.setFloat(row, column, value);
+	}
+
+	@Override
+	public void fill(Float value) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.fill(value);
+		} finally {
+			MatrixMetrics.end(sample, Operation.FILL, 0, Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void setValuesIncrementedFrom(Float start) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.setValuesIncrementedFrom(start);
+		} finally {
+			MatrixMetrics.end(sample, Operation.FILL, entries(), Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void setRow(int index, List<Float> newRow) {
+		mutable.setRow(index, newRow);
+	}
+
+	@Override
+	public void setRow(int index, float[] newRow) {
+		mutable.setRow(index, newRow);
+	}
+
+	@Override
+	public void setColumn(int colIndex, List<Float> values) {
+		mutable.setColumn(colIndex, values);
+	}
+
+	@Override
+	public void add(HSMatrix matrix) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.add(unwrap(matrix));
+		} finally {
+			MatrixMetrics.end(sample, Operation.ADD_IN_PLACE, entries(), 3L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void subtract(HSMatrix matrix) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.subtract(unwrap(matrix));
+		} finally {
+			MatrixMetrics.end(sample, Operation.SUBTRACT_IN_PLACE, entries(), 3L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void scaleBy(float scalar) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.scaleBy(scalar);
+		} finally {
+			MatrixMetrics.end(sample, Operation.SCALE_IN_PLACE, entries(), 2L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void axpy(float alpha, HSMatrix x) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.axpy(alpha, unwrap(x));
+		} finally {
+			MatrixMetrics.end(sample, Operation.AXPY, 2 * entries(), 3L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void addScaled(float alpha, HSMatrix x, int rowStart, int colStart) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.addScaled(alpha, unwrap(x), rowStart, colStart);
+		} finally {
+			long updated = (long) x.rowSize() * x.columnSize();
+			MatrixMetrics.end(sample, Operation.AXPY, 2 * updated, 3L * Float.BYTES * updated);
+		}
+	}
+
+	@Override
+	public void hadamardInPlace(HSMatrix x) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.hadamardInPlace(unwrap(x));
+		} finally {
+			MatrixMetrics.end(sample, Operation.HADAMARD_IN_PLACE, entries(), 3L * Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void gemmInto(float alpha, HSMatrix a, HSMatrix b, float beta) {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.gemmInto(alpha, unwrap(a), unwrap(b), beta);
+		} finally {
+			MatrixMetrics.end(sample, Operation.GEMM_INTO, productFlops(a, b) + 3 * entries(),
+					productBytes(a, b) + Float.BYTES * entries());
+		}
+	}
+
+	@Override
+	public void multiplyBy(HSMatrix matrix) {
+		long flops = productFlops(mutable, matrix);
+		long bytes = productBytes(mutable, matrix);
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.multiplyBy(unwrap(matrix));
+		} finally {
+			MatrixMetrics.end(sample, Operation.MULTIPLY_IN_PLACE, flops, bytes);
+		}
+	}
+
+	@Override
+	public void invert() {
+		Sample sample = MatrixMetrics.begin();
+		try {
+			mutable.invert();
+		} finally {
+			MatrixMetrics.end(sample, Operation.TRANSPOSE_IN_PLACE, 0, 2L * Float.BYTES * entries());
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package org.software.hopkins.matrix;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loops over ranges of primitive int arrays, behind {@link IntMatrix} and {@link IntMutableMatrix}.
+ * Each has a wrapping version, with the same results as Java's int arithmetic, whose simple
+ * loops C2 compiles to SIMD instructions, and an overflow-checked version that throws
+ * an ArithmeticException instead of wrapping.
+ */
+final class IntKernels {
+	/** The product is computed in column blocks of this many entries, so a block of a row of the result stays in cache. */
+	static final int COLUMN_BLOCK = 512;
+
+	private IntKernels() {
+	}
+
+	static void add(int[] a, int aOffset, int[] b, int bOffset, int[] out, int outOffset, int length, boolean checked) {
+		if (checked) {
+			for (int i = 0; i < length; i++) {
+				out[outOffset + i] = Math.addExact(a[aOffset + i], b[bOffset + i]);
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+			}
+		}
+	}
+
+	static void subtract(int[] a, int aOffset, int[] b, int bOffset, int[] out, int outOffset, int length, boolean checked) {
+		if (checked) {
+			for (int i = 0; i < length; i++) {
+				out[outOffset + i] = Math.subtractExact(a[aOffset + i], b[bOffset + i]);
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+			}
+		}
+	}
+
+	/**
+	 * out = scalar * a. May be called with out == a to scale in place.
+	 */
+	static void scale(int[] a, int aOffset, int scalar, int[] out, int outOffset, int length, boolean checked) {
+		if (checked) {
+			for (int i = 0; i < length; i++) {
+				out[outOffset + i] = Math.multiplyExact(a[aOffset + i], scalar);
+			}
+		} else {
+			for (int i = 0; i < length; i++) {
+				out[outOffset + i] = a[aOffset + i] * scalar;
+			}
+		}
+	}
+
+	/**
+	 * The sum of a range, in a long, which can't overflow for fewer than 2^32 entries.
+	 */
+	static long sum(int[] a, int offset, int length) {
+		long sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[offset + i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Narrow a long to an int: wrapping it, as a cast does, or throwing an ArithmeticException if it doesn't fit.
+	 */
+	static int narrow(long value, boolean checked) {
+		return checked ? Math.toIntExact(value) : (int) value;
+	}
+
+	/**
+	 * The product of a and b as a new compact row-major array.
+	 * Each entry is accumulated in a long and narrowed once, so when overflow is checked only results
+	 * that don't fit in an int throw, however large their partial sums. Row ranges are computed in parallel,
+	 * on the default {@link TiledMultiplier}'s pool, when the product is at least as large as its parallel threshold.
+	 */
+	static int[] multiply(IntMatrix a, IntMatrix b, boolean checked) {
+		int[] c = new int[a.rows * b.cols];
+		multiply(a, b, checked, c, null);
+		return c;
+	}
+
+	/**
+	 * The product of a and b as a new compact row-major array of longs, each entry exact.
+	 * @throws ArithmeticException if an entry doesn't fit in a long.
+	 */
+	static long[] multiplyToLongs(IntMatrix a, IntMatrix b) {
+		long[] c = new long[a.rows * b.cols];
+		multiply(a, b, true, null, c);
+		return c;
+	}
+
+	private static void multiply(IntMatrix a, IntMatrix b, boolean checked, int[] c, long[] cLong) {
+		TiledMultiplier multiplier = TiledMultiplier.getDefault();
+		int parallelism = multiplier.getPool().getParallelism();
+		long work = (long) a.rows * a.cols * b.cols;
+		if (work >= multiplier.getParallelThreshold() && parallelism > 1 && a.rows > 1)
+			multiplier.getPool().invoke(new ProductTask(a, b, checked, c, cLong, 0, a.rows, Math.max(1, a.rows / (4 * parallelism))));
+		else
+			multiplyRows(a, b, checked, c, cLong, 0, a.rows);
+	}
+
+	/**
+	 * Rows [rowStart, rowEnd) of the product, into c narrowed to ints or, if c is null, into cLong:
+	 * for each block of result columns, each row of the result is accumulated from the rows of b,
+	 * scaled by the row of a, skipping the zero entries of a.
+	 */
+	private static void multiplyRows(IntMatrix a, IntMatrix b, boolean checked, int[] c, long[] cLong, int rowStart, int rowEnd) {
+		int n = a.cols;
+		int p = b.cols;
+		long[] acc = new long[Math.min(p, COLUMN_BLOCK)];
+		for (int colStart = 0; colStart < p; colStart += COLUMN_BLOCK) {
+			int nc = Math.min(COLUMN_BLOCK, p - colStart);
+			for (int i = rowStart; i < rowEnd; i++) {
+				Arrays.fill(acc, 0, nc, 0L);
+				int aBase = a.offset + i * a.rowStride;
+				for (int k = 0; k < n; k++) {
+					long x = a.data[aBase + k];
+					if (x == 0)
+						continue;
+					int bBase = b.offset + k * b.rowStride + colStart;
+					if (checked) {
+						for (int j = 0; j < nc; j++) {
+							acc[j] = Math.addExact(acc[j], x * b.data[bBase + j]);
+						}
+					} else {
+						for (int j = 0; j < nc; j++) {
+							acc[j] += x * b.data[bBase + j];
+						}
+					}
+				}
+				int cBase = i * p + colStart;
+				if (c == null) {
+					System.arraycopy(acc, 0, cLong, cBase, nc);
+				} else {
+					for (int j = 0; j < nc; j++) {
+						c[cBase + j] = narrow(acc[j], checked);
+					}
+				}
+			}
+		}
+	}
+
+	private static final class ProductTask extends RecursiveAction {
+		private final IntMatrix a, b;
+		private final boolean checked;
+		private final int[] c;
+		private final long[] cLong;
+		private final int rowStart, rowEnd, leafRows;
+
+		ProductTask(IntMatrix a, IntMatrix b, boolean checked, int[] c, long[] cLong, int rowStart, int rowEnd, int leafRows) {
+			this.a = a;
+			this.b = b;
+			this.checked = checked;
+			this.c = c;
+			this.cLong = cLong;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.leafRows = leafRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (rowEnd - rowStart <= leafRows) {
+				multiplyRows(a, b, checked, c, cLong, rowStart, rowEnd);
+			} else {
+				int mid = (rowStart + rowEnd) >>> 1;
+				invokeAll(new ProductTask(a, b, checked, c, cLong, rowStart, mid, leafRows),
+						new ProductTask(a, b, checked, c, cLong, mid, rowEnd, leafRows));
+			}
+		}
+	}
+}
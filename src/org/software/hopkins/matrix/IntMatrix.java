@@ -0,0 +1,698 @@
+package org.software.hopkins.matrix;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An integer matrix stored in a single contiguous row-major array of primitive ints.
+ * Entry (r, c) lives at data[offset + r * rowStride + c], as in {@link DenseMatrix}.
+ * <p>
+ * Arithmetic between integer matrices is exact integer arithmetic: sums and products of IntMatrix operands
+ * are IntMatrix results, and products and sums accumulate in a long, so {@link #sumRowAsLong(int)},
+ * {@link #rowSumsAsLong()} and the like never overflow. By default the int results wrap on overflow,
+ * as Java's int arithmetic does; a matrix made by {@link #withOverflowChecks()} throws an ArithmeticException instead,
+ * and so do results that have such a matrix as an operand.
+ * <p>
+ * As an HSMatrix, the entries read as floats, which are exact up to 2^24 in magnitude.
+ * Arithmetic with other kinds of matrix, or with a float scalar, gives a float {@link DenseMatrix}.
+ */
+public class IntMatrix implements HSMatrix {
+	protected int[] data;
+	protected int rows, cols;
+	protected int offset, rowStride;
+	/** Whether arithmetic throws an ArithmeticException on overflow rather than wrapping. */
+	protected boolean checked;
+	/**
+	 * The sum of the hashes of the entries, when {@link #hashed}; see {@link ContentHash}.
+	 * Kept by IntMatrix itself and by IntMutableMatrix, which updates it as entries change.
+	 */
+	long entryHashes;
+	/** Whether {@link #entryHashes} is up to date. */
+	volatile boolean hashed;
+
+	/**
+	 * Constructor
+	 * Create a new matrix of m rows and n columns filled with zeros.
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 *
+	 * Takes O(nm) time in O(nm) space.
+	 */
+	public IntMatrix(int mRows, int nCols) {
+		this(mRows, nCols, new int[mRows * nCols], 0, nCols, false);
+	}
+
+	public IntMatrix(int mRows, int nCols, int fill) {
+		this(mRows, nCols);
+		Arrays.fill(data, fill);
+	}
+
+	/**
+	 * Create a matrix from a row-major array of entries.
+	 * The array is copied, so later changes to it do not affect this matrix.
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 * @param rowMajorData the entries, row after row; must hold exactly m * n values.
+	 */
+	public IntMatrix(int mRows, int nCols, int[] rowMajorData) {
+		this(mRows, nCols, checkedCopy(mRows, nCols, rowMajorData), 0, nCols, false);
+	}
+
+	public IntMatrix(int[][] twoDimensionalArray) {
+		this(twoDimensionalArray.length, twoDimensionalArray[0].length);
+		for (int r = 0; r < rows; r++) {
+			if (twoDimensionalArray[r].length != cols)
+				throw new IllegalArgumentException("Row " + r + " does not have " + cols + " entries.");
+			System.arraycopy(twoDimensionalArray[r], 0, data, r * cols, cols);
+		}
+	}
+
+	/**
+	 * Create a compact integer copy of any matrix.
+	 * @param matrix the matrix to copy; each of its entries must be a whole number in the range of an int.
+	 * @throws IllegalArgumentException if an entry is not.
+	 */
+	public IntMatrix(HSMatrix matrix) {
+		this(matrix.rowSize(), matrix.columnSize());
+		if (matrix instanceof IntMatrix) {
+			IntMatrix given = (IntMatrix) matrix;
+			for (int r = 0; r < rows; r++) {
+				System.arraycopy(given.data, given.offset + r * given.rowStride, data, r * cols, cols);
+			}
+		} else {
+			float[] rowBuffer = new float[cols];
+			for (int r = 0; r < rows; r++) {
+				matrix.copyRowInto(r, rowBuffer, 0);
+				for (int c = 0; c < cols; c++) {
+					data[r * cols + c] = toInt(rowBuffer[c]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wraps the given storage without copying it.
+	 * Used internally to share storage between matrices and to adopt kernel results.
+	 */
+	IntMatrix(int mRows, int nCols, int[] data, int offset, int rowStride, boolean checked) {
+		if (mRows < 0 || nCols < 0)
+			throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+		this.rows = mRows;
+		this.cols = nCols;
+		this.data = data;
+		this.offset = offset;
+		this.rowStride = rowStride;
+		this.checked = checked;
+	}
+
+	private static int[] checkedCopy(int mRows, int nCols, int[] rowMajorData) {
+		if (rowMajorData.length != mRows * nCols)
+			throw new IllegalArgumentException("Expected " + (mRows * nCols) + " entries but got " + rowMajorData.length + ".");
+		return rowMajorData.clone();
+	}
+
+	/**
+	 * Convert a float to the int with the same value.
+	 * @throws IllegalArgumentException if the value is not a whole number in the range of an int.
+	 */
+	static int toInt(double value) {
+		if (!(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) || value != Math.rint(value))
+			throw new IllegalArgumentException(value + " is not an integer in the range of an int.");
+		return (int) value;
+	}
+
+	/**
+	 * Index into the backing array of the entry at the given row and column.
+	 */
+	final int index(int row, int column) {
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(column, cols);
+		return offset + row * rowStride + column;
+	}
+
+	/**
+	 * Whether the entries occupy data[offset .. offset + rows * cols) with no gaps.
+	 */
+	final boolean isCompact() {
+		return rowStride == cols || rows <= 1;
+	}
+
+	/**
+	 * Make a matrix with the same entries whose arithmetic throws an ArithmeticException on overflow
+	 * instead of wrapping. Results with such a matrix as an operand are checked too.
+	 * An IntMatrix never changes, so the checked matrix shares this one's storage.
+	 * @return a checked matrix with this matrix's entries.
+	 */
+	public IntMatrix withOverflowChecks() {
+		return new IntMatrix(rows, cols, data, offset, rowStride, true);
+	}
+
+	/**
+	 * Does this matrix's arithmetic throw an ArithmeticException on overflow?
+	 */
+	public boolean isOverflowChecked() {
+		return checked;
+	}
+
+	@Override
+	public int rowSize() {
+		return rows;
+	}
+
+	@Override
+	public int columnSize() {
+		return cols;
+	}
+
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return rows == matrix.rowSize() && cols == matrix.columnSize();
+	}
+
+	/**
+	 * Get the row of the matrix with the given index.
+	 * The row is a read-only view over this matrix's storage; each entry is converted to a Float as it is read.
+	 * @param index of the desired row
+	 * @return the desired row which is unmodifiable to preserve encapsulation.
+	 */
+	@Override
+	public List<Float> getRow(int index) {
+		Objects.checkIndex(index, rows);
+		return new RowList(offset + index * rowStride);
+	}
+
+	@Override
+	public List<Float> getRowCopy(int index) {
+		return new ArrayList<>(getRow(index));
+	}
+
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		List<Float> column = new ArrayList<>(rows);
+		for (int r = 0; r < rows; r++) {
+			column.add((float) data[index(r, colIndex)]);
+		}
+		return column;
+	}
+
+	@Override
+	public Float getEntry(int row, int column) {
+		return (float) data[index(row, column)];
+	}
+
+	/**
+	 * Get the entry value at the given row and column as a float, rounded if its magnitude is over 2^24.
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @return the value of the entry
+	 */
+	@Override
+	public float getFloat(int row, int column) {
+		return data[index(row, column)];
+	}
+
+	/**
+	 * Get the entry value at the given row and column exactly.
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @return the value of the entry
+	 */
+	public int getInt(int row, int column) {
+		return data[index(row, column)];
+	}
+
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		Objects.checkIndex(index, rows);
+		Objects.checkFromIndexSize(destOffset, cols, dest.length);
+		int base = offset + index * rowStride;
+		for (int c = 0; c < cols; c++) {
+			dest[destOffset + c] = data[base + c];
+		}
+	}
+
+	/**
+	 * Copy the values of the row with the given index into an int array.
+	 * @param index      of the row to copy
+	 * @param dest       the array to copy into; must have room for columnSize() values from destOffset.
+	 * @param destOffset the position in dest for the row's first value
+	 */
+	public void copyRowInto(int index, int[] dest, int destOffset) {
+		Objects.checkIndex(index, rows);
+		System.arraycopy(data, offset + index * rowStride, dest, destOffset, cols);
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		Objects.checkIndex(colIndex, cols);
+		for (int r = 0; r < rows; r++) {
+			dest[destOffset + r] = data[offset + r * rowStride + colIndex];
+		}
+	}
+
+	/**
+	 * Indicates whether the given matrix is equal to this matrix.
+	 * Two matrices are equal if they are of the same order and each entry of the given matrix is equal
+	 * to the corresponding entry of this one: exactly, if the given matrix is an integer one, otherwise
+	 * as floats, comparing as a float matrix's equals does, only if each entry of this one is exactly
+	 * a float. So an integer matrix past 2^24 is equal to no float matrix, and equality is transitive
+	 * however integer and float matrices are mixed. A float matrix compares itself with an integer
+	 * matrix by this method, so that equality holds either way round.
+	 * @param matrix the given matrix
+	 * @return whether the given matrix is equal to this matrix
+	 */
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		if (!isSameOrder(matrix) || ContentHash.knownToDiffer(this, matrix))
+			return false;
+		IntMatrix given = integersOf(matrix);
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				int value = data[base + c];
+				boolean same;
+				if (given != null) {
+					same = value == given.data[given.offset + r * given.rowStride + c];
+				} else {
+					float asFloat = value;
+					same = (long) asFloat == value
+							&& Float.floatToIntBits(asFloat) == Float.floatToIntBits(matrix.getFloat(r, c));
+				}
+				if (!same)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the integer matrix the given matrix is, or is an instrumented wrapper of, or null if it is a float one.
+	 */
+	static IntMatrix integersOf(HSMatrix matrix) {
+		HSMatrix underneath = InstrumentedMatrix.unwrap(matrix);
+		return underneath instanceof IntMatrix ? (IntMatrix) underneath : null;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(contentHash());
+	}
+
+	/**
+	 * Get the content hash, hashing each entry as its float value so that
+	 * the hash is the same as that of an equal float matrix.
+	 */
+	@Override
+	public long contentHash() {
+		if (!hashed) {
+			long sum = ContentHash.sumOf(data, offset, rowStride, rows, cols);
+			if (getClass() != IntMatrix.class && getClass() != IntMutableMatrix.class)
+				return ContentHash.finish(sum, rows, cols);
+			entryHashes = sum;
+			hashed = true;
+		}
+		return ContentHash.finish(entryHashes, rows, cols);
+	}
+
+	/**
+	 * Forget the content hash, so that it is computed again when next needed,
+	 * as the mutable subclass does when it changes more than an entry or a row at a time.
+	 */
+	void contentChanged() {
+		hashed = false;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int r = 0; r < rows; ++r) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; ++c) {
+				sb.append(data[base + c]);
+				sb.append('\t');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Copy the entries into a new compact row-major array.
+	 * @return a new array of rows * cols entries.
+	 */
+	int[] toArray() {
+		int[] copy = new int[rows * cols];
+		if (isCompact()) {
+			System.arraycopy(data, offset, copy, 0, copy.length);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				System.arraycopy(data, offset + r * rowStride, copy, r * cols, cols);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Make an independent copy of this matrix, checked if this one is.
+	 * @return a compact deep copy of this matrix.
+	 */
+	@Override
+	public HSMatrix clone() {
+		return new IntMatrix(rows, cols, toArray(), 0, cols, checked);
+	}
+
+	/*
+	  SummableMatrix Interface Implementation
+	 */
+
+	/**
+	 * If this matrix and the given matrix are of the same order (same number of rows and columns),
+	 * returns a new matrix of the matrices two added together.
+	 * @param matrix a given matrix to add to this matrix
+	 * @return the sum as a new IntMatrix if the given matrix is one, otherwise as a new DenseMatrix.
+	 * @throws IllegalArgumentException if they are not of the same order.
+	 * @throws ArithmeticException if an entry of an integer sum overflows and either matrix is checked.
+	 */
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		if (matrix instanceof IntMatrix)
+			return combine((IntMatrix) matrix, false);
+		return MatrixExpression.of(this).plus(matrix).evaluate();
+	}
+
+	public IntMatrix plus(IntMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		return combine(matrix, false);
+	}
+
+	private IntMatrix combine(IntMatrix given, boolean subtract) {
+		boolean check = checked || given.checked;
+		int[] result = new int[rows * cols];
+		if (isCompact() && given.isCompact()) {
+			combineRange(subtract, data, offset, given.data, given.offset, result, 0, result.length, check);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				combineRange(subtract, data, offset + r * rowStride, given.data, given.offset + r * given.rowStride,
+						result, r * cols, cols, check);
+			}
+		}
+		return new IntMatrix(rows, cols, result, 0, cols, check);
+	}
+
+	private static void combineRange(boolean subtract, int[] a, int aOffset, int[] b, int bOffset,
+									 int[] out, int outOffset, int length, boolean checked) {
+		if (subtract)
+			IntKernels.subtract(a, aOffset, b, bOffset, out, outOffset, length, checked);
+		else
+			IntKernels.add(a, aOffset, b, bOffset, out, outOffset, length, checked);
+	}
+
+	/**
+	 * Get the sum of a given row of this matrix, rounded to a float.
+	 * Use {@link #sumRowAsLong(int)} for the exact sum.
+	 */
+	@Override
+	public Float sumRow(int rowIndex) {
+		return (float) sumRowAsLong(rowIndex);
+	}
+
+	/**
+	 * Get the sum of the given column of this matrix, rounded to a float.
+	 * Use {@link #sumColumnAsLong(int)} for the exact sum.
+	 */
+	@Override
+	public Float sumColumn(int colIndex) {
+		return (float) sumColumnAsLong(colIndex);
+	}
+
+	/**
+	 * Get the exact sum of a given row of this matrix.
+	 * @param rowIndex the given row's index
+	 * @return the sum, accumulated in a long.
+	 */
+	public long sumRowAsLong(int rowIndex) {
+		Objects.checkIndex(rowIndex, rows);
+		return IntKernels.sum(data, offset + rowIndex * rowStride, cols);
+	}
+
+	/**
+	 * Get the exact sum of the given column of this matrix.
+	 * @param colIndex the given column's index
+	 * @return the sum, accumulated in a long.
+	 */
+	public long sumColumnAsLong(int colIndex) {
+		Objects.checkIndex(colIndex, cols);
+		long sum = 0;
+		for (int r = 0; r < rows; r++) {
+			sum += data[offset + r * rowStride + colIndex];
+		}
+		return sum;
+	}
+
+	/*
+	  Bulk reductions, exact in long and computed from the int entries rather than their float values.
+	 */
+
+	/**
+	 * Get the exact sum of every row of this matrix.
+	 * @return an array of rowSize() sums.
+	 */
+	public long[] rowSumsAsLong() {
+		long[] sums = new long[rows];
+		for (int r = 0; r < rows; r++) {
+			sums[r] = IntKernels.sum(data, offset + r * rowStride, cols);
+		}
+		return sums;
+	}
+
+	/**
+	 * Get the exact sum of every column of this matrix, reading it a row at a time.
+	 * @return an array of columnSize() sums.
+	 */
+	public long[] columnSumsAsLong() {
+		long[] sums = new long[cols];
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				sums[c] += data[base + c];
+			}
+		}
+		return sums;
+	}
+
+	/**
+	 * Get the exact trace of this matrix.
+	 * @return the sum of the entries on the main diagonal.
+	 * @throws IllegalArgumentException if the matrix is not square.
+	 */
+	public long traceAsLong() {
+		if (rows != cols)
+			throw new IllegalArgumentException("Can't take the trace. The matrix is not square.");
+		long sum = 0;
+		for (int i = 0; i < rows; i++) {
+			sum += data[offset + i * rowStride + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public double[] rowSums() {
+		return toDoubles(rowSumsAsLong());
+	}
+
+	@Override
+	public double[] columnSums() {
+		return toDoubles(columnSumsAsLong());
+	}
+
+	private static double[] toDoubles(long[] values) {
+		double[] result = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = values[i];
+		}
+		return result;
+	}
+
+	@Override
+	public float[][] rowMinMax() {
+		float[][] minMax = new float[2][rows];
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			if (cols == 0) {
+				minMax[0][r] = Float.POSITIVE_INFINITY;
+				minMax[1][r] = Float.NEGATIVE_INFINITY;
+				continue;
+			}
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (int c = 0; c < cols; c++) {
+				min = Math.min(min, data[base + c]);
+				max = Math.max(max, data[base + c]);
+			}
+			minMax[0][r] = min;
+			minMax[1][r] = max;
+		}
+		return minMax;
+	}
+
+	@Override
+	public double frobeniusNorm() {
+		double sum = 0.0;
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				double value = data[base + c];
+				sum += value * value;
+			}
+		}
+		return Math.sqrt(sum);
+	}
+
+	@Override
+	public double trace() {
+		return traceAsLong();
+	}
+
+	/*
+	  Scalable Matrix Interface Implementation
+	 */
+
+	/**
+	 * Multiply a copy of this matrix by the given scalar.
+	 * @param scalar - the number to multiply each element of the matrix by.
+	 * @return a new DenseMatrix of the scaled entries; use {@link #times(int)} for an integer result.
+	 */
+	@Override
+	public HSMatrix times(Float scalar) {
+		return MatrixExpression.of(this).times(scalar).evaluate();
+	}
+
+	/**
+	 * Multiply a copy of this matrix by the given integer.
+	 * @param scalar - the number to multiply each element of the matrix by.
+	 * @return a new IntMatrix of the scaled entries.
+	 * @throws ArithmeticException if an entry overflows and this matrix is checked.
+	 */
+	public IntMatrix times(int scalar) {
+		int[] result = new int[rows * cols];
+		if (isCompact()) {
+			IntKernels.scale(data, offset, scalar, result, 0, result.length, checked);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				IntKernels.scale(data, offset + r * rowStride, scalar, result, r * cols, cols, checked);
+			}
+		}
+		return new IntMatrix(rows, cols, result, 0, cols, checked);
+	}
+
+	@Override
+	public HSMatrix negative() {
+		return times(-1);
+	}
+
+	/*
+	  Subtractable Matrix Interface Implementation
+	 */
+
+	/**
+	 * Returns a copy of this matrix minus the given matrix.
+	 * @param matrix - a matrix of the same order as this one
+	 * @return the difference as a new IntMatrix if the given matrix is one, otherwise as a new DenseMatrix.
+	 */
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		if (matrix instanceof IntMatrix)
+			return combine((IntMatrix) matrix, true);
+		return MatrixExpression.of(this).minus(matrix).evaluate();
+	}
+
+	public IntMatrix minus(IntMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		return combine(matrix, true);
+	}
+
+	/*
+	  Transposable Matrix Interface Implementation
+	 */
+
+	@Override
+	public HSMatrix transpose() {
+		return new IntMatrix(cols, rows, transposedArray(), 0, rows, checked);
+	}
+
+	/**
+	 * Copy the transpose of this matrix into a new compact row-major array
+	 * with the cache-oblivious {@link TransposeKernels}.
+	 */
+	int[] transposedArray() {
+		int[] result = new int[rows * cols];
+		TransposeKernels.transpose(data, offset, rowStride, rows, cols, result, 0, rows);
+		return result;
+	}
+
+	/**
+	 * Multiplies this mxn matrix A by the given nxp matrix B (A columns == B rows) and
+	 * produces a mxp product matrix C. Does not change this matrix.
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 * @return the product as a new IntMatrix if the given matrix is one, otherwise as a new DenseMatrix.
+	 */
+	@Override
+	public HSMatrix times(HSMatrix matrixB) {
+		if (matrixB instanceof IntMatrix)
+			return times((IntMatrix) matrixB);
+		if (this.columnSize() != matrixB.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		return new DenseMatrix(rows, matrixB.columnSize(), TiledMultiplier.getDefault().multiply(this, matrixB), 0, matrixB.columnSize());
+	}
+
+	/**
+	 * Multiplies this matrix by the given integer matrix exactly.
+	 * Each entry is accumulated in a long and then narrowed to an int.
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 * @return the product as a new IntMatrix, checked if either operand is.
+	 * @throws ArithmeticException if an entry of the product doesn't fit in an int and either operand is checked.
+	 */
+	public IntMatrix times(IntMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		boolean check = checked || matrixB.checked;
+		return new IntMatrix(rows, matrixB.cols, IntKernels.multiply(this, matrixB, check), 0, matrixB.cols, check);
+	}
+
+	/**
+	 * A read-only list view of one row of the backing array.
+	 */
+	private final class RowList extends AbstractList<Float> implements RandomAccess {
+		private final int base;
+
+		RowList(int base) {
+			this.base = base;
+		}
+
+		@Override
+		public Float get(int index) {
+			Objects.checkIndex(index, cols);
+			return (float) data[base + index];
+		}
+
+		@Override
+		public int size() {
+			return cols;
+		}
+	}
+}
@@ -0,0 +1,448 @@
+package org.software.hopkins.matrix;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A mutable integer matrix stored in a single contiguous row-major array of primitive ints.
+ * <p>
+ * Values given as floats must be whole numbers in the range of an int; any other value is rejected
+ * with an IllegalArgumentException rather than truncated. The same holds for the results of the updates
+ * that take a float scalar: they are computed exactly in double precision from the int entries, and
+ * the matrix is left unchanged if a result is not an integer. An update that overflows a checked matrix
+ * throws an ArithmeticException, and may already have changed some entries.
+ * <p>
+ * Once its content hash has been computed it is kept up to date as single entries, rows and columns are set,
+ * and computed again after any other update.
+ */
+public class IntMutableMatrix extends IntMatrix implements HSMutableMatrix {
+	/**
+	 * Constructor
+	 * Create a new matrix of m rows and n columns filled with zeros.
+	 *
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 *              <p>
+	 *              Takes O(nm) time in O(nm) space.
+	 */
+	public IntMutableMatrix(int mRows, int nCols) {
+		super(mRows, nCols);
+	}
+
+	public IntMutableMatrix(int mRows, int nCols, int[] rowMajorData) {
+		super(mRows, nCols, rowMajorData);
+	}
+
+	public IntMutableMatrix(int[][] twoDimensionalArray) {
+		super(twoDimensionalArray);
+	}
+
+	public IntMutableMatrix(HSMatrix matrix) {
+		super(matrix);
+	}
+
+	IntMutableMatrix(int mRows, int nCols, int[] data, int offset, int rowStride, boolean checked) {
+		super(mRows, nCols, data, offset, rowStride, checked);
+	}
+
+	/**
+	 * Make an independent, still mutable, copy of this matrix.
+	 * @return a compact deep copy of this matrix.
+	 */
+	@Override
+	public HSMatrix clone() {
+		return new IntMutableMatrix(rows, cols, toArray(), 0, cols, checked);
+	}
+
+	/**
+	 * Make a checked copy of this matrix.
+	 * A mutable matrix that shared this one's storage would drift apart from it once either
+	 * were multiplied or transposed in place, so unlike an IntMatrix this makes a copy.
+	 * To check this matrix's own arithmetic, use {@link #setOverflowChecked(boolean)}.
+	 * @return a checked, mutable copy of this matrix.
+	 */
+	@Override
+	public IntMatrix withOverflowChecks() {
+		return new IntMutableMatrix(rows, cols, toArray(), 0, cols, true);
+	}
+
+	/**
+	 * Set whether this matrix's arithmetic, in place or not, throws an ArithmeticException on overflow.
+	 * @param overflowChecked - true to throw, false to wrap as Java's int arithmetic does.
+	 */
+	public void setOverflowChecked(boolean overflowChecked) {
+		checked = overflowChecked;
+	}
+
+	/**
+	 * Set the entry's value at the given row and column.
+	 * @throws IllegalArgumentException if the value is not a whole number in the range of an int.
+	 */
+	@Override
+	public void setEntry(int row, int column, Float value) {
+		setInt(row, column, toInt(value));
+	}
+
+	/**
+	 * Set the entry's value at the given row and column without boxing it.
+	 * @throws IllegalArgumentException if the value is not a whole number in the range of an int.
+	 */
+	@Override
+	public void setFloat(int row, int column, float value) {
+		setInt(row, column, toInt(value));
+	}
+
+	/**
+	 * Set the entry's value at the given row and column.
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @param value  the new value of the entry
+	 */
+	public void setInt(int row, int column, int value) {
+		int index = index(row, column);
+		entryChanged(row, column, data[index], value);
+		data[index] = value;
+	}
+
+	@Override
+	public void fill(Float value) {
+		fill(toInt(value));
+	}
+
+	/**
+	 * Sets every value of the matrix to the given value.
+	 * @param value the value given with which to fill the matrix
+	 */
+	public void fill(int value) {
+		contentChanged();
+		if (isCompact()) {
+			Arrays.fill(data, offset, offset + rows * cols, value);
+		} else {
+			for (int r = 0; r < rows; r++) {
+				int base = offset + r * rowStride;
+				Arrays.fill(data, base, base + cols, value);
+			}
+		}
+	}
+
+	/**
+	 * Sets the values of the matrix to incremental values from the given start number.
+	 * @throws IllegalArgumentException if the start is not a whole number in the range of an int.
+	 * @throws ArithmeticException if the values pass the largest int and this matrix is checked.
+	 */
+	@Override
+	public void setValuesIncrementedFrom(Float start) {
+		long val = toInt(start);
+		contentChanged();
+		for (int r = 0; r < rows; ++r) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; ++c) {
+				data[base + c] = IntKernels.narrow(val++, checked);
+			}
+		}
+	}
+
+	@Override
+	public void setRow(int index, List<Float> newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.size() != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		int[] values = new int[cols];
+		for (int c = 0; c < cols; c++) {
+			values[c] = toInt(newRow.get(c));
+		}
+		setRow(index, values);
+	}
+
+	@Override
+	public void setRow(int index, float[] newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.length != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		for (float value : newRow) {
+			toInt(value);
+		}
+		int base = offset + index * rowStride;
+		for (int c = 0; c < cols; c++) {
+			entryChanged(index, c, data[base + c], (int) newRow[c]);
+			data[base + c] = (int) newRow[c];
+		}
+	}
+
+	/**
+	 * Sets the row in the matrix with the given index to the values of the given int array.
+	 * @param index  of the row to set
+	 * @param newRow the new values; must have as many values as the matrix has columns.
+	 */
+	public void setRow(int index, int[] newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.length != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		int base = offset + index * rowStride;
+		if (hashed) {
+			for (int c = 0; c < cols; c++) {
+				entryChanged(index, c, data[base + c], newRow[c]);
+			}
+		}
+		System.arraycopy(newRow, 0, data, base, cols);
+	}
+
+	/**
+	 * Set the values in the column with the given index for this matrix.
+	 * If the length of the values list is less than the matrix column,
+	 * the method sets as many of the values as it can up to the number of values.
+	 * If the length of the values list is greater than the matrix column.,
+	 * the method only sets the values that it can up to the number of rows.
+	 *
+	 * @param colIndex - the index of the column of this matrix to set.
+	 * @param values to assign this column.
+	 */
+	@Override
+	public void setColumn(int colIndex, List<Float> values) {
+		Objects.checkIndex(colIndex, cols);
+		int indexLimit = Math.min(values.size(), rows);
+		for (int r = 0; r < indexLimit; ++r) {
+			toInt(values.get(r));
+		}
+		for (int r = 0; r < indexLimit; ++r) {
+			setInt(r, colIndex, (int) (float) values.get(r));
+		}
+	}
+
+	/**
+	 * Adds the given matrix to this matrix, exactly when it is an IntMatrix.
+	 * @throws IllegalArgumentException if the given matrix is not of the same order as this matrix,
+	 * or a result is not an integer.
+	 * @throws ArithmeticException if an entry overflows and this matrix or the given one is checked.
+	 */
+	@Override
+	public void add(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(1.0f, matrix, 0, 0);
+	}
+
+	@Override
+	public void subtract(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot subtract the given matrix. It is not the same order as this matrix.");
+		accumulate(-1.0f, matrix, 0, 0);
+	}
+
+	/**
+	 * this += alpha * x, in place.
+	 * @throws IllegalArgumentException if a result is not an integer; this matrix is then unchanged.
+	 */
+	@Override
+	public void axpy(float alpha, HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(alpha, x, 0, 0);
+	}
+
+	@Override
+	public void addScaled(float alpha, HSMatrix x, int rowStart, int colStart) {
+		Objects.checkFromIndexSize(rowStart, x.rowSize(), rows);
+		Objects.checkFromIndexSize(colStart, x.columnSize(), cols);
+		accumulate(alpha, x, rowStart, colStart);
+	}
+
+	/**
+	 * Add factor * matrix to the block of this matrix whose top-left entry is at (rowStart, colStart), in place.
+	 * An IntMatrix with a factor of 1 or -1 goes through the int kernels a row at a time. Otherwise each
+	 * result is computed in double precision, which is exact for a whole factor, and checked before any is stored.
+	 */
+	private void accumulate(float factor, HSMatrix matrix, int rowStart, int colStart) {
+		contentChanged();
+		int mRows = matrix.rowSize();
+		int nCols = matrix.columnSize();
+		int start = offset + rowStart * rowStride + colStart;
+		if (matrix instanceof IntMatrix && (factor == 1.0f || factor == -1.0f)) {
+			IntMatrix given = (IntMatrix) matrix;
+			boolean check = checked || given.checked;
+			int[] source = given.data;
+			int sourceOffset = given.offset;
+			if (given.data == data) {
+				source = given.toArray();
+				sourceOffset = 0;
+			}
+			for (int r = 0; r < mRows; r++) {
+				int base = start + r * rowStride;
+				int givenBase = sourceOffset + r * (source == given.data ? given.rowStride : nCols);
+				if (factor == 1.0f)
+					IntKernels.add(data, base, source, givenBase, data, base, nCols, check);
+				else
+					IntKernels.subtract(data, base, source, givenBase, data, base, nCols, check);
+			}
+			return;
+		}
+		int[] result = new int[mRows * nCols];
+		for (int r = 0; r < mRows; r++) {
+			int base = start + r * rowStride;
+			for (int c = 0; c < nCols; c++) {
+				double value = matrix instanceof IntMatrix ? ((IntMatrix) matrix).getInt(r, c) : matrix.getFloat(r, c);
+				result[r * nCols + c] = toResult(data[base + c] + (double) factor * value);
+			}
+		}
+		for (int r = 0; r < mRows; r++) {
+			System.arraycopy(result, r * nCols, data, start + r * rowStride, nCols);
+		}
+	}
+
+	/**
+	 * Convert a whole result computed in double precision to an int, wrapping it as int arithmetic would
+	 * or, if this matrix is checked, throwing an ArithmeticException if it doesn't fit.
+	 * @throws IllegalArgumentException if it is not a whole number.
+	 */
+	private int toResult(double value) {
+		if (!(Math.abs(value) < 0x1p63) || value != Math.rint(value))
+			throw new IllegalArgumentException(value + " is not an integer.");
+		return IntKernels.narrow((long) value, checked);
+	}
+
+	@Override
+	public void hadamardInPlace(HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot multiply by the given matrix entry by entry. It is not the same order as this matrix.");
+		IntMatrix given = x instanceof IntMatrix ? (IntMatrix) x : new IntMatrix(x);
+		boolean check = checked || given.checked;
+		contentChanged();
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			int givenBase = given.offset + r * given.rowStride;
+			for (int c = 0; c < cols; c++) {
+				data[base + c] = check ? Math.multiplyExact(data[base + c], given.data[givenBase + c])
+						: data[base + c] * given.data[givenBase + c];
+			}
+		}
+	}
+
+	/**
+	 * this = alpha * a * b + beta * this, in place.
+	 * When a and b are integer matrices their product is computed exactly in longs, and each result
+	 * is computed from it in double precision, which is exact for whole scalars and results under 2^53 in magnitude.
+	 * When beta is zero this matrix's old entries are not read.
+	 * @throws IllegalArgumentException if a result is not an integer; this matrix is then unchanged.
+	 */
+	@Override
+	public void gemmInto(float alpha, HSMatrix a, HSMatrix b, float beta) {
+		if (a.columnSize() != b.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		if (a.rowSize() != rows || b.columnSize() != cols)
+			throw new IllegalArgumentException("The product is not the same order as this matrix.");
+		long[] exactProduct = null;
+		HSMatrix product = null;
+		if (a instanceof IntMatrix && b instanceof IntMatrix)
+			exactProduct = IntKernels.multiplyToLongs((IntMatrix) a, (IntMatrix) b);
+		else
+			product = a.times(b);
+		int[] result = new int[rows * cols];
+		for (int r = 0; r < rows; r++) {
+			int base = offset + r * rowStride;
+			for (int c = 0; c < cols; c++) {
+				double value = (double) alpha * (exactProduct != null ? exactProduct[r * cols + c] : product.getFloat(r, c));
+				if (beta != 0.0f)
+					value += (double) beta * data[base + c];
+				result[r * cols + c] = toResult(value);
+			}
+		}
+		contentChanged();
+		for (int r = 0; r < rows; r++) {
+			System.arraycopy(result, r * cols, data, offset + r * rowStride, cols);
+		}
+	}
+
+	/**
+	 * Scale this matrix by the given scalar number.
+	 * @param scalar - a whole number.
+	 * @throws IllegalArgumentException if the scalar is not a whole number in the range of an int.
+	 */
+	@Override
+	public void scaleBy(float scalar) {
+		scaleBy(toInt(scalar));
+	}
+
+	/**
+	 * Scale this matrix by the given integer.
+	 * @throws ArithmeticException if an entry overflows and this matrix is checked.
+	 */
+	public void scaleBy(int scalar) {
+		contentChanged();
+		if (isCompact()) {
+			IntKernels.scale(data, offset, scalar, data, offset, rows * cols, checked);
+		} else {
+			for (int r = 0; r < rows; ++r) {
+				int base = offset + r * rowStride;
+				IntKernels.scale(data, base, scalar, data, base, cols, checked);
+			}
+		}
+	}
+
+	/**
+	 * Multiplies this mxn matrix A by the given nxp matrix B (A columns == B rows) and
+	 * changing this matrix to a mxp product matrix C.
+	 * This matrix then owns fresh compact storage.
+	 *
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns;
+	 *                if it is not an IntMatrix each entry of the product must be an integer.
+	 */
+	@Override
+	public void multiplyBy(HSMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		int[] result;
+		if (matrixB instanceof IntMatrix) {
+			result = IntKernels.multiply(this, (IntMatrix) matrixB, checked || ((IntMatrix) matrixB).checked);
+		} else {
+			result = new IntMatrix(times(matrixB)).data;
+		}
+		contentChanged();
+		cols = matrixB.columnSize();
+		replaceStorage(result);
+	}
+
+	/**
+	 * Inverts or transposes this matrix so that its columns and rows are interchanged.
+	 * A square matrix, or a compact one, is transposed in place in its own array, and a square one
+	 * without allocating; only a non-square slice of a larger array is copied.
+	 */
+	@Override
+	public void invert() {
+		contentChanged();
+		if (rows == cols) {
+			TransposeKernels.transposeSquare(data, offset, rowStride, rows);
+			return;
+		}
+		int oldRows = rows;
+		if (isCompact()) {
+			TransposeKernels.transposeInPlace(data, offset, rows, cols);
+			rows = cols;
+			cols = oldRows;
+			rowStride = cols;
+		} else {
+			int[] transposed = transposedArray();
+			rows = cols;
+			cols = oldRows;
+			replaceStorage(transposed);
+		}
+	}
+
+	/**
+	 * Keep the content hash up to date as the entry at (row, column) changes from oldValue to newValue.
+	 */
+	private void entryChanged(int row, int column, int oldValue, int newValue) {
+		if (hashed)
+			entryHashes += ContentHash.entry(row, column, newValue) - ContentHash.entry(row, column, oldValue);
+	}
+
+	/**
+	 * Adopt a compact row-major array as this matrix's storage.
+	 */
+	private void replaceStorage(int[] compactData) {
+		data = compactData;
+		offset = 0;
+		rowStride = cols;
+	}
+}
@@ -0,0 +1,107 @@
+package org.software.hopkins.matrix;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds that many threads record into without locking.
+ * <p>
+ * The buckets are log-linear, as in HdrHistogram: durations under 16 ns have a bucket each, and every
+ * power-of-two range above that is split into 16 equal buckets, so a recorded duration is reported within
+ * 1/16 of its value, from nanoseconds up to the 2^40 ns (about 18 minutes) where the buckets stop.
+ * Each recording increments one counter in the stripe of buckets chosen by the recording thread,
+ * so threads rarely write the same cache line; reading sums the stripes.
+ */
+final class LatencyHistogram {
+	/** Buckets in each power-of-two range, as a power of two. */
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** Durations of 2^MAX_BITS ns or more are counted in the last bucket. */
+	private static final int MAX_BITS = 40;
+	static final int BUCKETS = (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+	private static final int MAX_STRIPES = 16;
+
+	private final AtomicLongArray[] stripes;
+
+	LatencyHistogram() {
+		// A power of two at least the number of processors, up to MAX_STRIPES.
+		int count = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+		stripes = new AtomicLongArray[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new AtomicLongArray(BUCKETS);
+		}
+	}
+
+	/**
+	 * Get the bucket that counts the given duration.
+	 */
+	static int bucketOf(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) Math.max(0, nanos);
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent >= MAX_BITS)
+			return BUCKETS - 1;
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Get the longest duration counted in the given bucket.
+	 */
+	static long highestIn(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	void record(long nanos) {
+		int probe = (int) Thread.currentThread().getId() * 0x9E3779B9;
+		stripes[probe >>> 16 & (stripes.length - 1)].incrementAndGet(bucketOf(nanos));
+	}
+
+	/**
+	 * Get the count in each bucket, summed over the stripes.
+	 * Recordings made while it is read may or may not be included.
+	 */
+	long[] counts() {
+		long[] counts = new long[BUCKETS];
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] += stripe.get(i);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Get the duration at or under which the given fraction of the counted durations fall.
+	 * @param counts - bucket counts from {@link #counts()}.
+	 * @param fraction - between 0 and 1, such as 0.99 for the 99th percentile.
+	 * @return the longest duration of the bucket holding that percentile, or 0 if nothing was counted.
+	 */
+	static long percentile(long[] counts, double fraction) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return highestIn(i);
+		}
+		return highestIn(counts.length - 1);
+	}
+
+	void reset() {
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; i++) {
+				stripe.set(i, 0);
+			}
+		}
+	}
+}
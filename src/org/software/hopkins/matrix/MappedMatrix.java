@@ -0,0 +1,79 @@
+package org.software.hopkins.matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only matrix over the payload of a {@link MatrixFile}, mapped into memory rather than read.
+ * Mapping takes the same few milliseconds whatever the size of the file: the operating system
+ * pages the entries in as they are first used, and pages them out again under memory pressure.
+ * Operations that return a matrix return a new {@link OffHeapMatrix}.
+ * Close the matrix to unmap the file; see {@link FloatBufferMatrix} for the lifecycle.
+ */
+public class MappedMatrix extends FloatBufferMatrix {
+	/** The bytes of payload checksummed at a time. */
+	private static final int CHECKSUM_BLOCK_BYTES = 64 << 10;
+
+	private final int checksum;
+
+	/**
+	 * Map the payload of an open matrix file, which starts at payloadOffset, in regions of whole rows.
+	 * The mapping stays valid after the channel is closed.
+	 */
+	MappedMatrix(FileChannel channel, Path path, long payloadOffset, int mRows, int nCols, int checksum, int chunkFloats)
+			throws IOException {
+		super(mRows, nCols, chunkFloats);
+		this.checksum = checksum;
+		int chunkCount = (mRows + rowsPerChunk - 1) / rowsPerChunk;
+		scope = BufferScope.open();
+		buffers = new ByteBuffer[chunkCount];
+		chunks = new FloatBuffer[chunkCount];
+		long regionBytes = (long) rowsPerChunk * nCols * Float.BYTES;
+		try {
+			for (int i = 0; i < chunkCount; i++) {
+				int chunkRows = Math.min(rowsPerChunk, mRows - i * rowsPerChunk);
+				buffers[i] = scope.map(channel, path, payloadOffset + i * regionBytes, (long) chunkRows * nCols * Float.BYTES);
+				chunks[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+			}
+		} catch (Throwable e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the CRC-32 of the payload recorded in the file header.
+	 * @return the checksum the file was written with.
+	 */
+	public int getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Check the payload against the checksum in the file header.
+	 * This reads the whole file, so it is not done when the file is mapped. The payload is copied through
+	 * a small heap array, since the checksum can't read buffers over memory segments directly.
+	 * @return true if the payload is intact.
+	 */
+	public boolean checksumMatches() {
+		ByteBuffer[] current = buffers;
+		if (current == null)
+			throw new IllegalStateException("The matrix has been closed.");
+		CRC32 crc = new CRC32();
+		byte[] bytes = new byte[CHECKSUM_BLOCK_BYTES];
+		for (ByteBuffer buffer : current) {
+			ByteBuffer payload = buffer.duplicate().clear();
+			while (payload.hasRemaining()) {
+				int length = Math.min(bytes.length, payload.remaining());
+				payload.get(bytes, 0, length);
+				crc.update(bytes, 0, length);
+			}
+		}
+		return (int) crc.getValue() == checksum;
+	}
+}
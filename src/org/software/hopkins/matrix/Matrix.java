@@ -1,12 +1,20 @@
 package org.software.hopkins.matrix;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class Matrix implements HSMatrix {
+	/** Side of the square tiles a transpose is copied or swapped in. */
+	static final int TRANSPOSE_TILE = 64;
+
 	protected List<List<Float>> matrixImpl;
 	protected int rows, cols;
+	/** The sum of the hashes of the entries, when {@link #hashed}; see {@link ContentHash}. */
+	long entryHashes;
+	/** Whether {@link #entryHashes} is up to date. */
+	volatile boolean hashed;
 
 	/**
 	 * Constructor
@@ -44,10 +52,41 @@ public class Matrix implements HSMatrix {
 		}
 	}
 
+	/**
+	 * Create a matrix from lists of rows.
+	 * The rows are copied, so later changes to the given lists don't change the matrix.
+	 * Takes O(nm) time in O(nm) space.
+	 */
 	public Matrix(List<List<Float>> entryMatrix) {
-		matrixImpl = new ArrayList<>(entryMatrix);
 		rows = entryMatrix.size();
 		cols = entryMatrix.get(0).size();
+		matrixImpl = new ArrayList<>(rows);
+		for (List<Float> curRow : entryMatrix) {
+			matrixImpl.add(new ArrayList<>(curRow));
+		}
+	}
+
+	/**
+	 * Create a matrix that adopts row lists made for it, without copying them.
+	 * Nothing else may keep a reference to the lists.
+	 */
+	Matrix(int mRows, int nCols, List<List<Float>> ownRows) {
+		rows = mRows;
+		cols = nCols;
+		matrixImpl = ownRows;
+	}
+
+	/**
+	 * Create a matrix from a compact row-major array of entries, boxing each one.
+	 * Used by subclasses to adopt the results of the array kernels.
+	 * @param mRows the number of matrix rows
+	 * @param nCols the number of matrix columns
+	 * @param rowMajorValues the entries, row after row
+	 */
+	protected Matrix(int mRows, int nCols, float[] rowMajorValues) {
+		rows = mRows;
+		cols = nCols;
+		matrixImpl = toRowLists(mRows, nCols, rowMajorValues);
 	}
 
 	public Matrix(Float[][] twoDimensionalArray) {
@@ -133,33 +172,104 @@ public class Matrix implements HSMatrix {
 		return theRow.get(column);
 	}
 
+	/**
+	 * Get the entry value at the given row and column without boxing it.
+	 * The entry is stored boxed, so this only saves the caller's allocation.
+	 *
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @return the value of the entry
+	 */
+	@Override
+	public final float getFloat(int row, int column) {
+		return matrixImpl.get(row).get(column);
+	}
+
+	/**
+	 * Copy the values of the row with the given index into an array.
+	 *
+	 * @param index      of the row to copy
+	 * @param dest       the array to copy into
+	 * @param destOffset the position in dest for the row's first value
+	 */
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		List<Float> theRow = matrixImpl.get(index);
+		for (int c = 0; c < cols; c++) {
+			dest[destOffset + c] = theRow.get(c);
+		}
+	}
+
+	/**
+	 * Copy the values of the column with the given index into an array.
+	 *
+	 * @param colIndex   index of the column to copy
+	 * @param dest       the array to copy into
+	 * @param destOffset the position in dest for the column's first value
+	 */
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		for (int r = 0; r < rows; r++) {
+			dest[destOffset + r] = matrixImpl.get(r).get(colIndex);
+		}
+	}
+
 	/**
 	 * Indicates whether the given matrix is equal to this matrix.
 	 * Two matrices are equal if they are of the same order and
 	 * if each entry in one equals the corresponding entry in
-	 * the other.
+	 * the other. An integer matrix is compared as {@link IntMatrix#equals(HSMatrix)} does.
 	 *
 	 * @param matrix the given matrix
 	 * @return whether the given matrix is equal to this matrix
 	 */
 	@Override
 	public boolean equals(HSMatrix matrix) {
-		boolean isEqual = false;
-		boolean sameOrder = isSameOrder(matrix);
-		if (sameOrder) {
-			isEqual = true;
-			for (int i = 0; i < rows; ++i) {
-				List<Float> thisCurRow = this.matrixImpl.get(i);
-				List<Float> givenCurRow = matrix.getRow(i);
-				for (int j = 0; j < cols; j++) {
-					if (!thisCurRow.get(j).equals(givenCurRow.get(j))) {
-						isEqual = false;
-						break;
-					}
-				}
+		if (!isSameOrder(matrix) || ContentHash.knownToDiffer(this, matrix))
+			return false;
+		IntMatrix integers = IntMatrix.integersOf(matrix);
+		if (integers != null)
+			return integers.equals(this);
+		for (int i = 0; i < rows; ++i) {
+			List<Float> thisCurRow = this.matrixImpl.get(i);
+			for (int j = 0; j < cols; j++) {
+				if (Float.floatToIntBits(thisCurRow.get(j)) != Float.floatToIntBits(matrix.getFloat(i, j)))
+					return false;
 			}
 		}
-		return isEqual;
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(contentHash());
+	}
+
+	/**
+	 * Get a 64-bit hash of this matrix's order and entries, computed the first time it is needed
+	 * and then kept, or kept up to date by {@link MutableMatrix}.
+	 * @return the hash.
+	 */
+	@Override
+	public long contentHash() {
+		if (!hashed) {
+			entryHashes = ContentHash.sumOf(this);
+			hashed = true;
+		}
+		return ContentHash.finish(entryHashes, rows, cols);
+	}
+
+	/**
+	 * Forget the content hash, so that it is computed again when next needed.
+	 * A subclass must call this after changing the entries of {@link #matrixImpl} directly.
+	 */
+	protected void contentChanged() {
+		hashed = false;
 	}
 
 	/**
@@ -195,7 +305,7 @@ public class Matrix implements HSMatrix {
 			}
 			clonedMatrix.add(curRow);
 		}
-		return new Matrix(clonedMatrix);
+		return new Matrix(rows, cols, clonedMatrix);
 	}
 
 	/**
@@ -224,28 +334,23 @@ public class Matrix implements HSMatrix {
 	 * @param matrix a given matrix to add to this matrix
 	 * @return the sum of this matrix and the given one as a new Matrix of the same order or
 	 * throws an IllegalArgumentException if they are not of the same order.
+	 * Each row is unboxed into an array, added by {@link ElementwiseKernels} and boxed again.
 	 * Runs in O(nm) time with O(nm) space
 	 */
 	@Override
 	public HSMatrix plus(HSMatrix matrix) {
-		List<List<Float>> matrixSum = new ArrayList<>(rows);
-
-		if (isSameOrder(matrix)) {
-			for (int i = 0; i < rows; ++i) {
-				//List<Float> thisCurRow = this.getRow(i);
-				//List<Float> givenCurRow = matrix.getRow(i);
-				List<Float> sumCurRow = new ArrayList<>(cols);
-				for (int j = 0; j < cols; ++j) {
-					//sumCurRow.add(thisCurRow.get(j) + givenCurRow.get(j));
-					sumCurRow.add(this.getEntry(i, j) + matrix.getEntry(i, j));
-				}
-				matrixSum.add(sumCurRow);
-			}
-		} else {
+		if (!isSameOrder(matrix))
 			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		List<List<Float>> matrixSum = new ArrayList<>(rows);
+		float[] sumRow = new float[cols];
+		float[] givenRow = new float[cols];
+		for (int i = 0; i < rows; ++i) {
+			copyRowInto(i, sumRow, 0);
+			matrix.copyRowInto(i, givenRow, 0);
+			ElementwiseKernels.add(sumRow, 0, givenRow, 0, sumRow, 0, cols);
+			matrixSum.add(boxedRow(sumRow));
 		}
-
-		return new Matrix(matrixSum);
+		return new Matrix(rows, cols, matrixSum);
 	}
 
 
@@ -277,8 +382,7 @@ public class Matrix implements HSMatrix {
 		Float sum = 0.0f;
 
 		for (int i = 0; i < rows; i++) {
-			List<Float> theRow = getRow(i);
-			sum += theRow.get(0);
+			sum += matrixImpl.get(i).get(colIndex);
 		}
 
 		return sum;
@@ -296,16 +400,14 @@ public class Matrix implements HSMatrix {
 	 */
 	@Override
 	public HSMatrix times(Float scalar) {
-		List<List<Float>> scaledMatrix = new ArrayList<>(rowSize());
-		for (int r = 0; r < rowSize(); r++) {
-			List<Float> curRow = new ArrayList<>(columnSize());
-			for (int c = 0; c < columnSize(); c++) {
-				curRow.add(scalar * this.getEntry(r, c));
-			}
-			scaledMatrix.add(curRow);
+		List<List<Float>> scaledMatrix = new ArrayList<>(rows);
+		float[] curRow = new float[cols];
+		for (int r = 0; r < rows; r++) {
+			copyRowInto(r, curRow, 0);
+			ElementwiseKernels.scale(curRow, 0, scalar, curRow, 0, cols);
+			scaledMatrix.add(boxedRow(curRow));
 		}
-
-		return new Matrix(scaledMatrix);
+		return new Matrix(rows, cols, scaledMatrix);
 	}
 
 	@Override
@@ -318,13 +420,25 @@ public class Matrix implements HSMatrix {
 	 */
 
 	/**
-	 * Returns a copy of this matrix minus the given matrix.
+	 * Returns a copy of this matrix minus the given matrix, subtracting entry by entry
+	 * rather than adding a negated copy of the given matrix.
 	 * @param matrix - a matrix of the same order as this one
 	 * @return a copy of this matrix minus the given matrix.
 	 */
 	@Override
 	public HSMatrix minus(HSMatrix matrix) {
-		return this.plus(matrix.negative());
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		List<List<Float>> difference = new ArrayList<>(rows);
+		float[] differenceRow = new float[cols];
+		float[] givenRow = new float[cols];
+		for (int i = 0; i < rows; ++i) {
+			copyRowInto(i, differenceRow, 0);
+			matrix.copyRowInto(i, givenRow, 0);
+			ElementwiseKernels.subtract(differenceRow, 0, givenRow, 0, differenceRow, 0, cols);
+			difference.add(boxedRow(differenceRow));
+		}
+		return new Matrix(rows, cols, difference);
 	}
 
 	/*
@@ -332,22 +446,69 @@ public class Matrix implements HSMatrix {
 	 */
 
 	/**
-	 * Returns a transposed/inverted copy of this matrix.
+	 * Returns the transpose of this matrix.
+	 * A plain Matrix copies the rows it is made from and has no setters, so it never changes, and its transpose
+	 * is a {@link TransposedView} of it rather than a copy. Subclasses can change their rows through
+	 * {@link #matrixImpl}, as MutableMatrix and SquareMatrix do, so they all get a copy: the view is only
+	 * returned for the exact class, whose immutability is known, not for a subclass that might break it.
 	 *
-	 * @return a transposed copy of this HSMatrix.
+	 * @return a transposed view or copy of this HSMatrix.
 	 */
 	@Override
 	public HSMatrix transpose() {
-		List<List<Float>> transposedMatrix = new ArrayList<>(columnSize());
+		if (getClass() == Matrix.class)
+			return MatrixView.transposed(this);
+		return new Matrix(cols, rows, transposedRows());
+	}
+
+	/**
+	 * Copy the transpose of this matrix into new row lists.
+	 * The entries are copied in square tiles, so that the rows being read and the rows being written
+	 * stay in cache, and the boxed entries are shared with this matrix rather than boxed again.
+	 * Takes O(nm) time in O(nm) space.
+	 */
+	protected List<List<Float>> transposedRows() {
+		Float[][] transposed = new Float[cols][rows];
+		for (int rowStart = 0; rowStart < rows; rowStart += TRANSPOSE_TILE) {
+			int rowEnd = Math.min(rows, rowStart + TRANSPOSE_TILE);
+			for (int colStart = 0; colStart < cols; colStart += TRANSPOSE_TILE) {
+				int colEnd = Math.min(cols, colStart + TRANSPOSE_TILE);
+				for (int r = rowStart; r < rowEnd; r++) {
+					List<Float> curRow = matrixImpl.get(r);
+					for (int c = colStart; c < colEnd; c++) {
+						transposed[c][r] = curRow.get(c);
+					}
+				}
+			}
+		}
+		List<List<Float>> transposedMatrix = new ArrayList<>(cols);
+		for (Float[] curRow : transposed) {
+			transposedMatrix.add(new ArrayList<>(Arrays.asList(curRow)));
+		}
+		return transposedMatrix;
+	}
 
-		for (int r = 0; r < cols; r++) {
-			List<Float> curRow = new ArrayList<>(rowSize());
-			for (int c = 0; c < rows; c++) {
-				curRow.add(this.getEntry(c, r));
+	/**
+	 * Transpose this square matrix in place by swapping each entry above the diagonal with its mirror below it,
+	 * in square tiles. The boxed entries are only moved, so nothing is allocated.
+	 * The rows must be modifiable lists.
+	 */
+	protected void transposeSquareInPlace() {
+		if (rows != cols)
+			throw new IllegalStateException("Only a square matrix can be transposed in place.");
+		for (int rowStart = 0; rowStart < rows; rowStart += TRANSPOSE_TILE) {
+			int rowEnd = Math.min(rows, rowStart + TRANSPOSE_TILE);
+			for (int colStart = rowStart; colStart < cols; colStart += TRANSPOSE_TILE) {
+				int colEnd = Math.min(cols, colStart + TRANSPOSE_TILE);
+				for (int r = rowStart; r < rowEnd; r++) {
+					List<Float> curRow = matrixImpl.get(r);
+					for (int c = Math.max(colStart, r + 1); c < colEnd; c++) {
+						curRow.set(c, matrixImpl.get(c).set(r, curRow.get(c)));
+					}
+				}
 			}
-			transposedMatrix.add(curRow);
 		}
-		return new Matrix(transposedMatrix);
+		contentChanged();
 	}
 
 	/**
@@ -362,19 +523,38 @@ public class Matrix implements HSMatrix {
 		if (this.columnSize() != matrixB.rowSize()) {
 			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
 		} else {
-			HSMatrix matrixA = this.clone();
-			List<List<Float>> productMatrix = new ArrayList<>(matrixA.rowSize());
-			for (int i = 0; i < matrixA.rowSize(); i++) {
-				productMatrix.add(new ArrayList<>(this.columnSize()));
-				for (int j = 0; j < matrixB.columnSize(); j++) {
-					float Cij = 0.0f;
-					for (int c = 0; c < matrixA.columnSize(); c++) {
-						Cij += matrixA.getEntry(i, c) * matrixB.getEntry(c, j);
-					}
-					productMatrix.get(i).add(Cij);
-				}
+			float[] product = TiledMultiplier.getDefault().multiply(this, matrixB);
+			return new Matrix(rows, matrixB.columnSize(), toRowLists(rows, matrixB.columnSize(), product));
+		}
+	}
+
+	/**
+	 * Box a row of entries into a new mutable list.
+	 */
+	static List<Float> boxedRow(float[] values) {
+		List<Float> curRow = new ArrayList<>(values.length);
+		for (float value : values) {
+			curRow.add(value);
+		}
+		return curRow;
+	}
+
+	/**
+	 * Box a compact row-major array into the list-of-rows form used by this class.
+	 * @param mRows the number of rows
+	 * @param nCols the number of columns
+	 * @param values the entries, row after row
+	 * @return a new mutable list of mutable rows.
+	 */
+	static List<List<Float>> toRowLists(int mRows, int nCols, float[] values) {
+		List<List<Float>> rowLists = new ArrayList<>(mRows);
+		for (int r = 0; r < mRows; r++) {
+			List<Float> curRow = new ArrayList<>(nCols);
+			for (int c = 0; c < nCols; c++) {
+				curRow.add(values[r * nCols + c]);
 			}
-			return new Matrix(productMatrix);
+			rowLists.add(curRow);
 		}
+		return rowLists;
 	}
 }
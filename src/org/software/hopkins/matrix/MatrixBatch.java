@@ -0,0 +1,425 @@
+package org.software.hopkins.matrix;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A batch of matrices of the same shape, stored one after another in a single array of primitive floats,
+ * for working with very many small matrices at once.
+ * <p>
+ * Matrix i of the batch is compact and row-major, its entry (r, c) at data[i * m * n + r * n + c].
+ * A batch costs 4 bytes an entry and one object however many matrices it holds, and each operation
+ * applies one kernel to every matrix in a single pass over the array, instead of making and visiting
+ * a matrix object, its rows and its boxed entries for each. Products of square 2 x 2, 3 x 3 and 4 x 4 matrices
+ * are fully unrolled, with each operand held in locals. A batch big enough to be worth it is split
+ * into ranges of matrices that are computed in parallel on the default {@link TiledMultiplier}'s pool.
+ * <p>
+ * An operation between two batches pairs their matrices in order. Either batch may instead hold a single
+ * matrix, which is paired with every matrix of the other.
+ * Batches never change: every operation returns a new batch.
+ */
+public class MatrixBatch {
+	/** Ranges of matrices are not split below this many entries. */
+	static final int LEAF_ENTRIES = 1 << 14;
+
+	private final float[] data;
+	private final int count, rows, cols;
+
+	/**
+	 * Create a batch of count m x n matrices filled with zeros.
+	 */
+	public MatrixBatch(int count, int mRows, int nCols) {
+		this(new float[checkedLength(count, mRows, nCols)], count, mRows, nCols);
+	}
+
+	/**
+	 * Create a batch from the entries of its matrices, each row-major, one after another.
+	 * The array is copied, so later changes to it do not affect this batch.
+	 * @param rowMajorData - count * m * n entries.
+	 */
+	public MatrixBatch(int count, int mRows, int nCols, float[] rowMajorData) {
+		this(copyOf(rowMajorData, checkedLength(count, mRows, nCols)), count, mRows, nCols);
+	}
+
+	/**
+	 * Create a batch from copies of the given matrices.
+	 * @param matrices - at least one matrix, all of the same shape.
+	 */
+	public MatrixBatch(List<? extends HSMatrix> matrices) {
+		this(matrices.size(), firstOf(matrices).rowSize(), firstOf(matrices).columnSize());
+		int size = rows * cols;
+		for (int i = 0; i < count; i++) {
+			HSMatrix matrix = matrices.get(i);
+			if (matrix.rowSize() != rows || matrix.columnSize() != cols)
+				throw new IllegalArgumentException("Matrix " + i + " is not " + rows + " x " + cols + ".");
+			for (int r = 0; r < rows; r++) {
+				matrix.copyRowInto(r, data, i * size + r * cols);
+			}
+		}
+	}
+
+	/**
+	 * Adopts the given storage without copying it.
+	 */
+	private MatrixBatch(float[] data, int count, int mRows, int nCols) {
+		this.data = data;
+		this.count = count;
+		this.rows = mRows;
+		this.cols = nCols;
+	}
+
+	private static int checkedLength(int count, int mRows, int nCols) {
+		if (count < 0 || mRows < 0 || nCols < 0)
+			throw new IllegalArgumentException("Batch dimensions must not be negative.");
+		long length = (long) count * mRows * nCols;
+		if (length > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("A batch of " + length + " entries is too big for one array.");
+		return (int) length;
+	}
+
+	private static float[] copyOf(float[] rowMajorData, int length) {
+		if (rowMajorData.length != length)
+			throw new IllegalArgumentException("Expected " + length + " entries but got " + rowMajorData.length + ".");
+		return rowMajorData.clone();
+	}
+
+	private static HSMatrix firstOf(List<? extends HSMatrix> matrices) {
+		if (matrices.isEmpty())
+			throw new IllegalArgumentException("A batch needs at least one matrix to take its shape from.");
+		return matrices.get(0);
+	}
+
+	/**
+	 * @return the number of matrices in the batch.
+	 */
+	public int size() {
+		return count;
+	}
+
+	public int rowSize() {
+		return rows;
+	}
+
+	public int columnSize() {
+		return cols;
+	}
+
+	/**
+	 * Get matrix i of the batch, sharing the batch's storage.
+	 */
+	public DenseMatrix get(int index) {
+		Objects.checkIndex(index, count);
+		return new DenseMatrix(rows, cols, data, index * rows * cols, cols);
+	}
+
+	public float getFloat(int index, int row, int col) {
+		Objects.checkIndex(index, count);
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(col, cols);
+		return data[index * rows * cols + row * cols + col];
+	}
+
+	/**
+	 * Get the entries of every matrix, each row-major, one after another.
+	 * @return a copy of the batch's storage.
+	 */
+	public float[] toArray() {
+		return data.clone();
+	}
+
+	public MatrixBatch plus(MatrixBatch other) {
+		return combine(other, 1.0f);
+	}
+
+	public MatrixBatch minus(MatrixBatch other) {
+		return combine(other, -1.0f);
+	}
+
+	/**
+	 * this + factor * other, pairing a single matrix with every matrix of the other batch.
+	 */
+	private MatrixBatch combine(MatrixBatch other, float factor) {
+		if (other.rows != rows || other.cols != cols)
+			throw new IllegalArgumentException("Can't add or subtract batches of " + rows + " x " + cols
+					+ " and " + other.rows + " x " + other.cols + " matrices.");
+		int resultCount = pairedCount(other);
+		int size = rows * cols;
+		float[] a = data, b = other.data;
+		int aStep = count == 1 ? 0 : size;
+		int bStep = other.count == 1 ? 0 : size;
+		float[] c = new float[resultCount * size];
+		forEachRange(resultCount, size, (long) resultCount * size, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				int x = i * aStep, y = i * bStep, z = i * size;
+				for (int e = 0; e < size; e++) {
+					c[z + e] = a[x + e] + factor * b[y + e];
+				}
+			}
+		});
+		return new MatrixBatch(c, resultCount, rows, cols);
+	}
+
+	public MatrixBatch times(float scalar) {
+		float[] c = new float[data.length];
+		forEachRange(count, rows * cols, data.length, (start, end) -> {
+			int size = rows * cols;
+			for (int e = start * size; e < end * size; e++) {
+				c[e] = data[e] * scalar;
+			}
+		});
+		return new MatrixBatch(c, count, rows, cols);
+	}
+
+	public MatrixBatch negative() {
+		return times(-1.0f);
+	}
+
+	/**
+	 * Multiply each matrix of this batch by its matrix of the other batch.
+	 * @param other - a batch of matrices with as many rows as these have columns.
+	 * @return the batch of m x p products.
+	 */
+	public MatrixBatch times(MatrixBatch other) {
+		if (other.rows != cols)
+			throw new IllegalArgumentException("Can't multiply by given batch. Its row size does not equal this batch's column size.");
+		int resultCount = pairedCount(other);
+		int m = rows, n = cols, p = other.cols;
+		float[] a = data, b = other.data;
+		int aStep = count == 1 ? 0 : m * n;
+		int bStep = other.count == 1 ? 0 : n * p;
+		float[] c = new float[checkedLength(resultCount, m, p)];
+		BatchAction kernel;
+		if (m == n && n == p && n == 2)
+			kernel = (start, end) -> multiply2(a, aStep, b, bStep, c, start, end);
+		else if (m == n && n == p && n == 3)
+			kernel = (start, end) -> multiply3(a, aStep, b, bStep, c, start, end);
+		else if (m == n && n == p && n == 4)
+			kernel = (start, end) -> multiply4(a, aStep, b, bStep, c, start, end);
+		else
+			kernel = (start, end) -> multiply(a, aStep, b, bStep, c, m, n, p, start, end);
+		forEachRange(resultCount, Math.max(1, m * p), (long) resultCount * m * n * p, kernel);
+		return new MatrixBatch(c, resultCount, m, p);
+	}
+
+	/**
+	 * Transpose each matrix of the batch.
+	 * @return the batch of n x m transposes.
+	 */
+	public MatrixBatch transpose() {
+		int size = rows * cols;
+		float[] c = new float[data.length];
+		forEachRange(count, size, data.length, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				TransposeKernels.transpose(data, i * size, cols, rows, cols, c, i * size, rows);
+			}
+		});
+		return new MatrixBatch(c, count, cols, rows);
+	}
+
+	/**
+	 * Get the sum of the entries of each matrix, accumulated in double precision.
+	 */
+	public double[] sums() {
+		int size = rows * cols;
+		double[] sums = new double[count];
+		forEachRange(count, size, data.length, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				double sum = 0.0;
+				for (int e = i * size; e < (i + 1) * size; e++) {
+					sum += data[e];
+				}
+				sums[i] = sum;
+			}
+		});
+		return sums;
+	}
+
+	/**
+	 * Get the trace of each matrix, accumulated in double precision.
+	 */
+	public double[] traces() {
+		if (rows != cols)
+			throw new IllegalArgumentException("Only square matrices have a trace.");
+		int size = rows * cols;
+		double[] traces = new double[count];
+		forEachRange(count, size, (long) count * rows, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				double trace = 0.0;
+				for (int e = i * size; e < (i + 1) * size; e += cols + 1) {
+					trace += data[e];
+				}
+				traces[i] = trace;
+			}
+		});
+		return traces;
+	}
+
+	/**
+	 * Get the Frobenius norm of each matrix, accumulated in double precision.
+	 */
+	public double[] frobeniusNorms() {
+		int size = rows * cols;
+		double[] norms = new double[count];
+		forEachRange(count, size, data.length, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				double sum = 0.0;
+				for (int e = i * size; e < (i + 1) * size; e++) {
+					sum += (double) data[e] * data[e];
+				}
+				norms[i] = Math.sqrt(sum);
+			}
+		});
+		return norms;
+	}
+
+	/**
+	 * Get the sum of the matrices of the batch, accumulated in double precision.
+	 * @return an m x n matrix.
+	 */
+	public DenseMatrix total() {
+		int size = rows * cols;
+		double[] sum = new double[size];
+		for (int i = 0; i < count; i++) {
+			int base = i * size;
+			for (int e = 0; e < size; e++) {
+				sum[e] += data[base + e];
+			}
+		}
+		float[] c = new float[size];
+		for (int e = 0; e < size; e++) {
+			c[e] = (float) sum[e];
+		}
+		return new DenseMatrix(rows, cols, c, 0, cols);
+	}
+
+	@Override
+	public String toString() {
+		return "MatrixBatch of " + count + " " + rows + " x " + cols + " matrices";
+	}
+
+	private int pairedCount(MatrixBatch other) {
+		if (count == 1)
+			return other.count;
+		if (other.count != 1 && other.count != count)
+			throw new IllegalArgumentException("Can't pair a batch of " + count + " matrices with one of " + other.count + ".");
+		return count;
+	}
+
+	/**
+	 * Products of the matrices [start, end) by the general kernel: each row of the product
+	 * accumulated from the rows of b, scaled by the row of a.
+	 */
+	private static void multiply(float[] a, int aStep, float[] b, int bStep, float[] c,
+								 int m, int n, int p, int start, int end) {
+		for (int i = start; i < end; i++) {
+			int x = i * aStep, y = i * bStep, z = i * m * p;
+			for (int r = 0; r < m; r++) {
+				int cBase = z + r * p;
+				for (int k = 0; k < n; k++) {
+					float entry = a[x + r * n + k];
+					int bBase = y + k * p;
+					for (int j = 0; j < p; j++) {
+						c[cBase + j] += entry * b[bBase + j];
+					}
+				}
+			}
+		}
+	}
+
+	private static void multiply2(float[] a, int aStep, float[] b, int bStep, float[] c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			int x = i * aStep, y = i * bStep, z = i * 4;
+			float a00 = a[x], a01 = a[x + 1], a10 = a[x + 2], a11 = a[x + 3];
+			float b00 = b[y], b01 = b[y + 1], b10 = b[y + 2], b11 = b[y + 3];
+			c[z] = a00 * b00 + a01 * b10;
+			c[z + 1] = a00 * b01 + a01 * b11;
+			c[z + 2] = a10 * b00 + a11 * b10;
+			c[z + 3] = a10 * b01 + a11 * b11;
+		}
+	}
+
+	private static void multiply3(float[] a, int aStep, float[] b, int bStep, float[] c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			int x = i * aStep, y = i * bStep, z = i * 9;
+			float a00 = a[x], a01 = a[x + 1], a02 = a[x + 2];
+			float a10 = a[x + 3], a11 = a[x + 4], a12 = a[x + 5];
+			float a20 = a[x + 6], a21 = a[x + 7], a22 = a[x + 8];
+			float b00 = b[y], b01 = b[y + 1], b02 = b[y + 2];
+			float b10 = b[y + 3], b11 = b[y + 4], b12 = b[y + 5];
+			float b20 = b[y + 6], b21 = b[y + 7], b22 = b[y + 8];
+			c[z] = a00 * b00 + a01 * b10 + a02 * b20;
+			c[z + 1] = a00 * b01 + a01 * b11 + a02 * b21;
+			c[z + 2] = a00 * b02 + a01 * b12 + a02 * b22;
+			c[z + 3] = a10 * b00 + a11 * b10 + a12 * b20;
+			c[z + 4] = a10 * b01 + a11 * b11 + a12 * b21;
+			c[z + 5] = a10 * b02 + a11 * b12 + a12 * b22;
+			c[z + 6] = a20 * b00 + a21 * b10 + a22 * b20;
+			c[z + 7] = a20 * b01 + a21 * b11 + a22 * b21;
+			c[z + 8] = a20 * b02 + a21 * b12 + a22 * b22;
+		}
+	}
+
+	private static void multiply4(float[] a, int aStep, float[] b, int bStep, float[] c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			int x = i * aStep, y = i * bStep, z = i * 16;
+			float b00 = b[y], b01 = b[y + 1], b02 = b[y + 2], b03 = b[y + 3];
+			float b10 = b[y + 4], b11 = b[y + 5], b12 = b[y + 6], b13 = b[y + 7];
+			float b20 = b[y + 8], b21 = b[y + 9], b22 = b[y + 10], b23 = b[y + 11];
+			float b30 = b[y + 12], b31 = b[y + 13], b32 = b[y + 14], b33 = b[y + 15];
+			for (int r = 0; r < 4; r++) {
+				int ar = x + 4 * r, cr = z + 4 * r;
+				float a0 = a[ar], a1 = a[ar + 1], a2 = a[ar + 2], a3 = a[ar + 3];
+				c[cr] = a0 * b00 + a1 * b10 + a2 * b20 + a3 * b30;
+				c[cr + 1] = a0 * b01 + a1 * b11 + a2 * b21 + a3 * b31;
+				c[cr + 2] = a0 * b02 + a1 * b12 + a2 * b22 + a3 * b32;
+				c[cr + 3] = a0 * b03 + a1 * b13 + a2 * b23 + a3 * b33;
+			}
+		}
+	}
+
+	/**
+	 * An operation on the matrices [start, end) that writes only to those matrices' part of its result.
+	 */
+	private interface BatchAction {
+		void apply(int start, int end);
+	}
+
+	/**
+	 * Apply the action to every matrix, in parallel ranges of about {@link #LEAF_ENTRIES} entries
+	 * when there is at least the multiplier's parallel threshold of work.
+	 * @param entries - the number of entries of each matrix that the action writes.
+	 * @param work - the number of multiply-adds, or entries visited, over the whole batch.
+	 */
+	private static void forEachRange(int count, int entries, long work, BatchAction action) {
+		TiledMultiplier multiplier = TiledMultiplier.getDefault();
+		ForkJoinPool pool = multiplier.getPool();
+		if (work >= multiplier.getParallelThreshold() && pool.getParallelism() > 1 && count > 1)
+			pool.invoke(new RangeTask(action, 0, count, Math.max(1, LEAF_ENTRIES / Math.max(1, entries))));
+		else
+			action.apply(0, count);
+	}
+
+	private static final class RangeTask extends RecursiveAction {
+		private final BatchAction action;
+		private final int start, end, leafCount;
+
+		RangeTask(BatchAction action, int start, int end, int leafCount) {
+			this.action = action;
+			this.start = start;
+			this.end = end;
+			this.leafCount = leafCount;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= leafCount) {
+				action.apply(start, end);
+			} else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new RangeTask(action, start, mid, leafCount), new RangeTask(action, mid, end, leafCount));
+			}
+		}
+	}
+}
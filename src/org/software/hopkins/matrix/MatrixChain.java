@@ -0,0 +1,187 @@
+package org.software.hopkins.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The cheapest order in which to multiply a chain of matrices A1 A2 ... An.
+ * Multiplication is associative, so every parenthesization of the chain gives the same product,
+ * up to rounding, but their costs can differ by orders of magnitude: for a 1000 x 10 A1,
+ * a 10 x 1000 A2 and a 1000 x 10 A3, (A1 A2) A3 takes 20,000,000 multiply-adds and A1 (A2 A3) 200,000.
+ * <p>
+ * The order is found from the operands' dimensions by the classic O(n^3) dynamic program, which
+ * finds the cheapest way to multiply every run Ai ... Aj from the cheapest ways to multiply its shorter runs.
+ * {@link #multiply()} then computes the product in that order. The two sides of each split are independent,
+ * so they are computed in parallel, on the default {@link TiledMultiplier}'s pool.
+ * Each product is computed by the left operand's times(HSMatrix), so intermediates
+ * take the kind of their left operand, and intermediates that hold off-heap storage are closed once used.
+ */
+public final class MatrixChain {
+	private final List<HSMatrix> operands;
+	/** Operand i is dims[i] x dims[i + 1]. */
+	private final int[] dims;
+	/** cost[i][j] is the fewest multiply-adds that compute the product of operands i to j. */
+	private final long[][] cost;
+	/** split[i][j] is the last operand of the left side of the cheapest split of operands i to j. */
+	private final int[][] split;
+
+	private MatrixChain(List<HSMatrix> operands) {
+		this.operands = operands;
+		int n = operands.size();
+		dims = new int[n + 1];
+		dims[0] = operands.get(0).rowSize();
+		for (int i = 0; i < n; i++) {
+			HSMatrix operand = operands.get(i);
+			if (operand.rowSize() != dims[i])
+				throw new IllegalArgumentException("Can't multiply the chain. Operand " + (i + 1)
+						+ " has " + operand.rowSize() + " rows, but the operand before it has " + dims[i] + " columns.");
+			dims[i + 1] = operand.columnSize();
+		}
+		cost = new long[n][n];
+		split = new int[n][n];
+		for (int length = 2; length <= n; length++) {
+			for (int i = 0; i + length - 1 < n; i++) {
+				int j = i + length - 1;
+				cost[i][j] = Long.MAX_VALUE;
+				for (int k = i; k < j; k++) {
+					long candidate = cost[i][k] + cost[k + 1][j] + (long) dims[i] * dims[k + 1] * dims[j + 1];
+					if (candidate < cost[i][j]) {
+						cost[i][j] = candidate;
+						split[i][j] = k;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Plan the multiplication of the given chain of matrices.
+	 * @param operands - one or more matrices, each with as many rows as the one before it has columns.
+	 * @return the plan.
+	 * @throws IllegalArgumentException if there are no operands or two neighbours can't be multiplied.
+	 */
+	public static MatrixChain of(List<? extends HSMatrix> operands) {
+		if (operands == null || operands.isEmpty())
+			throw new IllegalArgumentException("A matrix chain needs at least one operand.");
+		return new MatrixChain(Collections.unmodifiableList(new ArrayList<>(operands)));
+	}
+
+	public static MatrixChain of(HSMatrix... operands) {
+		return of(Arrays.asList(operands));
+	}
+
+	public int size() {
+		return operands.size();
+	}
+
+	/**
+	 * Get the number of multiply-adds the planned order takes.
+	 */
+	public long getCost() {
+		return cost[0][operands.size() - 1];
+	}
+
+	/**
+	 * Get the number of multiply-adds that multiplying from left to right, ((A1 A2) A3) ..., would take.
+	 */
+	public long getLeftToRightCost() {
+		long total = 0;
+		for (int k = 1; k < operands.size(); k++) {
+			total += (long) dims[0] * dims[k] * dims[k + 1];
+		}
+		return total;
+	}
+
+	/**
+	 * Compute the product of the chain in the planned order.
+	 * @return the product, or the operand itself for a chain of one.
+	 */
+	public HSMatrix multiply() {
+		if (operands.size() == 1)
+			return operands.get(0);
+		return TiledMultiplier.getDefault().getPool().invoke(new ProductTask(0, operands.size() - 1));
+	}
+
+	/**
+	 * Shows the planned order with the operands numbered from 1, for example (A1 (A2 A3)).
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		appendOrder(sb, 0, operands.size() - 1);
+		return sb.toString();
+	}
+
+	private void appendOrder(StringBuilder sb, int i, int j) {
+		if (i == j) {
+			sb.append('A').append(i + 1);
+			return;
+		}
+		sb.append('(');
+		appendOrder(sb, i, split[i][j]);
+		sb.append(' ');
+		appendOrder(sb, split[i][j] + 1, j);
+		sb.append(')');
+	}
+
+	/**
+	 * Computes the product of operands i to j: the two sides of the planned split,
+	 * the left one in a forked task, and then their product.
+	 */
+	private final class ProductTask extends RecursiveTask<HSMatrix> {
+		private final int i, j;
+
+		ProductTask(int i, int j) {
+			this.i = i;
+			this.j = j;
+		}
+
+		@Override
+		protected HSMatrix compute() {
+			if (i == j)
+				return operands.get(i);
+			int k = split[i][j];
+			ProductTask left = new ProductTask(i, k);
+			ProductTask right = new ProductTask(k + 1, j);
+			HSMatrix leftProduct = null;
+			HSMatrix rightProduct = null;
+			try {
+				if (k > i && k + 1 < j) {
+					left.fork();
+					try {
+						rightProduct = right.compute();
+					} catch (RuntimeException | Error e) {
+						// Wait for the left side, so that its product can be released too.
+						try {
+							leftProduct = left.join();
+						} catch (RuntimeException | Error suppressed) {
+							e.addSuppressed(suppressed);
+						}
+						throw e;
+					}
+					leftProduct = left.join();
+				} else {
+					leftProduct = left.compute();
+					rightProduct = right.compute();
+				}
+				return leftProduct.times(rightProduct);
+			} finally {
+				if (k > i)
+					release(leftProduct);
+				if (k + 1 < j)
+					release(rightProduct);
+			}
+		}
+	}
+
+	/**
+	 * Close an intermediate product that holds storage outside the heap.
+	 */
+	static void release(HSMatrix intermediate) {
+		if (intermediate instanceof FloatBufferMatrix)
+			((FloatBufferMatrix) intermediate).close();
+	}
+}
@@ -5,6 +5,8 @@ public enum MatrixCommand {
 	EDIT,
 	PRINT,
 	CALC,
+	LOAD,
+	SAVE,
 	DEMO,
 	EXIT
 }
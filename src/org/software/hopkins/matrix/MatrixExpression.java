@@ -0,0 +1,275 @@
+package org.software.hopkins.matrix;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A deferred matrix calculation, such as MatrixExpression.of(a).plus(b).minus(c).times(2.0f),
+ * that computes nothing until {@link #evaluate()} is called.
+ * <p>
+ * Building an expression only checks the orders of its operands and records a node for each operation,
+ * so expressions can share subexpressions. Evaluation fuses the element-wise part: sums, differences and
+ * scalings are linear, so the whole expression comes down to c1 * A1 + c2 * A2 + ... + ck * Ak over its operands,
+ * and that is computed a row at a time into a single result array. Each operand is read once and the
+ * result written once, where the operand-by-operand methods of {@link HSMatrix} would make k - 1 intermediates.
+ * Products can't be fused; each product node is multiplied once per evaluation,
+ * however many times it appears, and its result is then an operand like any other,
+ * closed at the end of the evaluation if it is off the heap.
+ * <p>
+ * Sums and differences give the same results as the step-by-step methods. Flattening only follows the left
+ * operands, in the order the step-by-step methods would add them; a sum or difference on the right, as in
+ * a.minus(b.minus(c)), is evaluated into its own array first, because spreading it over the outer terms would
+ * reassociate the additions and could cancel differently. Scalars are folded into the
+ * operand coefficients, so an expression that scales a sum may differ from the step-by-step result in the last bit.
+ * Operands are read when the expression is evaluated, so changes to a mutable operand show in later evaluations.
+ */
+public abstract class MatrixExpression {
+	private final int rows, cols;
+
+	MatrixExpression(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	/**
+	 * Start an expression with a matrix.
+	 * @param matrix - any matrix.
+	 * @return an expression whose value is the given matrix.
+	 */
+	public static MatrixExpression of(HSMatrix matrix) {
+		if (matrix == null)
+			throw new IllegalArgumentException("The matrix can't be null.");
+		return new Operand(matrix);
+	}
+
+	public int rowSize() {
+		return rows;
+	}
+
+	public int columnSize() {
+		return cols;
+	}
+
+	/**
+	 * @return an expression for the sum of this expression and the given one.
+	 * @throws IllegalArgumentException if they are not the same order.
+	 */
+	public MatrixExpression plus(MatrixExpression expression) {
+		checkSameOrder(expression, "Can't add matrices. They are not the same order.");
+		return new Combination(this, expression, 1.0f);
+	}
+
+	public MatrixExpression plus(HSMatrix matrix) {
+		return plus(of(matrix));
+	}
+
+	/**
+	 * @return an expression for this expression minus the given one.
+	 * @throws IllegalArgumentException if they are not the same order.
+	 */
+	public MatrixExpression minus(MatrixExpression expression) {
+		checkSameOrder(expression, "Can't subtract matrices. They are not the same order.");
+		return new Combination(this, expression, -1.0f);
+	}
+
+	public MatrixExpression minus(HSMatrix matrix) {
+		return minus(of(matrix));
+	}
+
+	/**
+	 * @return an expression for this expression with each element multiplied by the given scalar.
+	 */
+	public MatrixExpression times(float scalar) {
+		return new Scaled(this, scalar);
+	}
+
+	public MatrixExpression negative() {
+		return times(-1.0f);
+	}
+
+	/**
+	 * @return an expression for the product of this expression and the given one.
+	 * @throws IllegalArgumentException if this expression's column size is not the given one's row size.
+	 */
+	public MatrixExpression times(MatrixExpression expression) {
+		if (columnSize() != expression.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		return new Product(this, expression);
+	}
+
+	public MatrixExpression times(HSMatrix matrix) {
+		return times(of(matrix));
+	}
+
+	/**
+	 * Compute the value of this expression.
+	 * @return a new DenseMatrix holding the value.
+	 */
+	public DenseMatrix evaluate() {
+		Map<Product, HSMatrix> products = new IdentityHashMap<>();
+		try {
+			return evaluate(products);
+		} finally {
+			// Products are only read by the fused passes, which are done with them now.
+			products.values().forEach(MatrixChain::release);
+		}
+	}
+
+	private DenseMatrix evaluate(Map<Product, HSMatrix> products) {
+		List<Term> terms = new ArrayList<>();
+		collectTerms(1.0f, terms, products);
+		float[] result = new float[rows * cols];
+		float[] scratch = new float[cols];
+		StridedLayout[] layouts = new StridedLayout[terms.size()];
+		for (int t = 0; t < layouts.length; t++) {
+			StridedLayout layout = MatrixView.layoutOf(terms.get(t).matrix);
+			layouts[t] = layout != null && layout.colStride == 1 ? layout : null;
+		}
+		for (int r = 0; r < rows; r++) {
+			int resultBase = r * cols;
+			for (int t = 0; t < layouts.length; t++) {
+				Term term = terms.get(t);
+				float[] source = scratch;
+				int sourceBase = 0;
+				if (layouts[t] != null) {
+					source = layouts[t].data;
+					sourceBase = layouts[t].offset + r * layouts[t].rowStride;
+				} else {
+					term.matrix.copyRowInto(r, scratch, 0);
+				}
+				if (t == 0)
+					ElementwiseKernels.scale(source, sourceBase, term.coefficient, result, resultBase, cols);
+				else
+					ElementwiseKernels.addScaled(term.coefficient, source, sourceBase, result, resultBase, cols);
+			}
+		}
+		return new DenseMatrix(rows, cols, result, 0, cols);
+	}
+
+	/**
+	 * Add this expression's operands, with their coefficients multiplied by the given one, to the terms.
+	 * @param products - the products already computed in this evaluation.
+	 */
+	abstract void collectTerms(float coefficient, List<Term> terms, Map<Product, HSMatrix> products);
+
+	/**
+	 * Whether this expression flattens to more than one term, so that it must be evaluated on its own
+	 * when it is the right operand of a sum or difference.
+	 */
+	boolean isSum() {
+		return false;
+	}
+
+	/**
+	 * The value of this expression as a factor of a product: an operand is used as it is.
+	 */
+	HSMatrix evaluateOperand(Map<Product, HSMatrix> products) {
+		if (this instanceof Operand)
+			return ((Operand) this).matrix;
+		return evaluate(products);
+	}
+
+	private void checkSameOrder(MatrixExpression expression, String message) {
+		if (rows != expression.rows || cols != expression.cols)
+			throw new IllegalArgumentException(message);
+	}
+
+	/**
+	 * A matrix multiplied by a coefficient, one term of the fused sum.
+	 */
+	static final class Term {
+		final float coefficient;
+		final HSMatrix matrix;
+
+		Term(float coefficient, HSMatrix matrix) {
+			this.coefficient = coefficient;
+			this.matrix = matrix;
+		}
+	}
+
+	private static final class Operand extends MatrixExpression {
+		private final HSMatrix matrix;
+
+		Operand(HSMatrix matrix) {
+			super(matrix.rowSize(), matrix.columnSize());
+			this.matrix = matrix;
+		}
+
+		@Override
+		void collectTerms(float coefficient, List<Term> terms, Map<Product, HSMatrix> products) {
+			terms.add(new Term(coefficient, matrix));
+		}
+	}
+
+	/**
+	 * left + sign * right.
+	 */
+	private static final class Combination extends MatrixExpression {
+		private final MatrixExpression left, right;
+		private final float sign;
+
+		Combination(MatrixExpression left, MatrixExpression right, float sign) {
+			super(left.rowSize(), left.columnSize());
+			this.left = left;
+			this.right = right;
+			this.sign = sign;
+		}
+
+		@Override
+		void collectTerms(float coefficient, List<Term> terms, Map<Product, HSMatrix> products) {
+			left.collectTerms(coefficient, terms, products);
+			if (right.isSum())
+				terms.add(new Term(coefficient * sign, right.evaluate(products)));
+			else
+				right.collectTerms(coefficient * sign, terms, products);
+		}
+
+		@Override
+		boolean isSum() {
+			return true;
+		}
+	}
+
+	private static final class Scaled extends MatrixExpression {
+		private final MatrixExpression operand;
+		private final float scalar;
+
+		Scaled(MatrixExpression operand, float scalar) {
+			super(operand.rowSize(), operand.columnSize());
+			this.operand = operand;
+			this.scalar = scalar;
+		}
+
+		@Override
+		void collectTerms(float coefficient, List<Term> terms, Map<Product, HSMatrix> products) {
+			operand.collectTerms(coefficient * scalar, terms, products);
+		}
+
+		@Override
+		boolean isSum() {
+			return operand.isSum();
+		}
+	}
+
+	private static final class Product extends MatrixExpression {
+		private final MatrixExpression left, right;
+
+		Product(MatrixExpression left, MatrixExpression right) {
+			super(left.rowSize(), right.columnSize());
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		void collectTerms(float coefficient, List<Term> terms, Map<Product, HSMatrix> products) {
+			HSMatrix product = products.get(this);
+			if (product == null) {
+				product = left.evaluateOperand(products).times(right.evaluateOperand(products));
+				products.put(this, product);
+			}
+			terms.add(new Term(coefficient, product));
+		}
+	}
+}
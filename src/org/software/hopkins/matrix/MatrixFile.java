@@ -0,0 +1,234 @@
+package org.software.hopkins.matrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * The binary matrix file format, with a memory-mapping reader and a streaming writer.
+ * A file is a 32-byte header followed by the raw entries, all little-endian:
+ * <pre>
+ *  offset  size  field
+ *       0     4  magic number, the bytes "HSMX"
+ *       4     2  format version, 1
+ *       6     1  data type, 1 = 32-bit IEEE float
+ *       7     1  layout, 0 = row-major
+ *       8     4  number of rows
+ *      12     4  number of columns
+ *      16     4  CRC-32 of the payload
+ *      20    12  reserved, zero
+ *      32        payload: rows * columns floats, row after row
+ * </pre>
+ * The payload starts on a 32-byte boundary, so mapped rows are as well aligned as the rows of a heap array.
+ */
+public final class MatrixFile {
+	public static final int MAGIC = 'H' | 'S' << 8 | 'M' << 16 | 'X' << 24;
+	public static final short VERSION = 1;
+	public static final byte FLOAT32 = 1;
+	public static final byte ROW_MAJOR = 0;
+	public static final int HEADER_BYTES = 32;
+
+	/** Bytes the writer collects before each write to the file. */
+	private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+	private MatrixFile() {
+	}
+
+	/**
+	 * Map a matrix file into memory without reading its payload.
+	 * Only the header is checked; use {@link MappedMatrix#checksumMatches()} to check the payload.
+	 * @param path - the file.
+	 * @return a read-only matrix over the file, to be closed when done with.
+	 * @throws IOException if the file can't be read, or is not a matrix file of a known version and type,
+	 *                     or its size does not match its header.
+	 */
+	public static MappedMatrix map(Path path) throws IOException {
+		return map(path, FloatBufferMatrix.DEFAULT_CHUNK_FLOATS);
+	}
+
+	static MappedMatrix map(Path path, int chunkFloats) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			Header header = readHeader(channel, path);
+			return new MappedMatrix(channel, path, HEADER_BYTES, header.rows, header.cols, header.checksum, chunkFloats);
+		}
+	}
+
+	/**
+	 * The fields of a matrix file's header.
+	 */
+	static final class Header {
+		final int rows, cols, checksum;
+
+		Header(int rows, int cols, int checksum) {
+			this.rows = rows;
+			this.cols = cols;
+			this.checksum = checksum;
+		}
+	}
+
+	/**
+	 * Read and check the header of an open matrix file.
+	 * @throws IOException if the file is not a matrix file of a known version and type,
+	 *                     or its size does not match its header.
+	 */
+	static Header readHeader(FileChannel channel, Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0)
+				throw new IOException(path + " is too short to be a matrix file.");
+		}
+		header.flip();
+		if (header.getInt(0) != MAGIC)
+			throw new IOException(path + " is not a matrix file.");
+		if (header.getShort(4) != VERSION)
+			throw new IOException(path + " has unsupported format version " + header.getShort(4) + ".");
+		if (header.get(6) != FLOAT32 || header.get(7) != ROW_MAJOR)
+			throw new IOException(path + " has an unsupported data type or layout.");
+		int rows = header.getInt(8);
+		int cols = header.getInt(12);
+		if (rows < 0 || cols < 0)
+			throw new IOException(path + " has negative dimensions.");
+		long expectedSize = HEADER_BYTES + (long) rows * cols * Float.BYTES;
+		if (channel.size() != expectedSize)
+			throw new IOException(path + " holds " + channel.size() + " bytes; its header calls for " + expectedSize + ".");
+		return new Header(rows, cols, header.getInt(16));
+	}
+
+	/**
+	 * Write the header of a matrix file whose payload has been written, completing the file.
+	 */
+	static void writeHeader(FileChannel channel, int rows, int cols, int checksum) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putShort(VERSION).put(FLOAT32).put(ROW_MAJOR)
+				.putInt(rows).putInt(cols).putInt(checksum);
+		header.clear();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+	}
+
+	/**
+	 * Write a matrix to a file, replacing any file already there.
+	 * @param path - the file.
+	 * @param matrix - any matrix.
+	 * @throws IOException if the file can't be written.
+	 */
+	public static void write(Path path, HSMatrix matrix) throws IOException {
+		try (Writer writer = newWriter(path, matrix.rowSize(), matrix.columnSize())) {
+			float[] row = new float[matrix.columnSize()];
+			for (int r = 0; r < matrix.rowSize(); r++) {
+				matrix.copyRowInto(r, row, 0);
+				writer.writeRow(row);
+			}
+		}
+	}
+
+	/**
+	 * Start writing a matrix file a row at a time, so the matrix never has to be in memory at once.
+	 * @param path - the file, which is replaced if it exists.
+	 * @param rows - number of rows that will be written.
+	 * @param cols - number of entries in each row.
+	 * @return a writer, which must be closed to complete the file.
+	 * @throws IOException if the file can't be created.
+	 */
+	public static Writer newWriter(Path path, int rows, int cols) throws IOException {
+		if (rows < 0 || cols < 0)
+			throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+		return new Writer(path, rows, cols);
+	}
+
+	/**
+	 * Writes a matrix file a row at a time.
+	 * The header is written last, by close, so a file whose writer was not closed
+	 * or was given too few rows is never mistaken for a matrix file.
+	 */
+	public static final class Writer implements Closeable {
+		private final FileChannel channel;
+		private final int rows, cols;
+		private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32 crc = new CRC32();
+		private int rowsWritten;
+
+		private Writer(Path path, int rows, int cols) throws IOException {
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			this.rows = rows;
+			this.cols = cols;
+			channel.position(HEADER_BYTES);
+		}
+
+		/**
+		 * Append the next row.
+		 * @param row - the entries of the row.
+		 * @throws IOException if the file can't be written.
+		 */
+		public void writeRow(float[] row) throws IOException {
+			if (row.length != cols)
+				throw new IllegalArgumentException("The row does not have " + cols + " entries.");
+			if (rowsWritten == rows)
+				throw new IllegalStateException("All " + rows + " rows have been written.");
+			for (float value : row) {
+				if (buffer.remaining() < Float.BYTES)
+					flush();
+				buffer.putFloat(value);
+			}
+			rowsWritten++;
+		}
+
+		/**
+		 * Append the next rows, taken from a compact row-major array.
+		 * @param entries - holds the rows.
+		 * @param offset - the position in entries of the first row's first entry.
+		 * @param count - the number of rows.
+		 * @throws IOException if the file can't be written.
+		 */
+		public void writeRows(float[] entries, int offset, int count) throws IOException {
+			Objects.checkFromIndexSize(offset, (long) count * cols, entries.length);
+			if (count > rows - rowsWritten)
+				throw new IllegalStateException("Only " + (rows - rowsWritten) + " of " + rows + " rows remain to be written.");
+			int end = offset + count * cols;
+			for (int i = offset; i < end; i++) {
+				if (buffer.remaining() < Float.BYTES)
+					flush();
+				buffer.putFloat(entries[i]);
+			}
+			rowsWritten += count;
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			crc.update(buffer);
+			buffer.rewind();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Complete the file by writing its header, and close it.
+		 * @throws IOException if the file can't be written.
+		 * @throws IllegalStateException if fewer rows were written than the header calls for;
+		 *                               the file is then left without a header.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!channel.isOpen())
+				return;
+			try {
+				flush();
+				if (rowsWritten < rows)
+					throw new IllegalStateException("Only " + rowsWritten + " of " + rows + " rows were written.");
+				writeHeader(channel, rows, cols, (int) crc.getValue());
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package org.software.hopkins.matrix;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times matrix operations, for finding which are slow in production.
+ * <p>
+ * The operations of matrices wrapped by {@link #instrument(HSMatrix)} and the calculations of the calculators
+ * are recorded: for each kind of operation, the calls, estimates of the floating-point operations and the bytes
+ * of entries read and written, the bytes allocated by the calling thread, and a histogram of durations.
+ * A calculator's calculations are recorded whole, estimating the work of the whole calculation: a product of
+ * several matrices as the multiply-adds of the order it is computed in, a sum or difference as the single pass
+ * that reads every operand and writes the result. A calculation answered from the calculator's cache is
+ * recorded with its duration and allocation but no floating-point operations or bytes, since it computes nothing.
+ * Every counter is striped, so threads recording the same operation don't contend for a lock or a cache line.
+ * <p>
+ * Recording is off unless the system property hsmatrix.metrics is true or it is turned on through
+ * {@link #setEnabled(boolean)}, for instance from a JMX console once {@link #register()} has been called.
+ * While it is off an instrumented operation costs little more than one read of a volatile field on top of
+ * the operation itself, so instrumented matrices can stay in production code.
+ */
+public final class MatrixMetrics implements MatrixMetricsMXBean {
+	public static final String OBJECT_NAME = "org.software.hopkins.matrix:type=MatrixMetrics";
+
+	/**
+	 * The kinds of operation recorded.
+	 */
+	public enum Operation {
+		MULTIPLY, ADD, SUBTRACT, SCALE, NEGATE, TRANSPOSE, SUM_ROW, SUM_COLUMN, REDUCE, COMPARE, COPY,
+		ADD_IN_PLACE, SUBTRACT_IN_PLACE, SCALE_IN_PLACE, AXPY, HADAMARD_IN_PLACE, GEMM_INTO,
+		MULTIPLY_IN_PLACE, TRANSPOSE_IN_PLACE, FILL,
+		CALCULATE_ADD, CALCULATE_SUBTRACT, CALCULATE_MULTIPLY, CALCULATE_SCALE, CALCULATE_TRANSPOSE,
+		CALCULATE_SUM, CALCULATE_OTHER;
+
+		/**
+		 * Get the kind of operation that times a calculator's calculation.
+		 * @param opCode - the calculation.
+		 * @return the calculation's kind of operation.
+		 */
+		public static Operation ofCalculation(MatrixOperation opCode) {
+			switch (opCode) {
+				case ADD:
+					return CALCULATE_ADD;
+				case SUBTRACT:
+					return CALCULATE_SUBTRACT;
+				case MULTIPLY:
+					return CALCULATE_MULTIPLY;
+				case SCALE:
+					return CALCULATE_SCALE;
+				case TRANSPOSE:
+					return CALCULATE_TRANSPOSE;
+				case SUM:
+					return CALCULATE_SUM;
+				default:
+					return CALCULATE_OTHER;
+			}
+		}
+	}
+
+	private static final MatrixMetrics INSTANCE = new MatrixMetrics();
+	private static volatile boolean enabled = Boolean.getBoolean("hsmatrix.metrics");
+	/** The JVM's per-thread allocation counter, or null if it has none. */
+	private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounter();
+
+	private final Stats[] stats;
+
+	private MatrixMetrics() {
+		Operation[] operations = Operation.values();
+		stats = new Stats[operations.length];
+		for (int i = 0; i < operations.length; i++) {
+			stats[i] = new Stats();
+		}
+	}
+
+	/**
+	 * Get the metrics that every instrumented matrix and calculator records into.
+	 * @return the shared metrics.
+	 */
+	public static MatrixMetrics getDefault() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Register the shared metrics with the platform MBean server, if they are not registered already.
+	 * @return the shared metrics.
+	 */
+	public static MatrixMetrics register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// Registered already.
+		} catch (JMException e) {
+			throw new IllegalStateException("Can't register the matrix metrics.", e);
+		}
+		return INSTANCE;
+	}
+
+	/**
+	 * Wrap a matrix so that its operations are recorded.
+	 * The operations of an instrumented matrix return instrumented matrices, so whole calculations
+	 * on it are recorded; instrumented operands are unwrapped before the underlying matrix sees them.
+	 * @param matrix - any matrix.
+	 * @return the instrumented matrix, or the matrix itself if it is instrumented already.
+	 */
+	public static HSMatrix instrument(HSMatrix matrix) {
+		if (matrix == null)
+			throw new IllegalArgumentException("The matrix can't be null.");
+		return InstrumentedMatrix.wrap(matrix);
+	}
+
+	/**
+	 * Wrap a mutable matrix so that its operations, including its in-place updates, are recorded.
+	 * @param matrix - any mutable matrix.
+	 * @return the instrumented matrix, or the matrix itself if it is instrumented already.
+	 */
+	public static HSMutableMatrix instrument(HSMutableMatrix matrix) {
+		if (matrix == null)
+			throw new IllegalArgumentException("The matrix can't be null.");
+		return (HSMutableMatrix) InstrumentedMatrix.wrap(matrix);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		MatrixMetrics.enabled = enabled;
+	}
+
+	@Override
+	public Map<String, OperationMetrics> getOperations() {
+		Map<String, OperationMetrics> operations = new TreeMap<>();
+		for (Operation operation : Operation.values()) {
+			if (stats[operation.ordinal()].calls.sum() > 0)
+				operations.put(operation.name(), getMetrics(operation));
+		}
+		return operations;
+	}
+
+	/**
+	 * Get what has been recorded of one kind of operation.
+	 * @param operation - the kind of operation.
+	 * @return the metrics as of now.
+	 */
+	public OperationMetrics getMetrics(Operation operation) {
+		return stats[operation.ordinal()].snapshot();
+	}
+
+	@Override
+	public void reset() {
+		for (Stats stat : stats) {
+			stat.reset();
+		}
+	}
+
+	/**
+	 * The start of an operation being recorded: when it started and what its thread had allocated by then.
+	 */
+	public static final class Sample {
+		private final long startNanos;
+		private final long startAllocated;
+
+		private Sample() {
+			startAllocated = allocatedBytes();
+			startNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Start recording an operation, to be finished by {@link #end}.
+	 * @return the start of the recording, or null if recording is off.
+	 */
+	public static Sample begin() {
+		return enabled ? new Sample() : null;
+	}
+
+	/**
+	 * Finish recording an operation.
+	 * @param sample - what {@link #begin()} returned; if null, nothing is recorded.
+	 * @param operation - the kind of operation.
+	 * @param flops - an estimate of the floating-point operations done.
+	 * @param bytesTouched - an estimate of the bytes of entries read and written.
+	 */
+	public static void end(Sample sample, Operation operation, long flops, long bytesTouched) {
+		if (sample == null)
+			return;
+		long nanos = System.nanoTime() - sample.startNanos;
+		long allocated = allocatedBytes() - sample.startAllocated;
+		INSTANCE.stats[operation.ordinal()].record(nanos, flops, bytesTouched, Math.max(0, allocated));
+	}
+
+	private static long allocatedBytes() {
+		return ALLOCATIONS == null ? 0 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+	}
+
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+			if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled())
+				return counter;
+		}
+		return null;
+	}
+
+	/**
+	 * The counters of one kind of operation.
+	 */
+	private static final class Stats {
+		final LongAdder calls = new LongAdder();
+		final LongAdder flops = new LongAdder();
+		final LongAdder bytesTouched = new LongAdder();
+		final LongAdder bytesAllocated = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		final LatencyHistogram latencies = new LatencyHistogram();
+
+		void record(long nanos, long flopCount, long bytes, long allocated) {
+			calls.increment();
+			flops.add(flopCount);
+			bytesTouched.add(bytes);
+			bytesAllocated.add(allocated);
+			totalNanos.add(nanos);
+			maxNanos.accumulate(nanos);
+			latencies.record(nanos);
+		}
+
+		OperationMetrics snapshot() {
+			return new OperationMetrics(calls.sum(), flops.sum(), bytesTouched.sum(), bytesAllocated.sum(),
+					totalNanos.sum(), maxNanos.get(), latencies.counts());
+		}
+
+		void reset() {
+			calls.reset();
+			flops.reset();
+			bytesTouched.reset();
+			bytesAllocated.reset();
+			totalNanos.reset();
+			maxNanos.reset();
+			latencies.reset();
+		}
+	}
+}
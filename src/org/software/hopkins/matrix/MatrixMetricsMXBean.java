@@ -0,0 +1,30 @@
+package org.software.hopkins.matrix;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link MatrixMetrics}, registered with the platform MBean server
+ * under {@link MatrixMetrics#OBJECT_NAME} by {@link MatrixMetrics#register()}.
+ */
+public interface MatrixMetricsMXBean {
+	/**
+	 * @return whether operations are being recorded.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Start or stop recording operations. Stopping keeps what has been recorded.
+	 * @param enabled - whether to record.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return what has been recorded of each operation that has been called, by operation name.
+	 */
+	Map<String, OperationMetrics> getOperations();
+
+	/**
+	 * Forget everything recorded so far.
+	 */
+	void reset();
+}
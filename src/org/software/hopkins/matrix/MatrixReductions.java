@@ -0,0 +1,227 @@
+package org.software.hopkins.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Whole-matrix reductions computed in one pass over the rows, behind the bulk methods of {@link HSMatrix}.
+ * Dense storage, and views of it, is read straight from its array; other matrices a row at a time
+ * into a buffer. Sums are accumulated in double precision.
+ * <p>
+ * Matrices of at least {@link #PARALLEL_THRESHOLD} entries are reduced in parallel on the common
+ * fork/join pool: the rows are split in halves down to ranges of about {@link #LEAF_ENTRIES} entries,
+ * and partial results are added back up the same tree, so the sums are combined pairwise.
+ */
+final class MatrixReductions {
+	/** Matrices with fewer entries than this are reduced on the calling thread. */
+	static final long PARALLEL_THRESHOLD = 1L << 20;
+	/** Row ranges are not split below this many entries. */
+	static final long LEAF_ENTRIES = 1L << 16;
+
+	private MatrixReductions() {
+	}
+
+	/**
+	 * An operation on the rows [rowStart, rowEnd) that writes only to those rows' slots of its result.
+	 */
+	private interface RowAction {
+		void apply(int rowStart, int rowEnd);
+	}
+
+	/**
+	 * An operation on the rows [rowStart, rowEnd) that adds its result into a partial result.
+	 */
+	private interface RowReduction {
+		void apply(int rowStart, int rowEnd, double[] partial);
+	}
+
+	static boolean inParallel(HSMatrix matrix) {
+		return (long) matrix.rowSize() * matrix.columnSize() >= PARALLEL_THRESHOLD
+				&& ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+
+	static double[] rowSums(HSMatrix matrix, boolean parallel) {
+		double[] sums = new double[matrix.rowSize()];
+		forEachRowRange(matrix, parallel, (rowStart, rowEnd) -> {
+			RowReader reader = new RowReader(matrix);
+			for (int r = rowStart; r < rowEnd; r++) {
+				float[] row = reader.read(r);
+				int base = reader.base;
+				double sum = 0.0;
+				for (int c = 0; c < reader.cols; c++) {
+					sum += row[base + c];
+				}
+				sums[r] = sum;
+			}
+		});
+		return sums;
+	}
+
+	static double[] columnSums(HSMatrix matrix, boolean parallel) {
+		return reduceRowRanges(matrix, parallel, matrix.columnSize(), (rowStart, rowEnd, partial) -> {
+			RowReader reader = new RowReader(matrix);
+			for (int r = rowStart; r < rowEnd; r++) {
+				float[] row = reader.read(r);
+				int base = reader.base;
+				for (int c = 0; c < reader.cols; c++) {
+					partial[c] += row[base + c];
+				}
+			}
+		});
+	}
+
+	static float[][] rowMinMax(HSMatrix matrix, boolean parallel) {
+		float[][] minMax = new float[2][matrix.rowSize()];
+		forEachRowRange(matrix, parallel, (rowStart, rowEnd) -> {
+			RowReader reader = new RowReader(matrix);
+			for (int r = rowStart; r < rowEnd; r++) {
+				float[] row = reader.read(r);
+				int base = reader.base;
+				float min = Float.POSITIVE_INFINITY;
+				float max = Float.NEGATIVE_INFINITY;
+				for (int c = 0; c < reader.cols; c++) {
+					min = Math.min(min, row[base + c]);
+					max = Math.max(max, row[base + c]);
+				}
+				minMax[0][r] = min;
+				minMax[1][r] = max;
+			}
+		});
+		return minMax;
+	}
+
+	static double frobeniusNorm(HSMatrix matrix, boolean parallel) {
+		double[] sumOfSquares = reduceRowRanges(matrix, parallel, 1, (rowStart, rowEnd, partial) -> {
+			RowReader reader = new RowReader(matrix);
+			double sum = 0.0;
+			for (int r = rowStart; r < rowEnd; r++) {
+				float[] row = reader.read(r);
+				int base = reader.base;
+				for (int c = 0; c < reader.cols; c++) {
+					double value = row[base + c];
+					sum += value * value;
+				}
+			}
+			partial[0] += sum;
+		});
+		return Math.sqrt(sumOfSquares[0]);
+	}
+
+	static double trace(HSMatrix matrix) {
+		if (matrix.rowSize() != matrix.columnSize())
+			throw new IllegalArgumentException("Can't take the trace. The matrix is not square.");
+		StridedLayout layout = MatrixView.layoutOf(matrix);
+		double sum = 0.0;
+		for (int i = 0; i < matrix.rowSize(); i++) {
+			sum += layout != null ? layout.get(i, i) : matrix.getFloat(i, i);
+		}
+		return sum;
+	}
+
+	private static void forEachRowRange(HSMatrix matrix, boolean parallel, RowAction action) {
+		if (parallel)
+			ForkJoinPool.commonPool().invoke(new RangeActionTask(matrix, action, 0, matrix.rowSize()));
+		else
+			action.apply(0, matrix.rowSize());
+	}
+
+	private static double[] reduceRowRanges(HSMatrix matrix, boolean parallel, int width, RowReduction reduction) {
+		if (parallel)
+			return ForkJoinPool.commonPool().invoke(new RangeReductionTask(matrix, reduction, width, 0, matrix.rowSize()));
+		double[] result = new double[width];
+		reduction.apply(0, matrix.rowSize(), result);
+		return result;
+	}
+
+	private static boolean isLeaf(HSMatrix matrix, int rowStart, int rowEnd) {
+		return rowEnd - rowStart <= 1 || (long) (rowEnd - rowStart) * matrix.columnSize() <= LEAF_ENTRIES;
+	}
+
+	private static final class RangeActionTask extends RecursiveAction {
+		private final HSMatrix matrix;
+		private final RowAction action;
+		private final int rowStart, rowEnd;
+
+		RangeActionTask(HSMatrix matrix, RowAction action, int rowStart, int rowEnd) {
+			this.matrix = matrix;
+			this.action = action;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (isLeaf(matrix, rowStart, rowEnd)) {
+				action.apply(rowStart, rowEnd);
+			} else {
+				int mid = (rowStart + rowEnd) >>> 1;
+				invokeAll(new RangeActionTask(matrix, action, rowStart, mid),
+						new RangeActionTask(matrix, action, mid, rowEnd));
+			}
+		}
+	}
+
+	private static final class RangeReductionTask extends RecursiveTask<double[]> {
+		private final HSMatrix matrix;
+		private final RowReduction reduction;
+		private final int width, rowStart, rowEnd;
+
+		RangeReductionTask(HSMatrix matrix, RowReduction reduction, int width, int rowStart, int rowEnd) {
+			this.matrix = matrix;
+			this.reduction = reduction;
+			this.width = width;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (isLeaf(matrix, rowStart, rowEnd)) {
+				double[] partial = new double[width];
+				reduction.apply(rowStart, rowEnd, partial);
+				return partial;
+			}
+			int mid = (rowStart + rowEnd) >>> 1;
+			RangeReductionTask top = new RangeReductionTask(matrix, reduction, width, rowStart, mid);
+			top.fork();
+			double[] bottom = new RangeReductionTask(matrix, reduction, width, mid, rowEnd).compute();
+			double[] sum = top.join();
+			for (int i = 0; i < width; i++) {
+				sum[i] += bottom[i];
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Reads the rows of a matrix: straight from the array of dense storage with a column stride of 1,
+	 * otherwise copied into a buffer. After {@link #read}, the row's entries start at {@link #base}.
+	 */
+	private static final class RowReader {
+		final HSMatrix matrix;
+		final StridedLayout layout;
+		final int cols;
+		float[] buffer;
+		int base;
+
+		RowReader(HSMatrix matrix) {
+			this.matrix = matrix;
+			StridedLayout matrixLayout = MatrixView.layoutOf(matrix);
+			this.layout = matrixLayout != null && matrixLayout.colStride == 1 ? matrixLayout : null;
+			this.cols = matrix.columnSize();
+		}
+
+		float[] read(int row) {
+			if (layout != null) {
+				base = layout.offset + row * layout.rowStride;
+				return layout.data;
+			}
+			if (buffer == null)
+				buffer = new float[cols];
+			matrix.copyRowInto(row, buffer, 0);
+			base = 0;
+			return buffer;
+		}
+	}
+}
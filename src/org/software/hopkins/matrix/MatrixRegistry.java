@@ -0,0 +1,255 @@
+package org.software.hopkins.matrix;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe workspace of named matrices, for calculators shared by many concurrent clients.
+ * <p>
+ * The registry holds only snapshots: a matrix is published under a name as a value that never changes,
+ * so a reader can compute with it for as long as it likes while writers publish new values under the
+ * same name. Matrices of kinds that never change (DenseMatrix, Matrix, IntMatrix, and views of them) are
+ * published as they are. Any other matrix is copied when it is published: integer ones to an IntMatrix,
+ * sparse ones to a clone of their own kind that readers can only see through a read-only wrapper, and the rest,
+ * off-heap ones included, to a DenseMatrix. No reader can change a snapshot or close it under the
+ * other readers. The copy is made on the publishing thread, before the name is locked,
+ * so a matrix should be published once the thread changing it is done with it.
+ * <p>
+ * A {@link MappedMatrix} is not copied, however large its file: it is published behind the same read-only
+ * wrapper, and the registry takes it over. The caller must not close it; the registry closes it, unmapping
+ * the file, once no name publishes it any more. A reader that needs a mapped matrix past its replacement
+ * should clone it, as any operation on it after that throws IllegalStateException.
+ * <p>
+ * Lookups read a {@link ConcurrentHashMap} and never lock. Writes to a name lock one of a fixed set of
+ * stripes, chosen by the name's hash, so writers to different names rarely wait for each other,
+ * and {@link #update} can read a name's matrix, compute from it and publish the result without another
+ * writer slipping in between, however long the computation takes, and without holding up readers
+ * or writers to other names.
+ */
+public final class MatrixRegistry {
+	/** The number of write locks a registry has by default. */
+	public static final int DEFAULT_STRIPES = 64;
+
+	private final ConcurrentHashMap<String, HSMatrix> matrices = new ConcurrentHashMap<>();
+	private final ReentrantLock[] locks;
+
+	public MatrixRegistry() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param stripes - the number of write locks; rounded up to a power of two.
+	 */
+	public MatrixRegistry(int stripes) {
+		if (stripes < 1)
+			throw new IllegalArgumentException("A registry needs at least one lock stripe.");
+		int count = Integer.highestOneBit(stripes);
+		if (count < stripes)
+			count <<= 1;
+		locks = new ReentrantLock[count];
+		for (int i = 0; i < count; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Get the matrix published under the given name, without locking.
+	 * @param name - the matrix's name.
+	 * @return the matrix, or null if no matrix has the name.
+	 */
+	public HSMatrix get(String name) {
+		return matrices.get(name);
+	}
+
+	public boolean contains(String name) {
+		return matrices.containsKey(name);
+	}
+
+	public int size() {
+		return matrices.size();
+	}
+
+	/**
+	 * Get the names of the matrices, in order.
+	 * @return an unmodifiable copy of the names at the time of the call.
+	 */
+	public Set<String> names() {
+		return Collections.unmodifiableSet(new TreeSet<>(matrices.keySet()));
+	}
+
+	/**
+	 * Get the matrices by name, in order of name.
+	 * Each matrix is a snapshot, but a write during the call may or may not be included.
+	 * @return an unmodifiable copy of the registry's contents.
+	 */
+	public Map<String, HSMatrix> snapshot() {
+		return Collections.unmodifiableMap(new TreeMap<>(matrices));
+	}
+
+	/**
+	 * Publish a snapshot of the given matrix under the given name, replacing any matrix of that name.
+	 * @param name - the matrix's name.
+	 * @param matrix - the matrix.
+	 * @return the snapshot published, which is the matrix itself if it never changes.
+	 */
+	public HSMatrix put(String name, HSMatrix matrix) {
+		checkArguments(name, matrix);
+		HSMatrix snapshot = snapshotOf(matrix);
+		ReentrantLock lock = lockFor(name);
+		lock.lock();
+		try {
+			release(matrices.put(name, snapshot));
+		} finally {
+			lock.unlock();
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Publish a snapshot of the given matrix under the given name if a matrix already has the name.
+	 * @return whether the matrix was published.
+	 */
+	public boolean replace(String name, HSMatrix matrix) {
+		checkArguments(name, matrix);
+		HSMatrix snapshot = snapshotOf(matrix);
+		ReentrantLock lock = lockFor(name);
+		lock.lock();
+		try {
+			HSMatrix previous = matrices.replace(name, snapshot);
+			release(previous);
+			return previous != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the matrix with the given name.
+	 * @return the matrix removed, or null if no matrix had the name. A mapped matrix no other name
+	 *         publishes has been closed.
+	 */
+	public HSMatrix remove(String name) {
+		ReentrantLock lock = lockFor(name);
+		lock.lock();
+		try {
+			HSMatrix removed = matrices.remove(name);
+			release(removed);
+			return removed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Replace the matrix with the given name by a matrix computed from it, holding the name's write lock
+	 * throughout, so no other write to the name happens between the read and the publication.
+	 * Readers are not held up, and go on seeing the old matrix until the new one is published.
+	 * @param name - the matrix's name.
+	 * @param function - computes the new matrix from the current one, which is null if no matrix has the name;
+	 *                 may return null to remove the matrix. It must not write to names of the same stripe
+	 *                 from another thread and wait for that thread.
+	 * @return the snapshot published, or null if the matrix was removed.
+	 */
+	public HSMatrix update(String name, UnaryOperator<HSMatrix> function) {
+		return update(name, function, null);
+	}
+
+	/**
+	 * Replace the matrix with the given name by a matrix computed from it, as {@link #update(String, UnaryOperator)}
+	 * does, then hand the matrix replaced or removed to the given consumer, still holding the name's write lock.
+	 * A cache of results computed from the old matrix can drop them there, after the new matrix is visible
+	 * and before any other write to the name.
+	 * @param replaced - told of the old matrix, unless there was none or it was published again; may be null.
+	 */
+	public HSMatrix update(String name, UnaryOperator<HSMatrix> function, Consumer<HSMatrix> replaced) {
+		if (name == null || function == null)
+			throw new IllegalArgumentException("The name and function can't be null.");
+		ReentrantLock lock = lockFor(name);
+		lock.lock();
+		try {
+			HSMatrix previous = matrices.get(name);
+			HSMatrix result = function.apply(previous);
+			HSMatrix snapshot = null;
+			if (result == null) {
+				matrices.remove(name);
+			} else {
+				snapshot = snapshotOf(result);
+				matrices.put(name, snapshot);
+			}
+			if (previous != null && previous != snapshot) {
+				if (replaced != null)
+					replaced.accept(previous);
+				release(previous);
+			}
+			return snapshot;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void checkArguments(String name, HSMatrix matrix) {
+		if (name == null || matrix == null)
+			throw new IllegalArgumentException("The name and matrix can't be null.");
+	}
+
+	/**
+	 * Close the mapping of a matrix no longer published under a name, unless another name still publishes it.
+	 */
+	private void release(HSMatrix dropped) {
+		MappedMatrix mapping = mappingOf(dropped);
+		if (mapping == null)
+			return;
+		for (HSMatrix published : matrices.values()) {
+			if (mappingOf(published) == mapping)
+				return;
+		}
+		mapping.close();
+	}
+
+	private static MappedMatrix mappingOf(HSMatrix matrix) {
+		if (matrix instanceof MatrixView)
+			return mappingOf(((MatrixView) matrix).parent);
+		return matrix instanceof ReadOnlyMatrix ? ((ReadOnlyMatrix) matrix).mapping() : null;
+	}
+
+	private ReentrantLock lockFor(String name) {
+		int hash = name.hashCode();
+		return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+	}
+
+	/**
+	 * Get a value of the given matrix that never changes: the matrix itself if it is of a kind that never changes,
+	 * a read-only wrapper over it if it is mapped, otherwise a copy.
+	 */
+	static HSMatrix snapshotOf(HSMatrix matrix) {
+		if (neverChanges(matrix))
+			return matrix;
+		if (matrix instanceof MappedMatrix)
+			return new ReadOnlyMatrix(matrix);
+		if (matrix instanceof IntMatrix) {
+			IntMatrix integers = (IntMatrix) matrix;
+			return new IntMatrix(integers.rows, integers.cols, integers.toArray(), 0, integers.cols, integers.checked);
+		}
+		if (matrix instanceof SparseMatrix)
+			return new ReadOnlyMatrix(matrix.clone());
+		return new DenseMatrix(matrix);
+	}
+
+	/**
+	 * Whether a matrix is of a kind that no one can change or close. A plain Matrix qualifies because it copies
+	 * the rows it is given; a MappedMatrix doesn't, because closing it takes it away from its readers.
+	 */
+	private static boolean neverChanges(HSMatrix matrix) {
+		Class<?> kind = matrix.getClass();
+		if (kind == DenseMatrix.class || kind == Matrix.class || kind == IntMatrix.class || kind == ReadOnlyMatrix.class)
+			return true;
+		return matrix instanceof MatrixView && neverChanges(((MatrixView) matrix).parent);
+	}
+}
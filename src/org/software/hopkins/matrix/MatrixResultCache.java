@@ -0,0 +1,232 @@
+package org.software.hopkins.matrix;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A cache of calculation results, bounded by the bytes its results take and evicting the least recently used.
+ * <p>
+ * A result is keyed by its operation, the identity of each of its operands and its other parameters, such as
+ * a scalar or a row number. Keying on identity is only sound for operands that never change, so the cache is
+ * meant for the snapshots held by a {@link MatrixRegistry}: publishing a new matrix under a name makes a new
+ * snapshot, so a result computed from the old one can never be returned for the new one. Results computed
+ * from a snapshot that has been replaced are dead weight, and {@link #invalidate} drops them at once rather
+ * than waiting for them to be evicted.
+ * <p>
+ * Results are stored as snapshots too, so a caller can't change a cached result. Off-heap and mapped results
+ * are copied to the heap and closed at once, so no cached result holds memory that has to be released when it
+ * is evicted or invalidated, and no caller can close a result under another. The size of each is
+ * estimated from its storage: 4 bytes an entry for primitive storage, about 20 for boxed entries, about 12
+ * a non-zero entry for sparse storage, and nothing beyond a small overhead for views and mapped files.
+ * A result bigger than the whole cache is not cached.
+ * <p>
+ * Lookups and updates lock the cache, but a calculation runs outside the lock, so two threads that miss on
+ * the same key at once both compute the result, and the later one is kept.
+ */
+public final class MatrixResultCache {
+	/** The bytes counted for every result over and above its entries. */
+	static final long ENTRY_OVERHEAD = 64;
+
+	private final long maxBytes;
+	private final LinkedHashMap<Key, Cached> results = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+	private long hits, misses, evictions, invalidations;
+
+	/**
+	 * @param maxBytes - the most bytes the cached results may take; 0 caches nothing.
+	 */
+	public MatrixResultCache(long maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("A cache can't hold fewer than 0 bytes.");
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the cached result of the operation, or compute, cache and return it.
+	 * @param operation - the operation.
+	 * @param operands - the operands in order, compared by identity.
+	 * @param parameters - any other parameters in order, compared by equals; may be empty.
+	 * @param calculation - computes the result on a miss. It must return a new matrix, which the cache then owns,
+	 *                    or one that never changes.
+	 * @return the result, as a snapshot that never changes.
+	 */
+	public HSMatrix computeIfAbsent(MatrixOperation operation, List<? extends HSMatrix> operands, List<?> parameters,
+								   Supplier<? extends HSMatrix> calculation) {
+		Key key = new Key(operation, operands, parameters);
+		synchronized (this) {
+			Cached cached = results.get(key);
+			if (cached != null) {
+				hits++;
+				return cached.result;
+			}
+			misses++;
+		}
+		HSMatrix computed = calculation.get();
+		HSMatrix result = computed instanceof FloatBufferMatrix ? new DenseMatrix(computed)
+				: MatrixRegistry.snapshotOf(computed);
+		if (computed instanceof FloatBufferMatrix && !key.uses(computed))
+			((FloatBufferMatrix) computed).close();
+		long size = estimatedBytes(result);
+		if (size > maxBytes)
+			return result;
+		synchronized (this) {
+			Cached previous = results.put(key, new Cached(result, size));
+			if (previous != null)
+				bytes -= previous.bytes;
+			bytes += size;
+			Iterator<Cached> eldest = results.values().iterator();
+			while (bytes > maxBytes) {
+				bytes -= eldest.next().bytes;
+				eldest.remove();
+				evictions++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Drop every result computed from the given operand.
+	 * @return the number of results dropped.
+	 */
+	public synchronized int invalidate(HSMatrix operand) {
+		int count = 0;
+		Iterator<Map.Entry<Key, Cached>> entries = results.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<Key, Cached> entry = entries.next();
+			if (entry.getKey().uses(operand)) {
+				bytes -= entry.getValue().bytes;
+				entries.remove();
+				count++;
+			}
+		}
+		invalidations += count;
+		return count;
+	}
+
+	public synchronized void clear() {
+		results.clear();
+		bytes = 0;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized int size() {
+		return results.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the fraction of lookups that hit, or 0 if there have been none.
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	/**
+	 * @return the number of results evicted to keep within the byte bound.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * @return the number of results dropped by {@link #invalidate}.
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidations;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("MatrixResultCache[%d results, %d of %d bytes, %d hits, %d misses, %d evictions, %d invalidations]",
+				results.size(), bytes, maxBytes, hits, misses, evictions, invalidations);
+	}
+
+	static long estimatedBytes(HSMatrix matrix) {
+		long entries = (long) matrix.rowSize() * matrix.columnSize();
+		if (matrix instanceof MatrixView || matrix instanceof MappedMatrix)
+			return ENTRY_OVERHEAD;
+		if (matrix instanceof SparseMatrix)
+			return ENTRY_OVERHEAD + 12L * ((SparseMatrix) matrix).nonZeroCount();
+		if (matrix instanceof Matrix)
+			return ENTRY_OVERHEAD + 20L * entries;
+		return ENTRY_OVERHEAD + 4L * entries;
+	}
+
+	private static final class Cached {
+		final HSMatrix result;
+		final long bytes;
+
+		Cached(HSMatrix result, long bytes) {
+			this.result = result;
+			this.bytes = bytes;
+		}
+	}
+
+	private static final class Key {
+		private final MatrixOperation operation;
+		private final HSMatrix[] operands;
+		private final List<?> parameters;
+		private final int hash;
+
+		Key(MatrixOperation operation, List<? extends HSMatrix> operands, List<?> parameters) {
+			if (operation == null || operands == null || parameters == null)
+				throw new IllegalArgumentException("The operation, operands and parameters can't be null.");
+			this.operation = operation;
+			this.operands = operands.toArray(new HSMatrix[0]);
+			this.parameters = new ArrayList<>(parameters);
+			int h = operation.hashCode();
+			for (HSMatrix operand : this.operands) {
+				h = 31 * h + System.identityHashCode(operand);
+			}
+			this.hash = 31 * h + this.parameters.hashCode();
+		}
+
+		boolean uses(HSMatrix operand) {
+			for (HSMatrix matrix : operands) {
+				if (matrix == operand)
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object)
+				return true;
+			if (!(object instanceof Key))
+				return false;
+			Key other = (Key) object;
+			if (hash != other.hash || operation != other.operation || operands.length != other.operands.length)
+				return false;
+			for (int i = 0; i < operands.length; i++) {
+				if (operands[i] != other.operands[i])
+					return false;
+			}
+			return parameters.equals(other.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package org.software.hopkins.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A read-only matrix that presents part or all of another matrix, its parent, without copying it:
+ * each entry is read from the parent through an index mapping. Views are created by the factories here.
+ * A view of a mutable matrix is live: changes to the parent show through it.
+ * Call {@link #materialize()} for an independent compact copy.
+ * <p>
+ * Views of dense storage (a {@link DenseMatrix}, or a view of one) are handed to the
+ * multiplication kernel as strided arrays, so, for example, A.transpose().times(B)
+ * multiplies straight out of A's storage.
+ * Operations that compute a new matrix return a {@link DenseMatrix}.
+ */
+public abstract class MatrixView implements HSMatrix {
+	protected final HSMatrix parent;
+
+	MatrixView(HSMatrix parent) {
+		if (parent == null)
+			throw new IllegalArgumentException("The parent matrix can't be null.");
+		this.parent = parent;
+	}
+
+	/**
+	 * Get a view of the transpose of the given matrix.
+	 * @param matrix - any matrix.
+	 * @return an n x m view whose entry (r, c) is the matrix's entry (c, r).
+	 */
+	public static MatrixView transposed(HSMatrix matrix) {
+		if (matrix instanceof TransposedView) {
+			HSMatrix original = ((TransposedView) matrix).parent;
+			return submatrix(original, 0, 0, original.rowSize(), original.columnSize());
+		}
+		return new TransposedView(matrix);
+	}
+
+	/**
+	 * Get a view of a rectangular block of the given matrix.
+	 * @param matrix - any matrix.
+	 * @param rowStart - the first row of the block.
+	 * @param colStart - the first column of the block.
+	 * @param mRows - number of rows in the block.
+	 * @param nCols - number of columns in the block.
+	 * @return an mRows x nCols view.
+	 */
+	public static MatrixView submatrix(HSMatrix matrix, int rowStart, int colStart, int mRows, int nCols) {
+		return slice(matrix, rowStart, mRows, 1, colStart, nCols, 1);
+	}
+
+	/**
+	 * Get a view of every step-th row of the given matrix, from rowStart.
+	 * @param matrix - any matrix.
+	 * @param rowStart - the first row.
+	 * @param count - the number of rows in the view.
+	 * @param step - the distance between rows, at least 1.
+	 * @return a count x n view.
+	 */
+	public static MatrixView rows(HSMatrix matrix, int rowStart, int count, int step) {
+		return slice(matrix, rowStart, count, step, 0, matrix.columnSize(), 1);
+	}
+
+	/**
+	 * Get a view of every step-th column of the given matrix, from colStart.
+	 * @param matrix - any matrix.
+	 * @param colStart - the first column.
+	 * @param count - the number of columns in the view.
+	 * @param step - the distance between columns, at least 1.
+	 * @return an m x count view.
+	 */
+	public static MatrixView columns(HSMatrix matrix, int colStart, int count, int step) {
+		return slice(matrix, 0, matrix.rowSize(), 1, colStart, count, step);
+	}
+
+	/**
+	 * Get a view of one row of the given matrix, as a 1 x n matrix.
+	 */
+	public static MatrixView row(HSMatrix matrix, int index) {
+		return rows(matrix, index, 1, 1);
+	}
+
+	/**
+	 * Get a view of one column of the given matrix, as an m x 1 matrix.
+	 */
+	public static MatrixView column(HSMatrix matrix, int index) {
+		return columns(matrix, index, 1, 1);
+	}
+
+	/**
+	 * Get a view of every rowStep-th of rowCount rows from rowStart,
+	 * and of every colStep-th of colCount columns from colStart, of the given matrix.
+	 * @return a rowCount x colCount view.
+	 */
+	public static MatrixView slice(HSMatrix matrix, int rowStart, int rowCount, int rowStep,
+								   int colStart, int colCount, int colStep) {
+		checkRange(rowStart, rowCount, rowStep, matrix.rowSize());
+		checkRange(colStart, colCount, colStep, matrix.columnSize());
+		return new SliceView(matrix, rowStart, rowCount, rowStep, colStart, colCount, colStep);
+	}
+
+	private static void checkRange(int start, int count, int step, int size) {
+		if (count < 0 || step < 1)
+			throw new IllegalArgumentException("A slice needs a non-negative count and a positive step.");
+		if (count > 0) {
+			Objects.checkIndex(start, size);
+			Objects.checkIndex(start + (long) (count - 1) * step, (long) size);
+		}
+	}
+
+	/**
+	 * Get the strided array layout of a matrix over dense storage, or null if it has none.
+	 */
+	static StridedLayout layoutOf(HSMatrix matrix) {
+		if (matrix instanceof DenseMatrix)
+			return ((DenseMatrix) matrix).layout();
+		if (matrix instanceof MatrixView)
+			return ((MatrixView) matrix).layout();
+		if (matrix instanceof InstrumentedMatrix)
+			return layoutOf(((InstrumentedMatrix) matrix).delegate);
+		return null;
+	}
+
+	/**
+	 * Get the operand of an in-place update of the target, copied to a DenseMatrix if it is a view of the target.
+	 * Updating the target entry by entry or row by row would otherwise change entries of the view not yet read,
+	 * as with a transpose or a shifted block of the target.
+	 */
+	static HSMatrix detachedFrom(HSMatrix operand, HSMatrix target) {
+		HSMatrix matrix = InstrumentedMatrix.unwrap(operand);
+		while (matrix instanceof MatrixView) {
+			matrix = InstrumentedMatrix.unwrap(((MatrixView) matrix).parent);
+			if (matrix == target)
+				return new DenseMatrix(operand);
+		}
+		return operand;
+	}
+
+	/**
+	 * Get the strided array layout of this view, or null if its parent is not over dense storage.
+	 * A view keeps its layout for as long as its parent's layout stays the same.
+	 */
+	abstract StridedLayout layout();
+
+	/**
+	 * Make an independent compact copy of the entries of this view.
+	 * @return a new DenseMatrix with this view's entries.
+	 */
+	public DenseMatrix materialize() {
+		return new DenseMatrix(this);
+	}
+
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return rowSize() == matrix.rowSize() && columnSize() == matrix.columnSize();
+	}
+
+	/**
+	 * Get the row of the matrix with the given index.
+	 * @param index of the desired row
+	 * @return an unmodifiable copy of the desired row.
+	 */
+	@Override
+	public List<Float> getRow(int index) {
+		return Collections.unmodifiableList(getRowCopy(index));
+	}
+
+	@Override
+	public List<Float> getRowCopy(int index) {
+		float[] row = new float[columnSize()];
+		copyRowInto(index, row, 0);
+		List<Float> theRow = new ArrayList<>(row.length);
+		for (float value : row) {
+			theRow.add(value);
+		}
+		return theRow;
+	}
+
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		float[] column = new float[rowSize()];
+		copyColumnInto(colIndex, column, 0);
+		List<Float> theColumn = new ArrayList<>(column.length);
+		for (float value : column) {
+			theColumn.add(value);
+		}
+		return theColumn;
+	}
+
+	@Override
+	public Float getEntry(int row, int column) {
+		return getFloat(row, column);
+	}
+
+	/**
+	 * Indicates whether the given matrix is equal to this matrix, comparing a row at a time.
+	 * An integer matrix is compared as {@link IntMatrix#equals(HSMatrix)} does.
+	 */
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			return false;
+		IntMatrix integers = IntMatrix.integersOf(matrix);
+		if (integers != null)
+			return integers.equals(this);
+		float[] thisRow = new float[columnSize()];
+		float[] givenRow = new float[columnSize()];
+		for (int r = 0; r < rowSize(); r++) {
+			copyRowInto(r, thisRow, 0);
+			matrix.copyRowInto(r, givenRow, 0);
+			if (!Arrays.equals(thisRow, givenRow))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(contentHash());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		float[] row = new float[columnSize()];
+		for (int r = 0; r < rowSize(); ++r) {
+			copyRowInto(r, row, 0);
+			for (float value : row) {
+				sb.append(value);
+				sb.append('\t');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A view's copy is its materialized, compact form.
+	 * @return a new DenseMatrix with this view's entries.
+	 */
+	@Override
+	public HSMatrix clone() {
+		return materialize();
+	}
+
+	/**
+	 * Returns a view of the transpose of this view, still without copying.
+	 */
+	@Override
+	public HSMatrix transpose() {
+		return transposed(this);
+	}
+
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		DenseMutableMatrix sum = new DenseMutableMatrix(this);
+		sum.add(matrix);
+		return sum;
+	}
+
+	@Override
+	public Float sumRow(int rowIndex) {
+		float[] row = new float[columnSize()];
+		copyRowInto(rowIndex, row, 0);
+		float sum = 0.0f;
+		for (float value : row) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	@Override
+	public Float sumColumn(int colIndex) {
+		float[] column = new float[rowSize()];
+		copyColumnInto(colIndex, column, 0);
+		float sum = 0.0f;
+		for (float value : column) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	@Override
+	public HSMatrix times(Float scalar) {
+		DenseMutableMatrix scaled = new DenseMutableMatrix(this);
+		scaled.scaleBy(scalar);
+		return scaled;
+	}
+
+	@Override
+	public HSMatrix negative() {
+		return this.times(-1.0f);
+	}
+
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		DenseMutableMatrix difference = new DenseMutableMatrix(this);
+		difference.subtract(matrix);
+		return difference;
+	}
+
+	/**
+	 * Multiplies this view by the given matrix with the default {@link TiledMultiplier},
+	 * reading this view's entries in place when it is over dense storage.
+	 */
+	@Override
+	public HSMatrix times(HSMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		int p = matrixB.columnSize();
+		return new DenseMatrix(rowSize(), p, TiledMultiplier.getDefault().multiply(this, matrixB), 0, p);
+	}
+}
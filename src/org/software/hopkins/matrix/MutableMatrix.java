@@ -3,6 +3,11 @@ package org.software.hopkins.matrix;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A {@link Matrix} whose entries can be changed in place.
+ * Once its content hash has been computed, every change to an entry updates it in O(1),
+ * so it stays ready for comparing and hashing however the matrix changes.
+ */
 public class MutableMatrix extends Matrix implements HSMutableMatrix {
 	/**
 	 * Constructor
@@ -26,7 +31,20 @@ public class MutableMatrix extends Matrix implements HSMutableMatrix {
 	@Override
 	public void setEntry(int row, int column, Float value) {
 		List<Float> theRow = matrixImpl.get(row);
-		theRow.set(column, value);
+		entryChanged(row, column, theRow.set(column, value), value);
+	}
+
+	/**
+	 * Set the entry's value at the given row and column.
+	 * The entry is stored boxed, so the value is boxed here.
+	 *
+	 * @param row    the entry's row index
+	 * @param column the entry's column index
+	 * @param value  the new value of the entry
+	 */
+	@Override
+	public void setFloat(int row, int column, float value) {
+		entryChanged(row, column, matrixImpl.get(row).set(column, value), value);
 	}
 
 	/**
@@ -36,9 +54,10 @@ public class MutableMatrix extends Matrix implements HSMutableMatrix {
 	 */
 	@Override
 	public void fill(Float value) {
-		for (List<Float> row : matrixImpl) {
+		for (int r = 0; r < rows; r++) {
+			List<Float> row = matrixImpl.get(r);
 			for (int c = 0; c < cols; c++) {
-				row.set(c, value);
+				entryChanged(r, c, row.set(c, value), value);
 			}
 		}
 	}
@@ -54,7 +73,8 @@ public class MutableMatrix extends Matrix implements HSMutableMatrix {
 	public void setValuesIncrementedFrom(Float start) {
 		for (int r = 0; r < rows; ++r) {
 			for (int c = 0; c < cols; ++c) {
-				matrixImpl.get(r).set(c, start++);
+				Float value = start++;
+				entryChanged(r, c, matrixImpl.get(r).set(c, value), value);
 			}
 		}
 	}
@@ -67,7 +87,31 @@ public class MutableMatrix extends Matrix implements HSMutableMatrix {
 	 */
 	@Override
 	public void setRow(int index, final List<Float> newRow) {
-		matrixImpl.set(index, new ArrayList<>(newRow));
+		List<Float> copy = new ArrayList<>(newRow);
+		List<Float> old = matrixImpl.set(index, copy);
+		if (copy.size() != cols) {
+			contentChanged();
+			return;
+		}
+		for (int c = 0; c < cols; c++) {
+			entryChanged(index, c, old.get(c), copy.get(c));
+		}
+	}
+
+	/**
+	 * Sets the row in the matrix with the given index to the values of the given array.
+	 *
+	 * @param index  of the row to set
+	 * @param newRow the new values; must have as many values as the matrix has columns.
+	 */
+	@Override
+	public void setRow(int index, float[] newRow) {
+		if (newRow.length != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		List<Float> theRow = matrixImpl.get(index);
+		for (int c = 0; c < cols; c++) {
+			entryChanged(index, c, theRow.set(c, newRow[c]), newRow[c]);
+		}
 	}
 
 	/**
@@ -100,44 +144,54 @@ public class MutableMatrix extends Matrix implements HSMutableMatrix {
 	public void add(HSMatrix matrix) {
 		if (!isSameOrder(matrix))
 			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
-		else {
-			for (int i = 0; i < rows; ++i) {
-				List<Float> thisCurRow = getRowCopy(i);
-				List<Float> givenCurRow = matrix.getRow(i);
-				for (int j = 0; j < cols; ++j) {
-					thisCurRow.set(j, thisCurRow.get(j) + givenCurRow.get(j));
-				}
-				setRow(i, thisCurRow);
-			}
-		}
+		accumulate(matrix, 1.0f);
 	}
 
 	@Override
 	public void subtract(HSMatrix matrix) {
 		if (!isSameOrder(matrix))
 			throw new IllegalArgumentException("Cannot subtract the given matrix. It is not the same order as this matrix.");
-		else {
-			for (int i = 0; i < rows; ++i) {
-				List<Float> thisCurRow = getRowCopy(i);
-				List<Float> givenCurRow = matrix.getRow(i);
-				for (int j = 0; j < cols; ++j) {
-					thisCurRow.set(j, thisCurRow.get(j) - givenCurRow.get(j));
-				}
-				setRow(i, thisCurRow);
-			}
+		accumulate(matrix, -1.0f);
+	}
+
+	/**
+	 * this += factor * matrix, updating each row list in place rather than copying and replacing it.
+	 * Each row is unboxed into an array and updated there by {@link ElementwiseKernels}; both rows are
+	 * copied before either is changed, so the matrix may be this one. A view of this matrix is copied first.
+	 */
+	private void accumulate(HSMatrix matrix, float factor) {
+		matrix = MatrixView.detachedFrom(matrix, this);
+		float[] thisRow = new float[cols];
+		float[] givenRow = new float[cols];
+		for (int i = 0; i < rows; ++i) {
+			copyRowInto(i, thisRow, 0);
+			matrix.copyRowInto(i, givenRow, 0);
+			ElementwiseKernels.addScaled(factor, givenRow, 0, thisRow, 0, cols);
+			setRow(i, thisRow);
 		}
 	}
 
 	@Override
 	public void scaleBy(float scalar) {
-		for (int r = 0; r < rows; ++r) {
-			for (int c = 0; c < cols; ++c) {
-				Float element = this.getEntry(r, c);
-				this.setEntry(r, c, element * scalar);
-			}
+		float[] curRow = new float[cols];
+		for (int r = 0; r < rows; r++) {
+			copyRowInto(r, curRow, 0);
+			ElementwiseKernels.scale(curRow, 0, scalar, curRow, 0, cols);
+			setRow(r, curRow);
 		}
 	}
 
+	/**
+	 * this += alpha * x, in place.
+	 * The entries are stored boxed, so each new value is still boxed.
+	 */
+	@Override
+	public void axpy(float alpha, HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(x, alpha);
+	}
+
 	/**
 	 * Multiplies this mxn matrix A by the given nxp matrix B (A rows == B columns) and
 	 * changing this matrix to a mxp product matrix C.
@@ -149,38 +203,42 @@ public class MutableMatrix extends Matrix implements HSMutableMatrix {
 		if (this.columnSize() != matrixB.rowSize()) {
 			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
 		} else {
-			HSMatrix matrixA = this.clone();
-			rows = matrixA.rowSize();
+			float[] product = TiledMultiplier.getDefault().multiply(this, matrixB);
 			cols = matrixB.columnSize();
-			matrixImpl.clear();
-			for (int i = 0; i < this.rowSize(); i++) {
-				matrixImpl.add(new ArrayList<>(this.columnSize()));
-				for (int j = 0; j < this.columnSize(); j++) {
-					float Cij = 0.0f;
-					for (int c = 0; c < matrixA.columnSize(); c++) {
-						Cij += matrixA.getEntry(i, c) * matrixB.getEntry(c, j);
-					}
-					matrixImpl.get(i).add(Cij);
-				}
-			}
+			matrixImpl = toRowLists(rows, cols, product);
+			contentChanged();
 		}
 	}
 
 	/**
 	 * Inverts or transposes this matrix so that its columns and rows are interchanged.
+	 * A square matrix is transposed in place, without allocating.
 	 */
 	@Override
 	public void invert() {
-		HSMatrix matrixCopy = this.clone();
-		rows = matrixCopy.columnSize();
-		cols = matrixCopy.rowSize();
+		if (rows == cols) {
+			transposeSquareInPlace();
+			return;
+		}
+		List<List<Float>> transposedMatrix = transposedRows();
+		int oldRows = rows;
+		rows = cols;
+		cols = oldRows;
 		matrixImpl.clear();
-		for (int r = 0; r < rows; r++) {
-			List<Float> curRow = new ArrayList<>(cols);
-			for (int c = 0; c < cols; c++) {
-				curRow.add(matrixCopy.getEntry(c, r));
-			}
-			matrixImpl.add(curRow);
+		matrixImpl.addAll(transposedMatrix);
+		contentChanged();
+	}
+
+	/**
+	 * Keep the content hash up to date after the entry at (row, column) changed from oldValue to newValue.
+	 */
+	private void entryChanged(int row, int column, Float oldValue, Float newValue) {
+		if (!hashed)
+			return;
+		if (oldValue == null || newValue == null) {
+			contentChanged();
+			return;
 		}
+		entryHashes += ContentHash.entry(row, column, newValue) - ContentHash.entry(row, column, oldValue);
 	}
 }
@@ -0,0 +1,264 @@
+package org.software.hopkins.matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A dense row-major matrix stored outside the Java heap, in direct buffers.
+ * Suits matrices of many gigabytes, which it keeps out of the garbage collector's way,
+ * including ones of more than 2^31 entries. See {@link FloatBufferMatrix} for the storage
+ * and its lifecycle: close the matrix, and every matrix its operations return, when done with it.
+ * Like the other matrices, an OffHeapMatrix is not safe for concurrent mutation.
+ */
+public class OffHeapMatrix extends FloatBufferMatrix implements HSMutableMatrix {
+	private float[][] rowBuffers;
+
+	/**
+	 * Create an m x n matrix of zeros.
+	 * @param mRows - number of rows
+	 * @param nCols - number of columns
+	 */
+	public OffHeapMatrix(int mRows, int nCols) {
+		this(mRows, nCols, DEFAULT_CHUNK_FLOATS);
+	}
+
+	/**
+	 * Create an off-heap copy of the given matrix.
+	 * @param matrix - any matrix.
+	 */
+	public OffHeapMatrix(HSMatrix matrix) {
+		this(matrix.rowSize(), matrix.columnSize());
+		float[] row = new float[cols];
+		for (int r = 0; r < rows; r++) {
+			matrix.copyRowInto(r, row, 0);
+			setRow(r, row);
+		}
+	}
+
+	/**
+	 * Create an m x n matrix of zeros in chunks of at most chunkFloats floats
+	 * (or one row per chunk, for rows longer than that).
+	 */
+	OffHeapMatrix(int mRows, int nCols, int chunkFloats) {
+		super(mRows, nCols, chunkFloats);
+		int chunkCount = (mRows + rowsPerChunk - 1) / rowsPerChunk;
+		scope = BufferScope.open();
+		buffers = new ByteBuffer[chunkCount];
+		chunks = new FloatBuffer[chunkCount];
+		try {
+			for (int i = 0; i < chunkCount; i++) {
+				int chunkRows = Math.min(rowsPerChunk, mRows - i * rowsPerChunk);
+				buffers[i] = scope.allocate(chunkRows * nCols * Float.BYTES);
+				chunks[i] = buffers[i].asFloatBuffer();
+			}
+		} catch (Throwable e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Take over the storage of another matrix of the same chunk size, releasing this matrix's own.
+	 */
+	private void replaceWith(OffHeapMatrix other) {
+		close();
+		rows = other.rows;
+		cols = other.cols;
+		rowsPerChunk = other.rowsPerChunk;
+		scope = other.scope;
+		buffers = other.buffers;
+		chunks = other.chunks;
+		other.scope = null;
+		other.buffers = null;
+		other.chunks = null;
+	}
+
+	/*
+	  HSMutableMatrix Interface Implementation
+	 */
+
+	@Override
+	public void setEntry(int row, int column, Float value) {
+		setFloat(row, column, value);
+	}
+
+	@Override
+	public void setFloat(int row, int column, float value) {
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(column, cols);
+		chunk(row).put(base(row) + column, value);
+	}
+
+	@Override
+	public void fill(Float value) {
+		float[] row = new float[cols];
+		Arrays.fill(row, value);
+		for (int r = 0; r < rows; r++) {
+			chunk(r).put(base(r), row, 0, cols);
+		}
+	}
+
+	@Override
+	public void setValuesIncrementedFrom(Float start) {
+		float[] row = new float[cols];
+		float value = start;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				row[c] = value++;
+			}
+			chunk(r).put(base(r), row, 0, cols);
+		}
+	}
+
+	@Override
+	public void setRow(int index, List<Float> newRow) {
+		float[] row = new float[newRow.size()];
+		for (int c = 0; c < row.length; c++) {
+			row[c] = newRow.get(c);
+		}
+		setRow(index, row);
+	}
+
+	@Override
+	public void setRow(int index, float[] newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.length != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		chunk(index).put(base(index), newRow, 0, cols);
+	}
+
+	@Override
+	public void setColumn(int colIndex, List<Float> values) {
+		int indexLimit = Math.min(values.size(), rows);
+		for (int r = 0; r < indexLimit; ++r) {
+			setFloat(r, colIndex, values.get(r));
+		}
+	}
+
+	@Override
+	public void add(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(1.0f, matrix, 0, 0);
+	}
+
+	@Override
+	public void subtract(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot subtract the given matrix. It is not the same order as this matrix.");
+		accumulate(-1.0f, matrix, 0, 0);
+	}
+
+	/**
+	 * Add factor * matrix to the block of this matrix whose top-left entry is at (rowStart, colStart),
+	 * a row at a time through the shared kernels. Each row of the block is read into a row buffer, updated by the shared kernels and written back.
+	 */
+	private void accumulate(float factor, HSMatrix matrix, int rowStart, int colStart) {
+		matrix = MatrixView.detachedFrom(matrix, this);
+		int nCols = matrix.columnSize();
+		float[][] buffers = rowBuffers();
+		float[] row = buffers[0];
+		float[] given = buffers[1];
+		for (int r = 0; r < matrix.rowSize(); r++) {
+			FloatBuffer chunk = chunk(rowStart + r);
+			int base = base(rowStart + r) + colStart;
+			chunk.get(base, row, 0, nCols);
+			matrix.copyRowInto(r, given, 0);
+			if (factor == 1.0f)
+				ElementwiseKernels.addInPlace(given, 0, row, 0, nCols);
+			else if (factor == -1.0f)
+				ElementwiseKernels.subtractInPlace(given, 0, row, 0, nCols);
+			else
+				ElementwiseKernels.addScaled(factor, given, 0, row, 0, nCols);
+			chunk.put(base, row, 0, nCols);
+		}
+	}
+
+	/**
+	 * Two heap row buffers for the in-place updates, kept between updates so that they don't allocate.
+	 */
+	private float[][] rowBuffers() {
+		if (rowBuffers == null || rowBuffers[0].length != cols)
+			rowBuffers = new float[2][cols];
+		return rowBuffers;
+	}
+
+	@Override
+	public void scaleBy(float scalar) {
+		float[] row = rowBuffers()[0];
+		for (int r = 0; r < rows; r++) {
+			copyRowInto(r, row, 0);
+			ElementwiseKernels.scale(row, 0, scalar, row, 0, cols);
+			chunk(r).put(base(r), row, 0, cols);
+		}
+	}
+
+	@Override
+	public void axpy(float alpha, HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		accumulate(alpha, x, 0, 0);
+	}
+
+	@Override
+	public void addScaled(float alpha, HSMatrix x, int rowStart, int colStart) {
+		Objects.checkFromIndexSize(rowStart, x.rowSize(), rows);
+		Objects.checkFromIndexSize(colStart, x.columnSize(), cols);
+		accumulate(alpha, x, rowStart, colStart);
+	}
+
+	@Override
+	public void hadamardInPlace(HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot multiply by the given matrix entry by entry. It is not the same order as this matrix.");
+		x = MatrixView.detachedFrom(x, this);
+		float[][] buffers = rowBuffers();
+		for (int r = 0; r < rows; r++) {
+			copyRowInto(r, buffers[0], 0);
+			x.copyRowInto(r, buffers[1], 0);
+			ElementwiseKernels.multiplyInPlace(buffers[1], 0, buffers[0], 0, cols);
+			chunk(r).put(base(r), buffers[0], 0, cols);
+		}
+	}
+
+	/**
+	 * Multiplies this matrix by the given one, replacing (and releasing) this matrix's storage with the product's.
+	 */
+	@Override
+	public void multiplyBy(HSMatrix matrixB) {
+		replaceWith((OffHeapMatrix) times(matrixB));
+	}
+
+	/**
+	 * Transposes this matrix. A square matrix is transposed in place, swapping the entries
+	 * above the diagonal with their mirrors in square tiles; any other matrix's storage
+	 * is replaced (and released) with the transpose's.
+	 */
+	@Override
+	public void invert() {
+		if (rows != cols) {
+			replaceWith((OffHeapMatrix) transpose());
+			return;
+		}
+		for (int rowStart = 0; rowStart < rows; rowStart += TRANSPOSE_TILE) {
+			int rowEnd = Math.min(rows, rowStart + TRANSPOSE_TILE);
+			for (int colStart = rowStart; colStart < cols; colStart += TRANSPOSE_TILE) {
+				int colEnd = Math.min(cols, colStart + TRANSPOSE_TILE);
+				for (int r = rowStart; r < rowEnd; r++) {
+					FloatBuffer row = chunk(r);
+					int rowBase = base(r);
+					for (int c = Math.max(colStart, r + 1); c < colEnd; c++) {
+						FloatBuffer mirror = chunk(c);
+						int mirrorIndex = base(c) + r;
+						float upper = row.get(rowBase + c);
+						row.put(rowBase + c, mirror.get(mirrorIndex));
+						mirror.put(mirrorIndex, upper);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package org.software.hopkins.matrix;
+
+/**
+ * What {@link MatrixMetrics} has recorded of one operation, as of when it was read.
+ * The floating-point operations and bytes touched are estimates from the orders of the operands;
+ * the bytes allocated are measured, on the calling thread only, where the JVM supports it.
+ */
+public final class OperationMetrics {
+	private final long calls;
+	private final long flops;
+	private final long bytesTouched;
+	private final long bytesAllocated;
+	private final long totalNanos;
+	private final long medianNanos, p90Nanos, p99Nanos, p999Nanos, maxNanos;
+
+	OperationMetrics(long calls, long flops, long bytesTouched, long bytesAllocated, long totalNanos, long maxNanos,
+					 long[] latencies) {
+		this.calls = calls;
+		this.flops = flops;
+		this.bytesTouched = bytesTouched;
+		this.bytesAllocated = bytesAllocated;
+		this.totalNanos = totalNanos;
+		this.medianNanos = Math.min(maxNanos, LatencyHistogram.percentile(latencies, 0.5));
+		this.p90Nanos = Math.min(maxNanos, LatencyHistogram.percentile(latencies, 0.9));
+		this.p99Nanos = Math.min(maxNanos, LatencyHistogram.percentile(latencies, 0.99));
+		this.p999Nanos = Math.min(maxNanos, LatencyHistogram.percentile(latencies, 0.999));
+		this.maxNanos = maxNanos;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getFlops() {
+		return flops;
+	}
+
+	public long getBytesTouched() {
+		return bytesTouched;
+	}
+
+	public long getBytesAllocated() {
+		return bytesAllocated;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public long getMeanNanos() {
+		return calls == 0 ? 0 : totalNanos / calls;
+	}
+
+	/**
+	 * The percentiles are the longest duration of the histogram bucket they fall in, or the longest duration
+	 * recorded if that is shorter, so they are at most 1/16 over the true value.
+	 */
+	public long getMedianNanos() {
+		return medianNanos;
+	}
+
+	public long getP90Nanos() {
+		return p90Nanos;
+	}
+
+	public long getP99Nanos() {
+		return p99Nanos;
+	}
+
+	public long getP999Nanos() {
+		return p999Nanos;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	@Override
+	public String toString() {
+		return calls + " calls, mean " + getMeanNanos() + " ns, p50 " + medianNanos + " ns, p99 " + p99Nanos
+				+ " ns, max " + maxNanos + " ns, " + flops + " flops, " + bytesTouched + " bytes touched, "
+				+ bytesAllocated + " bytes allocated";
+	}
+}
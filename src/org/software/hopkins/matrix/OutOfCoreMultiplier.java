@@ -0,0 +1,415 @@
+package org.software.hopkins.matrix;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Multiplies matrices whose operands and product together are too big for the heap,
+ * keeping them in files and only a few tiles of them in memory at a time.
+ * <p>
+ * The operands are first copied into scratch files as tiles, A in tiles of tileRows x tileDepth entries
+ * and B in tiles of tileDepth x tileColumns, each stored contiguously so that it is read back in one sequential
+ * read. Then each tileRows x tileColumns tile of C stays in memory while the row of A tiles and the column of
+ * B tiles it needs are streamed past it, and is written to the result file once complete. A prefetching thread
+ * reads the next pair of tiles while the current pair is multiplied, and a tile still in memory from the step
+ * before is used again rather than read again.
+ * <p>
+ * The tiles are sized so that a tile of C and two tiles of each operand fit the memory budget, with the tile
+ * of C as large as possible, because each A tile is read once for every column of C tiles and each B tile
+ * once for every row. They are multiplied by the default {@link TiledMultiplier}, and the depth of a tile is
+ * a multiple of its depth block, so the product is identical, bit for bit, to the in-memory product.
+ */
+public final class OutOfCoreMultiplier {
+	/** Bytes moved between a file and a tile by each read or write. */
+	private static final int IO_BUFFER_BYTES = 1 << 20;
+	/** The most entries a tile can have: the most a float array can hold. */
+	private static final long MAX_TILE_FLOATS = Integer.MAX_VALUE - 8;
+	/** The longest side of a square tile of at most MAX_TILE_FLOATS entries. */
+	private static final long MAX_TILE_SIDE = (long) Math.sqrt(MAX_TILE_FLOATS);
+
+	private final long memoryBudget;
+	private final Path scratchDirectory;
+	/** The multiplier for the tiles, or null for the default multiplier at the time of each product. */
+	private final TiledMultiplier multiplier;
+
+	/**
+	 * Create a multiplier that may use half the maximum heap and keeps its scratch files in the
+	 * default temporary directory.
+	 */
+	public OutOfCoreMultiplier() {
+		this(Runtime.getRuntime().maxMemory() / 2);
+	}
+
+	/**
+	 * Create a multiplier that keeps its scratch files in the default temporary directory.
+	 * @param memoryBudget - the bytes of heap the tiles may take.
+	 */
+	public OutOfCoreMultiplier(long memoryBudget) {
+		this(memoryBudget, Path.of(System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * Create a multiplier.
+	 * @param memoryBudget - the bytes of heap the tiles may take.
+	 * @param scratchDirectory - where to keep the tiled copies of the operands while multiplying;
+	 *                         they take as much disk as the operands.
+	 */
+	public OutOfCoreMultiplier(long memoryBudget, Path scratchDirectory) {
+		this(memoryBudget, scratchDirectory, null);
+	}
+
+	OutOfCoreMultiplier(long memoryBudget, Path scratchDirectory, TiledMultiplier multiplier) {
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException("The memory budget must be positive.");
+		if (scratchDirectory == null)
+			throw new IllegalArgumentException("The scratch directory can't be null.");
+		this.memoryBudget = memoryBudget;
+		this.scratchDirectory = scratchDirectory;
+		this.multiplier = multiplier;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public Path getScratchDirectory() {
+		return scratchDirectory;
+	}
+
+	/**
+	 * Multiply the matrix in one file by the matrix in another, writing the product to a third.
+	 * @param left - a matrix file of m x n entries.
+	 * @param right - a matrix file of n x p entries.
+	 * @param result - the file to write the m x p product to, replacing any file there;
+	 *               it must not be either operand's file.
+	 * @throws IOException if an operand is not a matrix file, or a file can't be read or written.
+	 * @throws IllegalArgumentException if the result file is either operand's file, which writing would overwrite.
+	 */
+	public void multiply(Path left, Path right, Path result) throws IOException {
+		if (Files.exists(result) && (Files.isSameFile(left, result) || Files.isSameFile(right, result)))
+			throw new IllegalArgumentException("The product can't be written to an operand's file.");
+		try (MappedMatrix a = MatrixFile.map(left); MappedMatrix b = MatrixFile.map(right)) {
+			multiply(a, b, result);
+		}
+	}
+
+	/**
+	 * Multiply two matrices of any kind, such as mapped matrix files, writing the product to a file.
+	 * @param matrixA - the m x n left operand.
+	 * @param matrixB - an n x p matrix.
+	 * @param result - the file to write the m x p product to, replacing any file there.
+	 * @throws IOException if a scratch file or the result can't be written.
+	 */
+	public void multiply(HSMatrix matrixA, HSMatrix matrixB, Path result) throws IOException {
+		if (matrixA.columnSize() != matrixB.rowSize())
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		int m = matrixA.rowSize();
+		int n = matrixA.columnSize();
+		int p = matrixB.columnSize();
+		if (m == 0 || n == 0 || p == 0) {
+			writeZeros(result, m, p);
+			return;
+		}
+		TiledMultiplier engine = multiplier != null ? multiplier : TiledMultiplier.getDefault();
+		Tiling tiling = tiling(m, n, p, engine.getDepthBlock());
+		try (FileChannel aTiles = openScratch("a");
+			 FileChannel bTiles = openScratch("b");
+			 FileChannel out = FileChannel.open(result, StandardOpenOption.CREATE,
+					 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer io = newIoBuffer();
+			long budgetFloats = memoryBudget / Float.BYTES;
+			writeTiles(matrixA, tiling.rows, tiling.depth, aTiles, budgetFloats, io);
+			writeTiles(matrixB, tiling.depth, tiling.cols, bTiles, budgetFloats, io);
+			new Schedule(engine, tiling, m, n, p, aTiles, bTiles, out, io).run();
+			CRC32 crc = new CRC32();
+			long end = MatrixFile.HEADER_BYTES + (long) m * p * Float.BYTES;
+			for (long position = MatrixFile.HEADER_BYTES; position < end; position += io.limit()) {
+				io.clear().limit((int) Math.min(io.capacity(), end - position));
+				readFully(out, io, position);
+				crc.update(io.flip());
+			}
+			MatrixFile.writeHeader(out, m, p, (int) crc.getValue());
+		}
+	}
+
+	/**
+	 * The sides of the tiles a product is computed in: tiles of A are rows x depth, of B depth x cols,
+	 * and of C rows x cols.
+	 */
+	static final class Tiling {
+		final int rows, depth, cols;
+
+		Tiling(int rows, int depth, int cols) {
+			this.rows = rows;
+			this.depth = depth;
+			this.cols = cols;
+		}
+	}
+
+	/**
+	 * Choose the tiles for an m x n by n x p product, so that a tile of C and two tiles of each operand
+	 * fit the memory budget.
+	 * @throws IllegalArgumentException if the budget can't hold even single-row tiles.
+	 */
+	Tiling tiling(int m, int n, int p, int depthBlock) {
+		long floats = memoryBudget / Float.BYTES;
+		// Deep tiles mean fewer, longer reads; a quarter of the side of C's tile leaves most of the budget to C.
+		long side = Math.min(MAX_TILE_SIDE, (long) Math.sqrt(floats / 2.0));
+		int depth = (int) Math.min(n, Math.max(depthBlock, side / 4 / depthBlock * depthBlock));
+		// The side s of a square tile of C with two tiles of each operand: s * s + 4 * s * depth = floats.
+		side = Math.min(MAX_TILE_SIDE, (long) (Math.sqrt(4.0 * depth * depth + floats) - 2.0 * depth));
+		if (side < 1)
+			throw new IllegalArgumentException("A memory budget of " + memoryBudget
+					+ " bytes can't hold tiles " + depth + " entries deep.");
+		// A short A or a narrow B leaves room to widen the other side of C's tile.
+		long rows = Math.min(m, side);
+		long cols = Math.min(p, Math.min(MAX_TILE_FLOATS / Math.max(rows, depth),
+				(floats - 2 * rows * depth) / (rows + 2L * depth)));
+		cols = Math.max(1, cols);
+		rows = Math.min(m, Math.min(MAX_TILE_FLOATS / Math.max(cols, depth),
+				Math.max(rows, (floats - 2 * cols * depth) / (cols + 2L * depth))));
+		return new Tiling((int) rows, depth, (int) cols);
+	}
+
+	private FileChannel openScratch(String operand) throws IOException {
+		Path path = Files.createTempFile(scratchDirectory, "hsmatrix-" + operand, ".tiles");
+		return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	private static ByteBuffer newIoBuffer() {
+		return ByteBuffer.allocateDirect(IO_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void writeZeros(Path result, int m, int p) throws IOException {
+		try (MatrixFile.Writer writer = MatrixFile.newWriter(result, m, p)) {
+			float[] row = new float[p];
+			for (int r = 0; r < m; r++) {
+				writer.writeRow(row);
+			}
+		}
+	}
+
+	/**
+	 * Get where a tile of a matrix tiled in bands of bandRows rows and tiles of tileCols columns starts
+	 * in its scratch file, in entries. The bands are stored in order, and within a band its tiles,
+	 * each row-major.
+	 */
+	private static long tileStart(int bandStart, int colStart, int bandRows, int rows, int cols) {
+		int rowsInBand = Math.min(bandRows, rows - bandStart);
+		return (long) bandStart * cols + (long) rowsInBand * colStart;
+	}
+
+	/**
+	 * Copy a matrix into a scratch file as tiles, reading as many of its rows at a time as the budget holds.
+	 */
+	private static void writeTiles(HSMatrix matrix, int bandRows, int tileCols, FileChannel tiles,
+								   long budgetFloats, ByteBuffer io) throws IOException {
+		int rows = matrix.rowSize();
+		int cols = matrix.columnSize();
+		int group = (int) Math.max(1, Math.min(bandRows, Math.min(budgetFloats, MAX_TILE_FLOATS) / cols));
+		float[] buffer = new float[group * cols];
+		for (int bandStart = 0, bandEnd; bandStart < rows; bandStart = bandEnd) {
+			bandEnd = bandStart + Math.min(bandRows, rows - bandStart);
+			for (int groupStart = bandStart, count; groupStart < bandEnd; groupStart += count) {
+				count = Math.min(group, bandEnd - groupStart);
+				for (int r = 0; r < count; r++) {
+					matrix.copyRowInto(groupStart + r, buffer, r * cols);
+				}
+				for (int colStart = 0, width; colStart < cols; colStart += width) {
+					width = Math.min(tileCols, cols - colStart);
+					long start = tileStart(bandStart, colStart, bandRows, rows, cols)
+							+ (long) (groupStart - bandStart) * width;
+					for (int r = 0; r < count; r++) {
+						writeFloats(tiles, (start + (long) r * width) * Float.BYTES, buffer, r * cols + colStart, width, io);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes C a tile at a time, in the order of its rows of tiles, then its columns of tiles,
+	 * then the depth of A and B, so each tile of C is complete when the last pair of tiles has been added to it.
+	 */
+	private static final class Schedule {
+		private final TiledMultiplier engine;
+		private final Tiling tiling;
+		private final int m, n, p;
+		private final int colTiles, depthTiles;
+		private final long steps;
+		private final FileChannel aTiles, bTiles, out;
+		private final ByteBuffer writeBuffer;
+		private final ByteBuffer readBuffer = newIoBuffer();
+		private final ExecutorService prefetcher = StreamingMultiplier.newPrefetcher();
+		private final float[] c;
+		private final float[][] aBuffers, bBuffers;
+		/** The step whose A and B tiles each buffer holds or is being read with, or -1. */
+		private final long[] aHeld = {-1, -1}, bHeld = {-1, -1};
+
+		Schedule(TiledMultiplier engine, Tiling tiling, int m, int n, int p,
+				 FileChannel aTiles, FileChannel bTiles, FileChannel out, ByteBuffer writeBuffer) {
+			this.engine = engine;
+			this.tiling = tiling;
+			this.m = m;
+			this.n = n;
+			this.p = p;
+			this.colTiles = tiles(p, tiling.cols);
+			this.depthTiles = tiles(n, tiling.depth);
+			this.steps = (long) tiles(m, tiling.rows) * colTiles * depthTiles;
+			this.aTiles = aTiles;
+			this.bTiles = bTiles;
+			this.out = out;
+			this.writeBuffer = writeBuffer;
+			this.c = new float[tiling.rows * tiling.cols];
+			this.aBuffers = new float[][] {new float[tiling.rows * tiling.depth], new float[tiling.rows * tiling.depth]};
+			this.bBuffers = new float[][] {new float[tiling.depth * tiling.cols], new float[tiling.depth * tiling.cols]};
+		}
+
+		private static int tiles(int length, int tile) {
+			return (int) (((long) length + tile - 1) / tile);
+		}
+
+		/**
+		 * A step of the schedule: the tiles of A and B it multiplies, and the buffers they are read into.
+		 */
+		private final class Step {
+			final int rowStart, colStart, depthStart;
+			final long aTile, bTile;
+			final int aSlot, bSlot;
+			final Future<?> reading;
+
+			Step(long step, Step previous) {
+				int depthIndex = (int) (step % depthTiles);
+				int colIndex = (int) (step / depthTiles % colTiles);
+				int rowIndex = (int) (step / depthTiles / colTiles);
+				rowStart = rowIndex * tiling.rows;
+				colStart = colIndex * tiling.cols;
+				depthStart = depthIndex * tiling.depth;
+				aTile = (long) rowIndex * depthTiles + depthIndex;
+				bTile = (long) depthIndex * colTiles + colIndex;
+				aSlot = slotFor(aHeld, aTile, previous == null ? -1 : previous.aSlot);
+				bSlot = slotFor(bHeld, bTile, previous == null ? -1 : previous.bSlot);
+				boolean readA = aHeld[aSlot] != aTile;
+				boolean readB = bHeld[bSlot] != bTile;
+				aHeld[aSlot] = aTile;
+				bHeld[bSlot] = bTile;
+				if (!readA && !readB) {
+					reading = CompletableFuture.completedFuture(null);
+				} else {
+					reading = prefetcher.submit(() -> {
+						if (readA)
+							readFloats(aTiles, tileStart(rowStart, depthStart, tiling.rows, m, n) * Float.BYTES,
+									aBuffers[aSlot], rows() * depth(), readBuffer);
+						if (readB)
+							readFloats(bTiles, tileStart(depthStart, colStart, tiling.depth, n, p) * Float.BYTES,
+									bBuffers[bSlot], depth() * cols(), readBuffer);
+						return null;
+					});
+				}
+			}
+
+			int rows() {
+				return Math.min(tiling.rows, m - rowStart);
+			}
+
+			int depth() {
+				return Math.min(tiling.depth, n - depthStart);
+			}
+
+			int cols() {
+				return Math.min(tiling.cols, p - colStart);
+			}
+		}
+
+		/**
+		 * Choose the buffer for a tile: the one the current step uses if it holds the tile already,
+		 * and otherwise the other one, which nothing is reading.
+		 */
+		private static int slotFor(long[] held, long tile, int busy) {
+			if (busy >= 0 && held[busy] == tile)
+				return busy;
+			return busy == 0 ? 1 : 0;
+		}
+
+		void run() throws IOException {
+			try {
+				Step next = new Step(0, null);
+				for (long step = 0; step < steps; step++) {
+					Step current = next;
+					StreamingMultiplier.await(current.reading);
+					if (step + 1 < steps)
+						next = new Step(step + 1, current);
+					int rows = current.rows();
+					int depth = current.depth();
+					int cols = current.cols();
+					if (current.depthStart == 0)
+						Arrays.fill(c, 0, rows * cols, 0.0f);
+					engine.multiplyAdd(new StridedLayout(aBuffers[current.aSlot], 0, rows, depth, depth, 1),
+							new StridedLayout(bBuffers[current.bSlot], 0, depth, cols, cols, 1), c, 0, cols);
+					if (current.depthStart + depth == n) {
+						for (int r = 0; r < rows; r++) {
+							long position = MatrixFile.HEADER_BYTES
+									+ ((long) (current.rowStart + r) * p + current.colStart) * Float.BYTES;
+							writeFloats(out, position, c, r * cols, cols, writeBuffer);
+						}
+					}
+				}
+			} finally {
+				prefetcher.shutdownNow();
+			}
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position() - start) < 0)
+				throw new EOFException("A matrix file ended early.");
+		}
+	}
+
+	/**
+	 * Read count floats from the file at the given byte position into the start of dest, through the buffer.
+	 */
+	private static void readFloats(FileChannel channel, long position, float[] dest, int count, ByteBuffer buffer)
+			throws IOException {
+		int perRead = buffer.capacity() / Float.BYTES;
+		for (int done = 0; done < count; done += perRead) {
+			int length = Math.min(perRead, count - done);
+			buffer.clear().limit(length * Float.BYTES);
+			readFully(channel, buffer, position + (long) done * Float.BYTES);
+			buffer.flip();
+			buffer.asFloatBuffer().get(dest, done, length);
+		}
+	}
+
+	/**
+	 * Write count floats from src, starting at offset, to the file at the given byte position, through the buffer.
+	 */
+	private static void writeFloats(FileChannel channel, long position, float[] src, int offset, int count,
+									ByteBuffer buffer) throws IOException {
+		int perWrite = buffer.capacity() / Float.BYTES;
+		for (int done = 0; done < count; done += perWrite) {
+			int length = Math.min(perWrite, count - done);
+			buffer.clear();
+			buffer.asFloatBuffer().put(src, offset + done, length);
+			buffer.limit(length * Float.BYTES);
+			long at = position + (long) done * Float.BYTES;
+			while (buffer.hasRemaining()) {
+				at += channel.write(buffer, at);
+			}
+		}
+	}
+}
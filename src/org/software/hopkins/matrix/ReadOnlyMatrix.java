@@ -0,0 +1,178 @@
+package org.software.hopkins.matrix;
+
+import java.util.List;
+
+/**
+ * A matrix that can't be changed through, over a copy of a matrix that nothing else holds.
+ * Used to publish snapshots of mutable matrices, such as sparse ones, whose own kind has no read-only form:
+ * readers get the operations of the copy, with its fast paths, but not its setters.
+ * It also publishes a {@link MappedMatrix} without copying the file to the heap: readers can't close
+ * the mapping through it, which is left to the {@link MatrixRegistry} that owns it.
+ * Operations that return a matrix return the copy's new matrices, which belong to the caller.
+ */
+final class ReadOnlyMatrix implements HSMatrix {
+	private final HSMatrix copy;
+
+	/**
+	 * @param copy - a matrix that no one else has a reference to, or a mapped matrix handed over to a registry.
+	 */
+	ReadOnlyMatrix(HSMatrix copy) {
+		this.copy = copy;
+	}
+
+	/**
+	 * Get the mapped matrix read through this one.
+	 * @return the mapping, or null if this is over a copy of some other kind.
+	 */
+	MappedMatrix mapping() {
+		return copy instanceof MappedMatrix ? (MappedMatrix) copy : null;
+	}
+
+	@Override
+	public int rowSize() {
+		return copy.rowSize();
+	}
+
+	@Override
+	public int columnSize() {
+		return copy.columnSize();
+	}
+
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return copy.isSameOrder(matrix);
+	}
+
+	@Override
+	public List<Float> getRow(int index) {
+		return copy.getRow(index);
+	}
+
+	@Override
+	public List<Float> getRowCopy(int index) {
+		return copy.getRowCopy(index);
+	}
+
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		return copy.getColumn(colIndex);
+	}
+
+	@Override
+	public Float getEntry(int row, int column) {
+		return copy.getEntry(row, column);
+	}
+
+	@Override
+	public float getFloat(int row, int column) {
+		return copy.getFloat(row, column);
+	}
+
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		copy.copyRowInto(index, dest, destOffset);
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		copy.copyColumnInto(colIndex, dest, destOffset);
+	}
+
+	@Override
+	public double[] rowSums() {
+		return copy.rowSums();
+	}
+
+	@Override
+	public double[] columnSums() {
+		return copy.columnSums();
+	}
+
+	@Override
+	public float[][] rowMinMax() {
+		return copy.rowMinMax();
+	}
+
+	@Override
+	public double frobeniusNorm() {
+		return copy.frobeniusNorm();
+	}
+
+	@Override
+	public double trace() {
+		return copy.trace();
+	}
+
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		return copy.equals(matrix);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && copy.equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return copy.hashCode();
+	}
+
+	@Override
+	public long contentHash() {
+		return copy.contentHash();
+	}
+
+	/**
+	 * @return an independent copy of the underlying matrix, which the caller may change.
+	 */
+	@Override
+	public HSMatrix clone() {
+		return copy.clone();
+	}
+
+	@Override
+	public HSMatrix transpose() {
+		return copy.transpose();
+	}
+
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		return copy.plus(matrix);
+	}
+
+	@Override
+	public Float sumRow(int rowIndex) {
+		return copy.sumRow(rowIndex);
+	}
+
+	@Override
+	public Float sumColumn(int colIndex) {
+		return copy.sumColumn(colIndex);
+	}
+
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		return copy.minus(matrix);
+	}
+
+	@Override
+	public HSMatrix negative() {
+		return copy.negative();
+	}
+
+	@Override
+	public HSMatrix times(HSMatrix matrix) {
+		return copy.times(matrix);
+	}
+
+	@Override
+	public HSMatrix times(Float scalar) {
+		return copy.times(scalar);
+	}
+
+	@Override
+	public String toString() {
+		return copy.toString();
+	}
+}
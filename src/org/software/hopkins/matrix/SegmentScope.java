@@ -0,0 +1,52 @@
+package org.software.hopkins.matrix;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Buffers over memory segments of one shared {@link ResourceScope} of the jdk.incubator.foreign module.
+ * Only {@link BufferScope} creates these, and only once it has found the module in the boot layer:
+ * this class can't even be loaded without it.
+ * A scope that is never closed is closed by a cleaner once it is unreachable, so a matrix its owner forgot
+ * to close still has its memory freed and its file unmapped, as a plain direct or mapped buffer would.
+ */
+final class SegmentScope extends BufferScope {
+	/** Native segments are aligned to a cache line, which is also the widest vector. */
+	private static final long ALIGNMENT = 64;
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final ResourceScope scope = ResourceScope.newSharedScope(CLEANER);
+
+	@Override
+	ByteBuffer allocate(int bytes) {
+		return MemorySegment.allocateNative(bytes, ALIGNMENT, scope).asByteBuffer().order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	ByteBuffer map(FileChannel channel, Path path, long offset, long bytes) throws IOException {
+		return MemorySegment.mapFile(path, offset, bytes, FileChannel.MapMode.READ_ONLY, scope).asByteBuffer();
+	}
+
+	/**
+	 * Close the scope. A shared scope refuses to close while another thread is in the middle of an access
+	 * to one of its segments; the access takes moments, and the matrix hands out no new buffers once closed,
+	 * so closing is simply tried again.
+	 */
+	@Override
+	synchronized void close() {
+		while (scope.isAlive()) {
+			try {
+				scope.close();
+			} catch (IllegalStateException e) {
+				Thread.yield();
+			}
+		}
+	}
+}
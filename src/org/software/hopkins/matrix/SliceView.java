@@ -0,0 +1,85 @@
+package org.software.hopkins.matrix;
+
+import java.util.Objects;
+
+/**
+ * A view of evenly spaced rows and columns of a matrix: a rectangular submatrix when both steps are 1,
+ * or a strided selection such as every other row.
+ * Entry (r, c) of the view is entry (rowStart + r * rowStep, colStart + c * colStep) of the parent.
+ */
+public class SliceView extends MatrixView {
+	private final int rowStart, rowCount, rowStep;
+	private final int colStart, colCount, colStep;
+	private StridedLayout layout;
+
+	SliceView(HSMatrix parent, int rowStart, int rowCount, int rowStep, int colStart, int colCount, int colStep) {
+		super(parent);
+		this.rowStart = rowStart;
+		this.rowCount = rowCount;
+		this.rowStep = rowStep;
+		this.colStart = colStart;
+		this.colCount = colCount;
+		this.colStep = colStep;
+	}
+
+	@Override
+	StridedLayout layout() {
+		StridedLayout parentLayout = layoutOf(parent);
+		if (parentLayout == null)
+			return null;
+		StridedLayout current = layout;
+		if (current == null || current.source != parentLayout) {
+			current = parentLayout.slice(rowStart, rowCount, rowStep, colStart, colCount, colStep);
+			layout = current;
+		}
+		return current;
+	}
+
+	@Override
+	public int rowSize() {
+		return rowCount;
+	}
+
+	@Override
+	public int columnSize() {
+		return colCount;
+	}
+
+	@Override
+	public float getFloat(int row, int column) {
+		Objects.checkIndex(row, rowCount);
+		Objects.checkIndex(column, colCount);
+		return parent.getFloat(rowStart + row * rowStep, colStart + column * colStep);
+	}
+
+	/**
+	 * Copy a row, straight from the parent's array when it is over dense storage.
+	 */
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		Objects.checkIndex(index, rowCount);
+		StridedLayout layout = layout();
+		if (layout != null) {
+			layout.copyRowInto(index, dest, destOffset);
+			return;
+		}
+		int parentRow = rowStart + index * rowStep;
+		for (int c = 0; c < colCount; c++) {
+			dest[destOffset + c] = parent.getFloat(parentRow, colStart + c * colStep);
+		}
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		Objects.checkIndex(colIndex, colCount);
+		StridedLayout layout = layout();
+		if (layout != null) {
+			layout.copyColumnInto(colIndex, dest, destOffset);
+			return;
+		}
+		int parentColumn = colStart + colIndex * colStep;
+		for (int r = 0; r < rowCount; r++) {
+			dest[destOffset + r] = parent.getFloat(rowStart + r * rowStep, parentColumn);
+		}
+	}
+}
@@ -0,0 +1,974 @@
+package org.software.hopkins.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A matrix that stores only its non-zero entries, in compressed form.
+ * The entries are grouped by major line (rows for {@link CSRMatrix}, columns for {@link CSCMatrix}):
+ * the non-zero entries of major line i are at positions pointers[i] to pointers[i + 1] - 1
+ * of the indices and values arrays, where indices holds each entry's minor coordinate in ascending order.
+ * Zeros are never stored, so storage and most operations are O(nnz), the number of non-zero entries.
+ * (A consequence is that a sparse matrix has no negative zeros: -0.0f reads back as 0.0f.)
+ * <p>
+ * Operations with another sparse matrix stay sparse. Operations with a dense matrix that give a
+ * dense result (sums and products) return a {@link DenseMatrix} and only visit the non-zero entries.
+ */
+public abstract class SparseMatrix implements HSMutableMatrix {
+	protected int rows, cols;
+	protected int[] pointers;
+	protected int[] indices;
+	protected float[] values;
+
+	protected SparseMatrix(int mRows, int nCols, int[] pointers, int[] indices, float[] values) {
+		if (mRows < 0 || nCols < 0)
+			throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+		this.rows = mRows;
+		this.cols = nCols;
+		this.pointers = pointers;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * Whether the major lines are rows (CSR) rather than columns (CSC).
+	 */
+	abstract boolean isRowMajor();
+
+	/**
+	 * Create a matrix of the same layout that adopts the given arrays without copying them.
+	 */
+	abstract SparseMatrix create(int mRows, int nCols, int[] pointers, int[] indices, float[] values);
+
+	/**
+	 * Create a matrix of the other layout that adopts the given arrays without copying them.
+	 */
+	abstract SparseMatrix createTransposedLayout(int mRows, int nCols, int[] pointers, int[] indices, float[] values);
+
+	final int majorSize() {
+		return isRowMajor() ? rows : cols;
+	}
+
+	final int minorSize() {
+		return isRowMajor() ? cols : rows;
+	}
+
+	/**
+	 * Get the number of entries stored, which are the non-zero entries.
+	 * @return the number of non-zero entries.
+	 */
+	public int nonZeroCount() {
+		return pointers[majorSize()];
+	}
+
+	/**
+	 * Check that compressed arrays given from outside are well formed:
+	 * non-decreasing pointers from 0, and strictly ascending minor indices in range within each line.
+	 */
+	static void checkCompressed(int majorSize, int minorSize, int[] pointers, int[] indices, float[] values) {
+		if (pointers.length != majorSize + 1 || pointers[0] != 0)
+			throw new IllegalArgumentException("Expected " + (majorSize + 1) + " pointers starting at 0.");
+		int nnz = pointers[majorSize];
+		if (indices.length < nnz || values.length < nnz)
+			throw new IllegalArgumentException("Expected " + nnz + " indices and values.");
+		for (int major = 0; major < majorSize; major++) {
+			if (pointers[major] > pointers[major + 1])
+				throw new IllegalArgumentException("Pointers must not decrease.");
+			for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+				Objects.checkIndex(indices[k], minorSize);
+				if (k > pointers[major] && indices[k] <= indices[k - 1])
+					throw new IllegalArgumentException("Indices within a line must be strictly ascending.");
+			}
+		}
+	}
+
+	/**
+	 * Replace the contents of this matrix by the non-zero entries of any matrix, in this layout.
+	 */
+	final void load(HSMatrix matrix) {
+		boolean rowMajor = isRowMajor();
+		rows = matrix.rowSize();
+		cols = matrix.columnSize();
+		int majorSize = majorSize();
+		int minorSize = minorSize();
+		float[] line = new float[minorSize];
+		int[] newPointers = new int[majorSize + 1];
+		int[] newIndices = new int[16];
+		float[] newValues = new float[16];
+		int nnz = 0;
+		for (int major = 0; major < majorSize; major++) {
+			if (rowMajor)
+				matrix.copyRowInto(major, line, 0);
+			else
+				matrix.copyColumnInto(major, line, 0);
+			for (int minor = 0; minor < minorSize; minor++) {
+				if (line[minor] != 0.0f) {
+					if (nnz == newIndices.length) {
+						newIndices = Arrays.copyOf(newIndices, nnz * 2);
+						newValues = Arrays.copyOf(newValues, nnz * 2);
+					}
+					newIndices[nnz] = minor;
+					newValues[nnz++] = line[minor];
+				}
+			}
+			newPointers[major + 1] = nnz;
+		}
+		pointers = newPointers;
+		indices = newIndices;
+		values = newValues;
+	}
+
+	/**
+	 * Compress any matrix into a new sparse matrix of this layout.
+	 */
+	final SparseMatrix compress(HSMatrix matrix) {
+		SparseMatrix result = create(0, 0, null, null, null);
+		result.load(matrix);
+		return result;
+	}
+
+	/**
+	 * Get this matrix's entries compressed along the other dimension, as a matrix of the other layout.
+	 * A counting sort over the minor indices, so O(nnz + rows + columns).
+	 */
+	final SparseMatrix toOtherLayout() {
+		int majorSize = majorSize();
+		int minorSize = minorSize();
+		int nnz = nonZeroCount();
+		int[] newPointers = new int[minorSize + 1];
+		for (int k = 0; k < nnz; k++) {
+			newPointers[indices[k] + 1]++;
+		}
+		for (int minor = 0; minor < minorSize; minor++) {
+			newPointers[minor + 1] += newPointers[minor];
+		}
+		int[] next = Arrays.copyOf(newPointers, minorSize);
+		int[] newIndices = new int[nnz];
+		float[] newValues = new float[nnz];
+		for (int major = 0; major < majorSize; major++) {
+			for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+				int dest = next[indices[k]]++;
+				newIndices[dest] = major;
+				newValues[dest] = values[k];
+			}
+		}
+		return createTransposedLayout(rows, cols, newPointers, newIndices, newValues);
+	}
+
+	/**
+	 * Get this matrix in compressed sparse row form, converting only if needed.
+	 * @return this matrix if it is a CSRMatrix, otherwise a CSR copy.
+	 */
+	public CSRMatrix toCSR() {
+		return (CSRMatrix) (isRowMajor() ? this : toOtherLayout());
+	}
+
+	/**
+	 * Get this matrix in compressed sparse column form, converting only if needed.
+	 * @return this matrix if it is a CSCMatrix, otherwise a CSC copy.
+	 */
+	public CSCMatrix toCSC() {
+		return (CSCMatrix) (isRowMajor() ? toOtherLayout() : this);
+	}
+
+	/**
+	 * Get the given matrix in this matrix's layout, compressing or converting only if needed.
+	 */
+	final SparseMatrix inSameLayout(HSMatrix matrix) {
+		if (matrix instanceof SparseMatrix) {
+			SparseMatrix sparse = (SparseMatrix) matrix;
+			return sparse.isRowMajor() == isRowMajor() ? sparse : sparse.toOtherLayout();
+		}
+		return compress(matrix);
+	}
+
+	/**
+	 * Position of the entry in indices and values, or -(insertion point) - 1 if it is not stored.
+	 */
+	final int find(int major, int minor) {
+		return Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+	}
+
+	@Override
+	public int rowSize() {
+		return rows;
+	}
+
+	@Override
+	public int columnSize() {
+		return cols;
+	}
+
+	@Override
+	public boolean isSameOrder(HSMatrix matrix) {
+		return rows == matrix.rowSize() && cols == matrix.columnSize();
+	}
+
+	/**
+	 * Get the row of the matrix with the given index.
+	 * @param index of the desired row
+	 * @return an unmodifiable copy of the desired row, zeros included.
+	 */
+	@Override
+	public List<Float> getRow(int index) {
+		return Collections.unmodifiableList(getRowCopy(index));
+	}
+
+	@Override
+	public List<Float> getRowCopy(int index) {
+		float[] row = new float[cols];
+		copyRowInto(index, row, 0);
+		List<Float> theRow = new ArrayList<>(cols);
+		for (float value : row) {
+			theRow.add(value);
+		}
+		return theRow;
+	}
+
+	@Override
+	public List<Float> getColumn(int colIndex) {
+		float[] column = new float[rows];
+		copyColumnInto(colIndex, column, 0);
+		List<Float> theColumn = new ArrayList<>(rows);
+		for (float value : column) {
+			theColumn.add(value);
+		}
+		return theColumn;
+	}
+
+	@Override
+	public Float getEntry(int row, int column) {
+		return getFloat(row, column);
+	}
+
+	/**
+	 * Get the entry value at the given row and column.
+	 * Takes O(log k) time for a major line of k non-zero entries.
+	 */
+	@Override
+	public float getFloat(int row, int column) {
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(column, cols);
+		int pos = isRowMajor() ? find(row, column) : find(column, row);
+		return pos >= 0 ? values[pos] : 0.0f;
+	}
+
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		copyLineInto(true, index, dest, destOffset);
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		copyLineInto(false, colIndex, dest, destOffset);
+	}
+
+	/**
+	 * Copy a row (or column) into an array: a scatter of one major line,
+	 * or a binary search in every major line when it is a minor line.
+	 */
+	private void copyLineInto(boolean row, int index, float[] dest, int destOffset) {
+		Objects.checkIndex(index, row ? rows : cols);
+		int length = row ? cols : rows;
+		Arrays.fill(dest, destOffset, destOffset + length, 0.0f);
+		if (row == isRowMajor()) {
+			for (int k = pointers[index]; k < pointers[index + 1]; k++) {
+				dest[destOffset + indices[k]] = values[k];
+			}
+		} else {
+			for (int major = 0; major < length; major++) {
+				int pos = find(major, index);
+				if (pos >= 0)
+					dest[destOffset + major] = values[pos];
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether the given matrix is equal to this matrix.
+	 * Two sparse matrices of the same layout are compared in O(nnz);
+	 * any other matrix is compared a row at a time, and an integer matrix as {@link IntMatrix#equals(HSMatrix)} does.
+	 */
+	@Override
+	public boolean equals(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			return false;
+		IntMatrix integers = IntMatrix.integersOf(matrix);
+		if (integers != null)
+			return integers.equals(this);
+		if (matrix instanceof SparseMatrix && ((SparseMatrix) matrix).isRowMajor() == isRowMajor()) {
+			SparseMatrix other = (SparseMatrix) matrix;
+			int nnz = nonZeroCount();
+			return Arrays.equals(pointers, 0, majorSize() + 1, other.pointers, 0, majorSize() + 1)
+					&& Arrays.equals(indices, 0, nnz, other.indices, 0, nnz)
+					&& Arrays.equals(values, 0, nnz, other.values, 0, nnz);
+		}
+		float[] thisRow = new float[cols];
+		float[] givenRow = new float[cols];
+		for (int r = 0; r < rows; r++) {
+			copyRowInto(r, thisRow, 0);
+			matrix.copyRowInto(r, givenRow, 0);
+			if (!Arrays.equals(thisRow, givenRow))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof HSMatrix && equals((HSMatrix) object);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(contentHash());
+	}
+
+	/**
+	 * Get the content hash in O(nnz), as the entries not stored are zero and add nothing to it.
+	 */
+	@Override
+	public long contentHash() {
+		long sum = 0L;
+		boolean rowMajor = isRowMajor();
+		for (int major = 0; major < majorSize(); major++) {
+			for (int pos = pointers[major]; pos < pointers[major + 1]; pos++) {
+				int minor = indices[pos];
+				sum += rowMajor ? ContentHash.entry(major, minor, values[pos]) : ContentHash.entry(minor, major, values[pos]);
+			}
+		}
+		return ContentHash.finish(sum, rows, cols);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		float[] row = new float[cols];
+		for (int r = 0; r < rows; ++r) {
+			copyRowInto(r, row, 0);
+			for (int c = 0; c < cols; ++c) {
+				sb.append(row[c]);
+				sb.append('\t');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Make an independent copy of this matrix, trimmed to its non-zero entries.
+	 * @return a deep copy of this matrix.
+	 */
+	@Override
+	public HSMatrix clone() {
+		int nnz = nonZeroCount();
+		return create(rows, cols, pointers.clone(), Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+	}
+
+	/**
+	 * Returns a transposed copy of this matrix in O(nnz) time.
+	 * The compressed arrays of an m x n CSR matrix are exactly those of its n x m transpose
+	 * in CSC form (and the other way around), so the transpose is a copy of the arrays in the other layout.
+	 * @return a transposed copy of this matrix.
+	 */
+	@Override
+	public HSMatrix transpose() {
+		int nnz = nonZeroCount();
+		return createTransposedLayout(cols, rows, pointers.clone(), Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+	}
+
+	/*
+	  SummableMatrix Interface Implementation
+	 */
+
+	/**
+	 * Adds the given matrix to a copy of this one.
+	 * @param matrix a given matrix of the same order
+	 * @return a sparse sum of this layout for a sparse operand, otherwise a DenseMatrix.
+	 */
+	@Override
+	public HSMatrix plus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't add matrices. They are not the same order.");
+		return combine(matrix, 1.0f);
+	}
+
+	private HSMatrix combine(HSMatrix matrix, float factor) {
+		if (matrix instanceof SparseMatrix)
+			return merge(inSameLayout(matrix), factor);
+		// 0 - b rather than -1 * b, so zeros of b stay positive zeros as in the dense difference
+		DenseMutableMatrix result = new DenseMutableMatrix(rows, cols);
+		if (factor == 1.0f)
+			result.add(matrix);
+		else
+			result.subtract(matrix);
+		scatterAddInto(result.data, 0, cols);
+		return result;
+	}
+
+	/**
+	 * dest += this, for a dense destination with the given offset and row stride.
+	 */
+	final void scatterAddInto(float[] dest, int destOffset, int destRowStride) {
+		for (int major = 0; major < majorSize(); major++) {
+			for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+				int r = isRowMajor() ? major : indices[k];
+				int c = isRowMajor() ? indices[k] : major;
+				dest[destOffset + r * destRowStride + c] += values[k];
+			}
+		}
+	}
+
+	/**
+	 * this + factor * other for another sparse matrix of the same layout and order, merging line by line.
+	 */
+	final SparseMatrix merge(SparseMatrix other, float factor) {
+		int majorSize = majorSize();
+		int capacity = nonZeroCount() + other.nonZeroCount();
+		int[] newPointers = new int[majorSize + 1];
+		int[] newIndices = new int[capacity];
+		float[] newValues = new float[capacity];
+		int nnz = 0;
+		for (int major = 0; major < majorSize; major++) {
+			int i = pointers[major], iEnd = pointers[major + 1];
+			int j = other.pointers[major], jEnd = other.pointers[major + 1];
+			while (i < iEnd || j < jEnd) {
+				int minor;
+				float sum;
+				if (j >= jEnd || (i < iEnd && indices[i] < other.indices[j])) {
+					minor = indices[i];
+					sum = values[i++];
+				} else if (i >= iEnd || other.indices[j] < indices[i]) {
+					minor = other.indices[j];
+					sum = factor * other.values[j++];
+				} else {
+					minor = indices[i];
+					sum = values[i++] + factor * other.values[j++];
+				}
+				if (sum != 0.0f) {
+					newIndices[nnz] = minor;
+					newValues[nnz++] = sum;
+				}
+			}
+			newPointers[major + 1] = nnz;
+		}
+		return create(rows, cols, newPointers, newIndices, newValues);
+	}
+
+	@Override
+	public Float sumRow(int rowIndex) {
+		return sumLine(true, rowIndex);
+	}
+
+	@Override
+	public Float sumColumn(int colIndex) {
+		return sumLine(false, colIndex);
+	}
+
+	/**
+	 * Sum of a row (or column): the values of one major line,
+	 * or one pass over all non-zero entries for a minor line.
+	 */
+	private float sumLine(boolean row, int index) {
+		Objects.checkIndex(index, row ? rows : cols);
+		float sum = 0.0f;
+		if (row == isRowMajor()) {
+			for (int k = pointers[index]; k < pointers[index + 1]; k++) {
+				sum += values[k];
+			}
+		} else {
+			int nnz = nonZeroCount();
+			for (int k = 0; k < nnz; k++) {
+				if (indices[k] == index)
+					sum += values[k];
+			}
+		}
+		return sum;
+	}
+
+	/*
+	  Bulk reductions, over the stored entries only.
+	 */
+
+	@Override
+	public double[] rowSums() {
+		return lineSums(true);
+	}
+
+	@Override
+	public double[] columnSums() {
+		return lineSums(false);
+	}
+
+	/**
+	 * Sums of every row (or column) in one pass over the non-zero entries.
+	 */
+	private double[] lineSums(boolean row) {
+		double[] sums = new double[row ? rows : cols];
+		if (row == isRowMajor()) {
+			for (int major = 0; major < sums.length; major++) {
+				for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+					sums[major] += values[k];
+				}
+			}
+		} else {
+			int nnz = nonZeroCount();
+			for (int k = 0; k < nnz; k++) {
+				sums[indices[k]] += values[k];
+			}
+		}
+		return sums;
+	}
+
+	/**
+	 * Get the smallest and largest entry of every row in one pass over the non-zero entries;
+	 * a row with fewer non-zero entries than columns also has zeros.
+	 */
+	@Override
+	public float[][] rowMinMax() {
+		float[][] minMax = new float[2][rows];
+		Arrays.fill(minMax[0], Float.POSITIVE_INFINITY);
+		Arrays.fill(minMax[1], Float.NEGATIVE_INFINITY);
+		int[] counts = new int[rows];
+		for (int major = 0; major < majorSize(); major++) {
+			for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+				int row = isRowMajor() ? major : indices[k];
+				minMax[0][row] = Math.min(minMax[0][row], values[k]);
+				minMax[1][row] = Math.max(minMax[1][row], values[k]);
+				counts[row]++;
+			}
+		}
+		for (int r = 0; r < rows; r++) {
+			if (counts[r] < cols) {
+				minMax[0][r] = Math.min(minMax[0][r], 0.0f);
+				minMax[1][r] = Math.max(minMax[1][r], 0.0f);
+			}
+		}
+		return minMax;
+	}
+
+	@Override
+	public double frobeniusNorm() {
+		double sum = 0.0;
+		int nnz = nonZeroCount();
+		for (int k = 0; k < nnz; k++) {
+			double value = values[k];
+			sum += value * value;
+		}
+		return Math.sqrt(sum);
+	}
+
+	/*
+	  Scalable Matrix Interface Implementation
+	 */
+
+	@Override
+	public HSMatrix times(Float scalar) {
+		SparseMatrix scaled = (SparseMatrix) clone();
+		scaled.scaleBy(scalar);
+		return scaled;
+	}
+
+	@Override
+	public HSMatrix negative() {
+		return this.times(-1.0f);
+	}
+
+	@Override
+	public HSMatrix minus(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Can't subtract matrices. They are not the same order.");
+		return combine(matrix, -1.0f);
+	}
+
+	/**
+	 * Multiplies this mxn matrix by the given nxp matrix.
+	 * A sparse operand gives a sparse CSR product (Gustavson's row-by-row algorithm);
+	 * any other operand gives a DenseMatrix, computed from the non-zero entries of this matrix only.
+	 *
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 * @return - the resulting product matrix.
+	 */
+	@Override
+	public HSMatrix times(HSMatrix matrixB) {
+		if (this.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		if (matrixB instanceof SparseMatrix)
+			return sparseProduct(toCSR(), ((SparseMatrix) matrixB).toCSR());
+		int p = matrixB.columnSize();
+		return new DenseMatrix(rows, p, multiplyDense(TiledMultiplier.asDense(matrixB)), 0, p);
+	}
+
+	/**
+	 * this * B for a dense B, as a compact row-major array.
+	 * Each non-zero a(i, k) adds a(i, k) times row k of B to row i of the product.
+	 */
+	final float[] multiplyDense(DenseMatrix b) {
+		int p = b.cols;
+		float[] c = new float[rows * p];
+		for (int major = 0; major < majorSize(); major++) {
+			for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+				int i = isRowMajor() ? major : indices[k];
+				int inner = isRowMajor() ? indices[k] : major;
+				ElementwiseKernels.addScaled(values[k], b.data, b.offset + inner * b.rowStride, c, i * p, p);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * A * this for a dense A, as a compact row-major array.
+	 * Each entry a(i, k) adds a(i, k) times the non-zero entries of row k of this matrix to row i of the product.
+	 */
+	final float[] leftMultiplyDense(DenseMatrix a) {
+		CSRMatrix s = toCSR();
+		int p = cols;
+		float[] c = new float[a.rows * p];
+		for (int i = 0; i < a.rows; i++) {
+			int aBase = a.offset + i * a.rowStride;
+			int cBase = i * p;
+			for (int inner = 0; inner < a.cols; inner++) {
+				float aik = a.data[aBase + inner];
+				if (aik == 0.0f)
+					continue;
+				for (int k = s.pointers[inner]; k < s.pointers[inner + 1]; k++) {
+					c[cBase + s.indices[k]] += aik * s.values[k];
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Gustavson's algorithm: row i of A * B is accumulated in a dense work row from the rows of B
+	 * picked out by the non-zero entries of row i of A, then compressed.
+	 */
+	private static CSRMatrix sparseProduct(CSRMatrix a, CSRMatrix b) {
+		int p = b.cols;
+		float[] work = new float[p];
+		int[] lastRow = new int[p];
+		Arrays.fill(lastRow, -1);
+		int[] touched = new int[p];
+		int[] newPointers = new int[a.rows + 1];
+		int[] newIndices = new int[Math.max(16, a.nonZeroCount())];
+		float[] newValues = new float[newIndices.length];
+		int nnz = 0;
+		for (int i = 0; i < a.rows; i++) {
+			int touchedCount = 0;
+			for (int ka = a.pointers[i]; ka < a.pointers[i + 1]; ka++) {
+				int inner = a.indices[ka];
+				float aik = a.values[ka];
+				for (int kb = b.pointers[inner]; kb < b.pointers[inner + 1]; kb++) {
+					int j = b.indices[kb];
+					if (lastRow[j] != i) {
+						lastRow[j] = i;
+						work[j] = 0.0f;
+						touched[touchedCount++] = j;
+					}
+					work[j] += aik * b.values[kb];
+				}
+			}
+			Arrays.sort(touched, 0, touchedCount);
+			if (nnz + touchedCount > newIndices.length) {
+				int capacity = Math.max(newIndices.length * 2, nnz + touchedCount);
+				newIndices = Arrays.copyOf(newIndices, capacity);
+				newValues = Arrays.copyOf(newValues, capacity);
+			}
+			for (int t = 0; t < touchedCount; t++) {
+				int j = touched[t];
+				if (work[j] != 0.0f) {
+					newIndices[nnz] = j;
+					newValues[nnz++] = work[j];
+				}
+			}
+			newPointers[i + 1] = nnz;
+		}
+		return (CSRMatrix) a.create(a.rows, p, newPointers, newIndices, newValues);
+	}
+
+	/*
+	  HSMutableMatrix Interface Implementation
+	 */
+
+	@Override
+	public void setEntry(int row, int column, Float value) {
+		setFloat(row, column, value);
+	}
+
+	/**
+	 * Set the entry's value at the given row and column.
+	 * Setting a zero removes the entry; setting a new non-zero entry inserts it,
+	 * which shifts the entries stored after it, so building a matrix entry by entry
+	 * is fastest in major-line order.
+	 */
+	@Override
+	public void setFloat(int row, int column, float value) {
+		Objects.checkIndex(row, rows);
+		Objects.checkIndex(column, cols);
+		int major = isRowMajor() ? row : column;
+		int minor = isRowMajor() ? column : row;
+		int pos = find(major, minor);
+		if (pos >= 0) {
+			if (value != 0.0f)
+				values[pos] = value;
+			else
+				remove(major, pos);
+		} else if (value != 0.0f) {
+			insert(major, -pos - 1, minor, value);
+		}
+	}
+
+	private void insert(int major, int pos, int minor, float value) {
+		int nnz = nonZeroCount();
+		if (nnz == indices.length) {
+			int capacity = Math.max(16, nnz + (nnz >> 1));
+			indices = Arrays.copyOf(indices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		System.arraycopy(indices, pos, indices, pos + 1, nnz - pos);
+		System.arraycopy(values, pos, values, pos + 1, nnz - pos);
+		indices[pos] = minor;
+		values[pos] = value;
+		for (int m = major + 1; m < pointers.length; m++) {
+			pointers[m]++;
+		}
+	}
+
+	private void remove(int major, int pos) {
+		int nnz = nonZeroCount();
+		System.arraycopy(indices, pos + 1, indices, pos, nnz - pos - 1);
+		System.arraycopy(values, pos + 1, values, pos, nnz - pos - 1);
+		for (int m = major + 1; m < pointers.length; m++) {
+			pointers[m]--;
+		}
+	}
+
+	/**
+	 * Sets every value of the matrix to the given value.
+	 * Filling with zero empties the matrix; any other value stores every entry.
+	 */
+	@Override
+	public void fill(Float value) {
+		if (value == 0.0f) {
+			Arrays.fill(pointers, 0);
+		} else {
+			load(new DenseMatrix(rows, cols, value));
+		}
+	}
+
+	@Override
+	public void setValuesIncrementedFrom(Float start) {
+		load(new DenseMatrix(rows, cols, start, true));
+	}
+
+	@Override
+	public void setRow(int index, List<Float> newRow) {
+		float[] row = new float[newRow.size()];
+		for (int c = 0; c < row.length; c++) {
+			row[c] = newRow.get(c);
+		}
+		setRow(index, row);
+	}
+
+	/**
+	 * Sets the row with the given index.
+	 * In CSR form the row's entries are replaced in one pass; in CSC form each entry is set in its column.
+	 */
+	@Override
+	public void setRow(int index, float[] newRow) {
+		Objects.checkIndex(index, rows);
+		if (newRow.length != cols)
+			throw new IllegalArgumentException("The new row does not have " + cols + " entries.");
+		if (isRowMajor()) {
+			replaceMajorLine(index, newRow);
+		} else {
+			for (int c = 0; c < cols; c++) {
+				setFloat(index, c, newRow[c]);
+			}
+		}
+	}
+
+	private void replaceMajorLine(int major, float[] line) {
+		int count = 0;
+		for (float value : line) {
+			if (value != 0.0f)
+				count++;
+		}
+		int start = pointers[major];
+		int oldEnd = pointers[major + 1];
+		int nnz = nonZeroCount();
+		int newNnz = nnz - (oldEnd - start) + count;
+		if (newNnz > indices.length) {
+			indices = Arrays.copyOf(indices, Math.max(newNnz, indices.length + (indices.length >> 1)));
+			values = Arrays.copyOf(values, indices.length);
+		}
+		System.arraycopy(indices, oldEnd, indices, start + count, nnz - oldEnd);
+		System.arraycopy(values, oldEnd, values, start + count, nnz - oldEnd);
+		int k = start;
+		for (int minor = 0; minor < line.length; minor++) {
+			if (line[minor] != 0.0f) {
+				indices[k] = minor;
+				values[k++] = line[minor];
+			}
+		}
+		int shift = count - (oldEnd - start);
+		for (int m = major + 1; m < pointers.length; m++) {
+			pointers[m] += shift;
+		}
+	}
+
+	@Override
+	public void setColumn(int colIndex, List<Float> values) {
+		int indexLimit = Math.min(values.size(), rows);
+		for (int r = 0; r < indexLimit; ++r) {
+			setFloat(r, colIndex, values.get(r));
+		}
+	}
+
+	@Override
+	public void add(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		replaceWith(merge(inSameLayout(matrix), 1.0f));
+	}
+
+	@Override
+	public void subtract(HSMatrix matrix) {
+		if (!isSameOrder(matrix))
+			throw new IllegalArgumentException("Cannot subtract the given matrix. It is not the same order as this matrix.");
+		replaceWith(merge(inSameLayout(matrix), -1.0f));
+	}
+
+	/**
+	 * Multiply every entry by the given scalar, in place over the stored entries, dropping the ones
+	 * that become zero (as a tiny scalar can underflow them to).
+	 * A non-finite scalar turns the zeros that aren't stored into NaN, as it does in a dense matrix,
+	 * so the matrix then stores every entry.
+	 */
+	@Override
+	public void scaleBy(float scalar) {
+		if (!Float.isFinite(scalar)) {
+			scaleEveryEntryBy(scalar);
+			return;
+		}
+		int kept = 0;
+		int start = 0;
+		for (int major = 0; major < majorSize(); major++) {
+			int end = pointers[major + 1];
+			for (int k = start; k < end; k++) {
+				float value = values[k] * scalar;
+				if (value != 0.0f) {
+					indices[kept] = indices[k];
+					values[kept++] = value;
+				}
+			}
+			start = end;
+			pointers[major + 1] = kept;
+		}
+	}
+
+	/**
+	 * Multiply every entry, stored or not, by a non-finite scalar into new arrays.
+	 */
+	private void scaleEveryEntryBy(float scalar) {
+		int majorSize = majorSize();
+		int minorSize = minorSize();
+		long entries = (long) majorSize * minorSize;
+		if (entries > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Scaling by " + scalar + " makes every entry non-zero, too many to store.");
+		int[] newPointers = new int[majorSize + 1];
+		int[] newIndices = new int[(int) entries];
+		float[] newValues = new float[(int) entries];
+		int kept = 0;
+		for (int major = 0; major < majorSize; major++) {
+			int k = pointers[major];
+			int end = pointers[major + 1];
+			for (int minor = 0; minor < minorSize; minor++) {
+				float entry = k < end && indices[k] == minor ? values[k++] : 0.0f;
+				float value = entry * scalar;
+				if (value != 0.0f) {
+					newIndices[kept] = minor;
+					newValues[kept++] = value;
+				}
+			}
+			newPointers[major + 1] = kept;
+		}
+		pointers = newPointers;
+		indices = newIndices;
+		values = newValues;
+	}
+
+	/**
+	 * this += alpha * x, merging x's non-zero entries into this matrix's.
+	 * The merged entries need new arrays; a dense x is compressed first.
+	 */
+	@Override
+	public void axpy(float alpha, HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot add the given matrix. It is not the same order as this matrix.");
+		if (alpha != 0.0f)
+			replaceWith(merge(inSameLayout(x), alpha));
+	}
+
+	/**
+	 * Multiply each entry by the entry of the given matrix in the same position.
+	 * Only the stored entries can change, so this runs in place over them, without allocating,
+	 * dropping the entries that become zero.
+	 */
+	@Override
+	public void hadamardInPlace(HSMatrix x) {
+		if (!isSameOrder(x))
+			throw new IllegalArgumentException("Cannot multiply by the given matrix entry by entry. It is not the same order as this matrix.");
+		x = MatrixView.detachedFrom(x, this);
+		boolean rowMajor = isRowMajor();
+		int kept = 0;
+		int start = 0;
+		for (int major = 0; major < majorSize(); major++) {
+			int end = pointers[major + 1];
+			for (int k = start; k < end; k++) {
+				int minor = indices[k];
+				float factor = x == this ? values[k] : rowMajor ? x.getFloat(major, minor) : x.getFloat(minor, major);
+				float value = values[k] * factor;
+				if (value != 0.0f) {
+					indices[kept] = minor;
+					values[kept++] = value;
+				}
+			}
+			start = end;
+			pointers[major + 1] = kept;
+		}
+	}
+
+	@Override
+	public void multiplyBy(HSMatrix matrixB) {
+		replaceWith(inSameLayout(times(matrixB)));
+	}
+
+	/**
+	 * Transposes this matrix in place, keeping its layout, in O(nnz + rows + columns).
+	 */
+	@Override
+	public void invert() {
+		SparseMatrix recompressed = toOtherLayout();
+		rows = recompressed.cols;
+		cols = recompressed.rows;
+		pointers = recompressed.pointers;
+		indices = recompressed.indices;
+		values = recompressed.values;
+	}
+
+	/**
+	 * Adopt the dimensions and arrays of another sparse matrix of the same layout.
+	 */
+	private void replaceWith(SparseMatrix other) {
+		rows = other.rows;
+		cols = other.cols;
+		pointers = other.pointers;
+		indices = other.indices;
+		values = other.values;
+	}
+}
@@ -0,0 +1,182 @@
+package org.software.hopkins.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Multiplies square matrices with the Strassen-Winograd algorithm,
+ * which needs 7 half-size products and 15 additions per level instead of 8 products,
+ * for O(n^2.81) work in place of O(n^3).
+ * Below the crossover size the recursion stops and the classic {@link TiledMultiplier} kernel takes over,
+ * because for small blocks the extra additions cost more than the product they save.
+ * <p>
+ * Sizes that do not halve evenly down to the crossover are padded with zeros to the
+ * nearest size that does. All temporary blocks for every level of the recursion are
+ * allocated once per product, before the recursion starts.
+ */
+public class StrassenMultiplier {
+	public static final int DEFAULT_CROSSOVER = 256;
+
+	private static volatile StrassenMultiplier defaultMultiplier = new StrassenMultiplier();
+
+	private final int crossover;
+	private final TiledMultiplier leafMultiplier;
+
+	/**
+	 * Create a multiplier with the default crossover that uses the default tiled kernel below it.
+	 */
+	public StrassenMultiplier() {
+		this(DEFAULT_CROSSOVER, TiledMultiplier.getDefault());
+	}
+
+	/**
+	 * Create a multiplier with the given crossover.
+	 * @param crossover - blocks of this size or smaller are multiplied by the classic kernel. At least 1.
+	 * @param leafMultiplier - the classic kernel.
+	 */
+	public StrassenMultiplier(int crossover, TiledMultiplier leafMultiplier) {
+		if (crossover < 1)
+			throw new IllegalArgumentException("The crossover size must be positive.");
+		if (leafMultiplier == null)
+			throw new IllegalArgumentException("The leaf multiplier can't be null.");
+		this.crossover = crossover;
+		this.leafMultiplier = leafMultiplier;
+	}
+
+	public static StrassenMultiplier getDefault() {
+		return defaultMultiplier;
+	}
+
+	public static void setDefault(StrassenMultiplier multiplier) {
+		if (multiplier == null)
+			throw new IllegalArgumentException("The default multiplier can't be null.");
+		defaultMultiplier = multiplier;
+	}
+
+	public int getCrossover() {
+		return crossover;
+	}
+
+	/**
+	 * Multiplies two n x n matrices.
+	 * @param matrixA - the left operand, which must be square.
+	 * @param matrixB - the right operand, of the same order as A.
+	 * @return the n x n product as a new compact row-major array.
+	 */
+	public float[] multiply(HSMatrix matrixA, HSMatrix matrixB) {
+		int n = matrixA.rowSize();
+		if (matrixA.columnSize() != n || !matrixB.isSameOrder(matrixA))
+			throw new IllegalArgumentException("Strassen multiplication needs two square matrices of the same order.");
+		if (n <= crossover)
+			return leafMultiplier.multiply(matrixA, matrixB);
+
+		int levels = 0;
+		int leafSize = n;
+		while (leafSize > crossover) {
+			levels++;
+			leafSize = (n + (1 << levels) - 1) >> levels;
+		}
+		int padded = leafSize << levels;
+
+		float[] a = pad(matrixA, padded);
+		float[] b = pad(matrixB, padded);
+		float[] c = new float[padded * padded];
+		float[][][] workspace = new float[levels][][];
+		for (int level = 0, half = padded / 2; level < levels; level++, half /= 2) {
+			workspace[level] = new float[][] {
+					new float[half * half], new float[half * half],
+					new float[half * half], new float[half * half]};
+		}
+		multiply(padded, a, 0, padded, b, 0, padded, c, 0, padded, workspace, 0);
+
+		if (padded == n)
+			return c;
+		float[] result = new float[n * n];
+		for (int r = 0; r < n; r++) {
+			System.arraycopy(c, r * padded, result, r * n, n);
+		}
+		return result;
+	}
+
+	private static float[] pad(HSMatrix matrix, int padded) {
+		float[] values = new float[padded * padded];
+		for (int r = 0; r < matrix.rowSize(); r++) {
+			matrix.copyRowInto(r, values, r * padded);
+		}
+		return values;
+	}
+
+	/**
+	 * C = A * B for n x n blocks, where each block is given as (array, offset, row stride).
+	 * C is overwritten. The four workspace blocks of this level hold S, T, U and Q below.
+	 */
+	private void multiply(int n, float[] a, int ao, int as, float[] b, int bo, int bs,
+						  float[] c, int co, int cs, float[][][] workspace, int level) {
+		if (level == workspace.length) {
+			for (int r = 0; r < n; r++) {
+				Arrays.fill(c, co + r * cs, co + r * cs + n, 0.0f);
+			}
+			leafMultiplier.multiplyAdd(new DenseMatrix(n, n, a, ao, as), new DenseMatrix(n, n, b, bo, bs), c, co, cs);
+			return;
+		}
+		int h = n / 2;
+		int a11 = ao, a12 = ao + h, a21 = ao + h * as, a22 = a21 + h;
+		int b11 = bo, b12 = bo + h, b21 = bo + h * bs, b22 = b21 + h;
+		int c11 = co, c12 = co + h, c21 = co + h * cs, c22 = c21 + h;
+		float[] s = workspace[level][0], t = workspace[level][1];
+		float[] u = workspace[level][2], q = workspace[level][3];
+		int next = level + 1;
+
+		// U = P1 = A11 * B11; C11 = P1 + P2
+		multiply(h, a, a11, as, b, b11, bs, u, 0, h, workspace, next);
+		multiply(h, a, a12, as, b, b21, bs, q, 0, h, workspace, next);
+		add(h, u, 0, h, q, 0, h, c, c11, cs);
+
+		// C12 = P5 = S1 * T1 with S1 = A21 + A22, T1 = B12 - B11
+		add(h, a, a21, as, a, a22, as, s, 0, h);
+		subtract(h, b, b12, bs, b, b11, bs, t, 0, h);
+		multiply(h, s, 0, h, t, 0, h, c, c12, cs, workspace, next);
+
+		// U = U2 = P1 + P6 with S2 = S1 - A11, T2 = B22 - T1; C12 = U4 = U2 + P5
+		subtract(h, s, 0, h, a, a11, as, s, 0, h);
+		subtract(h, b, b22, bs, t, 0, h, t, 0, h);
+		multiply(h, s, 0, h, t, 0, h, q, 0, h, workspace, next);
+		add(h, u, 0, h, q, 0, h, u, 0, h);
+		add(h, c, c12, cs, u, 0, h, c, c12, cs);
+
+		// C22 = U4; C12 = U5 = U4 + P3 with S4 = A12 - S2
+		copy(h, c, c12, cs, c, c22, cs);
+		subtract(h, a, a12, as, s, 0, h, s, 0, h);
+		multiply(h, s, 0, h, b, b22, bs, q, 0, h, workspace, next);
+		add(h, c, c12, cs, q, 0, h, c, c12, cs);
+
+		// C21 = U2 - P4 with T4 = T2 - B21
+		subtract(h, t, 0, h, b, b21, bs, t, 0, h);
+		multiply(h, a, a22, as, t, 0, h, q, 0, h, workspace, next);
+		subtract(h, u, 0, h, q, 0, h, c, c21, cs);
+
+		// P7 = S3 * T3 with S3 = A11 - A21, T3 = B22 - B12; C21 = U6 = U2 - P4 + P7, C22 = U7 = U4 + P7
+		subtract(h, a, a11, as, a, a21, as, s, 0, h);
+		subtract(h, b, b22, bs, b, b12, bs, t, 0, h);
+		multiply(h, s, 0, h, t, 0, h, q, 0, h, workspace, next);
+		add(h, c, c21, cs, q, 0, h, c, c21, cs);
+		add(h, c, c22, cs, q, 0, h, c, c22, cs);
+	}
+
+	private static void add(int n, float[] x, int xo, int xs, float[] y, int yo, int ys, float[] out, int oo, int os) {
+		for (int r = 0; r < n; r++) {
+			ElementwiseKernels.add(x, xo + r * xs, y, yo + r * ys, out, oo + r * os, n);
+		}
+	}
+
+	private static void subtract(int n, float[] x, int xo, int xs, float[] y, int yo, int ys, float[] out, int oo, int os) {
+		for (int r = 0; r < n; r++) {
+			ElementwiseKernels.subtract(x, xo + r * xs, y, yo + r * ys, out, oo + r * os, n);
+		}
+	}
+
+	private static void copy(int n, float[] x, int xo, int xs, float[] out, int oo, int os) {
+		for (int r = 0; r < n; r++) {
+			System.arraycopy(x, xo + r * xs, out, oo + r * os, n);
+		}
+	}
+}
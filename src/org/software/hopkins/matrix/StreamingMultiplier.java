@@ -0,0 +1,170 @@
+package org.software.hopkins.matrix;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multiplies a matrix file too big for memory by a matrix that fits, a block of rows at a time,
+ * writing the product to another matrix file as it goes.
+ * <p>
+ * The left operand is read through a {@link FileChannel} into one of two buffers by a prefetching thread,
+ * which reads the next block while the current one is multiplied, so reading the file and multiplying
+ * overlap. Each block is multiplied by the default {@link TiledMultiplier}, whose result for every entry
+ * depends only on that entry's row and column, so the product is identical, bit for bit, to what
+ * {@link HSMatrix#times(HSMatrix)} would give if the left operand were in memory. Memory stays bounded by
+ * a few blocks and the right operand, however many rows the file has.
+ */
+public final class StreamingMultiplier {
+	/** The bytes of the left operand read as one block by default. */
+	public static final int DEFAULT_BLOCK_BYTES = 8 << 20;
+
+	private final int blockBytes;
+
+	public StreamingMultiplier() {
+		this(DEFAULT_BLOCK_BYTES);
+	}
+
+	/**
+	 * @param blockBytes - about how many bytes of the left operand, or of the product if its rows are longer,
+	 *                   to handle at a time; a block always holds at least one row.
+	 */
+	public StreamingMultiplier(int blockBytes) {
+		if (blockBytes < Float.BYTES)
+			throw new IllegalArgumentException("A block must hold at least one entry.");
+		this.blockBytes = blockBytes;
+	}
+
+	public int getBlockBytes() {
+		return blockBytes;
+	}
+
+	/**
+	 * Multiply the matrix in the left file by the right matrix, writing the product to the result file.
+	 * @param left - a matrix file of m x n entries.
+	 * @param right - an n x p matrix of any kind; a vector is an n x 1 matrix.
+	 * @param result - the file to write the m x p product to, replacing any file there; it must not be the left file.
+	 * @throws IOException if the left file can't be read or is not a matrix file, or the result can't be written.
+	 * @throws IllegalArgumentException if the result file is the left file, which writing would overwrite as it is read.
+	 */
+	public void multiply(Path left, HSMatrix right, Path result) throws IOException {
+		if (Files.exists(result) && Files.isSameFile(left, result))
+			throw new IllegalArgumentException("The product can't be written to the left operand's file.");
+		try (FileChannel channel = FileChannel.open(left, StandardOpenOption.READ)) {
+			MatrixFile.Header header = MatrixFile.readHeader(channel, left);
+			if (header.cols != right.rowSize())
+				throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+			int rows = header.rows;
+			int cols = header.cols;
+			int resultCols = right.columnSize();
+			int widest = Math.max(1, Math.max(cols, resultCols));
+			if ((long) widest * Float.BYTES > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Rows of " + widest + " entries are too long to stream.");
+			int blockRows = (int) Math.max(1, Math.min(rows, blockBytes / ((long) widest * Float.BYTES)));
+			HSMatrix operand = prepared(right);
+			TiledMultiplier multiplier = TiledMultiplier.getDefault();
+			ExecutorService prefetcher = newPrefetcher();
+			try (MatrixFile.Writer writer = MatrixFile.newWriter(result, rows, resultCols)) {
+				Block[] blocks = {new Block(blockRows * cols), new Block(blockRows * cols)};
+				Future<Block> pending = prefetch(prefetcher, channel, blocks[0], 0, Math.min(blockRows, rows), cols);
+				for (int start = 0, turn = 0; start < rows; start += blockRows, turn ^= 1) {
+					Block block = await(pending);
+					int nextStart = start + blockRows;
+					if (nextStart < rows)
+						pending = prefetch(prefetcher, channel, blocks[turn ^ 1], nextStart, Math.min(blockRows, rows - nextStart), cols);
+					DenseMatrix rowsOfLeft = new DenseMatrix(block.rows, cols, block.entries, 0, cols);
+					writer.writeRows(multiplier.multiply(rowsOfLeft, operand), 0, block.rows);
+				}
+			} finally {
+				prefetcher.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Get the right operand in a form the multiplier reads directly, so it is converted only once
+	 * rather than once a block.
+	 */
+	private static HSMatrix prepared(HSMatrix right) {
+		if (right instanceof SparseMatrix || MatrixView.layoutOf(right) != null)
+			return right;
+		return new DenseMatrix(right);
+	}
+
+	/**
+	 * A block of rows of the left operand: the bytes read from the file and the entries decoded from them.
+	 */
+	private static final class Block {
+		final ByteBuffer bytes;
+		final float[] entries;
+		int rows;
+
+		Block(int capacity) {
+			bytes = ByteBuffer.allocateDirect(capacity * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			entries = new float[capacity];
+		}
+	}
+
+	/**
+	 * Start reading the given rows into the block on the prefetching thread.
+	 */
+	private static Future<Block> prefetch(ExecutorService prefetcher, FileChannel channel, Block block,
+										  int rowStart, int rowCount, int cols) {
+		return prefetcher.submit(() -> {
+			int count = rowCount * cols;
+			long position = MatrixFile.HEADER_BYTES + (long) rowStart * cols * Float.BYTES;
+			ByteBuffer bytes = block.bytes;
+			bytes.clear().limit(count * Float.BYTES);
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes, position + bytes.position()) < 0)
+					throw new EOFException("The matrix file ended at row " + rowStart + ".");
+			}
+			bytes.flip();
+			bytes.asFloatBuffer().get(block.entries, 0, count);
+			block.rows = rowCount;
+			return block;
+		});
+	}
+
+	/**
+	 * Start the single daemon thread that reads ahead of a multiplication.
+	 */
+	static ExecutorService newPrefetcher() {
+		return Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "matrix-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Wait for a read started on the prefetching thread, rethrowing what it threw.
+	 */
+	static <T> T await(Future<T> pending) throws IOException {
+		try {
+			return pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading a matrix file.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.software.hopkins.matrix;
+
+/**
+ * Where the entries of a matrix sit in a float array: entry (r, c) is at
+ * data[offset + r * rowStride + c * colStride].
+ * A compact or strided DenseMatrix has a column stride of 1; its transpose is the same array
+ * with the strides exchanged, and a submatrix or slice of either only changes the offset and strides.
+ * This is how views over dense storage reach the multiplication kernel without being copied.
+ */
+final class StridedLayout {
+	final float[] data;
+	final int offset;
+	final int rows, cols;
+	final int rowStride, colStride;
+	/** The layout this one was derived from by {@link #transposed()} or {@link #slice}, or null. */
+	final StridedLayout source;
+
+	StridedLayout(float[] data, int offset, int rows, int cols, int rowStride, int colStride) {
+		this(data, offset, rows, cols, rowStride, colStride, null);
+	}
+
+	private StridedLayout(float[] data, int offset, int rows, int cols, int rowStride, int colStride,
+						  StridedLayout source) {
+		this.data = data;
+		this.offset = offset;
+		this.rows = rows;
+		this.cols = cols;
+		this.rowStride = rowStride;
+		this.colStride = colStride;
+		this.source = source;
+	}
+
+	/**
+	 * Whether this layout describes the given storage, so that it can be reused rather than made again.
+	 */
+	boolean describes(float[] data, int offset, int rows, int cols, int rowStride) {
+		return this.data == data && this.offset == offset && this.rows == rows && this.cols == cols
+				&& this.rowStride == rowStride;
+	}
+
+	float get(int row, int column) {
+		return data[offset + row * rowStride + column * colStride];
+	}
+
+	/**
+	 * The same entries read column for row.
+	 */
+	StridedLayout transposed() {
+		return new StridedLayout(data, offset, cols, rows, colStride, rowStride, this);
+	}
+
+	/**
+	 * Every rowStep-th of rowCount rows from rowStart, and every colStep-th of colCount columns from colStart.
+	 */
+	StridedLayout slice(int rowStart, int rowCount, int rowStep, int colStart, int colCount, int colStep) {
+		return new StridedLayout(data, offset + rowStart * rowStride + colStart * colStride,
+				rowCount, colCount, rowStride * rowStep, colStride * colStep, this);
+	}
+
+	/**
+	 * Copy a row into an array.
+	 */
+	void copyRowInto(int row, float[] dest, int destOffset) {
+		int base = offset + row * rowStride;
+		if (colStride == 1) {
+			System.arraycopy(data, base, dest, destOffset, cols);
+		} else {
+			for (int c = 0; c < cols; c++) {
+				dest[destOffset + c] = data[base + c * colStride];
+			}
+		}
+	}
+
+	/**
+	 * Copy a column into an array.
+	 */
+	void copyColumnInto(int column, float[] dest, int destOffset) {
+		transposed().copyRowInto(column, dest, destOffset);
+	}
+}
@@ -20,6 +20,8 @@ public interface SummableMatrix {
 
 	/**
 	 * Get the sum of the given column of this matrix.
+	 * To sum every row or column, use {@link HSMatrix#rowSums()} or {@link HSMatrix#columnSums()},
+	 * which read the matrix once instead of once per index.
 	 * @param colIndex the given column's index
 	 * @return the sum of the given column
 	 */
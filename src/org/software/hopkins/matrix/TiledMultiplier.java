@@ -0,0 +1,453 @@
+package org.software.hopkins.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A cache-blocked matrix multiplication engine.
+ * The product C = A * B is computed block by block: a kc x nc block of B and an mc x kc
+ * block of A are packed into contiguous panels that fit the CPU caches, and a small
+ * register-blocked micro-kernel computes MR x NR tiles of C from those panels.
+ * The block sizes can be tuned per instance; the default instance is used by
+ * {@link Matrix#times(HSMatrix)}, {@link MutableMatrix#multiplyBy(HSMatrix)} and the dense matrices.
+ * <p>
+ * Products of at least {@link #getParallelThreshold()} multiply-adds are split into tiles of C
+ * that are computed in parallel on a {@link ForkJoinPool}. Each tile writes a disjoint part of C,
+ * so the tasks share nothing but the read-only operands.
+ * <p>
+ * The packed panels are kept in per-thread buffers between products, so repeated products allocate
+ * nothing but their result; each thread that multiplies keeps up to
+ * (rowBlock + columnBlock) * depthBlock floats, about 1.1 MB with the default block sizes.
+ */
+public class TiledMultiplier {
+	/** Rows of C computed by one micro-kernel call. */
+	static final int MR = 4;
+	/** Columns of C computed by one micro-kernel call. */
+	static final int NR = 4;
+
+	public static final int DEFAULT_ROW_BLOCK = 128;
+	public static final int DEFAULT_DEPTH_BLOCK = 256;
+	public static final int DEFAULT_COLUMN_BLOCK = 1024;
+	/** Parallel tiles are not split below this many columns, so packing stays cheap relative to compute. */
+	static final int MIN_TILE_COLUMNS = 256;
+
+	/** Products with fewer multiply-adds than this run on the calling thread. */
+	public static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 21;
+
+	private static volatile TiledMultiplier defaultMultiplier = new TiledMultiplier();
+
+	/** Each thread's packed A and B buffers, grown as needed and reused by later products. */
+	private static final ThreadLocal<float[][]> PACK_BUFFERS = ThreadLocal.withInitial(() -> new float[2][0]);
+
+	private final int rowBlock, depthBlock, columnBlock;
+	private final long parallelThreshold;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create a multiplier with the default block sizes that runs large products
+	 * on the common fork/join pool.
+	 */
+	public TiledMultiplier() {
+		this(DEFAULT_ROW_BLOCK, DEFAULT_DEPTH_BLOCK, DEFAULT_COLUMN_BLOCK);
+	}
+
+	/**
+	 * Create a multiplier with the given block sizes.
+	 * The packed A block takes rowBlock * depthBlock floats and should fit in the L2 cache;
+	 * the packed B block takes depthBlock * columnBlock floats and should fit in the L3 cache.
+	 * @param rowBlock - rows of A packed at a time (mc). Rounded up to a multiple of 4.
+	 * @param depthBlock - columns of A and rows of B packed at a time (kc).
+	 * @param columnBlock - columns of B packed at a time (nc). Rounded up to a multiple of 4.
+	 */
+	public TiledMultiplier(int rowBlock, int depthBlock, int columnBlock) {
+		this(rowBlock, depthBlock, columnBlock, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a multiplier with the given block sizes and parallel settings.
+	 * @param rowBlock - rows of A packed at a time (mc). Rounded up to a multiple of 4.
+	 * @param depthBlock - columns of A and rows of B packed at a time (kc).
+	 * @param columnBlock - columns of B packed at a time (nc). Rounded up to a multiple of 4.
+	 * @param parallelThreshold - the number of multiply-adds (m * n * p) from which a product
+	 *                          is computed in parallel. Use Long.MAX_VALUE to always stay sequential.
+	 * @param pool - the pool that runs the parallel tiles, such as the common pool
+	 *             or one dedicated to matrix work.
+	 */
+	public TiledMultiplier(int rowBlock, int depthBlock, int columnBlock,
+						   long parallelThreshold, ForkJoinPool pool) {
+		if (rowBlock < 1 || depthBlock < 1 || columnBlock < 1)
+			throw new IllegalArgumentException("Block sizes must be positive.");
+		if (parallelThreshold < 0)
+			throw new IllegalArgumentException("The parallel threshold must not be negative.");
+		if (pool == null)
+			throw new IllegalArgumentException("The fork/join pool can't be null.");
+		this.rowBlock = roundUp(rowBlock, MR);
+		this.depthBlock = depthBlock;
+		this.columnBlock = roundUp(columnBlock, NR);
+		this.parallelThreshold = parallelThreshold;
+		this.pool = pool;
+	}
+
+	/**
+	 * Get a multiplier with the same block sizes that never runs in parallel.
+	 * @return a sequential copy of this multiplier.
+	 */
+	public TiledMultiplier sequential() {
+		return withParallelism(Long.MAX_VALUE, pool);
+	}
+
+	/**
+	 * Get a multiplier with the same block sizes but the given parallel settings.
+	 * @param threshold - the number of multiply-adds from which a product is computed in parallel.
+	 * @param forkJoinPool - the pool that runs the parallel tiles.
+	 * @return a new multiplier.
+	 */
+	public TiledMultiplier withParallelism(long threshold, ForkJoinPool forkJoinPool) {
+		return new TiledMultiplier(rowBlock, depthBlock, columnBlock, threshold, forkJoinPool);
+	}
+
+	/**
+	 * Get the multiplier used by the matrix classes.
+	 * @return the shared default multiplier.
+	 */
+	public static TiledMultiplier getDefault() {
+		return defaultMultiplier;
+	}
+
+	/**
+	 * Replace the multiplier used by the matrix classes, for example to tune block sizes.
+	 * @param multiplier - the new shared multiplier.
+	 */
+	public static void setDefault(TiledMultiplier multiplier) {
+		if (multiplier == null)
+			throw new IllegalArgumentException("The default multiplier can't be null.");
+		defaultMultiplier = multiplier;
+	}
+
+	public int getRowBlock() {
+		return rowBlock;
+	}
+
+	public int getDepthBlock() {
+		return depthBlock;
+	}
+
+	public int getColumnBlock() {
+		return columnBlock;
+	}
+
+	public long getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Multiplies the mxn matrix A by the nxp matrix B.
+	 * When either operand is a {@link SparseMatrix} only its non-zero entries are visited,
+	 * and the sparse operand is never expanded to dense storage.
+	 * @param matrixA - the left operand.
+	 * @param matrixB - a matrix with the same number of rows as A has columns.
+	 * @return the mxp product as a new compact row-major array.
+	 */
+	public float[] multiply(HSMatrix matrixA, HSMatrix matrixB) {
+		if (matrixA.columnSize() != matrixB.rowSize()) {
+			throw new IllegalArgumentException("Can't multiply by given matrix. Its row size does not equal this matrix's column size.");
+		}
+		float[] c;
+		if (matrixA instanceof SparseMatrix) {
+			SparseMatrix sparseA = (SparseMatrix) matrixA;
+			if (!(matrixB instanceof SparseMatrix))
+				return sparseA.multiplyDense(asDense(matrixB));
+			c = new float[matrixA.rowSize() * matrixB.columnSize()];
+			((SparseMatrix) sparseA.times(matrixB)).scatterAddInto(c, 0, matrixB.columnSize());
+			return c;
+		}
+		if (matrixB instanceof SparseMatrix)
+			return ((SparseMatrix) matrixB).leftMultiplyDense(asDense(matrixA));
+		c = new float[matrixA.rowSize() * matrixB.columnSize()];
+		multiplyAdd(stridedLayout(matrixA), stridedLayout(matrixB), c, 0, matrixB.columnSize());
+		return c;
+	}
+
+	/**
+	 * Get a dense view of the given matrix, copying it only if it is not dense already.
+	 */
+	static DenseMatrix asDense(HSMatrix matrix) {
+		return matrix instanceof DenseMatrix ? (DenseMatrix) matrix : new DenseMatrix(matrix);
+	}
+
+	/**
+	 * Get the strided array layout of a matrix over dense storage, including views such as a transpose,
+	 * copying the matrix only if it is not over dense storage.
+	 */
+	static StridedLayout stridedLayout(HSMatrix matrix) {
+		StridedLayout layout = MatrixView.layoutOf(matrix);
+		return layout != null ? layout : new DenseMatrix(matrix).layout();
+	}
+
+	/**
+	 * C += A * B where C is the m x p region of the given array at cOffset with row stride cRowStride.
+	 * Runs in parallel when the product is at least as large as the parallel threshold.
+	 */
+	void multiplyAdd(DenseMatrix a, DenseMatrix b, float[] c, int cOffset, int cRowStride) {
+		multiplyAdd(a.layout(), b.layout(), c, cOffset, cRowStride);
+	}
+
+	/**
+	 * C += A * B for operands in any strided layout, such as a transposed view of a dense matrix.
+	 */
+	void multiplyAdd(StridedLayout a, StridedLayout b, float[] c, int cOffset, int cRowStride) {
+		multiplyAdd(1.0f, a, b, c, cOffset, cRowStride);
+	}
+
+	/**
+	 * C += alpha * A * B. Alpha is applied as A is packed, so it costs no extra pass over C.
+	 */
+	void multiplyAdd(float alpha, StridedLayout a, StridedLayout b, float[] c, int cOffset, int cRowStride) {
+		long work = (long) a.rows * a.cols * b.cols;
+		if (work >= parallelThreshold && pool.getParallelism() > 1
+				&& (a.rows > rowBlock || b.cols > MIN_TILE_COLUMNS)) {
+			TileTask task = new TileTask(alpha, a, b, 0, a.rows, 0, b.cols, c, cOffset, cRowStride);
+			if (ForkJoinTask.getPool() == pool)
+				task.invoke();
+			else
+				pool.invoke(task);
+		} else {
+			multiplyAdd(alpha, a, b, 0, a.rows, 0, b.cols, c, cOffset, cRowStride);
+		}
+	}
+
+	/**
+	 * C += alpha * A * B restricted to rows [rowStart, rowEnd) and columns [colStart, colEnd) of C.
+	 * C's entry (i, j) is at c[cOffset + i * cRowStride + j].
+	 */
+	void multiplyAdd(float alpha, StridedLayout a, StridedLayout b, int rowStart, int rowEnd, int colStart, int colEnd,
+					 float[] c, int cOffset, int cRowStride) {
+		int depth = a.cols;
+		if (rowStart >= rowEnd || colStart >= colEnd || depth == 0)
+			return;
+		int kc = Math.min(depthBlock, depth);
+		int mc = Math.min(rowBlock, roundUp(rowEnd - rowStart, MR));
+		int nc = Math.min(columnBlock, roundUp(colEnd - colStart, NR));
+		float[][] buffers = PACK_BUFFERS.get();
+		if (buffers[0].length < mc * kc)
+			buffers[0] = new float[mc * kc];
+		if (buffers[1].length < kc * nc)
+			buffers[1] = new float[kc * nc];
+		float[] packedA = buffers[0];
+		float[] packedB = buffers[1];
+
+		for (int jc = colStart; jc < colEnd; jc += columnBlock) {
+			int ncCur = Math.min(columnBlock, colEnd - jc);
+			for (int pc = 0; pc < depth; pc += depthBlock) {
+				int kcCur = Math.min(depthBlock, depth - pc);
+				packB(b, pc, kcCur, jc, ncCur, packedB);
+				for (int ic = rowStart; ic < rowEnd; ic += rowBlock) {
+					int mcCur = Math.min(rowBlock, rowEnd - ic);
+					packA(alpha, a, ic, mcCur, pc, kcCur, packedA);
+					macroKernel(packedA, packedB, mcCur, ncCur, kcCur,
+							c, cOffset + ic * cRowStride + jc, cRowStride);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes one rectangular tile of C, splitting it in half along its longer side
+	 * until it is small enough to compute directly.
+	 * Rows are split on rowBlock boundaries and columns on NR boundaries,
+	 * so the tiles line up with the packed panels. Tiles stop splitting at
+	 * rowBlock rows by MIN_TILE_COLUMNS columns, because every tile packs its own panels.
+	 */
+	private final class TileTask extends RecursiveAction {
+		private final float alpha;
+		private final StridedLayout a, b;
+		private final int rowStart, rowEnd, colStart, colEnd;
+		private final float[] c;
+		private final int cOffset, cRowStride;
+
+		TileTask(float alpha, StridedLayout a, StridedLayout b, int rowStart, int rowEnd, int colStart, int colEnd,
+				 float[] c, int cOffset, int cRowStride) {
+			this.alpha = alpha;
+			this.a = a;
+			this.b = b;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.colStart = colStart;
+			this.colEnd = colEnd;
+			this.c = c;
+			this.cOffset = cOffset;
+			this.cRowStride = cRowStride;
+		}
+
+		@Override
+		protected void compute() {
+			int tileRows = rowEnd - rowStart;
+			int tileCols = colEnd - colStart;
+			boolean canSplitRows = tileRows > rowBlock;
+			boolean canSplitCols = tileCols >= 2 * MIN_TILE_COLUMNS;
+			if (!canSplitRows && !canSplitCols) {
+				multiplyAdd(alpha, a, b, rowStart, rowEnd, colStart, colEnd, c, cOffset, cRowStride);
+			} else if (canSplitRows && (tileRows >= tileCols || !canSplitCols)) {
+				int mid = rowStart + roundUp(tileRows / 2, rowBlock);
+				if (mid >= rowEnd)
+					mid = rowStart + rowBlock;
+				invokeAll(new TileTask(alpha, a, b, rowStart, mid, colStart, colEnd, c, cOffset, cRowStride),
+						new TileTask(alpha, a, b, mid, rowEnd, colStart, colEnd, c, cOffset, cRowStride));
+			} else {
+				int mid = colStart + roundUp(tileCols / 2, NR);
+				invokeAll(new TileTask(alpha, a, b, rowStart, rowEnd, colStart, mid, c, cOffset, cRowStride),
+						new TileTask(alpha, a, b, rowStart, rowEnd, mid, colEnd, c, cOffset, cRowStride));
+			}
+		}
+	}
+
+	/**
+	 * Pack an mc x kc block of A into row panels of MR rows each.
+	 * Within a panel the MR entries of each column are adjacent, so the micro-kernel reads them in order.
+	 * A panel is filled a column at a time: for a row-major A that reads MR rows side by side,
+	 * and for a column-major A (such as a transposed view, with row stride 1) one contiguous run.
+	 * Each entry is multiplied by alpha on the way. Rows past the end of A are padded with zeros.
+	 */
+	private static void packA(float alpha, StridedLayout a, int rowStart, int mc, int depthStart, int kc, float[] packed) {
+		float[] src = a.data;
+		int rowStride = a.rowStride;
+		int colStride = a.colStride;
+		int dest = 0;
+		for (int i = 0; i < mc; i += MR) {
+			int mr = Math.min(MR, mc - i);
+			int base = a.offset + (rowStart + i) * rowStride + depthStart * colStride;
+			for (int k = 0; k < kc; k++) {
+				int colBase = base + k * colStride;
+				int r = 0;
+				for (; r < mr; r++) {
+					packed[dest++] = alpha * src[colBase + r * rowStride];
+				}
+				for (; r < MR; r++) {
+					packed[dest++] = 0.0f;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pack a kc x nc block of B into column panels of NR columns each.
+	 * Within a panel the NR entries of each row are adjacent.
+	 * A row-major B is read along its rows; a column-major B (such as a transposed view)
+	 * is read down its columns instead, so the reads stay sequential either way.
+	 * Columns past the end of B are padded with zeros.
+	 */
+	private static void packB(StridedLayout b, int depthStart, int kc, int colStart, int nc, float[] packed) {
+		float[] src = b.data;
+		int rowStride = b.rowStride;
+		int colStride = b.colStride;
+		for (int j = 0; j < nc; j += NR) {
+			int nr = Math.min(NR, nc - j);
+			int panel = j * kc;
+			int base = b.offset + depthStart * rowStride + (colStart + j) * colStride;
+			if (colStride == 1) {
+				for (int k = 0; k < kc; k++) {
+					int rowBase = base + k * rowStride;
+					int dest = panel + k * NR;
+					int c = 0;
+					for (; c < nr; c++) {
+						packed[dest + c] = src[rowBase + c];
+					}
+					for (; c < NR; c++) {
+						packed[dest + c] = 0.0f;
+					}
+				}
+			} else {
+				for (int c = 0; c < NR; c++) {
+					int colBase = base + c * colStride;
+					if (c < nr) {
+						for (int k = 0; k < kc; k++) {
+							packed[panel + k * NR + c] = src[colBase + k * rowStride];
+						}
+					} else {
+						for (int k = 0; k < kc; k++) {
+							packed[panel + k * NR + c] = 0.0f;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Multiply a packed mc x kc block of A by a packed kc x nc block of B,
+	 * adding the result into C starting at cStart.
+	 */
+	private static void macroKernel(float[] packedA, float[] packedB, int mc, int nc, int kc,
+									float[] c, int cStart, int cRowStride) {
+		for (int j = 0; j < nc; j += NR) {
+			int nr = Math.min(NR, nc - j);
+			int bPanel = (j / NR) * NR * kc;
+			for (int i = 0; i < mc; i += MR) {
+				int mr = Math.min(MR, mc - i);
+				int aPanel = (i / MR) * MR * kc;
+				microKernel(kc, packedA, aPanel, packedB, bPanel, c, cStart + i * cRowStride + j, cRowStride, mr, nr);
+			}
+		}
+	}
+
+	/**
+	 * Compute one MR x NR tile of C in registers and add it into C.
+	 * Only the top-left mr x nr part of the tile is written, for tiles on the edge of C.
+	 */
+	private static void microKernel(int kc, float[] a, int aIdx, float[] b, int bIdx,
+									float[] c, int cIdx, int cRowStride, int mr, int nr) {
+		float c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+		float c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+		float c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+		float c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+		for (int k = 0; k < kc; k++) {
+			float b0 = b[bIdx], b1 = b[bIdx + 1], b2 = b[bIdx + 2], b3 = b[bIdx + 3];
+			float a0 = a[aIdx];
+			c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+			float a1 = a[aIdx + 1];
+			c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+			float a2 = a[aIdx + 2];
+			c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+			float a3 = a[aIdx + 3];
+			c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+			aIdx += MR;
+			bIdx += NR;
+		}
+		if (mr == MR && nr == NR) {
+			c[cIdx] += c00; c[cIdx + 1] += c01; c[cIdx + 2] += c02; c[cIdx + 3] += c03;
+			cIdx += cRowStride;
+			c[cIdx] += c10; c[cIdx + 1] += c11; c[cIdx + 2] += c12; c[cIdx + 3] += c13;
+			cIdx += cRowStride;
+			c[cIdx] += c20; c[cIdx + 1] += c21; c[cIdx + 2] += c22; c[cIdx + 3] += c23;
+			cIdx += cRowStride;
+			c[cIdx] += c30; c[cIdx + 1] += c31; c[cIdx + 2] += c32; c[cIdx + 3] += c33;
+		} else {
+			storeEdgeRow(c, cIdx, nr, c00, c01, c02, c03);
+			if (mr > 1)
+				storeEdgeRow(c, cIdx + cRowStride, nr, c10, c11, c12, c13);
+			if (mr > 2)
+				storeEdgeRow(c, cIdx + 2 * cRowStride, nr, c20, c21, c22, c23);
+			if (mr > 3)
+				storeEdgeRow(c, cIdx + 3 * cRowStride, nr, c30, c31, c32, c33);
+		}
+	}
+
+	private static void storeEdgeRow(float[] c, int cIdx, int nr, float v0, float v1, float v2, float v3) {
+		c[cIdx] += v0;
+		if (nr > 1)
+			c[cIdx + 1] += v1;
+		if (nr > 2)
+			c[cIdx + 2] += v2;
+		if (nr > 3)
+			c[cIdx + 3] += v3;
+	}
+
+	private static int roundUp(int value, int multiple) {
+		return (value + multiple - 1) / multiple * multiple;
+	}
+}
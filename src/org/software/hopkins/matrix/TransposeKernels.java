@@ -0,0 +1,219 @@
+package org.software.hopkins.matrix;
+
+/**
+ * Cache-oblivious transposes of row-major arrays of floats and ints.
+ * <p>
+ * Reading a matrix along its rows while writing its transpose along its columns misses the cache
+ * on nearly every write once a column of the transpose spans more pages than the cache holds.
+ * These kernels halve the longer side of the block being transposed until it holds at most
+ * {@link #LEAF_ENTRIES} entries, so that at every level of the memory hierarchy some level of the
+ * recursion fits, without tuning a tile size to any one cache.
+ * <p>
+ * A square block is transposed in place by transposing its two diagonal halves in place and swapping
+ * its off-diagonal halves with each other's transpose, which allocates nothing. A compact non-square
+ * matrix is transposed in place by following the cycles of the permutation that takes each entry to its
+ * place in the transpose, marking the entries already moved in a bit set of one bit per entry.
+ */
+final class TransposeKernels {
+	/** Blocks of at most this many entries are transposed directly; 32 x 32 floats of source and destination fit in L1. */
+	static final int LEAF_ENTRIES = 1024;
+
+	private TransposeKernels() {
+	}
+
+	/**
+	 * dst = the transpose of the rows x cols block of src, where dst is cols x rows.
+	 */
+	static void transpose(float[] src, int srcOffset, int srcRowStride, int rows, int cols,
+						  float[] dst, int dstOffset, int dstRowStride) {
+		if ((long) rows * cols <= LEAF_ENTRIES) {
+			for (int r = 0; r < rows; r++) {
+				int srcBase = srcOffset + r * srcRowStride;
+				for (int c = 0; c < cols; c++) {
+					dst[dstOffset + c * dstRowStride + r] = src[srcBase + c];
+				}
+			}
+		} else if (rows >= cols) {
+			int half = rows >>> 1;
+			transpose(src, srcOffset, srcRowStride, half, cols, dst, dstOffset, dstRowStride);
+			transpose(src, srcOffset + half * srcRowStride, srcRowStride, rows - half, cols, dst, dstOffset + half, dstRowStride);
+		} else {
+			int half = cols >>> 1;
+			transpose(src, srcOffset, srcRowStride, rows, half, dst, dstOffset, dstRowStride);
+			transpose(src, srcOffset + half, srcRowStride, rows, cols - half, dst, dstOffset + half * dstRowStride, dstRowStride);
+		}
+	}
+
+	/**
+	 * Transpose the n x n block of a at offset in place.
+	 */
+	static void transposeSquare(float[] a, int offset, int rowStride, int n) {
+		if ((long) n * n <= LEAF_ENTRIES) {
+			for (int r = 0; r < n; r++) {
+				for (int c = r + 1; c < n; c++) {
+					int upper = offset + r * rowStride + c;
+					int lower = offset + c * rowStride + r;
+					float tmp = a[upper];
+					a[upper] = a[lower];
+					a[lower] = tmp;
+				}
+			}
+			return;
+		}
+		int half = n >>> 1;
+		transposeSquare(a, offset, rowStride, half);
+		transposeSquare(a, offset + half * rowStride + half, rowStride, n - half);
+		swapTransposed(a, offset + half, offset + half * rowStride, rowStride, half, n - half);
+	}
+
+	/**
+	 * Swap the rows x cols block at upper with the transpose of the cols x rows block at lower.
+	 */
+	private static void swapTransposed(float[] a, int upper, int lower, int rowStride, int rows, int cols) {
+		if ((long) rows * cols <= LEAF_ENTRIES) {
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < cols; c++) {
+					int u = upper + r * rowStride + c;
+					int l = lower + c * rowStride + r;
+					float tmp = a[u];
+					a[u] = a[l];
+					a[l] = tmp;
+				}
+			}
+		} else if (rows >= cols) {
+			int half = rows >>> 1;
+			swapTransposed(a, upper, lower, rowStride, half, cols);
+			swapTransposed(a, upper + half * rowStride, lower + half, rowStride, rows - half, cols);
+		} else {
+			int half = cols >>> 1;
+			swapTransposed(a, upper, lower, rowStride, rows, half);
+			swapTransposed(a, upper + half, lower + half * rowStride, rowStride, rows, cols - half);
+		}
+	}
+
+	/**
+	 * Transpose the compact rows x cols matrix at a[offset .. offset + rows * cols) in place,
+	 * leaving it a compact cols x rows matrix.
+	 */
+	static void transposeInPlace(float[] a, int offset, int rows, int cols) {
+		if (rows == cols) {
+			transposeSquare(a, offset, cols, rows);
+			return;
+		}
+		int last = rows * cols - 1;
+		if (rows <= 1 || cols <= 1)
+			return;
+		long[] moved = new long[(last >>> 6) + 1];
+		for (int start = 1; start < last; start++) {
+			if ((moved[start >>> 6] & (1L << start)) != 0)
+				continue;
+			// The entry at index k = r * cols + c belongs at c * rows + r, which is k * rows mod (rows * cols - 1).
+			float carried = a[offset + start];
+			int k = start;
+			do {
+				int next = (int) ((long) k * rows % last);
+				float displaced = a[offset + next];
+				a[offset + next] = carried;
+				carried = displaced;
+				moved[next >>> 6] |= 1L << next;
+				k = next;
+			} while (k != start);
+		}
+	}
+
+	/**
+	 * dst = the transpose of the rows x cols block of src, where dst is cols x rows.
+	 */
+	static void transpose(int[] src, int srcOffset, int srcRowStride, int rows, int cols,
+						  int[] dst, int dstOffset, int dstRowStride) {
+		if ((long) rows * cols <= LEAF_ENTRIES) {
+			for (int r = 0; r < rows; r++) {
+				int srcBase = srcOffset + r * srcRowStride;
+				for (int c = 0; c < cols; c++) {
+					dst[dstOffset + c * dstRowStride + r] = src[srcBase + c];
+				}
+			}
+		} else if (rows >= cols) {
+			int half = rows >>> 1;
+			transpose(src, srcOffset, srcRowStride, half, cols, dst, dstOffset, dstRowStride);
+			transpose(src, srcOffset + half * srcRowStride, srcRowStride, rows - half, cols, dst, dstOffset + half, dstRowStride);
+		} else {
+			int half = cols >>> 1;
+			transpose(src, srcOffset, srcRowStride, rows, half, dst, dstOffset, dstRowStride);
+			transpose(src, srcOffset + half, srcRowStride, rows, cols - half, dst, dstOffset + half * dstRowStride, dstRowStride);
+		}
+	}
+
+	/**
+	 * Transpose the n x n block of a at offset in place.
+	 */
+	static void transposeSquare(int[] a, int offset, int rowStride, int n) {
+		if ((long) n * n <= LEAF_ENTRIES) {
+			for (int r = 0; r < n; r++) {
+				for (int c = r + 1; c < n; c++) {
+					int upper = offset + r * rowStride + c;
+					int lower = offset + c * rowStride + r;
+					int tmp = a[upper];
+					a[upper] = a[lower];
+					a[lower] = tmp;
+				}
+			}
+			return;
+		}
+		int half = n >>> 1;
+		transposeSquare(a, offset, rowStride, half);
+		transposeSquare(a, offset + half * rowStride + half, rowStride, n - half);
+		swapTransposed(a, offset + half, offset + half * rowStride, rowStride, half, n - half);
+	}
+
+	private static void swapTransposed(int[] a, int upper, int lower, int rowStride, int rows, int cols) {
+		if ((long) rows * cols <= LEAF_ENTRIES) {
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < cols; c++) {
+					int u = upper + r * rowStride + c;
+					int l = lower + c * rowStride + r;
+					int tmp = a[u];
+					a[u] = a[l];
+					a[l] = tmp;
+				}
+			}
+		} else if (rows >= cols) {
+			int half = rows >>> 1;
+			swapTransposed(a, upper, lower, rowStride, half, cols);
+			swapTransposed(a, upper + half * rowStride, lower + half, rowStride, rows - half, cols);
+		} else {
+			int half = cols >>> 1;
+			swapTransposed(a, upper, lower, rowStride, rows, half);
+			swapTransposed(a, upper + half, lower + half * rowStride, rowStride, rows, cols - half);
+		}
+	}
+
+	/**
+	 * Transpose the compact rows x cols matrix at a[offset .. offset + rows * cols) in place,
+	 * leaving it a compact cols x rows matrix.
+	 */
+	static void transposeInPlace(int[] a, int offset, int rows, int cols) {
+		if (rows == cols) {
+			transposeSquare(a, offset, cols, rows);
+			return;
+		}
+		int last = rows * cols - 1;
+		if (rows <= 1 || cols <= 1)
+			return;
+		long[] moved = new long[(last >>> 6) + 1];
+		for (int start = 1; start < last; start++) {
+			if ((moved[start >>> 6] & (1L << start)) != 0)
+				continue;
+			int carried = a[offset + start];
+			int k = start;
+			do {
+				int next = (int) ((long) k * rows % last);
+				int displaced = a[offset + next];
+				a[offset + next] = carried;
+				carried = displaced;
+				moved[next >>> 6] |= 1L << next;
+				k = next;
+			} while (k != start);
+		}
+	}
+}
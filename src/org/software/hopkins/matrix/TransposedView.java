@@ -0,0 +1,55 @@
+package org.software.hopkins.matrix;
+
+import java.util.Objects;
+
+/**
+ * A view of the transpose of a matrix: entry (r, c) of the view is entry (c, r) of the parent,
+ * and the view's rows are the parent's columns.
+ */
+public class TransposedView extends MatrixView {
+	private StridedLayout layout;
+
+	TransposedView(HSMatrix parent) {
+		super(parent);
+	}
+
+	@Override
+	StridedLayout layout() {
+		StridedLayout parentLayout = layoutOf(parent);
+		if (parentLayout == null)
+			return null;
+		StridedLayout current = layout;
+		if (current == null || current.source != parentLayout) {
+			current = parentLayout.transposed();
+			layout = current;
+		}
+		return current;
+	}
+
+	@Override
+	public int rowSize() {
+		return parent.columnSize();
+	}
+
+	@Override
+	public int columnSize() {
+		return parent.rowSize();
+	}
+
+	@Override
+	public float getFloat(int row, int column) {
+		Objects.checkIndex(row, rowSize());
+		Objects.checkIndex(column, columnSize());
+		return parent.getFloat(column, row);
+	}
+
+	@Override
+	public void copyRowInto(int index, float[] dest, int destOffset) {
+		parent.copyColumnInto(index, dest, destOffset);
+	}
+
+	@Override
+	public void copyColumnInto(int colIndex, float[] dest, int destOffset) {
+		parent.copyRowInto(colIndex, dest, destOffset);
+	}
+}
@@ -0,0 +1,88 @@
+package org.software.hopkins.matrix;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The element-wise kernels written with the Vector API of the jdk.incubator.vector module, which load,
+ * combine and store a whole vector register of entries per step at the widest size the processor supports.
+ * Only {@link ElementwiseKernels} calls these, and only once it has found the module in the boot layer:
+ * this class can't even be loaded without it.
+ * <p>
+ * Each lane does the same IEEE operation as the scalar loops, and addScaled multiplies and then adds rather
+ * than fusing the two, so the results are the same bit for bit whichever kernels run.
+ */
+final class VectorKernels {
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	/** The number of floats in a vector. */
+	static final int LANES = SPECIES.length();
+
+	private VectorKernels() {
+	}
+
+	static void add(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(SPECIES, a, aOffset + i)
+					.add(FloatVector.fromArray(SPECIES, b, bOffset + i))
+					.intoArray(out, outOffset + i);
+		}
+		for (; i < length; i++) {
+			out[outOffset + i] = a[aOffset + i] + b[bOffset + i];
+		}
+	}
+
+	static void subtract(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(SPECIES, a, aOffset + i)
+					.sub(FloatVector.fromArray(SPECIES, b, bOffset + i))
+					.intoArray(out, outOffset + i);
+		}
+		for (; i < length; i++) {
+			out[outOffset + i] = a[aOffset + i] - b[bOffset + i];
+		}
+	}
+
+	static void scale(float[] a, int aOffset, float scalar, float[] out, int outOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(SPECIES, a, aOffset + i)
+					.mul(scalar)
+					.intoArray(out, outOffset + i);
+		}
+		for (; i < length; i++) {
+			out[outOffset + i] = scalar * a[aOffset + i];
+		}
+	}
+
+	static void multiply(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(SPECIES, a, aOffset + i)
+					.mul(FloatVector.fromArray(SPECIES, b, bOffset + i))
+					.intoArray(out, outOffset + i);
+		}
+		for (; i < length; i++) {
+			out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+		}
+	}
+
+	static void addScaled(float alpha, float[] x, int xOffset, float[] out, int outOffset, int length) {
+		int bound = SPECIES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += LANES) {
+			FloatVector.fromArray(SPECIES, x, xOffset + i)
+					.mul(alpha)
+					.add(FloatVector.fromArray(SPECIES, out, outOffset + i))
+					.intoArray(out, outOffset + i);
+		}
+		for (; i < length; i++) {
+			out[outOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package org.software.hopkins.matrix.future;
+
+import org.software.hopkins.matrix.HSMatrix;
+import org.software.hopkins.matrix.MatrixOperation;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the calculations of a {@link MatrixCalculator} asynchronously, each returning a {@link CompletableFuture}
+ * of its result, so that a client can pipeline many requests without waiting for each in turn.
+ * <p>
+ * Calculations run on an executor of platform threads, by default one per processor with an unbounded queue.
+ * Nothing a calculation does blocks, so queued requests never tie up more threads than there are processors
+ * however many are submitted, and a big product goes on splitting its tiles over the multiplier's pool
+ * while small requests queue behind it. Another executor may be given instead.
+ * <p>
+ * A calculation may be given a deadline, after which its future completes exceptionally with a
+ * {@link java.util.concurrent.TimeoutException}. A calculation that is cancelled or passes its deadline
+ * before it starts never runs, and is taken off the queue of a {@link ThreadPoolExecutor}. One that is
+ * already running runs to the end, as the kernels don't check for interruption, but its result is not
+ * stored under the result name unless it finished first. Once a calculation starts storing its result, a
+ * cancellation or the deadline comes too late and does nothing, so a future that completes normally has its
+ * result stored, and one that is cancelled or times out never does. Neither waits on a lock for the other.
+ */
+public class AsyncMatrixCalculator implements AutoCloseable {
+	private final MatrixCalculator calculator;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+
+	/**
+	 * @param calculator - the calculator whose matrices are the operands and which stores the results.
+	 */
+	public AsyncMatrixCalculator(MatrixCalculator calculator) {
+		this(calculator, newComputePool(Runtime.getRuntime().availableProcessors()), true);
+	}
+
+	/**
+	 * @param calculator - the calculator whose matrices are the operands and which stores the results.
+	 * @param executor - runs the calculations; it is not shut down when this calculator is closed.
+	 */
+	public AsyncMatrixCalculator(MatrixCalculator calculator, ExecutorService executor) {
+		this(calculator, executor, false);
+	}
+
+	private AsyncMatrixCalculator(MatrixCalculator calculator, ExecutorService executor, boolean ownsExecutor) {
+		if (calculator == null || executor == null)
+			throw new IllegalArgumentException("The calculator and executor can't be null.");
+		this.calculator = calculator;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	private static ExecutorService newComputePool(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = task -> {
+			Thread thread = new Thread(task, "matrix-calculation-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), factory);
+	}
+
+	public HSMatrix getMatrix(String name) {
+		return calculator.registry.get(name);
+	}
+
+	public CompletableFuture<HSMatrix> submitMultiMatrixCalculation(MatrixOperation opCode, String[] operands,
+																	 String resultMatrixName) {
+		return submitMultiMatrixCalculation(opCode, operands, resultMatrixName, null);
+	}
+
+	/**
+	 * Add, subtract or multiply the named matrices in order, as {@link MatrixCalculator#doMultiMatrixCalculation}.
+	 * @param deadline - how long the calculation may take from now, or null for no deadline.
+	 */
+	public CompletableFuture<HSMatrix> submitMultiMatrixCalculation(MatrixOperation opCode, String[] operands,
+																	 String resultMatrixName, Duration deadline) {
+		String[] names = operands.clone();
+		return submit(() -> calculator.doMultiMatrixCalculation(opCode, names, ""), resultMatrixName, deadline);
+	}
+
+	public CompletableFuture<HSMatrix> submitScale(String operand, String resultMatrixName, Float scalar) {
+		return submitScale(operand, resultMatrixName, scalar, null);
+	}
+
+	public CompletableFuture<HSMatrix> submitScale(String operand, String resultMatrixName, Float scalar,
+												   Duration deadline) {
+		return submit(() -> calculator.scaleMatrixCalculation(operand, "", scalar), resultMatrixName, deadline);
+	}
+
+	public CompletableFuture<HSMatrix> submitSumRow(String operand, String resultMatrixName, Integer rowNum) {
+		return submitSumRow(operand, resultMatrixName, rowNum, null);
+	}
+
+	public CompletableFuture<HSMatrix> submitSumRow(String operand, String resultMatrixName, Integer rowNum,
+													Duration deadline) {
+		return submit(() -> calculator.sumMatrixRow(operand, "", rowNum), resultMatrixName, deadline);
+	}
+
+	public CompletableFuture<HSMatrix> submitSumColumn(String operand, String resultMatrixName, Integer colNum) {
+		return submitSumColumn(operand, resultMatrixName, colNum, null);
+	}
+
+	public CompletableFuture<HSMatrix> submitSumColumn(String operand, String resultMatrixName, Integer colNum,
+													   Duration deadline) {
+		return submit(() -> calculator.sumMatrixColumn(operand, "", colNum), resultMatrixName, deadline);
+	}
+
+	public CompletableFuture<HSMatrix> submitTranspose(String operand, String resultMatrixName) {
+		return submitTranspose(operand, resultMatrixName, null);
+	}
+
+	public CompletableFuture<HSMatrix> submitTranspose(String operand, String resultMatrixName, Duration deadline) {
+		return submit(() -> calculator.transposeMatrixCalculation(operand, ""), resultMatrixName, deadline);
+	}
+
+	/**
+	 * Run the calculation on the executor, storing its result under the result name unless the future
+	 * was completed first, by cancellation or the deadline.
+	 */
+	private CompletableFuture<HSMatrix> submit(Supplier<HSMatrix> calculation, String resultMatrixName,
+											   Duration deadline) {
+		Calculation result = new Calculation();
+		Future<?> task = executor.submit(() -> {
+			if (result.isDone())
+				return;
+			HSMatrix matrix;
+			try {
+				matrix = calculation.get();
+			} catch (RuntimeException | Error e) {
+				result.completeExceptionally(e);
+				return;
+			}
+			if (!result.startPublishing())
+				return;
+			try {
+				if (resultMatrixName != null && !resultMatrixName.isEmpty())
+					matrix = calculator.publish(resultMatrixName, matrix);
+				result.finish(matrix, null);
+			} catch (RuntimeException | Error e) {
+				result.finish(null, e);
+			}
+		});
+		if (deadline != null)
+			result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+		// Take a calculation that was cancelled or ran out of time off the queue if it hasn't started.
+		result.whenComplete((matrix, e) -> {
+			if (e != null && task.cancel(false) && executor instanceof ThreadPoolExecutor)
+				((ThreadPoolExecutor) executor).remove((Runnable) task);
+		});
+		return result;
+	}
+
+	/**
+	 * The future of a calculation, which goes from pending to publishing to done. Completing it by a
+	 * cancellation, the deadline or a failed calculation takes it straight from pending to done, and does nothing
+	 * once the calculation has started publishing its result; the calculation only publishes its result if it
+	 * takes the future from pending first. So the result is stored if and only if the calculation completes
+	 * the future, and neither side ever waits for the other. Stages that depend on it are plain CompletableFutures.
+	 */
+	private static final class Calculation extends CompletableFuture<HSMatrix> {
+		private static final int PENDING = 0;
+		private static final int PUBLISHING = 1;
+		private static final int DONE = 2;
+
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+
+		/**
+		 * @return whether the calculation may publish its result, and then must finish the future.
+		 */
+		boolean startPublishing() {
+			return state.compareAndSet(PENDING, PUBLISHING);
+		}
+
+		void finish(HSMatrix value, Throwable failure) {
+			state.set(DONE);
+			if (failure == null)
+				super.complete(value);
+			else
+				super.completeExceptionally(failure);
+		}
+
+		@Override
+		public boolean complete(HSMatrix value) {
+			return state.compareAndSet(PENDING, DONE) && super.complete(value);
+		}
+
+		@Override
+		public boolean completeExceptionally(Throwable ex) {
+			if (ex == null)
+				throw new NullPointerException();
+			return state.compareAndSet(PENDING, DONE) && super.completeExceptionally(ex);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return state.compareAndSet(PENDING, DONE) ? super.cancel(mayInterruptIfRunning) : isCancelled();
+		}
+
+		@Override
+		public <U> CompletableFuture<U> newIncompleteFuture() {
+			return new CompletableFuture<>();
+		}
+	}
+
+	/**
+	 * Shut down the executor if this calculator made it, letting submitted calculations finish.
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor)
+			executor.shutdown();
+	}
+}
@@ -11,8 +11,8 @@ public class CommandLineMatrixCalculator extends MatrixCalculator {
 	 */
 	@Override
 	public void printMatrix(String name) {
-		if (matrixHashMap.containsKey(name)) {
-			HSMatrix matrix = matrixHashMap.get(name);
+		HSMatrix matrix = registry.get(name);
+		if (matrix != null) {
 			System.out.println("Matrix " + name + ": ");
 			System.out.println(matrix);
 		}
@@ -23,7 +23,7 @@ public class CommandLineMatrixCalculator extends MatrixCalculator {
 	 */
 	@Override
 	public void printAllMatrices() {
-		for (Map.Entry entry : matrixHashMap.entrySet()) {
+		for (Map.Entry<String, HSMatrix> entry : registry.snapshot().entrySet()) {
 			System.out.println("Matrix " + entry.getKey() + ": ");
 			System.out.println(entry.getValue());
 		}
@@ -2,83 +2,205 @@ package org.software.hopkins.matrix.future;
 
 import org.software.hopkins.matrix.HSMatrix;
 import org.software.hopkins.matrix.Matrix;
+import org.software.hopkins.matrix.MatrixChain;
+import org.software.hopkins.matrix.MatrixExpression;
+import org.software.hopkins.matrix.MatrixMetrics;
 import org.software.hopkins.matrix.MatrixOperation;
+import org.software.hopkins.matrix.MatrixRegistry;
+import org.software.hopkins.matrix.MatrixResultCache;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 public abstract class MatrixCalculator {
-	protected HashMap<String, HSMatrix> matrixHashMap = new HashMap<>();
+	/** The named matrices; a calculator may be used by many threads, each seeing a snapshot of every operand. */
+	protected final MatrixRegistry registry = new MatrixRegistry();
+	/** The bytes of results a calculator caches by default. */
+	public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+	/** Results of calculations on the named matrices, reused while the operands aren't replaced. */
+	protected final MatrixResultCache cache;
+
+	protected MatrixCalculator() {
+		this(DEFAULT_CACHE_BYTES);
+	}
+
+	/**
+	 * @param cacheBytes - the most bytes of results to cache; 0 turns caching off.
+	 */
+	protected MatrixCalculator(long cacheBytes) {
+		cache = new MatrixResultCache(cacheBytes);
+	}
+
+	public MatrixResultCache getCache() {
+		return cache;
+	}
 
 	public void makeMatrix(String name, HSMatrix matrix) {
-		matrixHashMap.put(name, matrix);
+		publish(name, matrix);
 	}
 
 	public boolean editMatrix(String name, HSMatrix newMatrix) {
-		if (matrixHashMap.containsKey(name)) {
-			matrixHashMap.put(name, newMatrix);
-			return true;
-		} else {
-			return false;
-		}
+		if (newMatrix == null)
+			throw new IllegalArgumentException("The name and matrix can't be null.");
+		return registry.update(name, previous -> previous == null ? null : newMatrix, cache::invalidate) != null;
+	}
+
+	/**
+	 * Publish the matrix under the name, dropping the cached results of the matrix it replaces
+	 * while the name is still locked.
+	 * @return the snapshot published.
+	 */
+	protected HSMatrix publish(String name, HSMatrix matrix) {
+		if (matrix == null)
+			throw new IllegalArgumentException("The name and matrix can't be null.");
+		return registry.update(name, previous -> matrix, cache::invalidate);
 	}
 
 	public abstract void printMatrix(String name);
 
 	public abstract void printAllMatrices();
 
+	/**
+	 * Add, subtract or multiply the named matrices in order.
+	 * Sums and differences are built into a {@link MatrixExpression}, which is evaluated in one pass
+	 * instead of making an intermediate matrix for each operand.
+	 * Products are planned as a {@link MatrixChain}, which multiplies them in the cheapest order.
+	 */
 	public HSMatrix doMultiMatrixCalculation(MatrixOperation opCode, String[] operands,
 											  String resultMatrixName) {
-		HSMatrix resultMatrix = null;
-		for (String operand : operands) {
-			if (matrixHashMap.containsKey(operand)) {
-				if (resultMatrix == null) {
-					resultMatrix = matrixHashMap.get(operand);
-				} else {
-					if (opCode == MatrixOperation.ADD)
-						resultMatrix = resultMatrix.plus(matrixHashMap.get(operand));
-					else if (opCode == MatrixOperation.SUBTRACT)
-						resultMatrix = resultMatrix.minus(matrixHashMap.get(operand));
-					else
-						throw new RuntimeException("Operation not implemented:  " + opCode);
-				}
-			} else {
-				throw new RuntimeException("Operand " + operand + " does not exist.");
+		MatrixMetrics.Sample sample = MatrixMetrics.begin();
+		Estimate estimate = new Estimate();
+		try {
+			List<HSMatrix> matrices = new ArrayList<>(operands.length);
+			for (String operand : operands) {
+				HSMatrix matrix = registry.get(operand);
+				if (matrix == null)
+					throw new RuntimeException("Operand " + operand + " does not exist.");
+				matrices.add(matrix);
 			}
+			HSMatrix resultMatrix = null;
+			if (matrices.size() == 1) {
+				resultMatrix = matrices.get(0);
+			} else if (opCode == MatrixOperation.MULTIPLY) {
+				resultMatrix = cached(opCode, operands, matrices, List.of(), () -> {
+					MatrixChain chain = MatrixChain.of(matrices);
+					HSMatrix last = matrices.get(matrices.size() - 1);
+					long bytes = entryBytes(matrices.get(0).rowSize(), last.columnSize());
+					for (HSMatrix matrix : matrices) {
+						bytes += entryBytes(matrix.rowSize(), matrix.columnSize());
+					}
+					estimate.set(2 * chain.getCost(), bytes);
+					return chain.multiply();
+				});
+			} else if (opCode == MatrixOperation.ADD || opCode == MatrixOperation.SUBTRACT) {
+				resultMatrix = cached(opCode, operands, matrices, List.of(), () -> {
+					HSMatrix first = matrices.get(0);
+					long entries = (long) first.rowSize() * first.columnSize();
+					// One pass reads every operand and writes the result.
+					estimate.set((matrices.size() - 1) * entries,
+							(matrices.size() + 1) * entryBytes(first.rowSize(), first.columnSize()));
+					MatrixExpression expression = MatrixExpression.of(matrices.get(0));
+					for (HSMatrix matrix : matrices.subList(1, matrices.size())) {
+						expression = opCode == MatrixOperation.ADD ? expression.plus(matrix) : expression.minus(matrix);
+					}
+					return expression.evaluate();
+				});
+			} else if (!matrices.isEmpty()) {
+				throw new RuntimeException("Operation not implemented:  " + opCode);
+			}
+			if (!resultMatrixName.isEmpty() && resultMatrix != null) {
+				resultMatrix = publish(resultMatrixName, resultMatrix);
+			}
+			return resultMatrix;
+		} finally {
+			estimate.end(sample, opCode);
 		}
-		if (!resultMatrixName.isEmpty()) {
-			matrixHashMap.put(resultMatrixName, resultMatrix);
-		}
-		return resultMatrix;
 	}
 
 	private HSMatrix singleMatrixCalculation(MatrixOperation opCode, String operand,
 											   String resultMatrixName, Float scalar,
 											   char rc, Integer rcNum) {
-		HSMatrix resultMatrix = null;
-		if (matrixHashMap.containsKey(operand)) {
-			resultMatrix = matrixHashMap.get(operand);
+		MatrixMetrics.Sample sample = MatrixMetrics.begin();
+		Estimate estimate = new Estimate();
+		try {
+			HSMatrix matrix = registry.get(operand);
+			if (matrix == null)
+				throw new RuntimeException("Operand " + operand + " does not exist.");
+			String[] names = {operand};
+			List<HSMatrix> operands = List.of(matrix);
+			HSMatrix resultMatrix;
+			long bytes = entryBytes(matrix.rowSize(), matrix.columnSize());
 			if (opCode == MatrixOperation.SCALE)
-				resultMatrix = resultMatrix.times(scalar);
+				resultMatrix = cached(opCode, names, operands, List.of(scalar), () -> {
+					estimate.set((long) matrix.rowSize() * matrix.columnSize(), 2 * bytes);
+					return matrix.times(scalar);
+				});
 			else if (opCode == MatrixOperation.TRANSPOSE)
-				resultMatrix = resultMatrix.transpose();
+				resultMatrix = cached(opCode, names, operands, List.of(), () -> {
+					estimate.set(0, 2 * bytes);
+					return matrix.transpose();
+				});
 			else if (opCode == MatrixOperation.SUM) {
-				Float sum;
-				if (rc == 'r') {
-					sum = resultMatrix.sumRow(rcNum);
-				} else {
-					sum = resultMatrix.sumColumn(rcNum);
-				}
-				resultMatrix = new Matrix(1, 1, sum);
+				resultMatrix = cached(opCode, names, operands, List.of(rc, rcNum), () -> {
+					Float sum;
+					if (rc == 'r') {
+						sum = matrix.sumRow(rcNum);
+						estimate.set(matrix.columnSize(), entryBytes(1, matrix.columnSize()));
+					} else {
+						sum = matrix.sumColumn(rcNum);
+						estimate.set(matrix.rowSize(), entryBytes(matrix.rowSize(), 1));
+					}
+					return new Matrix(1, 1, sum);
+				});
 			}
 			else
 				throw new RuntimeException("Operation not implemented:  " + opCode);
-		} else {
-			throw new RuntimeException("Operand " + operand + " does not exist.");
+			if (!resultMatrixName.isEmpty()) {
+				resultMatrix = publish(resultMatrixName, resultMatrix);
+			}
+			return resultMatrix;
+		} finally {
+			estimate.end(sample, opCode);
+		}
+	}
+
+	/**
+	 * The floating-point operations and bytes of entries a calculation is estimated to take, recorded with it
+	 * in the {@link MatrixMetrics}. Only a calculation that computes its result sets them: one answered from
+	 * the cache does no arithmetic, and is recorded with none.
+	 */
+	private static final class Estimate {
+		private long flops;
+		private long bytesTouched;
+
+		void set(long flops, long bytesTouched) {
+			this.flops = flops;
+			this.bytesTouched = bytesTouched;
 		}
-		if (!resultMatrixName.isEmpty()) {
-			matrixHashMap.put(resultMatrixName, resultMatrix);
+
+		void end(MatrixMetrics.Sample sample, MatrixOperation opCode) {
+			MatrixMetrics.end(sample, MatrixMetrics.Operation.ofCalculation(opCode), flops, bytesTouched);
+		}
+	}
+
+	private static long entryBytes(int rows, int cols) {
+		return (long) Float.BYTES * rows * cols;
+	}
+
+	/**
+	 * Get the result of the operation on the named operands from the cache, computing it on a miss.
+	 * An operand replaced while its result was computed has had its results dropped already, perhaps before
+	 * this one was cached, so this one is dropped too rather than kept as dead weight.
+	 */
+	private HSMatrix cached(MatrixOperation opCode, String[] names, List<HSMatrix> operands, List<?> parameters,
+							Supplier<HSMatrix> calculation) {
+		HSMatrix result = cache.computeIfAbsent(opCode, operands, parameters, calculation);
+		for (int i = 0; i < names.length; i++) {
+			if (registry.get(names[i]) != operands.get(i))
+				cache.invalidate(operands.get(i));
 		}
-		return resultMatrix;
+		return result;
 	}
 
 	public HSMatrix scaleMatrixCalculation(String operand, String resultMatrixName, Float scalar) {
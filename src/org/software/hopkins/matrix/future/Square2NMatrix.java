@@ -26,6 +26,7 @@ public class Square2NMatrix extends SquareMatrix {
 		tmp = row1.get(val1Col);
 		row1.set(val1Col, row2.get(val2Col));
 		row2.set(val2Col, tmp);
+		contentChanged();
 	}
 
 	/**
@@ -48,50 +49,80 @@ public class Square2NMatrix extends SquareMatrix {
 		}
 	}
 
+	/**
+	 * Get the sum of the left half of the given row, truncated to an int.
+	 * Use {@link #sumRowLeftAsFloat(int)} for the sum itself.
+	 */
 	public int sumRowLeft(int rowIndex) {
-		int sum = 0;
+		return (int) sumRowLeftAsFloat(rowIndex);
+	}
+
+	/**
+	 * Get the sum of the right half of the given row, truncated to an int.
+	 * Use {@link #sumRowRightAsFloat(int)} for the sum itself.
+	 */
+	public int sumRowRight(int rowIndex) {
+		return (int) sumRowRightAsFloat(rowIndex);
+	}
+
+	/**
+	 * Get the sum of the top half of the given column, truncated to an int.
+	 * Use {@link #sumColumnTopAsFloat(int)} for the sum itself.
+	 */
+	public int sumColumnTop(int colIndex) {
+		return (int) sumColumnTopAsFloat(colIndex);
+	}
+
+	/**
+	 * Get the sum of the bottom half of the given column, truncated to an int.
+	 * Use {@link #sumColumnBottomAsFloat(int)} for the sum itself.
+	 */
+	public int sumColumnBottom(int colIndex) {
+		return (int) sumColumnBottomAsFloat(colIndex);
+	}
+
+	public float sumRowLeftAsFloat(int rowIndex) {
+		float sum = 0.0f;
 
 		if (rowIndex >= 0 && rowIndex < size) {
-			List<Float> theRow = getRow(rowIndex);
 			for (int i = 0; i < size/2; ++i) {
-				sum += theRow.get(i);
+				sum += getFloat(rowIndex, i);
 			}
 		}
 
 		return sum;
 	}
 
-	public int sumRowRight(int rowIndex) {
-		int sum = 0;
+	public float sumRowRightAsFloat(int rowIndex) {
+		float sum = 0.0f;
 
 		if (rowIndex >= 0 && rowIndex < size) {
-			List<Float> theRow = getRow(rowIndex);
 			for (int i = size/2; i < size; ++i) {
-				sum += theRow.get(i);
+				sum += getFloat(rowIndex, i);
 			}
 		}
 
 		return sum;
 	}
 
-	public int sumColumnTop(int colIndex) {
-		int sum = 0;
+	public float sumColumnTopAsFloat(int colIndex) {
+		float sum = 0.0f;
 
 		if (colIndex >= 0 && colIndex < size) {
 			for (int i = 0; i < size/2; ++i) {
-				sum += matrixImpl.get(i).get(0);
+				sum += matrixImpl.get(i).get(colIndex);
 			}
 		}
 
 		return sum;
 	}
 
-	public int sumColumnBottom(int colIndex) {
-		int sum = 0;
+	public float sumColumnBottomAsFloat(int colIndex) {
+		float sum = 0.0f;
 
 		if (colIndex >= 0 && colIndex < size) {
 			for (int i = size/2; i < size; ++i) {
-				sum += matrixImpl.get(i).get(0);
+				sum += matrixImpl.get(i).get(colIndex);
 			}
 		}
 
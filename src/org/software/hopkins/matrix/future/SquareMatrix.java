@@ -1,6 +1,8 @@
 package org.software.hopkins.matrix.future;
 
+import org.software.hopkins.matrix.HSMatrix;
 import org.software.hopkins.matrix.Matrix;
+import org.software.hopkins.matrix.StrassenMultiplier;
 
 public class SquareMatrix extends Matrix implements HSSquareMatrix {
 	protected int size;
@@ -10,8 +12,42 @@ public class SquareMatrix extends Matrix implements HSSquareMatrix {
 		this.size = size;
 	}
 
+	/**
+	 * Create a square matrix from a compact row-major array of size * size entries.
+	 * @param size the number of rows and columns
+	 * @param rowMajorValues the entries, row after row
+	 */
+	protected SquareMatrix(int size, float[] rowMajorValues) {
+		super(size, size, rowMajorValues);
+		this.size = size;
+	}
+
 	@Override
 	public int size() {
 		return size;
 	}
+
+	/**
+	 * Transpose this matrix in place, swapping each entry with its mirror across the diagonal.
+	 * Nothing is allocated.
+	 */
+	public void transposeInPlace() {
+		transposeSquareInPlace();
+	}
+
+	/**
+	 * Multiplies this matrix by the given one.
+	 * A square matrix of the same size is multiplied with the default {@link StrassenMultiplier},
+	 * giving a square product; any other matrix is multiplied as usual.
+	 *
+	 * @param matrixB - a matrix with the same number of rows as this matrix has columns.
+	 * @return - the resulting product matrix.
+	 */
+	@Override
+	public HSMatrix times(HSMatrix matrixB) {
+		if (matrixB instanceof HSSquareMatrix && ((HSSquareMatrix) matrixB).size() == size) {
+			return new SquareMatrix(size, StrassenMultiplier.getDefault().multiply(this, matrixB));
+		}
+		return super.times(matrixB);
+	}
 }
@@ -0,0 +1,165 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHashTest {
+
+	/**
+	 * The hash a matrix would have if computed from scratch.
+	 */
+	private static long freshHash(HSMatrix matrix) {
+		return ContentHash.of(matrix);
+	}
+
+	@Test
+	void equalMatricesHashAlike() {
+		DenseMatrix dense = new DenseMatrix(new float[][] {{1, 0, -2}, {0, 3, 0}});
+		List<HSMatrix> equal = List.of(
+				dense,
+				new Matrix(new Float[][] {{1f, 0f, -2f}, {0f, 3f, 0f}}),
+				new IntMatrix(new int[][] {{1, 0, -2}, {0, 3, 0}}),
+				new CSRMatrix(dense),
+				new CSCMatrix(dense),
+				new OffHeapMatrix(dense),
+				new DenseMatrix(new float[][] {{1, 0}, {0, 3}, {-2, 0}}).transpose());
+		for (HSMatrix matrix : equal) {
+			assertTrue(matrix.equals(dense), matrix.getClass().getSimpleName());
+			assertEquals(dense.contentHash(), matrix.contentHash(), matrix.getClass().getSimpleName());
+			assertEquals(dense.hashCode(), matrix.hashCode());
+			assertEquals(dense, matrix);
+		}
+		assertNotEquals(dense.contentHash(), new DenseMatrix(new float[][] {{1, 0, -2}, {0, 3, 1}}).contentHash());
+		assertNotEquals(dense.contentHash(), new DenseMatrix(new float[][] {{0, 1, -2}, {0, 3, 0}}).contentHash());
+		assertNotEquals(new DenseMatrix(2, 3).contentHash(), new DenseMatrix(3, 2).contentHash());
+		assertEquals(new DenseMatrix(1, 1, 0.0f).contentHash(), new DenseMatrix(1, 1, -0.0f).contentHash());
+		assertNotEquals(dense, "not a matrix");
+	}
+
+	@Test
+	void mutableMatricesKeepTheirHashUpToDate() {
+		MutableMatrix matrix = new MutableMatrix(3, 3);
+		matrix.setValuesIncrementedFrom(1.0f);
+		long before = matrix.contentHash();
+		matrix.setEntry(1, 1, 7.0f);
+		assertNotEquals(before, matrix.contentHash());
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.setFloat(1, 1, 5.0f);
+		assertEquals(before, matrix.contentHash());
+		matrix.setRow(0, new float[] {0, 0, 1});
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.setRow(2, List.of(2.0f, 2.0f, 2.0f));
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.setColumn(1, List.of(-1.0f, -2.0f));
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.add(new DenseMatrix(3, 3, 1.5f));
+		matrix.subtract(new DenseMatrix(3, 3, 0.5f, true));
+		matrix.scaleBy(3.0f);
+		matrix.axpy(2.0f, new DenseMatrix(3, 3, 1.0f));
+		matrix.hadamardInPlace(new DenseMatrix(3, 3, -1.0f, true));
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.invert();
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.multiplyBy(new DenseMatrix(3, 2, 1.0f, true));
+		assertEquals(freshHash(matrix), matrix.contentHash());
+		matrix.fill(4.0f);
+		assertEquals(new DenseMatrix(3, 2, 4.0f).contentHash(), matrix.contentHash());
+		assertTrue(matrix.equals(new DenseMatrix(3, 2, 4.0f)));
+	}
+
+	@Test
+	void denseAndIntegerMutableMatricesKeepTheirHashUpToDate() {
+		DenseMutableMatrix dense = new DenseMutableMatrix(3, 3);
+		IntMutableMatrix integers = new IntMutableMatrix(3, 3);
+		for (HSMutableMatrix matrix : new HSMutableMatrix[] {dense, integers}) {
+			matrix.setValuesIncrementedFrom(1.0f);
+			long before = matrix.contentHash();
+			matrix.setEntry(1, 1, 7.0f);
+			assertNotEquals(before, matrix.contentHash());
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.setFloat(1, 1, 5.0f);
+			assertEquals(before, matrix.contentHash());
+			matrix.setRow(0, new float[] {0, 0, 1});
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.setRow(2, List.of(2.0f, 2.0f, 2.0f));
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.setColumn(1, List.of(-1.0f, -2.0f));
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.add(new DenseMatrix(3, 3, 1.0f));
+			matrix.subtract(new DenseMatrix(3, 3, 1.0f, true));
+			matrix.scaleBy(3.0f);
+			matrix.axpy(2.0f, new DenseMatrix(3, 3, 1.0f));
+			matrix.hadamardInPlace(new DenseMatrix(3, 3, -1.0f, true));
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.gemmInto(1.0f, new DenseMatrix(3, 3, 1.0f), new DenseMatrix(3, 3, 1.0f, true), 1.0f);
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.invert();
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.multiplyBy(new DenseMatrix(3, 2, 1.0f, true));
+			assertEquals(freshHash(matrix), matrix.contentHash());
+			matrix.fill(4.0f);
+			assertEquals(new DenseMatrix(3, 2, 4.0f).contentHash(), matrix.contentHash());
+		}
+		assertTrue(dense.equals(integers));
+		integers.setRow(1, new int[] {9, -9});
+		assertEquals(freshHash(integers), integers.contentHash());
+		integers.setInt(2, 1, 16_777_217);
+		assertEquals(freshHash(integers), integers.contentHash());
+	}
+
+	@Test
+	void hashesRejectBeforeComparingEntries() {
+		Matrix a = new Matrix(50, 50, 1.0f);
+		Matrix b = new Matrix(50, 50, 1.0f, true);
+		a.contentHash();
+		b.contentHash();
+		assertTrue(ContentHash.knownToDiffer(a, b));
+		assertFalse(a.equals(b));
+		assertFalse(ContentHash.knownToDiffer(a, new Matrix(50, 50, 1.0f)));
+		assertTrue(a.equals(new Matrix(50, 50, 1.0f)));
+		DenseMutableMatrix mutable = new DenseMutableMatrix(new DenseMatrix(50, 50, 1.0f));
+		IntMutableMatrix integers = new IntMutableMatrix(new DenseMatrix(50, 50, 1.0f));
+		mutable.contentHash();
+		integers.contentHash();
+		assertFalse(ContentHash.knownToDiffer(a, mutable));
+		assertFalse(ContentHash.knownToDiffer(a, integers));
+		mutable.setFloat(0, 0, 2.0f);
+		integers.setInt(0, 0, 2);
+		assertTrue(ContentHash.knownToDiffer(a, mutable));
+		assertTrue(ContentHash.knownToDiffer(a, integers));
+		assertFalse(ContentHash.knownToDiffer(mutable, integers));
+		mutable.scaleBy(2.0f);
+		assertFalse(ContentHash.knownToDiffer(a, mutable));
+	}
+
+	@Test
+	void changingTheGivenRowsDoesNotChangeTheMatrix() {
+		List<Float> row = new ArrayList<>(List.of(1.0f, 2.0f));
+		Matrix matrix = new Matrix(List.of(row, new ArrayList<>(List.of(3.0f, 4.0f))));
+		long hash = matrix.contentHash();
+		row.set(0, 5.0f);
+		assertEquals(1.0f, matrix.getFloat(0, 0));
+		assertEquals(hash, freshHash(matrix));
+		HSMatrix same = new DenseMatrix(2, 2, 1.0f, true);
+		assertTrue(matrix.equals(same));
+		assertTrue(same.equals(matrix));
+		assertEquals(same.hashCode(), matrix.hashCode());
+	}
+
+	@Test
+	void matricesCanBeDeduplicated() {
+		Set<HSMatrix> store = new HashSet<>();
+		store.add(new DenseMatrix(2, 2, 1.0f, true));
+		store.add(new Matrix(2, 2, 1.0f, true));
+		store.add(new IntMatrix(new int[][] {{1, 2}, {3, 4}}));
+		store.add(new DenseMatrix(2, 2, 2.0f, true));
+		assertEquals(2, store.size());
+		assertTrue(store.contains(new Matrix(2, 2, 2.0f, true)));
+	}
+}
@@ -0,0 +1,123 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenseMatrixTest {
+	final int ROW_SIZE = 2;
+	final int COL_SIZE = 3;
+
+	@Test
+	void constructors() {
+		HSMatrix zeroMatrix = new DenseMatrix(ROW_SIZE, COL_SIZE);
+		HSMatrix zeroMatrix1 = new DenseMatrix(ROW_SIZE, COL_SIZE, 0.0f);
+		HSMatrix zeroMatrix2 = new DenseMatrix(new float[ROW_SIZE][COL_SIZE]);
+		HSMatrix zeroMatrix3 = new DenseMatrix(new Matrix(ROW_SIZE, COL_SIZE));
+		assertTrue(zeroMatrix.equals(zeroMatrix1));
+		assertTrue(zeroMatrix1.equals(zeroMatrix2));
+		assertTrue(zeroMatrix2.equals(zeroMatrix3));
+		assertThrows(IllegalArgumentException.class, () -> new DenseMatrix(2, 2, new float[3]));
+	}
+
+	@Test
+	void sameEntriesAsMatrix() {
+		HSMatrix boxed = new Matrix(ROW_SIZE, COL_SIZE, 1.0f, true);
+		HSMatrix dense = new DenseMatrix(ROW_SIZE, COL_SIZE, 1.0f, true);
+		assertTrue(dense.equals(boxed));
+		assertTrue(boxed.equals(dense));
+		assertEquals(boxed.toString(), dense.toString());
+		assertEquals(boxed.getRow(1), dense.getRow(1));
+		assertEquals(boxed.getColumn(2), dense.getColumn(2));
+	}
+
+	@Test
+	void getRow() {
+		HSMatrix matrix = new DenseMatrix(ROW_SIZE, COL_SIZE, 1.0f, true);
+		List<Float> aRow = matrix.getRow(1);
+		assertEquals(List.of(4.0f, 5.0f, 6.0f), aRow);
+		assertThrows(UnsupportedOperationException.class, () -> aRow.set(0, -1.0f));
+		assertThrows(IndexOutOfBoundsException.class, () -> matrix.getEntry(0, COL_SIZE));
+	}
+
+	@Test
+	void sums() {
+		HSMatrix matrix = new DenseMatrix(ROW_SIZE, COL_SIZE, 1.0f, true);
+		assertEquals(6.0f, matrix.sumRow(0));
+		assertEquals(5.0f, matrix.sumColumn(0));
+		assertEquals(9.0f, matrix.sumColumn(2));
+	}
+
+	@Test
+	void arithmetic() {
+		HSMatrix matrix1 = new DenseMatrix(new float[][] {{1.0f, 2.0f, 3.0f}, {4.0f, -1.0f, -2.0f}});
+		HSMatrix matrix2 = new DenseMatrix(new float[][] {{-1.0f, 2.0f, -3.0f}, {-2.0f, 0.0f, 1.0f}});
+		HSMatrix matrix3 = new DenseMatrix(new float[][] {{0.0f, 4.0f, 0.0f}, {2.0f, -1.0f, -1.0f}});
+		assertTrue(matrix1.plus(matrix2).equals(matrix3));
+		assertTrue(matrix3.minus(matrix2).equals(matrix1));
+		assertTrue(matrix1.times(2.0f).equals(matrix1.plus(matrix1)));
+		assertTrue(matrix1.negative().plus(matrix1).equals(new DenseMatrix(ROW_SIZE, COL_SIZE)));
+	}
+
+	@Test
+	void times() {
+		HSMatrix matrixA = new DenseMatrix(new float[][] {{300.0f, 250.0f, 350.0f}});
+		HSMatrix matrixB = new DenseMatrix(new float[][] {{30.0f, 40.0f}, {20.0f, 25.0f}, {10.0f, 5.0f}});
+		HSMatrix matrixC = new DenseMatrix(new float[][] {{17500.0f, 20000.0f}});
+		assertTrue(matrixA.times(matrixB).equals(matrixC));
+		assertTrue(matrixA.times(new Matrix(new Float[][] {{30.0f, 40.0f}, {20.0f, 25.0f}, {10.0f, 5.0f}})).equals(matrixC));
+		assertThrows(IllegalArgumentException.class, () -> matrixA.times(matrixA));
+	}
+
+	@Test
+	void transpose() {
+		HSMatrix matrix = new DenseMatrix(2, 3, 1.0f, true);
+		HSMatrix matrix1 = matrix.transpose();
+		assertTrue(matrix1.equals(new Matrix(2, 3, 1.0f, true).transpose()));
+		assertTrue(matrix.equals(matrix1.transpose()));
+	}
+
+	@Test
+	void mutation() {
+		HSMutableMatrix matrix = new DenseMutableMatrix(ROW_SIZE, COL_SIZE);
+		matrix.setValuesIncrementedFrom(1.0f);
+		assertTrue(matrix.equals(new Matrix(ROW_SIZE, COL_SIZE, 1.0f, true)));
+		matrix.setRow(0, List.of(7.0f, 8.0f, 9.0f));
+		matrix.setColumn(0, List.of(0.0f));
+		assertEquals(List.of(0.0f, 8.0f, 9.0f), matrix.getRow(0));
+		matrix.add(matrix.clone());
+		matrix.scaleBy(0.5f);
+		matrix.subtract(new DenseMatrix(ROW_SIZE, COL_SIZE, 1.0f));
+		assertEquals(List.of(-1.0f, 7.0f, 8.0f), matrix.getRow(0));
+		matrix.fill(2.0f);
+		assertTrue(matrix.equals(new DenseMatrix(ROW_SIZE, COL_SIZE, 2.0f)));
+	}
+
+	@Test
+	void multiplyByAndInvert() {
+		HSMutableMatrix matrixA = new DenseMutableMatrix(new float[][] {{300.0f, 250.0f, 350.0f}});
+		matrixA.multiplyBy(new DenseMatrix(new float[][] {{30.0f, 40.0f}, {20.0f, 25.0f}, {10.0f, 5.0f}}));
+		assertTrue(matrixA.equals(new DenseMatrix(new float[][] {{17500.0f, 20000.0f}})));
+		matrixA.invert();
+		assertEquals(2, matrixA.rowSize());
+		assertEquals(1, matrixA.columnSize());
+		assertEquals(20000.0f, (float) matrixA.getEntry(1, 0));
+	}
+
+	@Test
+	void stridedStorage() {
+		float[] storage = {1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f, 7.0f, 8.0f, 9.0f};
+		HSMatrix lowerRight = new DenseMatrix(2, 2, storage, 4, 3);
+		HSMatrix compact = new DenseMatrix(new float[][] {{5.0f, 6.0f}, {8.0f, 9.0f}});
+		assertTrue(lowerRight.equals(compact));
+		assertTrue(lowerRight.plus(compact).equals(compact.times(2.0f)));
+		assertTrue(lowerRight.minus(new Matrix(2, 2, 1.0f)).equals(compact.minus(new DenseMatrix(2, 2, 1.0f))));
+		HSMutableMatrix view = new DenseMutableMatrix(2, 2, storage, 4, 3);
+		view.scaleBy(2.0f);
+		view.subtract(compact);
+		view.add(new Matrix(2, 2, 1.0f));
+		assertArrayEquals(new float[] {1.0f, 2.0f, 3.0f, 4.0f, 6.0f, 7.0f, 7.0f, 9.0f, 10.0f}, storage);
+	}
+}
@@ -0,0 +1,54 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElementwiseKernelsTest {
+	/** Enough entries for several vectors of the widest species, plus a tail. */
+	static final int LENGTH = 67;
+
+	private static float[] values(long seed) {
+		Random random = new Random(seed);
+		float[] values = new float[LENGTH + 5];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (random.nextFloat() - 0.5f) * 1e6f;
+		}
+		values[3] = Float.NaN;
+		values[7] = -0.0f;
+		values[11] = Float.POSITIVE_INFINITY;
+		values[13] = Float.MIN_VALUE;
+		return values;
+	}
+
+	@Test
+	void everyPathGivesTheScalarResultsBitForBit() {
+		float[] a = values(1);
+		float[] b = values(2);
+		for (int length = 0; length <= LENGTH; length++) {
+			float[] sum = new float[length + 2];
+			float[] difference = new float[length + 2];
+			float[] scaled = new float[length + 2];
+			float[] product = new float[length + 2];
+			float[] accumulated = b.clone();
+			ElementwiseKernels.add(a, 1, b, 3, sum, 2, length);
+			ElementwiseKernels.subtract(a, 1, b, 3, difference, 2, length);
+			ElementwiseKernels.scale(a, 1, 0.3f, scaled, 2, length);
+			ElementwiseKernels.multiply(a, 1, b, 3, product, 2, length);
+			ElementwiseKernels.addScaled(0.7f, a, 5, accumulated, 4, length);
+			for (int i = 0; i < length; i++) {
+				assertEquals(a[1 + i] + b[3 + i], sum[2 + i], "add");
+				assertEquals(a[1 + i] - b[3 + i], difference[2 + i], "subtract");
+				assertEquals(0.3f * a[1 + i], scaled[2 + i], "scale");
+				assertEquals(a[1 + i] * b[3 + i], product[2 + i], "multiply");
+				assertEquals(b[4 + i] + 0.7f * a[5 + i], accumulated[4 + i], "addScaled");
+			}
+			assertEquals(0.0f, sum[0]);
+			assertEquals(0.0f, sum[1]);
+			assertEquals(b[3], accumulated[3]);
+			assertEquals(b[4 + length], accumulated[4 + length]);
+		}
+	}
+}
@@ -148,4 +148,152 @@ class HSMutableMatrixTest {
 		matrixA.invert();
 		assertTrue(matrixA.equals(matrixB));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void largeInverts() {
+		// Larger than a leaf of the transpose kernels, with odd sides, square and not.
+		for (int[] order : new int[][] {{70, 70}, {70, 45}, {1, 130}, {33, 100}}) {
+			DenseMatrix start = new DenseMatrix(order[0], order[1], -50.0f, true);
+			HSMatrix expected = new DenseMatrix(start.transpose());
+			for (HSMutableMatrix target : everyKindOf(start)) {
+				target.invert();
+				assertTrue(target.equals(expected), target.getClass().getSimpleName() + " " + order[0] + "x" + order[1]);
+				target.invert();
+				assertTrue(target.equals(start), target.getClass().getSimpleName() + " " + order[0] + "x" + order[1]);
+			}
+			IntMutableMatrix integers = new IntMutableMatrix(start);
+			integers.invert();
+			assertTrue(integers.equals(expected));
+			assertTrue(new IntMatrix(start).transpose().equals(expected));
+		}
+	}
+
+	@Test
+	void squareInvertsAllocateNothing() {
+		DenseMutableMatrix dense = new DenseMutableMatrix(new DenseMatrix(100, 100, 1.0f, true));
+		MutableMatrix boxed = new MutableMatrix(100, 100);
+		boxed.setValuesIncrementedFrom(1.0f);
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+		long allocated = 0;
+		for (int round = 0; round < 3; round++) {
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < 11; i++) {
+				dense.invert();
+				boxed.invert();
+			}
+			allocated = threads.getCurrentThreadAllocatedBytes() - before;
+		}
+		assertEquals(0, allocated);
+		assertTrue(dense.equals(new DenseMatrix(100, 100, 1.0f, true).transpose()));
+		assertTrue(boxed.equals(dense));
+	}
+
+	@Test
+	void primitiveSetters() {
+		matrix.setFloat(1, 2, 4.0f);
+		assertEquals(4.0f, matrix.getFloat(1, 2));
+		matrix.setRow(0, new float[] {7.0f, 8.0f, 9.0f});
+		assertEquals(List.of(7.0f, 8.0f, 9.0f), matrix.getRow(0));
+		assertThrows(IllegalArgumentException.class, () -> matrix.setRow(0, new float[] {1.0f}));
+	}
+
+	static List<HSMutableMatrix> everyKindOf(HSMatrix matrix) {
+		MutableMatrix boxed = new MutableMatrix(matrix.rowSize(), matrix.columnSize());
+		for (int r = 0; r < matrix.rowSize(); r++) {
+			boxed.setRow(r, matrix.getRowCopy(r));
+		}
+		float[] padded = new float[matrix.rowSize() * (matrix.columnSize() + 2) + 1];
+		DenseMutableMatrix strided = new DenseMutableMatrix(matrix.rowSize(), matrix.columnSize(), padded, 1, matrix.columnSize() + 2);
+		for (int r = 0; r < matrix.rowSize(); r++) {
+			strided.setRow(r, matrix.getRowCopy(r));
+		}
+		return List.of(boxed, new DenseMutableMatrix(matrix), strided,
+				new CSRMatrix(matrix), new CSCMatrix(matrix), new OffHeapMatrix(matrix));
+	}
+
+	@Test
+	void inPlaceUpdates() {
+		DenseMatrix start = new DenseMatrix(new float[][] {{1, 0, 2, 0}, {0, 3, 0, -1}, {4, 0, 0, 5}});
+		DenseMatrix x = new DenseMatrix(3, 4, -2.0f, true);
+		DenseMatrix a = new DenseMatrix(3, 2, 1.0f, true);
+		HSMatrix b = new DenseMatrix(4, 2, 0.5f, true).transpose();
+		for (HSMutableMatrix target : everyKindOf(start)) {
+			target.axpy(2.0f, x);
+			assertTrue(target.equals(start.plus(x.times(2.0f))), target.getClass().getSimpleName());
+			target.axpy(-2.0f, new Matrix(3, 4, -2.0f, true));
+			assertTrue(target.equals(start), target.getClass().getSimpleName());
+			target.addScaled(3.0f, MatrixView.submatrix(x, 1, 1, 2, 2), 1, 2);
+			assertEquals(start.getFloat(2, 3) + 3.0f * x.getFloat(2, 2), target.getFloat(2, 3));
+			assertEquals(start.getFloat(1, 1), target.getFloat(1, 1));
+			target.addScaled(-3.0f, MatrixView.submatrix(x, 1, 1, 2, 2), 1, 2);
+			target.hadamardInPlace(a.times(new DenseMatrix(2, 4, 1.0f)));
+			DenseMatrix product = new DenseMatrix(new float[][] {{3, 0, 6, 0}, {0, 21, 0, -7}, {44, 0, 0, 55}});
+			assertTrue(target.equals(product), target.getClass().getSimpleName());
+			target.gemmInto(2.0f, a, b, -1.0f);
+			HSMatrix expected = a.times(b).times(2.0f).minus(product);
+			assertTrue(target.equals(expected), target.getClass().getSimpleName());
+			target.setFloat(0, 0, Float.NaN);
+			target.gemmInto(1.0f, a, b, 0.0f);
+			assertTrue(target.equals(a.times(b)), target.getClass().getSimpleName());
+			assertThrows(IndexOutOfBoundsException.class, () -> target.addScaled(1.0f, x, 1, 0));
+			assertThrows(IllegalArgumentException.class, () -> target.axpy(1.0f, a));
+			assertThrows(IllegalArgumentException.class, () -> target.hadamardInPlace(x.transpose()));
+			assertThrows(IllegalArgumentException.class, () -> target.gemmInto(1.0f, b, a, 0.0f));
+		}
+	}
+
+	@Test
+	void denseUpdatesAllocateNothing() {
+		DenseMutableMatrix target = new DenseMutableMatrix(64, 64);
+		DenseMatrix x = new DenseMatrix(64, 64, 1.0f, true);
+		HSMatrix transposed = x.transpose();
+		HSMatrix block = MatrixView.submatrix(x, 0, 0, 8, 8);
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+		long allocated = 0;
+		// The Vector API kernels allocate a vector object per step until C2 has compiled them.
+		for (int round = 0; round < 20; round++) {
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < 100; i++) {
+				target.axpy(0.5f, x);
+				target.addScaled(2.0f, block, 8, 8);
+				target.hadamardInPlace(transposed);
+				target.gemmInto(1.0f, x, transposed, 0.5f);
+			}
+			allocated = threads.getCurrentThreadAllocatedBytes() - before;
+		}
+		// The operations themselves allocate nothing; the bound leaves room for the JVM's own odd allocation.
+		assertTrue(allocated < 4096, allocated + " bytes allocated");
+	}
+
+	@Test
+	void updatesFromViewsOfThemselves() {
+		DenseMatrix start = new DenseMatrix(3, 3, 1.0f, true);
+		for (HSMutableMatrix target : everyKindOf(start)) {
+			String kind = target.getClass().getSimpleName();
+			target.axpy(2.0f, MatrixView.transposed(target));
+			DenseMatrix expected = new DenseMatrix(start.plus(start.transpose().times(2.0f)));
+			assertTrue(target.equals(expected), kind);
+			target.addScaled(1.0f, MatrixView.submatrix(target, 0, 0, 2, 2), 1, 1);
+			DenseMutableMatrix reference = new DenseMutableMatrix(expected);
+			reference.addScaled(1.0f, MatrixView.submatrix(expected, 0, 0, 2, 2), 1, 1);
+			assertTrue(target.equals(reference), kind);
+			target.hadamardInPlace(MatrixView.transposed(target));
+			reference.hadamardInPlace(new DenseMatrix(reference.transpose()));
+			assertTrue(target.equals(reference), kind);
+		}
+	}
+
+	@Test
+	void selfUpdates() {
+		DenseMatrix start = new DenseMatrix(new float[][] {{1, 0}, {-2, 3}});
+		for (HSMutableMatrix target : everyKindOf(start)) {
+			target.axpy(1.0f, target);
+			target.hadamardInPlace(target);
+			assertTrue(target.equals(new DenseMatrix(new float[][] {{4, 0}, {16, 36}})), target.getClass().getSimpleName());
+			target.gemmInto(1.0f, target, target, 1.0f);
+			assertTrue(target.equals(new DenseMatrix(new float[][] {{20, 0}, {656, 1332}})), target.getClass().getSimpleName());
+		}
+	}
+}
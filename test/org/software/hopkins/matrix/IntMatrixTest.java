@@ -0,0 +1,180 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntMatrixTest {
+	final IntMatrix a = new IntMatrix(new int[][] {{1, 2, 3}, {4, -1, -2}});
+	final IntMatrix b = new IntMatrix(new int[][] {{-1, 2, -3}, {-2, 0, 1}});
+
+	@Test
+	void constructorsAndEntries() {
+		assertTrue(a.equals(new IntMatrix(2, 3, new int[] {1, 2, 3, 4, -1, -2})));
+		assertTrue(a.equals(new DenseMatrix(new float[][] {{1, 2, 3}, {4, -1, -2}})));
+		assertTrue(new IntMatrix(new DenseMatrix(2, 3, 1.0f, true)).equals(new DenseMatrix(2, 3, 1.0f, true)));
+		assertThrows(IllegalArgumentException.class, () -> new IntMatrix(new DenseMatrix(1, 1, 0.5f)));
+		assertThrows(IllegalArgumentException.class, () -> new IntMatrix(new DenseMatrix(1, 1, 3e9f)));
+		assertEquals(-2, a.getInt(1, 2));
+		assertEquals(List.of(4.0f, -1.0f, -2.0f), a.getRow(1));
+		assertEquals(List.of(3.0f, -2.0f), a.getColumn(2));
+		assertThrows(IndexOutOfBoundsException.class, () -> a.getInt(2, 0));
+		assertTrue(a.transpose().equals(new IntMatrix(new int[][] {{1, 4}, {2, -1}, {3, -2}})));
+		assertEquals("1\t2\t3\t\n4\t-1\t-2\t\n", a.toString());
+	}
+
+	@Test
+	void equalityWithFloatMatricesIsTransitive() {
+		IntMatrix big = new IntMatrix(new int[][] {{16_777_217, 1}});
+		IntMatrix exact = new IntMatrix(new int[][] {{16_777_216, 1}});
+		for (HSMatrix floats : new HSMatrix[] {new DenseMatrix(new float[][] {{16_777_216f, 1}}),
+				new Matrix(List.of(List.of(16_777_216f, 1.0f))), new OffHeapMatrix(exact),
+				new CSRMatrix(exact), MatrixView.transposed(MatrixView.transposed(exact)),
+				MatrixMetrics.instrument(new DenseMatrix(exact))}) {
+			// 2^24 + 1 rounds to 2^24 as a float, so it can't equal a float matrix without equalling exact too.
+			assertFalse(big.equals(floats));
+			assertFalse(floats.equals(big));
+			assertTrue(exact.equals(floats));
+			assertTrue(floats.equals(exact));
+			assertEquals(floats.hashCode(), exact.hashCode());
+		}
+		assertFalse(MatrixMetrics.instrument(big).equals(new DenseMatrix(exact)));
+		assertFalse(new DenseMatrix(exact).equals(MatrixMetrics.instrument(big)));
+		assertFalse(new IntMatrix(1, 1, Integer.MAX_VALUE).equals(new DenseMatrix(1, 1, 2_147_483_648f)));
+		assertTrue(new IntMatrix(1, 1, Integer.MIN_VALUE).equals(new DenseMatrix(1, 1, -2_147_483_648f)));
+		HSMatrix negativeZero = new DenseMatrix(new float[][] {{-0.0f}});
+		assertFalse(negativeZero.equals(new IntMatrix(1, 1)));
+		assertFalse(new IntMatrix(1, 1).equals(negativeZero));
+	}
+
+	@Test
+	void exactArithmetic() {
+		assertTrue(a.plus(b).equals(new IntMatrix(new int[][] {{0, 4, 0}, {2, -1, -1}})));
+		assertTrue(a.minus(b).equals(new IntMatrix(new int[][] {{2, 0, 6}, {6, -1, -3}})));
+		assertTrue(a.times(3).equals(a.plus(a).plus(a)));
+		assertTrue(a.negative().equals(a.times(-1)));
+		HSMatrix product = a.times(b.transpose());
+		assertTrue(product instanceof IntMatrix);
+		assertTrue(product.equals(new DenseMatrix(a).times(new DenseMatrix(b).transpose())));
+		// Past 2^24 floats can't hold every integer, but the int product is exact.
+		IntMatrix big = new IntMatrix(new int[][] {{16_777_217, 1}});
+		IntMatrix column = new IntMatrix(new int[][] {{3}, {1}});
+		assertEquals(50_331_652, big.times(column).getInt(0, 0));
+		assertEquals(16_777_218L, big.sumRowAsLong(0));
+	}
+
+	@Test
+	void mixedArithmeticIsFloat() {
+		HSMatrix dense = new DenseMatrix(2, 3, 0.5f);
+		HSMatrix sum = a.plus(dense);
+		assertTrue(sum instanceof DenseMatrix);
+		assertTrue(sum.equals(new DenseMatrix(a).plus(dense)));
+		assertTrue(a.minus(dense).equals(new DenseMatrix(a).minus(dense)));
+		assertTrue(a.times(0.5f).equals(new DenseMatrix(a).times(0.5f)));
+		HSMatrix multiplicand = new DenseMatrix(3, 2, 0.25f, true);
+		assertTrue(a.times(multiplicand).equals(new DenseMatrix(a).times(multiplicand)));
+		assertTrue(multiplicand.times(a).equals(multiplicand.times(new DenseMatrix(a))));
+	}
+
+	@Test
+	void overflow() {
+		IntMatrix max = new IntMatrix(1, 2, Integer.MAX_VALUE);
+		IntMatrix one = new IntMatrix(1, 2, 1);
+		assertEquals(Integer.MIN_VALUE, max.plus(one).getInt(0, 0));
+		assertThrows(ArithmeticException.class, () -> max.withOverflowChecks().plus(one));
+		assertThrows(ArithmeticException.class, () -> one.plus(max.withOverflowChecks()));
+		assertThrows(ArithmeticException.class, () -> max.withOverflowChecks().times(2));
+		assertTrue(max.withOverflowChecks().isOverflowChecked());
+		assertFalse(max.isOverflowChecked());
+		// The sum of the row is past an int, but accumulates in a long.
+		assertEquals(2L * Integer.MAX_VALUE, max.sumRowAsLong(0));
+		assertArrayEquals(new long[] {2L * Integer.MAX_VALUE}, max.rowSumsAsLong());
+		// Partial sums of a product may pass an int as long as the result doesn't.
+		IntMatrix row = new IntMatrix(new int[][] {{Integer.MAX_VALUE, Integer.MAX_VALUE, -Integer.MAX_VALUE}}).withOverflowChecks();
+		IntMatrix ones = new IntMatrix(3, 1, 1);
+		assertEquals(Integer.MAX_VALUE, row.times(ones).getInt(0, 0));
+		IntMatrix tooBig = new IntMatrix(new int[][] {{Integer.MAX_VALUE, 1}}).withOverflowChecks();
+		assertThrows(ArithmeticException.class, () -> tooBig.times(new IntMatrix(2, 1, 1)));
+		assertEquals(Integer.MIN_VALUE, new IntMatrix(new int[][] {{Integer.MAX_VALUE, 1}}).times(new IntMatrix(2, 1, 1)).getInt(0, 0));
+	}
+
+	@Test
+	void reductions() {
+		assertArrayEquals(new long[] {6, 1}, a.rowSumsAsLong());
+		assertArrayEquals(new long[] {5, 1, 1}, a.columnSumsAsLong());
+		assertArrayEquals(new double[] {6, 1}, a.rowSums());
+		assertArrayEquals(new double[] {5, 1, 1}, a.columnSums());
+		assertArrayEquals(new float[] {1, -2}, a.rowMinMax()[0]);
+		assertArrayEquals(new float[] {3, 4}, a.rowMinMax()[1]);
+		assertEquals(Math.sqrt(35), a.frobeniusNorm(), 1e-12);
+		assertEquals(6.0f, a.sumRow(0));
+		assertEquals(5.0f, a.sumColumn(0));
+		IntMatrix square = new IntMatrix(new int[][] {{Integer.MAX_VALUE, 0}, {0, Integer.MAX_VALUE}});
+		assertEquals(2L * Integer.MAX_VALUE, square.traceAsLong());
+		assertThrows(IllegalArgumentException.class, a::traceAsLong);
+	}
+
+	@Test
+	void largeProducts() {
+		IntMutableMatrix left = new IntMutableMatrix(130, 600);
+		left.setValuesIncrementedFrom(-1000.0f);
+		IntMutableMatrix right = new IntMutableMatrix(600, 1100);
+		for (int r = 0; r < right.rowSize(); r++) {
+			for (int c = 0; c < right.columnSize(); c++) {
+				right.setInt(r, c, (r * 7 + c * 3) % 11 - 5);
+			}
+		}
+		IntMatrix product = left.times(right);
+		for (int r = 0; r < 130; r += 43) {
+			for (int c = 0; c < 1100; c += 97) {
+				long expected = 0;
+				for (int k = 0; k < 600; k++) {
+					expected += (long) left.getInt(r, k) * right.getInt(k, c);
+				}
+				assertEquals(expected, product.getInt(r, c));
+			}
+		}
+	}
+
+	@Test
+	void mutableUpdates() {
+		IntMutableMatrix matrix = new IntMutableMatrix(a);
+		matrix.add(b);
+		assertTrue(matrix.equals(a.plus(b)));
+		matrix.subtract(b);
+		assertTrue(matrix.equals(a));
+		matrix.scaleBy(2.0f);
+		assertTrue(matrix.equals(a.times(2)));
+		matrix.axpy(-2.0f, a);
+		assertTrue(matrix.equals(new IntMatrix(2, 3)));
+		matrix.add(new DenseMatrix(2, 3, 3.0f));
+		assertTrue(matrix.equals(new IntMatrix(2, 3, 3)));
+		matrix.hadamardInPlace(a);
+		assertTrue(matrix.equals(a.times(3)));
+		matrix.multiplyBy(new IntMatrix(3, 1, 1));
+		assertTrue(matrix.equals(new IntMatrix(new int[][] {{18}, {3}})));
+		matrix.invert();
+		assertTrue(matrix.equals(new IntMatrix(new int[][] {{18, 3}})));
+		IntMutableMatrix target = new IntMutableMatrix(new IntMatrix(2, 2, 1));
+		target.gemmInto(2.0f, a, b.transpose(), -1.0f);
+		assertTrue(target.equals(new IntMatrix(new int[][] {{-13, 1}, {-1, -21}})));
+	}
+
+	@Test
+	void nonIntegersAreRejected() {
+		IntMutableMatrix matrix = new IntMutableMatrix(a);
+		assertThrows(IllegalArgumentException.class, () -> matrix.setFloat(0, 0, 0.5f));
+		assertThrows(IllegalArgumentException.class, () -> matrix.setEntry(0, 0, Float.NaN));
+		assertThrows(IllegalArgumentException.class, () -> matrix.fill(1e10f));
+		assertThrows(IllegalArgumentException.class, () -> matrix.scaleBy(0.5f));
+		assertThrows(IllegalArgumentException.class, () -> matrix.axpy(0.5f, b));
+		assertThrows(IllegalArgumentException.class, () -> matrix.setRow(0, new float[] {1, 2, 2.5f}));
+		assertTrue(matrix.equals(a));
+		matrix.setOverflowChecked(true);
+		matrix.setInt(0, 0, Integer.MAX_VALUE);
+		assertThrows(ArithmeticException.class, () -> matrix.add(new IntMatrix(2, 3, 1)));
+		assertThrows(ArithmeticException.class, () -> matrix.axpy(2.0f, matrix));
+	}
+}
@@ -0,0 +1,110 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixBatchTest {
+
+	private static List<HSMatrix> matrices(int count, int mRows, int nCols, float start) {
+		List<HSMatrix> matrices = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			matrices.add(new DenseMatrix(mRows, nCols, start + (i % 7) - 3, true));
+		}
+		return matrices;
+	}
+
+	@Test
+	void constructorsAndEntries() {
+		MatrixBatch batch = new MatrixBatch(2, 2, 3, new float[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+		assertEquals(2, batch.size());
+		assertEquals(2, batch.rowSize());
+		assertEquals(3, batch.columnSize());
+		assertEquals(12.0f, batch.getFloat(1, 1, 2));
+		assertTrue(batch.get(1).equals(new DenseMatrix(2, 3, 7.0f, true)));
+		assertTrue(new MatrixBatch(List.of(batch.get(0), batch.get(1))).get(0).equals(batch.get(0)));
+		assertArrayEquals(new float[12], new MatrixBatch(2, 2, 3).toArray());
+		assertThrows(IndexOutOfBoundsException.class, () -> batch.get(2));
+		assertThrows(IllegalArgumentException.class, () -> new MatrixBatch(2, 2, 3, new float[11]));
+		assertThrows(IllegalArgumentException.class, () -> new MatrixBatch(List.of(batch.get(0), new DenseMatrix(3, 2))));
+		assertThrows(IllegalArgumentException.class, () -> new MatrixBatch(List.of()));
+	}
+
+	@Test
+	void productsMatchEachMatrix() {
+		int[][] shapes = {{2, 2, 2}, {3, 3, 3}, {4, 4, 4}, {5, 5, 5}, {2, 3, 4}, {16, 16, 16}};
+		for (int[] shape : shapes) {
+			List<HSMatrix> left = matrices(20, shape[0], shape[1], 1.0f);
+			List<HSMatrix> right = matrices(20, shape[1], shape[2], -2.0f);
+			MatrixBatch product = new MatrixBatch(left).times(new MatrixBatch(right));
+			assertEquals(shape[0], product.rowSize());
+			assertEquals(shape[2], product.columnSize());
+			for (int i = 0; i < 20; i++) {
+				assertTrue(product.get(i).equals(left.get(i).times(right.get(i))), "product " + i + " of shape " + shape[0]);
+			}
+		}
+		assertThrows(IllegalArgumentException.class,
+				() -> new MatrixBatch(2, 2, 3).times(new MatrixBatch(2, 2, 3)));
+		assertThrows(IllegalArgumentException.class,
+				() -> new MatrixBatch(2, 3, 3).times(new MatrixBatch(3, 3, 3)));
+	}
+
+	@Test
+	void singleMatricesArePairedWithEvery() {
+		List<HSMatrix> matrices = matrices(10, 3, 3, 0.0f);
+		MatrixBatch batch = new MatrixBatch(matrices);
+		HSMatrix single = new DenseMatrix(3, 3, 0.5f, true);
+		MatrixBatch one = new MatrixBatch(List.of(single));
+		MatrixBatch products = one.times(batch);
+		MatrixBatch sums = batch.plus(one);
+		MatrixBatch differences = batch.minus(one);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(products.get(i).equals(single.times(matrices.get(i))));
+			assertTrue(sums.get(i).equals(matrices.get(i).plus(single)));
+			assertTrue(differences.get(i).equals(matrices.get(i).minus(single)));
+		}
+	}
+
+	@Test
+	void elementwiseAndReductions() {
+		List<HSMatrix> matrices = matrices(9, 4, 3, 1.0f);
+		MatrixBatch batch = new MatrixBatch(matrices);
+		MatrixBatch transposes = batch.transpose();
+		MatrixBatch scaled = batch.times(2.5f);
+		double[] sums = batch.sums();
+		double[] norms = batch.frobeniusNorms();
+		HSMatrix total = new DenseMatrix(4, 3);
+		for (int i = 0; i < 9; i++) {
+			assertTrue(transposes.get(i).equals(matrices.get(i).transpose()));
+			assertTrue(scaled.get(i).equals(matrices.get(i).times(2.5f)));
+			assertEquals(Arrays.stream(matrices.get(i).rowSums()).sum(), sums[i], 1e-9);
+			assertEquals(matrices.get(i).frobeniusNorm(), norms[i], 1e-9);
+			total = total.plus(matrices.get(i));
+		}
+		assertTrue(batch.total().equals(total));
+		assertTrue(batch.negative().get(3).equals(matrices.get(3).negative()));
+		MatrixBatch square = new MatrixBatch(matrices(5, 3, 3, 2.0f));
+		for (int i = 0; i < 5; i++) {
+			assertEquals(square.get(i).trace(), square.traces()[i], 1e-9);
+		}
+		assertThrows(IllegalArgumentException.class, batch::traces);
+	}
+
+	@Test
+	void largeBatches() {
+		int count = 50_000;
+		float[] entries = new float[count * 9];
+		for (int e = 0; e < entries.length; e++) {
+			entries[e] = (e * 31 % 17) - 8;
+		}
+		MatrixBatch batch = new MatrixBatch(count, 3, 3, entries);
+		MatrixBatch product = batch.times(batch.transpose());
+		for (int i = 0; i < count; i += 4999) {
+			assertTrue(product.get(i).equals(batch.get(i).times(batch.get(i).transpose())));
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixChainTest {
+
+	@Test
+	void plansTheCheapestOrder() {
+		MatrixChain chain = MatrixChain.of(new DenseMatrix(1000, 10), new DenseMatrix(10, 1000), new DenseMatrix(1000, 10));
+		assertEquals("(A1 (A2 A3))", chain.toString());
+		assertEquals(200_000L, chain.getCost());
+		assertEquals(20_000_000L, chain.getLeftToRightCost());
+		// The textbook example: 30x35, 35x15, 15x5, 5x10, 10x20, 20x25.
+		int[] dims = {30, 35, 15, 5, 10, 20, 25};
+		HSMatrix[] operands = new HSMatrix[dims.length - 1];
+		for (int i = 0; i < operands.length; i++) {
+			operands[i] = new DenseMatrix(dims[i], dims[i + 1]);
+		}
+		MatrixChain textbook = MatrixChain.of(operands);
+		assertEquals(15_125L, textbook.getCost());
+		assertEquals("((A1 (A2 A3)) ((A4 A5) A6))", textbook.toString());
+		assertEquals(6, textbook.size());
+	}
+
+	@Test
+	void multipliesInThatOrder() {
+		int[] dims = {7, 3, 12, 2, 9, 5};
+		HSMatrix[] operands = new HSMatrix[dims.length - 1];
+		for (int i = 0; i < operands.length; i++) {
+			operands[i] = new DenseMatrix(dims[i], dims[i + 1], i - 2.0f, true);
+		}
+		operands[1] = new Matrix(3, 12, -1.0f, true);
+		operands[3] = new CSRMatrix(new DenseMatrix(new float[][] {{0, 0, 1, 0, 0, 0, 0, 0, 2}, {0, 3, 0, 0, 0, 0, 0, 0, 0}}));
+		HSMatrix expected = operands[0];
+		for (int i = 1; i < operands.length; i++) {
+			expected = expected.times(operands[i]);
+		}
+		HSMatrix product = MatrixChain.of(operands).multiply();
+		assertEquals(7, product.rowSize());
+		assertEquals(5, product.columnSize());
+		assertTrue(product.equals(expected));
+		HSMatrix single = new DenseMatrix(2, 2);
+		assertSame(single, MatrixChain.of(single).multiply());
+	}
+
+	@Test
+	void closesOffHeapIntermediates() {
+		OffHeapMatrix a = new OffHeapMatrix(new DenseMatrix(3, 4, 1.0f, true));
+		OffHeapMatrix b = new OffHeapMatrix(new DenseMatrix(4, 5, -1.0f, true));
+		DenseMatrix c = new DenseMatrix(5, 2, 0.5f, true);
+		try (OffHeapMatrix product = (OffHeapMatrix) MatrixChain.of(a, b, c).multiply();
+			 OffHeapMatrix ab = (OffHeapMatrix) a.times(b)) {
+			assertTrue(product.equals(ab.times(c)));
+			assertFalse(a.isClosed());
+			assertFalse(b.isClosed());
+		}
+		a.close();
+		b.close();
+	}
+
+	@Test
+	void releasesIntermediatesWhenAProductFails() {
+		List<OffHeapMatrix> products = new ArrayList<>();
+		OffHeapMatrix a = new OffHeapMatrix(new DenseMatrix(1, 10, 1.0f, true)) {
+			@Override
+			public HSMatrix times(HSMatrix matrixB) {
+				OffHeapMatrix product = (OffHeapMatrix) super.times(matrixB);
+				products.add(product);
+				return product;
+			}
+		};
+		HSMatrix c = new DenseMatrix(1, 10, 1.0f) {
+			@Override
+			public HSMatrix times(HSMatrix matrixB) {
+				throw new IllegalStateException("The product failed.");
+			}
+		};
+		MatrixChain chain = MatrixChain.of(a, new DenseMatrix(10, 1, 1.0f), c, new DenseMatrix(10, 1, 1.0f));
+		assertEquals("((A1 A2) (A3 A4))", chain.toString());
+		assertThrows(IllegalStateException.class, chain::multiply);
+		assertEquals(1, products.size());
+		assertTrue(products.get(0).isClosed());
+		a.close();
+	}
+
+	@Test
+	void rejectsBadChains() {
+		assertThrows(IllegalArgumentException.class, () -> MatrixChain.of());
+		assertThrows(IllegalArgumentException.class,
+				() -> MatrixChain.of(new DenseMatrix(2, 3), new DenseMatrix(3, 4), new DenseMatrix(3, 4)));
+	}
+}
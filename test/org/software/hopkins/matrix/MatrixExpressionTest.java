@@ -0,0 +1,103 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixExpressionTest {
+	final DenseMatrix a = new DenseMatrix(3, 4, 1.0f, true);
+	final HSMatrix b = new Matrix(3, 4, -0.5f, true);
+	final HSMatrix c = new CSRMatrix(new DenseMatrix(new float[][] {{0, 2, 0, 0}, {0, 0, 0, 1}, {3, 0, 0, 0}}));
+
+	@Test
+	void sumsMatchStepByStep() {
+		DenseMatrix fused = MatrixExpression.of(a).plus(b).minus(c).plus(a).evaluate();
+		assertTrue(fused.equals(a.plus(b).minus(c).plus(a)));
+		HSMatrix stepByStep = a;
+		MatrixExpression expression = MatrixExpression.of(a);
+		for (int i = 0; i < 10; i++) {
+			HSMatrix operand = new DenseMatrix(3, 4, 0.1f * i, true);
+			stepByStep = stepByStep.minus(operand);
+			expression = expression.minus(operand);
+		}
+		assertTrue(expression.evaluate().equals(stepByStep));
+	}
+
+	@Test
+	void nestedDifferencesKeepTheirAssociation() {
+		HSMatrix large = new DenseMatrix(2, 2, 1e8f);
+		HSMatrix one = new DenseMatrix(2, 2, 1.0f);
+		HSMatrix stepByStep = large.minus(large.minus(one));
+		assertEquals(0.0f, stepByStep.getFloat(0, 0));
+		assertTrue(MatrixExpression.of(large).minus(MatrixExpression.of(large).minus(one)).evaluate().equals(stepByStep));
+		assertTrue(MatrixExpression.of(one).plus(MatrixExpression.of(large).minus(large)).minus(one).evaluate()
+				.equals(one.plus(large.minus(large)).minus(one)));
+		assertTrue(MatrixExpression.of(large).minus(MatrixExpression.of(large).minus(one).negative()).evaluate()
+				.equals(large.minus(large.minus(one).negative())));
+	}
+
+	@Test
+	void scalingAndViews() {
+		MatrixExpression expression = MatrixExpression.of(a).plus(b).times(2.0f).negative();
+		assertTrue(expression.evaluate().equals(a.plus(b).times(-2.0f)));
+		HSMatrix block = MatrixView.submatrix(a, 1, 1, 2, 2);
+		HSMatrix transposed = MatrixView.transposed(MatrixView.submatrix(a, 0, 0, 2, 2));
+		assertTrue(MatrixExpression.of(block).plus(transposed).evaluate().equals(
+				new DenseMatrix(new float[][] {{6 + 1, 7 + 5}, {10 + 2, 11 + 6}})));
+	}
+
+	@Test
+	void products() {
+		HSMatrix square = new DenseMatrix(4, 4, 2.0f, true);
+		MatrixExpression product = MatrixExpression.of(a).times(square);
+		assertEquals(3, product.rowSize());
+		assertEquals(4, product.columnSize());
+		HSMatrix expected = a.times(square);
+		assertTrue(product.evaluate().equals(expected));
+		assertTrue(product.plus(product).minus(a).evaluate().equals(expected.plus(expected).minus(a)));
+		MatrixExpression chained = MatrixExpression.of(b).plus(c).times(MatrixExpression.of(square).times(3.0f));
+		assertTrue(chained.evaluate().equals(b.plus(c).times(square.times(3.0f))));
+	}
+
+	@Test
+	void closesOffHeapProducts() {
+		List<OffHeapMatrix> products = new ArrayList<>();
+		OffHeapMatrix left = new OffHeapMatrix(new DenseMatrix(3, 4, 1.0f, true)) {
+			@Override
+			public HSMatrix times(HSMatrix matrixB) {
+				OffHeapMatrix product = (OffHeapMatrix) super.times(matrixB);
+				products.add(product);
+				return product;
+			}
+		};
+		MatrixExpression product = MatrixExpression.of(left).times(a.transpose());
+		DenseMatrix result = product.plus(product).minus(a.times(a.transpose())).evaluate();
+		HSMatrix expected = new DenseMatrix(left).times(a.transpose());
+		assertTrue(result.equals(expected.plus(expected).minus(a.times(a.transpose()))));
+		assertEquals(1, products.size());
+		assertTrue(products.get(0).isClosed());
+		assertFalse(left.isClosed());
+		left.close();
+	}
+
+	@Test
+	void operandsAreReadWhenEvaluated() {
+		DenseMutableMatrix mutable = new DenseMutableMatrix(a);
+		MatrixExpression expression = MatrixExpression.of(mutable).minus(a);
+		assertTrue(expression.evaluate().equals(new DenseMatrix(3, 4)));
+		mutable.fill(1.0f);
+		assertTrue(expression.evaluate().equals(new DenseMatrix(3, 4, 1.0f).minus(a)));
+	}
+
+	@Test
+	void orderChecks() {
+		MatrixExpression expression = MatrixExpression.of(a);
+		assertThrows(IllegalArgumentException.class, () -> expression.plus(a.transpose()));
+		assertThrows(IllegalArgumentException.class, () -> expression.minus(new DenseMatrix(3, 3)));
+		assertThrows(IllegalArgumentException.class, () -> expression.times(a));
+		assertThrows(IllegalArgumentException.class, () -> MatrixExpression.of(null));
+	}
+}
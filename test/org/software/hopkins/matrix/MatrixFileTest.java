@@ -0,0 +1,78 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixFileTest {
+	@TempDir
+	Path tempDir;
+
+	final HSMatrix expected = new DenseMatrix(5, 3, -4.5f, true);
+
+	@Test
+	void writeAndMap() throws IOException {
+		Path path = tempDir.resolve("m.hsm");
+		MatrixFile.write(path, expected);
+		assertEquals(MatrixFile.HEADER_BYTES + 15 * Float.BYTES, Files.size(path));
+		try (MappedMatrix matrix = MatrixFile.map(path)) {
+			assertTrue(matrix.equals(expected));
+			assertTrue(matrix.checksumMatches());
+			assertEquals(expected.sumColumn(1), matrix.sumColumn(1));
+			assertTrue(matrix.times(expected.transpose()).equals(expected.times(expected.transpose())));
+		}
+		try (MappedMatrix matrix = MatrixFile.map(path, 7)) {
+			assertTrue(matrix.equals(expected));
+			assertTrue(matrix.checksumMatches());
+			assertTrue(matrix.transpose().equals(expected.transpose()));
+		}
+	}
+
+	@Test
+	void streamingWriter() throws IOException {
+		Path path = tempDir.resolve("rows.hsm");
+		try (MatrixFile.Writer writer = MatrixFile.newWriter(path, 2, 2)) {
+			writer.writeRow(new float[] {1.0f, 2.0f});
+			assertThrows(IllegalArgumentException.class, () -> writer.writeRow(new float[3]));
+			writer.writeRow(new float[] {3.0f, 4.0f});
+			assertThrows(IllegalStateException.class, () -> writer.writeRow(new float[2]));
+		}
+		try (MappedMatrix matrix = MatrixFile.map(path)) {
+			assertTrue(matrix.equals(new DenseMatrix(2, 2, 1.0f, true)));
+		}
+
+		Path incomplete = tempDir.resolve("incomplete.hsm");
+		MatrixFile.Writer writer = MatrixFile.newWriter(incomplete, 2, 2);
+		writer.writeRow(new float[] {1.0f, 2.0f});
+		assertThrows(IllegalStateException.class, writer::close);
+		assertThrows(IOException.class, () -> MatrixFile.map(incomplete));
+	}
+
+	@Test
+	void damagedFiles() throws IOException {
+		Path path = tempDir.resolve("damaged.hsm");
+		MatrixFile.write(path, expected);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4}), MatrixFile.HEADER_BYTES + 8);
+		}
+		try (MappedMatrix matrix = MatrixFile.map(path)) {
+			assertFalse(matrix.checksumMatches());
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(MatrixFile.HEADER_BYTES + 8);
+		}
+		assertThrows(IOException.class, () -> MatrixFile.map(path));
+
+		Path text = tempDir.resolve("text.hsm");
+		Files.writeString(text, "1 2 3\n4 5 6\n and more than a header's worth of text");
+		assertThrows(IOException.class, () -> MatrixFile.map(text));
+	}
+}
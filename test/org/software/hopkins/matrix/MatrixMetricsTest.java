@@ -0,0 +1,139 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.software.hopkins.matrix.future.CommandLineMatrixCalculator;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixMetricsTest {
+	private final MatrixMetrics metrics = MatrixMetrics.getDefault();
+
+	@BeforeEach
+	void start() {
+		metrics.reset();
+		metrics.setEnabled(true);
+	}
+
+	@AfterEach
+	void stop() {
+		metrics.setEnabled(false);
+		metrics.reset();
+	}
+
+	@Test
+	void recordsOperationsOfInstrumentedMatrices() {
+		HSMatrix a = MatrixMetrics.instrument(new DenseMatrix(8, 4, 1.0f, true));
+		HSMatrix b = MatrixMetrics.instrument(new DenseMatrix(4, 3, 0.5f));
+		HSMatrix product = a.times(b);
+		assertTrue(product.equals(new DenseMatrix(8, 4, 1.0f, true).times(new DenseMatrix(4, 3, 0.5f))));
+		product.plus(product).transpose().times(2.0f);
+		assertSame(a, MatrixMetrics.instrument(a));
+
+		OperationMetrics multiply = metrics.getMetrics(MatrixMetrics.Operation.MULTIPLY);
+		assertEquals(1, multiply.getCalls());
+		assertEquals(2L * 8 * 4 * 3, multiply.getFlops());
+		assertEquals(Float.BYTES * (32L + 12 + 24), multiply.getBytesTouched());
+		assertTrue(multiply.getMaxNanos() > 0);
+		assertTrue(multiply.getMedianNanos() <= multiply.getMaxNanos());
+		assertEquals(1, metrics.getMetrics(MatrixMetrics.Operation.ADD).getCalls());
+		assertEquals(1, metrics.getMetrics(MatrixMetrics.Operation.TRANSPOSE).getCalls());
+		assertEquals(1, metrics.getMetrics(MatrixMetrics.Operation.SCALE).getCalls());
+		assertEquals(1, metrics.getMetrics(MatrixMetrics.Operation.COMPARE).getCalls());
+
+		HSMutableMatrix mutable = MatrixMetrics.instrument(new DenseMutableMatrix(new DenseMatrix(3, 3, 1.0f)));
+		mutable.axpy(2.0f, MatrixMetrics.instrument(new DenseMatrix(3, 3, 1.0f)));
+		mutable.scaleBy(0.5f);
+		assertTrue(mutable.equals(new DenseMatrix(3, 3, 1.5f)));
+		assertEquals(1, metrics.getMetrics(MatrixMetrics.Operation.AXPY).getCalls());
+		assertEquals(18, metrics.getMetrics(MatrixMetrics.Operation.AXPY).getFlops());
+		assertEquals(1, metrics.getMetrics(MatrixMetrics.Operation.SCALE_IN_PLACE).getCalls());
+		assertFalse(metrics.getOperations().containsKey("GEMM_INTO"));
+	}
+
+	@Test
+	void recordsNothingWhileDisabled() {
+		metrics.setEnabled(false);
+		HSMatrix a = MatrixMetrics.instrument(new DenseMatrix(4, 4, 1.0f));
+		a.times(a).plus(a);
+		assertTrue(metrics.getOperations().isEmpty());
+		metrics.setEnabled(true);
+		a.times(a);
+		assertEquals(1, metrics.getOperations().size());
+		metrics.reset();
+		assertTrue(metrics.getOperations().isEmpty());
+	}
+
+	@Test
+	void recordsEstimatesOfCalculations() {
+		CommandLineMatrixCalculator calculator = new CommandLineMatrixCalculator();
+		calculator.makeMatrix("A", new DenseMatrix(2, 3, 1.0f, true));
+		calculator.makeMatrix("B", new DenseMatrix(3, 4, 0.5f));
+		calculator.makeMatrix("C", new DenseMatrix(4, 1, 2.0f));
+		calculator.makeMatrix("D", new DenseMatrix(2, 3, -1.0f));
+		calculator.doMultiMatrixCalculation(MatrixOperation.MULTIPLY, new String[] {"A", "B", "C"}, "");
+		OperationMetrics multiply = metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_MULTIPLY);
+		// A (B C) takes 3 * 4 + 2 * 3 multiply-adds.
+		assertEquals(2L * (12 + 6), multiply.getFlops());
+		assertEquals(Float.BYTES * (6L + 12 + 4 + 2), multiply.getBytesTouched());
+
+		calculator.doMultiMatrixCalculation(MatrixOperation.ADD, new String[] {"A", "D", "A"}, "");
+		calculator.doMultiMatrixCalculation(MatrixOperation.ADD, new String[] {"A", "D", "A"}, "");
+		OperationMetrics add = metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_ADD);
+		assertEquals(2, add.getCalls());
+		assertEquals(2L * 6, add.getFlops());
+		assertEquals(Float.BYTES * 4L * 6, add.getBytesTouched());
+
+		calculator.scaleMatrixCalculation("A", "", 2.0f);
+		calculator.transposeMatrixCalculation("A", "");
+		calculator.sumMatrixRow("A", "", 1);
+		assertEquals(6, metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_SCALE).getFlops());
+		assertEquals(Float.BYTES * 12L, metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_SCALE).getBytesTouched());
+		assertEquals(0, metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_TRANSPOSE).getFlops());
+		assertEquals(Float.BYTES * 12L, metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_TRANSPOSE).getBytesTouched());
+		assertEquals(3, metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_SUM).getFlops());
+		assertEquals(Float.BYTES * 3L, metrics.getMetrics(MatrixMetrics.Operation.CALCULATE_SUM).getBytesTouched());
+	}
+
+	@Test
+	void histogramBucketsStayWithinASixteenth() {
+		for (long nanos : new long[] {0, 1, 15, 16, 17, 100, 1_000, 123_456, 987_654_321, 1L << 39}) {
+			long reported = LatencyHistogram.highestIn(LatencyHistogram.bucketOf(nanos));
+			assertTrue(reported >= nanos && reported <= nanos + nanos / 16, nanos + " reported as " + reported);
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1_000L);
+		}
+		long[] counts = histogram.counts();
+		assertEquals(50_000, LatencyHistogram.percentile(counts, 0.5), 50_000 / 16.0);
+		assertEquals(99_000, LatencyHistogram.percentile(counts, 0.99), 99_000 / 16.0);
+		histogram.reset();
+		assertEquals(0, LatencyHistogram.percentile(histogram.counts(), 0.5));
+	}
+
+	@Test
+	void exposedAsPlatformMBean() throws Exception {
+		assertSame(metrics, MatrixMetrics.register());
+		assertSame(metrics, MatrixMetrics.register());
+		HSMatrix a = MatrixMetrics.instrument(new DenseMatrix(4, 4, 1.0f));
+		a.times(a);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(MatrixMetrics.OBJECT_NAME);
+		assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+		TabularData operations = (TabularData) server.getAttribute(name, "Operations");
+		CompositeData multiply = (CompositeData) operations.get(new Object[] {"MULTIPLY"}).get("value");
+		assertEquals(1L, multiply.get("calls"));
+		assertEquals(128L, multiply.get("flops"));
+		server.invoke(name, "reset", null, null);
+		assertTrue(metrics.getOperations().isEmpty());
+	}
+}
@@ -0,0 +1,139 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixRegistryTest {
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void publishedMatricesNeverChange() {
+		MatrixRegistry registry = new MatrixRegistry();
+		DenseMutableMatrix mutable = new DenseMutableMatrix(new DenseMatrix(2, 2, 1.0f));
+		HSMatrix published = registry.put("A", mutable);
+		assertNotSame(mutable, published);
+		mutable.fill(5.0f);
+		assertTrue(registry.get("A").equals(new DenseMatrix(2, 2, 1.0f)));
+		IntMutableMatrix integers = new IntMutableMatrix(new IntMatrix(2, 2, 3));
+		registry.put("I", integers);
+		integers.setInt(0, 0, 0);
+		assertEquals(IntMatrix.class, registry.get("I").getClass());
+		assertEquals(3, ((IntMatrix) registry.get("I")).getInt(0, 0));
+		// Matrices that never change are published as they are.
+		DenseMatrix dense = new DenseMatrix(2, 3, 2.0f);
+		assertSame(dense, registry.put("D", dense));
+		HSMatrix view = dense.transpose();
+		assertSame(view, registry.put("T", view));
+		HSMatrix mutableView = MatrixView.transposed(mutable);
+		assertNotSame(mutableView, registry.put("T", mutableView));
+	}
+
+	@Test
+	void readersCanNotChangeOrCloseSnapshots() {
+		MatrixRegistry registry = new MatrixRegistry();
+		List<Float> row = new ArrayList<>(List.of(1.0f, 2.0f));
+		registry.put("A", new Matrix(List.of(row)));
+		row.set(0, 5.0f);
+		assertEquals(1.0f, registry.get("A").getFloat(0, 0));
+		CSRMatrix sparse = new CSRMatrix(new DenseMatrix(new float[][] {{0, 1}, {2, 0}}));
+		HSMatrix sparseSnapshot = registry.put("S", sparse);
+		assertFalse(sparseSnapshot instanceof HSMutableMatrix);
+		sparse.setFloat(0, 0, 7.0f);
+		assertEquals(0.0f, registry.get("S").getFloat(0, 0));
+		assertTrue(registry.get("S").times(2.0f).equals(new DenseMatrix(new float[][] {{0, 2}, {4, 0}})));
+		try (OffHeapMatrix offHeap = new OffHeapMatrix(new DenseMatrix(2, 2, 3.0f))) {
+			HSMatrix offHeapSnapshot = registry.put("O", offHeap);
+			assertEquals(DenseMatrix.class, offHeapSnapshot.getClass());
+		}
+		assertEquals(3.0f, registry.get("O").getFloat(1, 1));
+	}
+
+	@Test
+	void mappedMatricesArePublishedWithoutCopying() throws IOException {
+		MatrixRegistry registry = new MatrixRegistry();
+		Path file = tempDir.resolve("m.hsm");
+		MatrixFile.write(file, new DenseMatrix(3, 2, 1.0f, true));
+		MappedMatrix mapped = MatrixFile.map(file);
+		HSMatrix published = registry.put("A", mapped);
+		assertEquals(ReadOnlyMatrix.class, published.getClass());
+		assertSame(mapped, ((ReadOnlyMatrix) published).mapping());
+		assertFalse(published instanceof AutoCloseable);
+		assertTrue(published.equals(new DenseMatrix(3, 2, 1.0f, true)));
+		// The registry closes the mapping once no name publishes it.
+		assertSame(published, registry.put("B", published));
+		registry.put("A", new DenseMatrix(1, 1));
+		assertFalse(mapped.isClosed());
+		assertEquals(6.0f, registry.get("B").getFloat(2, 1));
+		registry.remove("B");
+		assertTrue(mapped.isClosed());
+	}
+
+	@Test
+	void namesAndSnapshots() {
+		MatrixRegistry registry = new MatrixRegistry(3);
+		assertFalse(registry.replace("B", new DenseMatrix(1, 1)));
+		assertFalse(registry.contains("B"));
+		registry.put("B", new DenseMatrix(1, 1, 2.0f));
+		registry.put("A", new DenseMatrix(1, 1, 1.0f));
+		assertTrue(registry.replace("B", new DenseMatrix(1, 1, 3.0f)));
+		assertEquals(List.of("A", "B"), List.copyOf(registry.names()));
+		Map<String, HSMatrix> snapshot = registry.snapshot();
+		assertNotNull(registry.remove("A"));
+		assertNull(registry.remove("A"));
+		assertNull(registry.get("A"));
+		assertEquals(1, registry.size());
+		assertEquals(2, snapshot.size());
+		assertEquals(3.0f, snapshot.get("B").getFloat(0, 0));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.remove("B"));
+		assertThrows(IllegalArgumentException.class, () -> registry.put("C", null));
+		assertThrows(IllegalArgumentException.class, () -> new MatrixRegistry(0));
+	}
+
+	@Test
+	void updatesAreSerialized() throws InterruptedException {
+		MatrixRegistry registry = new MatrixRegistry();
+		registry.put("COUNT", new DenseMatrix(1, 1));
+		int threads = 4;
+		int updates = 500;
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				for (int i = 0; i < updates; i++) {
+					registry.update("COUNT", matrix -> matrix.plus(new DenseMatrix(1, 1, 1.0f)));
+					assertNotNull(registry.get("COUNT"));
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertEquals(threads * updates, registry.get("COUNT").getFloat(0, 0));
+		assertNull(registry.update("COUNT", matrix -> null));
+		assertFalse(registry.contains("COUNT"));
+	}
+
+	@Test
+	void replacedMatricesAreHandedOverUnderTheLock() {
+		MatrixRegistry registry = new MatrixRegistry();
+		List<HSMatrix> replaced = new ArrayList<>();
+		HSMatrix first = registry.update("A", matrix -> new DenseMatrix(1, 1, 1.0f), replaced::add);
+		assertTrue(replaced.isEmpty());
+		HSMatrix second = registry.update("A", matrix -> new DenseMatrix(1, 1, 2.0f), matrix -> {
+			assertNotSame(first, registry.get("A"));
+			replaced.add(matrix);
+		});
+		registry.update("A", matrix -> matrix, replaced::add);
+		registry.update("A", matrix -> null, replaced::add);
+		assertEquals(List.of(first, second), replaced);
+	}
+}
@@ -0,0 +1,108 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixResultCacheTest {
+	final HSMatrix a = new DenseMatrix(4, 4, 1.0f, true);
+	final HSMatrix b = new DenseMatrix(4, 4, 2.0f);
+
+	@Test
+	void hitsOnTheSameOperandsAndParameters() {
+		MatrixResultCache cache = new MatrixResultCache(1 << 20);
+		AtomicInteger calculations = new AtomicInteger();
+		HSMatrix first = cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(2.0f), () -> {
+			calculations.incrementAndGet();
+			return a.times(2.0f);
+		});
+		HSMatrix second = cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(2.0f), () -> {
+			calculations.incrementAndGet();
+			return a.times(2.0f);
+		});
+		assertSame(first, second);
+		assertEquals(1, calculations.get());
+		assertTrue(first.equals(a.times(2.0f)));
+		// A different parameter, operand or operation is a different result.
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(3.0f), () -> a.times(3.0f));
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(new DenseMatrix(a)), List.of(2.0f), () -> a.times(2.0f));
+		cache.computeIfAbsent(MatrixOperation.ADD, List.of(a, b), List.of(), () -> a.plus(b));
+		cache.computeIfAbsent(MatrixOperation.ADD, List.of(b, a), List.of(), () -> b.plus(a));
+		assertEquals(5, cache.size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(5, cache.getMissCount());
+		assertEquals(1.0 / 6, cache.getHitRate(), 1e-12);
+	}
+
+	@Test
+	void resultsAreSnapshots() {
+		MatrixResultCache cache = new MatrixResultCache(1 << 20);
+		DenseMutableMatrix mutable = new DenseMutableMatrix(b);
+		HSMatrix result = cache.computeIfAbsent(MatrixOperation.TRANSPOSE, List.of(a), List.of(), () -> mutable);
+		assertNotSame(mutable, result);
+		mutable.fill(0.0f);
+		assertTrue(cache.computeIfAbsent(MatrixOperation.TRANSPOSE, List.of(a), List.of(), () -> a).equals(b));
+	}
+
+	@Test
+	void offHeapResultsAreCopiedAndClosed() {
+		MatrixResultCache cache = new MatrixResultCache(1 << 20);
+		OffHeapMatrix offHeap = new OffHeapMatrix(b);
+		HSMatrix result = cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(), () -> offHeap);
+		assertTrue(offHeap.isClosed());
+		assertEquals(DenseMatrix.class, result.getClass());
+		assertTrue(result.equals(b));
+		CSRMatrix sparse = new CSRMatrix(a);
+		HSMatrix sparseResult = cache.computeIfAbsent(MatrixOperation.TRANSPOSE, List.of(a), List.of(), () -> sparse);
+		assertFalse(sparseResult instanceof HSMutableMatrix);
+		sparse.setFloat(0, 0, 9.0f);
+		assertEquals(1.0f, sparseResult.getFloat(0, 0));
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedWithinTheByteBound() {
+		long resultBytes = MatrixResultCache.estimatedBytes(a);
+		MatrixResultCache cache = new MatrixResultCache(2 * resultBytes);
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(1.0f), () -> a.times(1.0f));
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(2.0f), () -> a.times(2.0f));
+		// Using the first makes the second the least recently used.
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(1.0f), () -> a.times(1.0f));
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(3.0f), () -> a.times(3.0f));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2 * resultBytes, cache.getBytes());
+		AtomicInteger calculations = new AtomicInteger();
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(1.0f), () -> {
+			calculations.incrementAndGet();
+			return a;
+		});
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(2.0f), () -> {
+			calculations.incrementAndGet();
+			return a.times(2.0f);
+		});
+		assertEquals(1, calculations.get());
+		// A result bigger than the cache is returned but not kept.
+		HSMatrix big = new DenseMatrix(100, 100);
+		assertSame(big, cache.computeIfAbsent(MatrixOperation.TRANSPOSE, List.of(big), List.of(), () -> big));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void invalidationDropsResultsOfAnOperand() {
+		MatrixResultCache cache = new MatrixResultCache(1 << 20);
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(a), List.of(2.0f), () -> a.times(2.0f));
+		cache.computeIfAbsent(MatrixOperation.ADD, List.of(b, a), List.of(), () -> b.plus(a));
+		cache.computeIfAbsent(MatrixOperation.SCALE, List.of(b), List.of(2.0f), () -> b.times(2.0f));
+		assertEquals(2, cache.invalidate(a));
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getInvalidationCount());
+		assertEquals(MatrixResultCache.estimatedBytes(b), cache.getBytes());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+		assertThrows(IllegalArgumentException.class, () -> new MatrixResultCache(-1));
+	}
+}
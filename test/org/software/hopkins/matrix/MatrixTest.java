@@ -112,4 +112,28 @@ class MatrixTest {
 		HSMatrix matrix2 = matrix1.transpose();
 		assertTrue(matrix.equals(matrix2));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void transposeIsNeverChangedThroughItsSource() {
+		List<Float> row = new ArrayList<>(List.of(1.0f, 2.0f));
+		HSMatrix transposed = new Matrix(List.of(row)).transpose();
+		row.set(0, 5.0f);
+		assertEquals(1.0f, transposed.getFloat(0, 0));
+		MutableMatrix mutable = new MutableMatrix(1, 2);
+		HSMatrix mutableTransposed = mutable.transpose();
+		mutable.setFloat(0, 0, 5.0f);
+		assertEquals(0.0f, mutableTransposed.getFloat(0, 0));
+	}
+
+	@Test
+	void primitiveAccess() {
+		HSMatrix matrix = new Matrix(2, 3, 1.0f, true);
+		assertEquals(6.0f, matrix.getFloat(1, 2));
+		float[] row = new float[4];
+		matrix.copyRowInto(1, row, 1);
+		assertArrayEquals(new float[] {0.0f, 4.0f, 5.0f, 6.0f}, row);
+		float[] column = new float[2];
+		matrix.copyColumnInto(2, column, 0);
+		assertArrayEquals(new float[] {3.0f, 6.0f}, column);
+	}
+}
@@ -0,0 +1,92 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixViewTest {
+	final DenseMatrix dense = new DenseMatrix(4, 5, 1.0f, true);
+	final HSMatrix boxed = new Matrix(4, 5, 1.0f, true);
+
+	@Test
+	void transposedView() {
+		HSMatrix transposed = dense.transpose();
+		assertTrue(transposed instanceof TransposedView);
+		assertEquals(5, transposed.rowSize());
+		assertEquals(List.of(2.0f, 7.0f, 12.0f, 17.0f), transposed.getRow(1));
+		assertEquals(List.of(11.0f, 12.0f, 13.0f, 14.0f, 15.0f), transposed.getColumn(2));
+		assertEquals(13.0f, transposed.getFloat(2, 2));
+		assertTrue(transposed.transpose().equals(dense));
+		assertTrue(boxed.transpose() instanceof TransposedView);
+		assertTrue(transposed.equals(boxed.transpose()));
+		assertThrows(IndexOutOfBoundsException.class, () -> transposed.getEntry(0, 4));
+	}
+
+	@Test
+	void mutableMatricesTransposeToCopies() {
+		DenseMutableMatrix mutable = new DenseMutableMatrix(dense);
+		HSMatrix transposed = mutable.transpose();
+		mutable.fill(0.0f);
+		assertTrue(transposed.equals(dense.transpose()));
+		MutableMatrix boxedMutable = new MutableMatrix(4, 5);
+		boxedMutable.setValuesIncrementedFrom(1.0f);
+		HSMatrix boxedTransposed = boxedMutable.transpose();
+		boxedMutable.invert();
+		assertTrue(boxedMutable.equals(boxedTransposed));
+		assertTrue(boxedMutable.equals(dense.transpose()));
+	}
+
+	@Test
+	void slices() {
+		MatrixView block = MatrixView.submatrix(dense, 1, 2, 2, 3);
+		assertTrue(block.equals(new DenseMatrix(new float[][] {{8.0f, 9.0f, 10.0f}, {13.0f, 14.0f, 15.0f}})));
+		assertTrue(MatrixView.submatrix(boxed, 1, 2, 2, 3).equals(block));
+		MatrixView everyOther = MatrixView.slice(dense, 0, 2, 2, 1, 2, 3);
+		assertTrue(everyOther.equals(new DenseMatrix(new float[][] {{2.0f, 5.0f}, {12.0f, 15.0f}})));
+		assertEquals(List.of(16.0f, 17.0f, 18.0f, 19.0f, 20.0f), MatrixView.row(boxed, 3).getRow(0));
+		assertEquals(List.of(5.0f, 10.0f, 15.0f, 20.0f), MatrixView.column(dense, 4).getColumn(0));
+		assertTrue(MatrixView.rows(dense, 1, 2, 2).equals(MatrixView.rows(boxed, 1, 2, 2)));
+		assertEquals(24.0f, MatrixView.columns(dense, 0, 3, 2).sumRow(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> MatrixView.rows(dense, 1, 3, 2));
+		assertThrows(IllegalArgumentException.class, () -> MatrixView.columns(dense, 0, 2, 0));
+	}
+
+	@Test
+	void viewsAreLive() {
+		DenseMutableMatrix mutable = new DenseMutableMatrix(dense);
+		MatrixView view = MatrixView.transposed(MatrixView.submatrix(mutable, 1, 1, 2, 2));
+		DenseMatrix before = view.materialize();
+		mutable.setFloat(1, 2, -1.0f);
+		assertEquals(-1.0f, view.getFloat(1, 0));
+		assertEquals(8.0f, before.getFloat(1, 0));
+		assertTrue(view.clone() instanceof DenseMatrix);
+	}
+
+	@Test
+	void arithmetic() {
+		MatrixView block = MatrixView.submatrix(dense, 0, 0, 4, 4);
+		HSMatrix copy = block.materialize();
+		assertTrue(block.plus(block).equals(copy.times(2.0f)));
+		assertTrue(block.minus(copy).equals(new DenseMatrix(4, 4)));
+		assertTrue(block.negative().equals(copy.negative()));
+		assertEquals(copy.sumColumn(3), block.sumColumn(3));
+	}
+
+	@Test
+	void productsReadViewsInPlace() {
+		HSMatrix b = new DenseMatrix(4, 3, -2.0f, true);
+		HSMatrix expected = new DenseMatrix(5, 3, TiledMultiplierTest.naiveProduct(dense.transpose(), b));
+		assertTrue(dense.transpose().times(b).equals(expected));
+		assertTrue(boxed.transpose().times(b).equals(expected));
+		assertTrue(b.transpose().times(dense.transpose().transpose().transpose().transpose()).equals(
+				new DenseMatrix(3, 5, TiledMultiplierTest.naiveProduct(b.transpose(), dense))));
+		MatrixView strided = MatrixView.slice(dense, 0, 2, 3, 0, 3, 2);
+		MatrixView stridedTransposed = MatrixView.transposed(MatrixView.slice(dense, 1, 2, 2, 0, 3, 2));
+		assertArrayEquals(TiledMultiplierTest.naiveProduct(strided, stridedTransposed),
+				new TiledMultiplier(4, 2, 4).multiply(strided, stridedTransposed));
+		assertArrayEquals(TiledMultiplierTest.naiveProduct(dense.transpose(), dense),
+				new TiledMultiplier(4, 3, 4).multiply(dense.transpose(), dense));
+	}
+}
@@ -0,0 +1,126 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapMatrixTest {
+	final HSMatrix expected = new DenseMatrix(5, 3, 1.0f, true);
+
+	/**
+	 * A copy of the expected matrix in chunks of two rows, so rows are spread over three chunks.
+	 */
+	OffHeapMatrix chunkedCopy() {
+		OffHeapMatrix matrix = new OffHeapMatrix(5, 3, 7);
+		matrix.setValuesIncrementedFrom(1.0f);
+		return matrix;
+	}
+
+	@Test
+	void access() {
+		try (OffHeapMatrix matrix = chunkedCopy(); OffHeapMatrix copy = new OffHeapMatrix(expected)) {
+			assertTrue(matrix.equals(expected));
+			assertTrue(copy.equals(matrix));
+			assertTrue(expected.equals(matrix));
+			assertEquals(15L, matrix.elementCount());
+			assertEquals(expected.toString(), matrix.toString());
+			assertEquals(List.of(10.0f, 11.0f, 12.0f), matrix.getRow(3));
+			assertEquals(List.of(2.0f, 5.0f, 8.0f, 11.0f, 14.0f), matrix.getColumn(1));
+			assertEquals(33.0f, matrix.sumRow(3));
+			assertEquals(45.0f, matrix.sumColumn(2));
+			assertThrows(IndexOutOfBoundsException.class, () -> matrix.getEntry(5, 0));
+		}
+	}
+
+	@Test
+	void arithmetic() {
+		try (OffHeapMatrix matrix = chunkedCopy()) {
+			assertTrue(matrix.plus(expected).equals(expected.times(2.0f)));
+			assertTrue(matrix.minus(new Matrix(5, 3, 1.0f)).equals(expected.minus(new DenseMatrix(5, 3, 1.0f))));
+			assertTrue(matrix.negative().equals(expected.negative()));
+			assertTrue(matrix.transpose().equals(expected.transpose()));
+			assertTrue(matrix.clone().equals(matrix));
+			assertThrows(IllegalArgumentException.class, () -> matrix.plus(new DenseMatrix(3, 5)));
+		}
+	}
+
+	@Test
+	void times() {
+		HSMatrix b = new DenseMatrix(3, 4, -2.0f, true);
+		HSMatrix product = new DenseMatrix(5, 4, TiledMultiplierTest.naiveProduct(expected, b));
+		try (OffHeapMatrix matrix = chunkedCopy()) {
+			HSMatrix offHeapProduct = matrix.times(b);
+			assertTrue(offHeapProduct instanceof OffHeapMatrix);
+			assertTrue(offHeapProduct.equals(product));
+			assertTrue(expected.times(matrix.transpose()).equals(expected.times(expected.transpose())));
+			matrix.multiplyBy(b);
+			assertTrue(matrix.equals(product));
+			assertThrows(IllegalArgumentException.class, () -> matrix.times(matrix));
+		}
+	}
+
+	@Test
+	void mutation() {
+		try (OffHeapMatrix matrix = chunkedCopy()) {
+			matrix.setRow(4, new float[] {7.0f, 8.0f, 9.0f});
+			matrix.setColumn(0, List.of(0.0f));
+			matrix.setEntry(2, 2, -1.0f);
+			assertEquals(List.of(0.0f, 2.0f, 3.0f), matrix.getRow(0));
+			assertEquals(List.of(7.0f, 8.0f, -1.0f), matrix.getRow(2));
+			assertEquals(List.of(7.0f, 8.0f, 9.0f), matrix.getRow(4));
+			matrix.fill(2.0f);
+			matrix.add(expected);
+			matrix.scaleBy(2.0f);
+			matrix.subtract(new DenseMatrix(5, 3, 4.0f));
+			assertTrue(matrix.equals(expected.times(2.0f)));
+			matrix.invert();
+			assertEquals(3, matrix.rowSize());
+			assertTrue(matrix.equals(expected.times(2.0f).transpose()));
+		}
+	}
+
+	@Test
+	void close() {
+		OffHeapMatrix matrix = chunkedCopy();
+		assertFalse(matrix.isClosed());
+		matrix.close();
+		matrix.close();
+		assertTrue(matrix.isClosed());
+		assertThrows(IllegalStateException.class, () -> matrix.getFloat(0, 0));
+		assertThrows(IllegalStateException.class, () -> matrix.setRow(0, new float[3]));
+	}
+
+	@Test
+	void closingReleasesBuffersStillInUse() throws InterruptedException {
+		OffHeapMatrix matrix = new OffHeapMatrix(512, 512);
+		matrix.fill(1.0f);
+		FloatBuffer inUse = matrix.chunk(1);
+		CountDownLatch reading = new CountDownLatch(1);
+		AtomicReference<Throwable> stopped = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			float[] row = new float[512];
+			try {
+				while (true) {
+					matrix.copyRowInto(7, row, 0);
+					reading.countDown();
+				}
+			} catch (Throwable e) {
+				stopped.set(e);
+			}
+		});
+		reader.start();
+		reading.await();
+		matrix.close();
+		reader.join(10_000);
+		assertTrue(stopped.get() instanceof IllegalStateException);
+		if (BufferScope.RELEASED_ON_CLOSE)
+			assertThrows(IllegalStateException.class, () -> inUse.get(0));
+		else
+			assertEquals(1.0f, inUse.get(0));
+	}
+}
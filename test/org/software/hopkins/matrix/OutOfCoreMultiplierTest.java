@@ -0,0 +1,106 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutOfCoreMultiplierTest {
+	@TempDir
+	Path tempDir;
+
+	private static DenseMatrix random(int rows, int cols, long seed) {
+		Random random = new Random(seed);
+		float[] data = new float[rows * cols];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextFloat() * 2.0f - 1.0f;
+		}
+		return new DenseMatrix(rows, cols, data);
+	}
+
+	private long scratchFiles() throws IOException {
+		try (Stream<Path> files = Files.list(tempDir)) {
+			return files.filter(path -> path.getFileName().toString().endsWith(".tiles")).count();
+		}
+	}
+
+	@Test
+	void matchesInMemoryProduct() throws IOException {
+		DenseMatrix a = random(90, 600, 1L);
+		DenseMatrix b = random(600, 70, 2L);
+		Path aPath = tempDir.resolve("a.hsm");
+		Path bPath = tempDir.resolve("b.hsm");
+		Path cPath = tempDir.resolve("c.hsm");
+		MatrixFile.write(aPath, a);
+		MatrixFile.write(bPath, b);
+		// Room for tiles of C about 40 on a side, with the operands in 256-deep tiles.
+		OutOfCoreMultiplier multiplier = new OutOfCoreMultiplier(170_000, tempDir);
+		OutOfCoreMultiplier.Tiling tiling = multiplier.tiling(90, 600, 70, TiledMultiplier.DEFAULT_DEPTH_BLOCK);
+		assertTrue(tiling.rows < 90 && tiling.cols < 70);
+		assertEquals(TiledMultiplier.DEFAULT_DEPTH_BLOCK, tiling.depth);
+		multiplier.multiply(aPath, bPath, cPath);
+		try (MappedMatrix c = MatrixFile.map(cPath)) {
+			assertTrue(c.checksumMatches());
+			assertTrue(c.equals(a.times(b)));
+		}
+		assertEquals(0, scratchFiles());
+	}
+
+	@Test
+	void tilesAnyOperands() throws IOException {
+		TiledMultiplier small = new TiledMultiplier(8, 16, 8).sequential();
+		HSMatrix a = new DenseMatrix(21, 45, -2.0f, true).transpose().transpose();
+		float[] sparseEntries = new float[45 * 30];
+		for (int i = 0; i < sparseEntries.length; i += 5) {
+			sparseEntries[i] = i * 0.125f - 20.0f;
+		}
+		HSMatrix b = new CSRMatrix(new DenseMatrix(45, 30, sparseEntries));
+		Path cPath = tempDir.resolve("c.hsm");
+		OutOfCoreMultiplier multiplier = new OutOfCoreMultiplier(4_000, tempDir, small);
+		OutOfCoreMultiplier.Tiling tiling = multiplier.tiling(21, 45, 30, small.getDepthBlock());
+		assertTrue(tiling.rows < 21 && tiling.depth < 45 && tiling.cols < 30);
+		multiplier.multiply(a, b, cPath);
+		try (MappedMatrix c = MatrixFile.map(cPath)) {
+			assertTrue(c.equals(new DenseMatrix(21, 30, small.multiply(a, new DenseMatrix(b)))));
+		}
+		assertEquals(0, scratchFiles());
+	}
+
+	@Test
+	void emptyAndTooSmall() throws IOException {
+		Path cPath = tempDir.resolve("c.hsm");
+		new OutOfCoreMultiplier(1 << 20, tempDir).multiply(new DenseMatrix(3, 0), new DenseMatrix(0, 2), cPath);
+		try (MappedMatrix c = MatrixFile.map(cPath)) {
+			assertTrue(c.equals(new DenseMatrix(3, 2)));
+		}
+		assertThrows(IllegalArgumentException.class, () -> new OutOfCoreMultiplier(0));
+		assertThrows(IllegalArgumentException.class,
+				() -> new OutOfCoreMultiplier(1 << 20, tempDir).multiply(new DenseMatrix(3, 2), new DenseMatrix(3, 2), cPath));
+		assertThrows(IllegalArgumentException.class,
+				() -> new OutOfCoreMultiplier(1_000, tempDir).multiply(new DenseMatrix(3, 300), new DenseMatrix(300, 2), cPath));
+	}
+
+	@Test
+	void anOperandFileIsNeverTheResult() throws IOException {
+		Path aPath = tempDir.resolve("a.hsm");
+		Path bPath = tempDir.resolve("b.hsm");
+		MatrixFile.write(aPath, new DenseMatrix(4, 4, 1.0f, true));
+		MatrixFile.write(bPath, new DenseMatrix(4, 4, 2.0f));
+		byte[] aWritten = Files.readAllBytes(aPath);
+		byte[] bWritten = Files.readAllBytes(bPath);
+		OutOfCoreMultiplier multiplier = new OutOfCoreMultiplier(1 << 20, tempDir);
+		for (Path result : new Path[] {aPath, bPath, tempDir.resolve(".").resolve("b.hsm"),
+				Files.createSymbolicLink(tempDir.resolve("link.hsm"), aPath)}) {
+			assertThrows(IllegalArgumentException.class, () -> multiplier.multiply(aPath, bPath, result));
+		}
+		assertArrayEquals(aWritten, Files.readAllBytes(aPath));
+		assertArrayEquals(bWritten, Files.readAllBytes(bPath));
+		assertEquals(0, scratchFiles());
+	}
+}
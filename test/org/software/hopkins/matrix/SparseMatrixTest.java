@@ -0,0 +1,157 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseMatrixTest {
+	final Random random = new Random(7);
+
+	final HSMatrix dense = new DenseMatrix(new float[][] {
+			{0.0f, 2.0f, 0.0f, 0.0f},
+			{1.0f, 0.0f, 0.0f, -3.0f},
+			{0.0f, 0.0f, 0.0f, 0.0f}});
+
+	/**
+	 * A matrix of small whole numbers where about one entry in four is non-zero.
+	 */
+	DenseMatrix randomSparse(int mRows, int nCols) {
+		float[] values = new float[mRows * nCols];
+		for (int i = 0; i < values.length; i++) {
+			if (random.nextInt(4) == 0)
+				values[i] = random.nextInt(9) - 4;
+		}
+		return new DenseMatrix(mRows, nCols, values);
+	}
+
+	@Test
+	void constructors() {
+		SparseMatrix csr = new CSRMatrix(dense);
+		SparseMatrix csc = new CSCMatrix(dense);
+		assertEquals(3, csr.nonZeroCount());
+		assertEquals(3, csc.nonZeroCount());
+		assertTrue(csr.equals(dense));
+		assertTrue(csc.equals(dense));
+		assertTrue(dense.equals(csr));
+		assertTrue(csr.equals(csc));
+		assertTrue(new CSRMatrix(3, 4, new int[] {0, 1, 3, 3}, new int[] {1, 0, 3}, new float[] {2.0f, 1.0f, -3.0f}).equals(csr));
+		assertTrue(new CSCMatrix(3, 4, new int[] {0, 1, 2, 2, 3}, new int[] {1, 0, 1}, new float[] {1.0f, 2.0f, -3.0f}).equals(csc));
+		assertThrows(IllegalArgumentException.class, () -> new CSRMatrix(3, 4, new int[] {0, 1, 3, 3}, new int[] {1, 3, 0}, new float[3]));
+		assertThrows(IndexOutOfBoundsException.class, () -> new CSRMatrix(1, 2, new int[] {0, 1}, new int[] {2}, new float[1]));
+		assertEquals(dense.toString(), csc.toString());
+	}
+
+	@Test
+	void access() {
+		for (SparseMatrix matrix : List.of(new CSRMatrix(dense), new CSCMatrix(dense))) {
+			assertEquals(-3.0f, matrix.getFloat(1, 3));
+			assertEquals(0.0f, matrix.getEntry(2, 1));
+			assertEquals(List.of(1.0f, 0.0f, 0.0f, -3.0f), matrix.getRow(1));
+			assertEquals(List.of(2.0f, 0.0f, 0.0f), matrix.getColumn(1));
+			assertEquals(-2.0f, matrix.sumRow(1));
+			assertEquals(-3.0f, matrix.sumColumn(3));
+			assertEquals(0.0f, matrix.sumRow(2));
+			assertThrows(IndexOutOfBoundsException.class, () -> matrix.getEntry(3, 0));
+		}
+	}
+
+	@Test
+	void transpose() {
+		HSMatrix transposed = new CSRMatrix(dense).transpose();
+		assertTrue(transposed instanceof CSCMatrix);
+		assertTrue(transposed.equals(dense.transpose()));
+		assertTrue(new CSCMatrix(dense).transpose().equals(dense.transpose()));
+		HSMutableMatrix inverted = new CSRMatrix(dense);
+		inverted.invert();
+		assertTrue(inverted instanceof CSRMatrix);
+		assertTrue(inverted.equals(dense.transpose()));
+	}
+
+	@Test
+	void arithmetic() {
+		DenseMatrix a = randomSparse(5, 6);
+		DenseMatrix b = randomSparse(5, 6);
+		HSMatrix sum = new CSRMatrix(a).plus(new CSCMatrix(b));
+		assertTrue(sum instanceof CSRMatrix);
+		assertTrue(sum.equals(a.plus(b)));
+		assertTrue(new CSCMatrix(a).minus(b).equals(a.minus(b)));
+		assertTrue(a.minus(new CSRMatrix(b)).equals(a.minus(b)));
+		assertTrue(new CSRMatrix(a).minus(new CSRMatrix(a)).equals(new CSRMatrix(5, 6)));
+		assertEquals(0, ((SparseMatrix) new CSRMatrix(a).minus(new CSRMatrix(a))).nonZeroCount());
+		assertTrue(new CSCMatrix(a).times(2.0f).equals(a.times(2.0f)));
+		assertTrue(new CSRMatrix(a).negative().plus(new CSRMatrix(a)).equals(new CSRMatrix(5, 6)));
+		assertThrows(IllegalArgumentException.class, () -> new CSRMatrix(a).plus(new CSRMatrix(6, 5)));
+	}
+
+	@Test
+	void scalingNeverStoresZeros() {
+		DenseMatrix tiny = new DenseMatrix(new float[][] {{1e-30f, 0.0f}, {0.0f, 1.0f}});
+		for (SparseMatrix matrix : new SparseMatrix[] {new CSRMatrix(tiny), new CSCMatrix(tiny)}) {
+			matrix.scaleBy(1e-30f);
+			assertEquals(1, matrix.nonZeroCount());
+			assertTrue(matrix.equals(new CSRMatrix(tiny.times(1e-30f))));
+			assertTrue(matrix.equals(tiny.times(1e-30f)));
+		}
+		for (float scalar : new float[] {Float.NaN, Float.POSITIVE_INFINITY}) {
+			DenseMatrix scaled = (DenseMatrix) dense.times(scalar);
+			for (SparseMatrix matrix : new SparseMatrix[] {new CSRMatrix(dense), new CSCMatrix(dense)}) {
+				assertTrue(matrix.times(scalar).equals(scaled), "times " + scalar);
+				matrix.scaleBy(scalar);
+				assertTrue(matrix.equals(scaled), "scaleBy " + scalar);
+			}
+		}
+		SparseMatrix infinite = new CSRMatrix(dense);
+		infinite.scaleBy(Float.NEGATIVE_INFINITY);
+		assertEquals(12, infinite.nonZeroCount());
+		assertTrue(Float.isNaN(infinite.getFloat(2, 2)));
+	}
+
+	@Test
+	void products() {
+		DenseMatrix a = randomSparse(7, 9);
+		DenseMatrix b = randomSparse(9, 5);
+		HSMatrix expected = new DenseMatrix(7, 5, TiledMultiplierTest.naiveProduct(a, b));
+		HSMatrix sparseProduct = new CSRMatrix(a).times(new CSCMatrix(b));
+		assertTrue(sparseProduct instanceof CSRMatrix);
+		assertTrue(sparseProduct.equals(expected));
+		assertTrue(new CSCMatrix(a).times(new CSRMatrix(b)).equals(expected));
+		assertTrue(new CSRMatrix(a).times(b).equals(expected));
+		assertTrue(new CSCMatrix(a).times(b).equals(expected));
+		assertTrue(a.times(new CSRMatrix(b)).equals(expected));
+		assertTrue(a.times(new CSCMatrix(b)).equals(expected));
+		assertTrue(new Matrix(TiledMultiplierTest.toBoxed(a)).times(new CSRMatrix(b)).equals(expected));
+		assertThrows(IllegalArgumentException.class, () -> new CSRMatrix(a).times(a));
+	}
+
+	@Test
+	void mutation() {
+		for (HSMutableMatrix matrix : List.<HSMutableMatrix>of(new CSRMatrix(3, 4), new CSCMatrix(3, 4))) {
+			matrix.setFloat(1, 3, -3.0f);
+			matrix.setFloat(0, 1, 2.0f);
+			matrix.setEntry(1, 0, 1.0f);
+			matrix.setFloat(2, 2, 5.0f);
+			matrix.setFloat(2, 2, 0.0f);
+			assertTrue(matrix.equals(dense));
+			assertEquals(3, ((SparseMatrix) matrix).nonZeroCount());
+			matrix.setRow(2, new float[] {0.0f, 4.0f, 0.0f, 6.0f});
+			matrix.setRow(0, List.of(0.0f, 0.0f, 0.0f, 0.0f));
+			matrix.setColumn(0, List.of(9.0f));
+			assertEquals(List.of(9.0f, 0.0f, 0.0f, 0.0f), matrix.getRow(0));
+			assertEquals(List.of(0.0f, 4.0f, 0.0f, 6.0f), matrix.getRow(2));
+			matrix.add(dense);
+			matrix.subtract(new CSCMatrix(dense));
+			matrix.scaleBy(2.0f);
+			assertTrue(matrix.equals(new DenseMatrix(new float[][] {
+					{18.0f, 0.0f, 0.0f, 0.0f}, {2.0f, 0.0f, 0.0f, -6.0f}, {0.0f, 8.0f, 0.0f, 12.0f}})));
+			matrix.multiplyBy(new DenseMatrix(4, 1, 1.0f));
+			assertTrue(matrix.equals(new DenseMatrix(new float[][] {{18.0f}, {-4.0f}, {20.0f}})));
+			matrix.fill(0.0f);
+			assertEquals(0, ((SparseMatrix) matrix).nonZeroCount());
+			matrix.setValuesIncrementedFrom(0.0f);
+			assertTrue(matrix.equals(new DenseMatrix(3, 1, 0.0f, true)));
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrassenMultiplierTest {
+	final Random random = new Random(7);
+
+	DenseMatrix randomSquare(int size) {
+		float[] values = new float[size * size];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(9) - 4;
+		}
+		return new DenseMatrix(size, size, values);
+	}
+
+	@Test
+	void matchesClassicProduct() {
+		StrassenMultiplier strassen = new StrassenMultiplier(4, TiledMultiplier.getDefault().sequential());
+		for (int size : new int[] {1, 4, 5, 8, 13, 16, 31, 40}) {
+			DenseMatrix a = randomSquare(size);
+			DenseMatrix b = randomSquare(size);
+			assertArrayEquals(TiledMultiplierTest.naiveProduct(a, b), strassen.multiply(a, b));
+		}
+	}
+
+	@Test
+	void rejectsNonSquareOperands() {
+		StrassenMultiplier strassen = new StrassenMultiplier(2, TiledMultiplier.getDefault());
+		assertThrows(IllegalArgumentException.class,
+				() -> strassen.multiply(new DenseMatrix(3, 4), new DenseMatrix(4, 3)));
+		assertThrows(IllegalArgumentException.class,
+				() -> strassen.multiply(new DenseMatrix(3, 3), new DenseMatrix(4, 4)));
+		assertThrows(IllegalArgumentException.class, () -> new StrassenMultiplier(0, TiledMultiplier.getDefault()));
+	}
+}
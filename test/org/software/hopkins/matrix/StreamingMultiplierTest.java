@@ -0,0 +1,86 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMultiplierTest {
+	@TempDir
+	Path tempDir;
+
+	private static DenseMatrix random(int rows, int cols, long seed) {
+		Random random = new Random(seed);
+		float[] data = new float[rows * cols];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextFloat() * 2.0f - 1.0f;
+		}
+		return new DenseMatrix(rows, cols, data);
+	}
+
+	@Test
+	void matchesInMemoryProduct() throws IOException {
+		DenseMatrix left = random(37, 20, 1L);
+		Path leftPath = tempDir.resolve("left.hsm");
+		Path resultPath = tempDir.resolve("result.hsm");
+		MatrixFile.write(leftPath, left);
+		float[] sparseEntries = new float[20 * 4];
+		for (int i = 0; i < sparseEntries.length; i += 7) {
+			sparseEntries[i] = i * 0.25f - 3.0f;
+		}
+		List<HSMatrix> rights = List.of(
+				random(20, 1, 2L),
+				random(20, 6, 3L),
+				new CSRMatrix(new DenseMatrix(20, 4, sparseEntries)),
+				new DenseMatrix(6, 20, -3.0f, true).transpose());
+		// Blocks of 3 rows, of 1 row, and of the whole file.
+		for (int blockBytes : new int[] {20 * 4 * 3, 4, StreamingMultiplier.DEFAULT_BLOCK_BYTES}) {
+			StreamingMultiplier streaming = new StreamingMultiplier(blockBytes);
+			for (HSMatrix right : rights) {
+				streaming.multiply(leftPath, right, resultPath);
+				try (MappedMatrix result = MatrixFile.map(resultPath)) {
+					assertTrue(result.checksumMatches());
+					assertTrue(result.equals(left.times(right)));
+				}
+			}
+		}
+	}
+
+	@Test
+	void emptyAndMismatchedOperands() throws IOException {
+		Path leftPath = tempDir.resolve("empty.hsm");
+		Path resultPath = tempDir.resolve("result.hsm");
+		MatrixFile.write(leftPath, new DenseMatrix(0, 3));
+		new StreamingMultiplier().multiply(leftPath, new DenseMatrix(3, 2, 1.0f), resultPath);
+		try (MappedMatrix result = MatrixFile.map(resultPath)) {
+			assertEquals(0, result.rowSize());
+			assertEquals(2, result.columnSize());
+		}
+		assertThrows(IllegalArgumentException.class,
+				() -> new StreamingMultiplier().multiply(leftPath, new DenseMatrix(2, 2, 1.0f), resultPath));
+		assertThrows(IllegalArgumentException.class, () -> new StreamingMultiplier(0));
+		Files.write(leftPath, new byte[] {1, 2, 3});
+		assertThrows(IOException.class,
+				() -> new StreamingMultiplier().multiply(leftPath, new DenseMatrix(3, 2, 1.0f), resultPath));
+	}
+
+	@Test
+	void theLeftFileIsNeverTheResult() throws IOException {
+		DenseMatrix left = new DenseMatrix(4, 4, 1.0f, true);
+		Path leftPath = tempDir.resolve("left.hsm");
+		MatrixFile.write(leftPath, left);
+		byte[] written = Files.readAllBytes(leftPath);
+		DenseMatrix right = new DenseMatrix(4, 4, 2.0f);
+		for (Path result : new Path[] {leftPath, tempDir.resolve(".").resolve("left.hsm"),
+				Files.createSymbolicLink(tempDir.resolve("link.hsm"), leftPath)}) {
+			assertThrows(IllegalArgumentException.class, () -> new StreamingMultiplier().multiply(leftPath, right, result));
+		}
+		assertArrayEquals(written, Files.readAllBytes(leftPath));
+	}
+}
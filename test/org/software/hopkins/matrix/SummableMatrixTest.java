@@ -2,8 +2,9 @@ package org.software.hopkins.matrix;
 
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class SummableMatrixTest {
 	final int ROW_SIZE = 2;
@@ -21,6 +22,7 @@ public class SummableMatrixTest {
 	@Test
 	void sumColumn() {
 		assertEquals(5.0f, matrix.sumColumn(0));
+		assertEquals(9.0f, matrix.sumColumn(2));
 	}
 
 	@Test
@@ -34,8 +36,47 @@ public class SummableMatrixTest {
 		assertTrue(matrix1.plus(matrix2).equals(matrix3));
 	}
 
+	@Test
+	void bulkReductions() {
+		DenseMatrix dense = new DenseMatrix(new float[][] {{1, 0, -3, 0}, {0, 0, 0, 0}, {2.5f, -1, 0, 4}});
+		List<HSMatrix> everyKind = List.of(dense, new Matrix(3, 4, 0.0f).plus(dense), new CSRMatrix(dense),
+				new CSCMatrix(dense), new OffHeapMatrix(dense), MatrixView.submatrix(dense, 0, 0, 3, 4),
+				MatrixView.transposed(MatrixView.transposed(dense.transpose().transpose())));
+		for (HSMatrix matrix : everyKind) {
+			String kind = matrix.getClass().getSimpleName();
+			assertArrayEquals(new double[] {-2, 0, 5.5}, matrix.rowSums(), kind);
+			assertArrayEquals(new double[] {3.5, -1, -3, 4}, matrix.columnSums(), kind);
+			float[][] minMax = matrix.rowMinMax();
+			assertArrayEquals(new float[] {-3, 0, -1}, minMax[0], kind);
+			assertArrayEquals(new float[] {1, 0, 4}, minMax[1], kind);
+			assertEquals(Math.sqrt(1 + 9 + 6.25 + 1 + 16), matrix.frobeniusNorm(), 1e-12, kind);
+			assertThrows(IllegalArgumentException.class, matrix::trace, kind);
+			assertEquals(1.0, MatrixView.submatrix(matrix, 0, 0, 3, 3).trace(), kind);
+			assertEquals(4.0, MatrixView.submatrix(matrix, 0, 1, 3, 3).trace(), kind);
+		}
+		assertArrayEquals(new double[] {-2, 0, 5.5}, new CSRMatrix(dense).transpose().columnSums());
+		float[][] noColumns = new DenseMatrix(2, 0).rowMinMax();
+		assertEquals(Float.POSITIVE_INFINITY, noColumns[0][1]);
+		assertEquals(Float.NEGATIVE_INFINITY, noColumns[1][1]);
+	}
 
+	@Test
+	void parallelReductions() {
+		DenseMatrix large = new DenseMatrix(700, 300, -1000.0f, true);
+		HSMatrix transposed = large.transpose();
+		assertArrayEquals(MatrixReductions.rowSums(large, false), MatrixReductions.rowSums(large, true));
+		assertArrayEquals(MatrixReductions.columnSums(large, false), MatrixReductions.columnSums(large, true), 1e-6);
+		assertArrayEquals(MatrixReductions.rowSums(transposed, true), large.columnSums(), 1e-6);
+		assertArrayEquals(MatrixReductions.rowMinMax(large, false)[1], MatrixReductions.rowMinMax(large, true)[1]);
+		assertEquals(MatrixReductions.frobeniusNorm(large, false), MatrixReductions.frobeniusNorm(transposed, true), 1e-6);
+		assertEquals(sum(MatrixReductions.rowSums(large, true)), sum(MatrixReductions.columnSums(large, true)));
+	}
 
-
-
+	private static double sum(double[] values) {
+		double sum = 0.0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
 }
@@ -0,0 +1,107 @@
+package org.software.hopkins.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiledMultiplierTest {
+	final Random random = new Random(42);
+
+	/**
+	 * A matrix of small whole numbers, so products are exact whatever the summation order.
+	 */
+	DenseMatrix randomMatrix(int mRows, int nCols) {
+		float[] values = new float[mRows * nCols];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(19) - 9;
+		}
+		return new DenseMatrix(mRows, nCols, values);
+	}
+
+	static float[] naiveProduct(HSMatrix a, HSMatrix b) {
+		float[] c = new float[a.rowSize() * b.columnSize()];
+		for (int i = 0; i < a.rowSize(); i++) {
+			for (int j = 0; j < b.columnSize(); j++) {
+				float cij = 0.0f;
+				for (int k = 0; k < a.columnSize(); k++) {
+					cij += a.getFloat(i, k) * b.getFloat(k, j);
+				}
+				c[i * b.columnSize() + j] = cij;
+			}
+		}
+		return c;
+	}
+
+	@Test
+	void matchesNaiveProductAcrossBlockEdges() {
+		TiledMultiplier multiplier = new TiledMultiplier(8, 5, 12);
+		int[][] shapes = {{1, 1, 1}, {3, 7, 2}, {13, 11, 17}, {33, 9, 5}, {4, 40, 30}};
+		for (int[] shape : shapes) {
+			DenseMatrix a = randomMatrix(shape[0], shape[1]);
+			DenseMatrix b = randomMatrix(shape[1], shape[2]);
+			assertArrayEquals(naiveProduct(a, b), multiplier.multiply(a, b));
+		}
+	}
+
+	@Test
+	void parallelMatchesSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			TiledMultiplier parallel = new TiledMultiplier(8, 16, 8, 0, pool);
+			TiledMultiplier sequential = parallel.sequential();
+			int[][] shapes = {{1, 3, 50}, {70, 20, 3}, {65, 33, 47}, {20, 5, 600}};
+			for (int[] shape : shapes) {
+				DenseMatrix a = randomMatrix(shape[0], shape[1]);
+				DenseMatrix b = randomMatrix(shape[1], shape[2]);
+				assertArrayEquals(sequential.multiply(a, b), parallel.multiply(a, b));
+				assertArrayEquals(naiveProduct(a, b), parallel.multiply(a, b));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void acceptsAnyMatrix() {
+		DenseMatrix a = randomMatrix(6, 5);
+		HSMatrix b = new Matrix(5, 3, 1.0f, true);
+		assertArrayEquals(naiveProduct(a, b), TiledMultiplier.getDefault().multiply(a, b));
+		assertThrows(IllegalArgumentException.class, () -> TiledMultiplier.getDefault().multiply(a, a));
+	}
+
+	@Test
+	void blockSizes() {
+		TiledMultiplier multiplier = new TiledMultiplier(10, 7, 13);
+		assertEquals(12, multiplier.getRowBlock());
+		assertEquals(7, multiplier.getDepthBlock());
+		assertEquals(16, multiplier.getColumnBlock());
+		assertThrows(IllegalArgumentException.class, () -> new TiledMultiplier(0, 1, 1));
+	}
+
+	@Test
+	void matrixClassesUseKernel() {
+		DenseMatrix a = randomMatrix(9, 10);
+		DenseMatrix b = randomMatrix(10, 7);
+		HSMatrix expected = new DenseMatrix(9, 7, naiveProduct(a, b));
+		assertTrue(new Matrix(toBoxed(a)).times(b).equals(expected));
+		MutableMatrix mutable = new MutableMatrix(9, 10);
+		for (int r = 0; r < 9; r++) {
+			mutable.setRow(r, a.getRow(r));
+		}
+		mutable.multiplyBy(b);
+		assertTrue(mutable.equals(expected));
+	}
+
+	static Float[][] toBoxed(HSMatrix matrix) {
+		Float[][] boxed = new Float[matrix.rowSize()][matrix.columnSize()];
+		for (int r = 0; r < matrix.rowSize(); r++) {
+			for (int c = 0; c < matrix.columnSize(); c++) {
+				boxed[r][c] = matrix.getEntry(r, c);
+			}
+		}
+		return boxed;
+	}
+}
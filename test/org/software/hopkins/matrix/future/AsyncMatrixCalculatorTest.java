@@ -0,0 +1,145 @@
+package org.software.hopkins.matrix.future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.software.hopkins.matrix.DenseMatrix;
+import org.software.hopkins.matrix.HSMatrix;
+import org.software.hopkins.matrix.MatrixOperation;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncMatrixCalculatorTest {
+	/** A transpose waits for this to open, so a test can keep a calculation running. */
+	final CountDownLatch transposeMayFinish = new CountDownLatch(1);
+	final CountDownLatch transposeStarted = new CountDownLatch(1);
+	/** Storing a result under the name "P" waits for this to open. */
+	final CountDownLatch publishMayFinish = new CountDownLatch(1);
+	final CountDownLatch publishStarted = new CountDownLatch(1);
+	final MatrixCalculator calculator = new CommandLineMatrixCalculator() {
+		@Override
+		public HSMatrix transposeMatrixCalculation(String operand, String resultMatrixName) {
+			transposeStarted.countDown();
+			await(transposeMayFinish);
+			return super.transposeMatrixCalculation(operand, resultMatrixName);
+		}
+
+		@Override
+		protected HSMatrix publish(String name, HSMatrix matrix) {
+			if (name.equals("P")) {
+				publishStarted.countDown();
+				await(publishMayFinish);
+			}
+			return super.publish(name, matrix);
+		}
+	};
+	final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>());
+	final AsyncMatrixCalculator async = new AsyncMatrixCalculator(calculator, executor);
+
+	@AfterEach
+	void shutDown() {
+		transposeMayFinish.countDown();
+		publishMayFinish.countDown();
+		executor.shutdownNow();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** The deadline takes a calculation off the queue on another thread, after its future completes. */
+	private void awaitEmptyQueue() throws InterruptedException {
+		long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!executor.getQueue().isEmpty() && System.nanoTime() - giveUp < 0) {
+			Thread.sleep(1);
+		}
+		assertTrue(executor.getQueue().isEmpty());
+	}
+
+	@Test
+	void resultsAreStoredUnderTheResultName() {
+		calculator.makeMatrix("A", new DenseMatrix(2, 3, 1.0f, true));
+		calculator.makeMatrix("B", new DenseMatrix(3, 2, 1.0f));
+		HSMatrix product = async.submitMultiMatrixCalculation(MatrixOperation.MULTIPLY, new String[] {"A", "B"}, "C")
+				.join();
+		assertSame(product, async.getMatrix("C"));
+		assertTrue(product.equals(new DenseMatrix(new float[][] {{6, 6}, {15, 15}})));
+		assertEquals(30.0f, async.submitSumRow("C", "", 1).join().getFloat(0, 0));
+		assertTrue(async.submitScale("C", "D", 2.0f).join().equals(async.getMatrix("D")));
+		CompletableFuture<HSMatrix> missing = async.submitSumColumn("X", "E", 0);
+		assertThrows(CompletionException.class, missing::join);
+		assertFalse(calculator.registry.contains("E"));
+	}
+
+	@Test
+	void queuedCalculationsPastTheirDeadlineNeverRun() throws InterruptedException {
+		calculator.makeMatrix("A", new DenseMatrix(2, 2, 1.0f, true));
+		CompletableFuture<HSMatrix> running = async.submitTranspose("A", "T");
+		await(transposeStarted);
+		CompletableFuture<HSMatrix> queued = async.submitScale("A", "S", 2.0f, Duration.ofMillis(20));
+		CompletionException timedOut = assertThrows(CompletionException.class, queued::join);
+		assertTrue(timedOut.getCause() instanceof TimeoutException);
+		awaitEmptyQueue();
+		transposeMayFinish.countDown();
+		running.join();
+		assertTrue(calculator.registry.contains("T"));
+		assertFalse(calculator.registry.contains("S"));
+	}
+
+	@Test
+	void cancelledCalculationsAreTakenOffTheQueue() {
+		calculator.makeMatrix("A", new DenseMatrix(2, 2, 1.0f, true));
+		async.submitTranspose("A", "T");
+		await(transposeStarted);
+		CompletableFuture<HSMatrix> queued = async.submitScale("A", "S", 2.0f);
+		assertEquals(1, executor.getQueue().size());
+		assertTrue(queued.cancel(false));
+		assertThrows(CancellationException.class, queued::join);
+		assertTrue(executor.getQueue().isEmpty());
+		transposeMayFinish.countDown();
+		assertFalse(calculator.registry.contains("S"));
+	}
+
+	@Test
+	void calculationsThatOverrunTheirDeadlineStoreNothing() throws InterruptedException {
+		calculator.makeMatrix("A", new DenseMatrix(2, 2, 1.0f, true));
+		CompletableFuture<HSMatrix> overrun = async.submitTranspose("A", "T", Duration.ofMillis(20));
+		await(transposeStarted);
+		CompletionException timedOut = assertThrows(CompletionException.class, overrun::join);
+		assertTrue(timedOut.getCause() instanceof TimeoutException);
+		transposeMayFinish.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(1, executor.getCompletedTaskCount());
+		assertFalse(calculator.registry.contains("T"));
+	}
+
+	@Test
+	void deadlinesThatPassWhileStoringTheResultNeitherWaitNorWin() {
+		calculator.makeMatrix("A", new DenseMatrix(2, 2, 1.0f, true));
+		CompletableFuture<HSMatrix> publishing = async.submitScale("A", "P", 2.0f, Duration.ofMillis(20));
+		await(publishStarted);
+		// Other deadlines go on passing while the result is being stored.
+		CompletableFuture<HSMatrix> other = new CompletableFuture<HSMatrix>().orTimeout(40, TimeUnit.MILLISECONDS);
+		assertThrows(CompletionException.class, other::join);
+		assertFalse(publishing.cancel(false));
+		assertFalse(publishing.isDone());
+		publishMayFinish.countDown();
+		HSMatrix scaled = publishing.join();
+		assertSame(scaled, async.getMatrix("P"));
+	}
+}